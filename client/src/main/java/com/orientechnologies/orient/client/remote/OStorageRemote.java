@@ -23,13 +23,16 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 
 import javax.naming.NamingException;
@@ -84,47 +87,50 @@ import com.orientechnologies.orient.enterprise.channel.binary.OAsynchChannelServ
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryClient;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
+import com.orientechnologies.orient.enterprise.channel.binary.OPreparedCommandNotFoundException;
 import com.orientechnologies.orient.enterprise.channel.binary.ORemoteServerEventListener;
 
 /**
  * This object is bound to each remote ODatabase instances.
  */
 public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
-  private static final String              DEFAULT_HOST         = "localhost";
-  private static final int                 DEFAULT_PORT         = 2424;
-  private static final String              ADDRESS_SEPARATOR    = ";";
-
-  public static final String               PARAM_MIN_POOL       = "minpool";
-  public static final String               PARAM_MAX_POOL       = "maxpool";
-  public static final String               PARAM_DB_TYPE        = "dbtype";
-
-  private static final String              DRIVER_NAME          = "OrientDB Java";
-
-  private final ExecutorService            asynchExecutor;
-  private OAsynchChannelServiceThread      serviceThread;
-  private OContextConfiguration            clientConfiguration;
-  private int                              connectionRetry;
-  private int                              connectionRetryDelay;
-
-  private final List<OChannelBinaryClient> networkPool          = new ArrayList<OChannelBinaryClient>();
-  private int                              networkPoolCursor    = 0;
-
-  protected final List<String>             serverURLs           = new ArrayList<String>();
-  private OCluster[]                       clusters             = new OCluster[0];
-  protected final Map<String, OCluster>    clusterMap           = new ConcurrentHashMap<String, OCluster>();
-  private int                              defaultClusterId;
-  private int                              minPool;
-  private int                              maxPool;
-  private final boolean                    debug                = false;
-  private ODocument                        clusterConfiguration = new ODocument();
-  private ORemoteServerEventListener       asynchEventListener;
-  private String                           connectionDbType;
-  private String                           connectionUserName;
-  private String                           connectionUserPassword;
-  private Map<String, Object>              connectionOptions;
-  private final String                     clientId;
-
-  private final int                        maxReadQueue;
+  private static final String                                DEFAULT_HOST         = "localhost";
+  private static final int                                   DEFAULT_PORT         = 2424;
+  private static final String                                ADDRESS_SEPARATOR    = ";";
+
+  public static final String                                 PARAM_MIN_POOL       = "minpool";
+  public static final String                                 PARAM_MAX_POOL       = "maxpool";
+  public static final String                                 PARAM_DB_TYPE        = "dbtype";
+
+  private static final String                                DRIVER_NAME          = "OrientDB Java";
+
+  private final ExecutorService                              asynchExecutor;
+  private OAsynchChannelServiceThread                        serviceThread;
+  private OContextConfiguration                              clientConfiguration;
+  private int                                                connectionRetry;
+  private int                                                connectionRetryDelay;
+
+  private final List<OChannelBinaryClient>                   networkPool          = new ArrayList<OChannelBinaryClient>();
+  private int                                                networkPoolCursor    = 0;
+
+  protected final List<String>                               serverURLs           = new ArrayList<String>();
+  private OCluster[]                                         clusters             = new OCluster[0];
+  protected final Map<String, OCluster>                      clusterMap           = new ConcurrentHashMap<String, OCluster>();
+  private int                                                defaultClusterId;
+  private int                                                minPool;
+  private int                                                maxPool;
+  private final boolean                                      debug                = false;
+  private ODocument                                          clusterConfiguration = new ODocument();
+  private ORemoteServerEventListener                         asynchEventListener;
+  private String                                             connectionDbType;
+  private String                                             connectionUserName;
+  private String                                             connectionUserPassword;
+  private Map<String, Object>                                connectionOptions;
+  private final String                                       clientId;
+
+  private final int                                          maxReadQueue;
+
+  private final ConcurrentMap<Integer, Map<String, Integer>> preparedCommands;
 
   public OStorageRemote(final String iClientId, final String iURL, final String iMode) throws IOException {
     super(iURL, iURL, iMode);
@@ -140,6 +146,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     asynchExecutor = Executors.newSingleThreadScheduledExecutor();
 
     maxReadQueue = Runtime.getRuntime().availableProcessors() - 1;
+    preparedCommands = new ConcurrentHashMap<Integer, Map<String, Integer>>();
   }
 
   public int getSessionId() {
@@ -256,6 +263,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         }
       }
 
+      preparedCommands.remove(getSessionId());
       setSessionId(-1);
 
       if (!checkForClose(iForce))
@@ -317,6 +325,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     do {
       try {
         final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE);
+        int ticket = 0;
         try {
           if (network.getSrvProtocolVersion() >= 10)
             // SEND THE DATA SEGMENT ID
@@ -326,6 +335,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           network.writeByte(iRecordType);
           network.writeByte((byte) iMode);
 
+          if (iMode == 1)
+            // RESERVE THE RESPONSE BEFORE ANY FURTHER REQUEST OF THE SAME SESSION
+            ticket = network.registerResponse(getSessionId());
+
         } finally {
           endRequest(network);
         }
@@ -350,6 +363,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           // ASYNCHRONOUS
           if (iCallback != null) {
             final int sessionId = getSessionId();
+            final int responseTicket = ticket;
             Callable<Object> response = new Callable<Object>() {
               public Object call() throws Exception {
                 final OClusterPosition result;
@@ -357,7 +371,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                 try {
                   OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
                   System.out.println("BEGIN ASYNCH READ " + OStorageRemoteThreadLocal.INSTANCE.get().sessionId);
-                  beginResponse(network);
+                  network.beginResponse(sessionId, responseTicket);
                   result = network.readClusterPosition();
                   if (network.getSrvProtocolVersion() >= 11)
                     network.readVersion();
@@ -438,6 +452,140 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     } while (true);
   }
 
+  public Map<ORecordId, ORawBuffer> readRecords(final Collection<ORecordId> iRids, final boolean iIgnoreCache) {
+    checkConnection();
+
+    final Map<ORecordId, ORawBuffer> result = new LinkedHashMap<ORecordId, ORawBuffer>();
+
+    if (OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting)
+      // PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+      return result;
+
+    if (!isServerProtocolAtLeast(13)) {
+      // OLD SERVER: LOAD THE RECORDS ONE BY ONE
+      for (ORecordId rid : iRids) {
+        final ORawBuffer buffer = readRecord(rid, null, iIgnoreCache, null).getResult();
+        if (buffer != null)
+          result.put(rid, buffer);
+      }
+      return result;
+    }
+
+    if (iRids.size() > OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH) {
+      // TOO MANY RECORDS FOR ONE REQUEST: SPLIT THEM
+      final List<ORecordId> rids = new ArrayList<ORecordId>(iRids);
+      for (int i = 0; i < rids.size(); i += OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH)
+        result.putAll(readRecords(rids.subList(i, Math.min(i + OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH, rids.size())),
+            iIgnoreCache));
+      return result;
+    }
+
+    do {
+      try {
+
+        OChannelBinaryClient network = null;
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH);
+          network.writeInt(iRids.size());
+          for (ORecordId rid : iRids)
+            network.writeRID(rid);
+          network.writeByte((byte) (iIgnoreCache ? 1 : 0));
+
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          for (ORecordId rid : iRids)
+            if (network.readByte() == 1)
+              result.put(rid, new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte()));
+
+          return result;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        result.clear();
+        handleException("Error on read records " + iRids, e);
+
+      }
+    } while (true);
+  }
+
+  public Map<ORecordId, ORawBuffer> browseCluster(final int iClusterId, final OClusterPosition iFrom, final int iLimit,
+      final boolean iAscending, final String iFetchPlan) {
+    checkConnection();
+
+    final Map<ORecordId, ORawBuffer> result = new LinkedHashMap<ORecordId, ORawBuffer>();
+
+    if (!isServerProtocolAtLeast(13)) {
+      // OLD SERVER: BROWSE THE RECORDS ONE BY ONE
+      OClusterPosition position = iFrom;
+      while (result.size() < iLimit) {
+        position = iAscending ? getNextClusterPosition(iClusterId, position) : getPrevClusterPosition(iClusterId, position);
+        if (position == null || !position.isValid())
+          break;
+
+        final ORecordId rid = new ORecordId(iClusterId, position);
+        final ORawBuffer buffer = readRecord(rid, iFetchPlan, false, null).getResult();
+        if (buffer != null)
+          result.put(rid, buffer);
+      }
+      return result;
+    }
+
+    do {
+      try {
+
+        OChannelBinaryClient network = null;
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_DATACLUSTER_BROWSE);
+          network.writeInt(iClusterId);
+          network.writeClusterPosition(iFrom);
+          network.writeInt(Math.min(iLimit, OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH));
+          network.writeByte((byte) (iAscending ? 1 : 0));
+          network.writeString(iFetchPlan != null ? iFetchPlan : "");
+
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+          byte status;
+          while ((status = network.readByte()) != 0) {
+            if (status == 1)
+              result.put(new ORecordId(iClusterId, network.readClusterPosition()), new ORawBuffer(network.readBytes(), network
+                  .readVersion(), network.readByte()));
+            else {
+              // RECORD LOADED BY THE FETCH PLAN
+              final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+              if (database != null)
+                // PUT IN THE CLIENT LOCAL CACHE
+                database.getLevel1Cache().updateRecord(record);
+            }
+          }
+
+          return result;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        result.clear();
+        handleException("Error on browsing cluster " + iClusterId + " from " + iFrom, e);
+
+      }
+    } while (true);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, int iMode, final ORecordCallback<ORecordVersion> iCallback) {
     checkConnection();
@@ -449,6 +597,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     do {
       try {
         final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE);
+        int ticket = 0;
         try {
           network.writeRID(iRid);
           network.writeBytes(iContent);
@@ -456,6 +605,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           network.writeByte(iRecordType);
           network.writeByte((byte) iMode);
 
+          if (iMode == 1)
+            // RESERVE THE RESPONSE BEFORE ANY FURTHER REQUEST OF THE SAME SESSION
+            ticket = network.registerResponse(getSessionId());
+
         } finally {
           endRequest(network);
         }
@@ -474,13 +627,14 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           // ASYNCHRONOUS
           if (iCallback != null) {
             final int sessionId = getSessionId();
+            final int responseTicket = ticket;
             Callable<Object> response = new Callable<Object>() {
               public Object call() throws Exception {
                 ORecordVersion result;
 
                 try {
                   OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
-                  beginResponse(network);
+                  network.beginResponse(sessionId, responseTicket);
                   result = network.readVersion();
                 } finally {
                   endResponse(network);
@@ -550,12 +704,17 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
   private boolean deleteRecord(final ORecordId iRid, ORecordVersion iVersion, int iMode, final ORecordCallback<Boolean> iCallback,
       final OChannelBinaryClient network) throws IOException {
+    int ticket = 0;
     try {
 
       network.writeRID(iRid);
       network.writeVersion(iVersion);
       network.writeByte((byte) iMode);
 
+      if (iMode == 1)
+        // RESERVE THE RESPONSE BEFORE ANY FURTHER REQUEST OF THE SAME SESSION
+        ticket = network.registerResponse(getSessionId());
+
     } finally {
       endRequest(network);
     }
@@ -574,13 +733,14 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       // ASYNCHRONOUS
       if (iCallback != null) {
         final int sessionId = getSessionId();
+        final int responseTicket = ticket;
         Callable<Object> response = new Callable<Object>() {
           public Object call() throws Exception {
             Boolean result;
 
             try {
               OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
-              beginResponse(network);
+              network.beginResponse(sessionId, responseTicket);
               result = network.readByte() == 1;
             } finally {
               endResponse(network);
@@ -876,12 +1036,19 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
         final boolean asynch = iCommand instanceof OCommandRequestAsynch;
 
+        final int preparedId = prepareCommand(iCommand);
+
         OChannelBinaryClient network = null;
         try {
-          network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND);
+          network = beginRequest(preparedId > -1 ? OChannelBinaryProtocol.REQUEST_COMMAND_EXECUTE
+              : OChannelBinaryProtocol.REQUEST_COMMAND);
 
           network.writeByte((byte) (asynch ? 'a' : 's')); // ASYNC / SYNC
-          network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(command));
+          if (preparedId > -1) {
+            network.writeInt(preparedId);
+            network.writeBytes(preparedCommandToStream(iCommand));
+          } else
+            network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(command));
 
         } finally {
           endRequest(network);
@@ -922,38 +1089,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                 database.getLevel1Cache().updateRecord(record);
               }
             }
-          } else {
-            final byte type = network.readByte();
-            switch (type) {
-            case 'n':
-              result = null;
-              break;
-
-            case 'r':
-              result = OChannelBinaryProtocol.readIdentifiable(network);
-              if (result instanceof ORecord<?>)
-                database.getLevel1Cache().updateRecord((ORecordInternal<?>) result);
-              break;
-
-            case 'l':
-              final int tot = network.readInt();
-              final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>();
-              for (int i = 0; i < tot; ++i) {
-                final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network);
-                if (resultItem instanceof ORecord<?>)
-                  database.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
-                list.add(resultItem);
-              }
-              result = list;
-              break;
-
-            case 'a':
-              final String value = new String(network.readBytes());
-              result = ORecordSerializerStringAbstract.fieldTypeFromStream(null, ORecordSerializerStringAbstract.getType(value),
-                  value);
-              break;
-            }
-          }
+          } else
+            result = readSynchResult(network, database);
           break;
         } finally {
           endResponse(network);
@@ -961,6 +1098,9 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
       } catch (OModificationOperationProhibitedException mope) {
         handleDBFreeze();
+      } catch (OPreparedCommandNotFoundException e) {
+        // EVICTED BY THE SERVER: PREPARE IT AGAIN
+        getPreparedCommands().remove(iCommand.getText());
       } catch (Exception e) {
         handleException("Error on executing command: " + iCommand, e);
 
@@ -972,6 +1112,207 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return result;
   }
 
+  /**
+   * Prepares the command on the server the first time it's executed with parameters. Commands without parameters are not prepared,
+   * since their text usually changes at every execution.
+   * 
+   * @return The id of the prepared command or -1 if the command has to be sent with its text
+   */
+  protected int prepareCommand(final OCommandRequestText iCommand) throws IOException {
+    if (!OGlobalConfiguration.CLIENT_PREPARED_COMMANDS.getValueAsBoolean() || iCommand.getParameters() == null
+        || iCommand.getParameters().isEmpty() || !isServerProtocolAtLeast(14))
+      return -1;
+
+    final Map<String, Integer> commands = getPreparedCommands();
+    final String text = iCommand.getText();
+    final Integer preparedId = commands.get(text);
+    if (preparedId != null)
+      return preparedId.intValue();
+
+    OChannelBinaryClient network = null;
+    try {
+      network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND_PREPARE);
+      network.writeString(text);
+    } finally {
+      endRequest(network);
+    }
+
+    try {
+      beginResponse(network);
+      // -1 = THE SERVER CAN'T PREPARE MORE COMMANDS: REMEMBER IT TO SEND THE TEXT WITHOUT ASKING AGAIN
+      final int id = network.readInt();
+      commands.put(text, id);
+      return id;
+    } finally {
+      endResponse(network);
+    }
+  }
+
+  /**
+   * Returns the commands prepared by the current session. The server keeps the prepared commands of every session apart.
+   */
+  private Map<String, Integer> getPreparedCommands() {
+    final Integer sessionId = getSessionId();
+    Map<String, Integer> commands = preparedCommands.get(sessionId);
+    if (commands == null) {
+      commands = new ConcurrentHashMap<String, Integer>();
+      final Map<String, Integer> previous = preparedCommands.putIfAbsent(sessionId, commands);
+      if (previous != null)
+        commands = previous;
+    }
+    return commands;
+  }
+
+  /**
+   * Serializes the command without its text, that the server takes from the prepared command.
+   */
+  private byte[] preparedCommandToStream(final OCommandRequestText iCommand) throws IOException {
+    final String text = iCommand.getText();
+    iCommand.setText("");
+    try {
+      return OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand);
+    } finally {
+      iCommand.setText(text);
+    }
+  }
+
+  /**
+   * Sends a request to create a record without waiting for the response. The request is pipelined with the others sent on the same
+   * channel: the response is read by the asynchronous executor when its turn comes. Requests sent in this way are not retried on
+   * errors.
+   * 
+   * @return The future of the position of the new record, that is also assigned to the record id
+   */
+  public Future<OPhysicalPosition> createRecordAsync(final int iDataSegmentId, final ORecordId iRid, final byte[] iContent,
+      final byte iRecordType) {
+    checkConnection();
+
+    final int sessionId = getSessionId();
+    do {
+      try {
+        final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE);
+        final int ticket;
+        try {
+          if (network.getSrvProtocolVersion() >= 10)
+            // SEND THE DATA SEGMENT ID
+            network.writeInt(iDataSegmentId);
+          network.writeShort((short) iRid.clusterId);
+          network.writeBytes(iContent);
+          network.writeByte(iRecordType);
+          network.writeByte((byte) 0);
+
+          ticket = network.registerResponse(sessionId);
+        } finally {
+          endRequest(network);
+        }
+
+        return readResponseAsynch(network, sessionId, ticket, new Callable<OPhysicalPosition>() {
+          public OPhysicalPosition call() throws Exception {
+            final OPhysicalPosition ppos = new OPhysicalPosition(iDataSegmentId, -1, iRecordType);
+            iRid.clusterPosition = network.readClusterPosition();
+            ppos.clusterPosition = iRid.clusterPosition;
+            if (network.getSrvProtocolVersion() >= 11)
+              ppos.recordVersion = network.readVersion();
+            else
+              ppos.recordVersion = OVersionFactory.instance().createVersion();
+            return ppos;
+          }
+        });
+
+      } catch (Exception e) {
+        handleException("Error on create record in cluster: " + iRid.clusterId, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends a request to read a record without waiting for the response.
+   * 
+   * @see #createRecordAsync(int, ORecordId, byte[], byte)
+   * @return The future of the record content, null if the record doesn't exist
+   */
+  public Future<ORawBuffer> readRecordAsync(final ORecordId iRid, final boolean iIgnoreCache) {
+    checkConnection();
+
+    final int sessionId = getSessionId();
+    do {
+      try {
+        final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD);
+        final int ticket;
+        try {
+          network.writeRID(iRid);
+          network.writeString("");
+          if (network.getSrvProtocolVersion() >= 9)
+            network.writeByte((byte) (iIgnoreCache ? 1 : 0));
+
+          ticket = network.registerResponse(sessionId);
+        } finally {
+          endRequest(network);
+        }
+
+        return readResponseAsynch(network, sessionId, ticket, new Callable<ORawBuffer>() {
+          public ORawBuffer call() throws Exception {
+            if (network.readByte() == 0)
+              return null;
+
+            final ORawBuffer buffer = new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte());
+
+            // NO FETCH PLAN: NO RECORDS SHOULD FOLLOW, SKIP THEM ANYWAY
+            while (network.readByte() == 2)
+              OChannelBinaryProtocol.readIdentifiable(network);
+
+            return buffer;
+          }
+        });
+
+      } catch (Exception e) {
+        handleException("Error on read record " + iRid, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends a command to execute in synchronous mode on the server without waiting for the result. The records of the result are not
+   * put in the level-1 cache.
+   * 
+   * @see #createRecordAsync(int, ORecordId, byte[], byte)
+   * @return The future of the command result
+   */
+  public Future<Object> commandAsync(final OCommandRequestText iCommand) {
+    checkConnection();
+
+    if (!(iCommand instanceof OSerializableStream))
+      throw new OCommandExecutionException("Cannot serialize the command to be executed to the server side.");
+
+    final int sessionId = getSessionId();
+    do {
+      try {
+        final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND);
+        final int ticket;
+        try {
+          network.writeByte((byte) 's');
+          network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand));
+
+          ticket = network.registerResponse(sessionId);
+        } finally {
+          endRequest(network);
+        }
+
+        return readResponseAsynch(network, sessionId, ticket, new Callable<Object>() {
+          public Object call() throws Exception {
+            return readSynchResult(network, null);
+          }
+        });
+
+      } catch (Exception e) {
+        handleException("Error on executing command: " + iCommand, e);
+
+      }
+    } while (true);
+  }
+
   public void commit(final OTransaction iTx) {
     checkConnection();
 
@@ -1405,6 +1746,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         connectionDbType = connectionOptions.get(PARAM_DB_TYPE).toString();
     }
 
+    preparedCommands.remove(getSessionId());
     setSessionId(-1);
     createConnectionPool();
 
@@ -1644,7 +1986,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
             if (debug)
               System.out.println("-> req (waiting) : " + getSessionId());
 
-            final long startToWait = System.currentTimeMillis();
+            final long startToWait = Orient.instance().getProfiler().startChrono();
             try {
               networkPool.wait(5000);
             } catch (InterruptedException e) {
@@ -1672,6 +2014,15 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return network;
   }
 
+  /**
+   * Tells if the server supports a protocol version, checking the first connection of the pool.
+   */
+  protected boolean isServerProtocolAtLeast(final int iVersion) {
+    synchronized (networkPool) {
+      return !networkPool.isEmpty() && networkPool.get(0).getSrvProtocolVersion() >= iVersion;
+    }
+  }
+
   /**
    * Ends the request and unlock the write lock
    */
@@ -1750,6 +2101,100 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return false;
   }
 
+  /**
+   * Reads the response of a request already sent in the asynchronous executor. The response is read also if the future is
+   * cancelled, otherwise the responses following it on the channel could not be reached.
+   * 
+   * @param iTicket
+   *          Ticket of the response returned by {@link OChannelBinaryClient#registerResponse(int)}
+   * @param iReader
+   *          Reads the content of the response after the status
+   */
+  protected <T> Future<T> readResponseAsynch(final OChannelBinaryClient iNetwork, final int iSessionId, final int iTicket,
+      final Callable<T> iReader) {
+    final OAsynchResponse<T> future = new OAsynchResponse<T>();
+    asynchExecutor.submit(new Runnable() {
+      public void run() {
+        try {
+          iNetwork.beginResponse(iSessionId, iTicket);
+        } catch (Throwable t) {
+          // ERROR RESPONSE, ALREADY CONSUMED, OR UNREACHABLE RESPONSE, IN THIS CASE THE CHANNEL HAS BEEN CLOSED
+          endResponse(iNetwork);
+          future.setFailure(t);
+          return;
+        }
+
+        try {
+          future.setResult(iReader.call());
+        } catch (Throwable t) {
+          // THE RESPONSE HAS BEEN READ IN PART: THE FOLLOWING ONES CAN'T BE READ ANYMORE
+          iNetwork.close();
+          future.setFailure(t);
+        } finally {
+          endResponse(iNetwork);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Future of a response read by {@link #readResponseAsynch(OChannelBinaryClient, int, int, Callable)}.
+   */
+  private static class OAsynchResponse<T> extends FutureTask<T> {
+    public OAsynchResponse() {
+      // NEVER RUN: THE OUTCOME IS SET BY THE READER OF THE RESPONSE
+      super(new Runnable() {
+        public void run() {
+        }
+      }, null);
+    }
+
+    private void setResult(final T iResult) {
+      set(iResult);
+    }
+
+    private void setFailure(final Throwable iFailure) {
+      setException(iFailure);
+    }
+  }
+
+  /**
+   * Reads the result of a command executed in synchronous mode.
+   * 
+   * @param iDatabase
+   *          Database where to cache the records received, or null
+   */
+  protected Object readSynchResult(final OChannelBinaryClient iNetwork, final ODatabaseRecord iDatabase) throws IOException {
+    final byte type = iNetwork.readByte();
+    switch (type) {
+    case 'n':
+      return null;
+
+    case 'r':
+      final OIdentifiable record = OChannelBinaryProtocol.readIdentifiable(iNetwork);
+      if (record instanceof ORecord<?> && iDatabase != null)
+        iDatabase.getLevel1Cache().updateRecord((ORecordInternal<?>) record);
+      return record;
+
+    case 'l':
+      final int tot = iNetwork.readInt();
+      final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>();
+      for (int i = 0; i < tot; ++i) {
+        final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(iNetwork);
+        if (resultItem instanceof ORecord<?> && iDatabase != null)
+          iDatabase.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
+        list.add(resultItem);
+      }
+      return list;
+
+    case 'a':
+      final String value = new String(iNetwork.readBytes());
+      return ORecordSerializerStringAbstract.fieldTypeFromStream(null, ORecordSerializerStringAbstract.getType(value), value);
+    }
+    return null;
+  }
+
   protected void getResponse(final OChannelBinaryClient iNetwork) throws IOException {
     try {
       beginResponse(iNetwork);
@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
@@ -152,6 +153,17 @@ public class OStorageRemoteThread implements OStorageProxy {
     return delegate.readRecord(iRid, iFetchPlan, iIgnoreCache, null);
   }
 
+  public Map<ORecordId, ORawBuffer> readRecords(final Collection<ORecordId> iRids, final boolean iIgnoreCache) {
+    delegate.setSessionId(sessionId);
+    return delegate.readRecords(iRids, iIgnoreCache);
+  }
+
+  public Map<ORecordId, ORawBuffer> browseCluster(final int iClusterId, final OClusterPosition iFrom, final int iLimit,
+      final boolean iAscending, final String iFetchPlan) {
+    delegate.setSessionId(sessionId);
+    return delegate.browseCluster(iClusterId, iFrom, iLimit, iAscending, iFetchPlan);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, ORecordCallback<ORecordVersion> iCallback) {
     delegate.setSessionId(sessionId);
@@ -217,6 +229,22 @@ public class OStorageRemoteThread implements OStorageProxy {
     return delegate.command(iCommand);
   }
 
+  public Future<OPhysicalPosition> createRecordAsync(final int iDataSegmentId, final ORecordId iRid, final byte[] iContent,
+      final byte iRecordType) {
+    delegate.setSessionId(sessionId);
+    return delegate.createRecordAsync(iDataSegmentId, iRid, iContent, iRecordType);
+  }
+
+  public Future<ORawBuffer> readRecordAsync(final ORecordId iRid, final boolean iIgnoreCache) {
+    delegate.setSessionId(sessionId);
+    return delegate.readRecordAsync(iRid, iIgnoreCache);
+  }
+
+  public Future<Object> commandAsync(final OCommandRequestText iCommand) {
+    delegate.setSessionId(sessionId);
+    return delegate.commandAsync(iCommand);
+  }
+
   public void commit(final OTransaction iTx) {
     delegate.setSessionId(sessionId);
     delegate.commit(iTx);
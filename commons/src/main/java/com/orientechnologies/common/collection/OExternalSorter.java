@@ -0,0 +1,389 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.log.OLogManager;
+
+/**
+ * Sorts more items than the ones that fit in memory. The items are kept in memory up to the configured maximum, then sorted and
+ * written to a temporary file. The sorted runs are merged with the items still in memory while they are browsed. Items equal for
+ * the comparator are returned in the order they were added.
+ * <p>
+ * No more than a maximum number of runs are merged at a time, so the files open stay bounded: when the runs are more they are first
+ * merged in groups into longer runs, in as many passes as needed.
+ * <p>
+ * The subclasses write and read the items. {@link #close()} must be called at the end, even if the browsing stopped early or failed:
+ * it closes the runs still open and deletes the temporary files.
+ */
+public abstract class OExternalSorter<T> implements Iterable<T> {
+  public static final int             DEFAULT_MAX_MERGE_FAN_IN = 64;
+
+  private final Comparator<? super T> comparator;
+  private final int                   maxItemsInMemory;
+  private final int                   maxMergeFanIn;
+  private final String                filePrefix;
+  private final List<T>               items                    = new ArrayList<T>();
+  private final List<File>            runs                     = new ArrayList<File>();
+  private final List<OFileRun>        openRuns                 = new ArrayList<OFileRun>();
+  private boolean                     spillable                = true;
+  private boolean                     sorted;
+
+  /**
+   * @param iComparator
+   *          Order of the items
+   * @param iMaxItemsInMemory
+   *          Number of items to keep in memory before writing them to a temporary file, 0 means unlimited
+   * @param iFilePrefix
+   *          Prefix of the names of the temporary files
+   */
+  protected OExternalSorter(final Comparator<? super T> iComparator, final int iMaxItemsInMemory, final String iFilePrefix) {
+    this(iComparator, iMaxItemsInMemory, DEFAULT_MAX_MERGE_FAN_IN, iFilePrefix);
+  }
+
+  /**
+   * @param iComparator
+   *          Order of the items
+   * @param iMaxItemsInMemory
+   *          Number of items to keep in memory before writing them to a temporary file, 0 means unlimited
+   * @param iMaxMergeFanIn
+   *          Maximum number of runs merged at a time, counting the items still in memory as one run. At least 2
+   * @param iFilePrefix
+   *          Prefix of the names of the temporary files
+   */
+  protected OExternalSorter(final Comparator<? super T> iComparator, final int iMaxItemsInMemory, final int iMaxMergeFanIn,
+      final String iFilePrefix) {
+    if (iMaxMergeFanIn < 2)
+      throw new IllegalArgumentException("At least 2 runs must be merged at a time");
+
+    comparator = iComparator;
+    maxItemsInMemory = iMaxItemsInMemory;
+    maxMergeFanIn = iMaxMergeFanIn;
+    filePrefix = iFilePrefix;
+  }
+
+  public void add(final T iItem) {
+    if (sorted)
+      throw new IllegalStateException("Cannot add items after they have been browsed");
+
+    items.add(iItem);
+
+    if (maxItemsInMemory > 0 && spillable && items.size() >= maxItemsInMemory)
+      spill();
+  }
+
+  /**
+   * Tells if some items have been written to temporary files. In this case they can be only browsed with {@link #iterator()}.
+   */
+  public boolean isSpilled() {
+    return !runs.isEmpty();
+  }
+
+  /**
+   * Returns the sorted items kept in memory. Can't be called after the items have been written to temporary files.
+   */
+  public List<T> toList() {
+    if (isSpilled())
+      throw new IllegalStateException("The items have been written to temporary files, browse them with iterator()");
+
+    sort();
+    return items;
+  }
+
+  /**
+   * Browses the items in order, merging the runs written to disk if any. The items can be browsed more than once.
+   */
+  public Iterator<T> iterator() {
+    sort();
+    if (!isSpilled())
+      return Collections.unmodifiableList(items).iterator();
+
+    mergeRuns();
+
+    final List<ORun> sources = new ArrayList<ORun>(runs.size() + 1);
+    for (int i = 0; i < runs.size(); ++i)
+      sources.add(openRun(i, runs.get(i)));
+    sources.add(new OMemoryRun(runs.size(), items.iterator()));
+    return new OMergeIterator(sources);
+  }
+
+  /**
+   * Closes the runs still being merged and deletes the temporary files.
+   */
+  public void close() {
+    for (OFileRun run : new ArrayList<OFileRun>(openRuns))
+      run.close();
+
+    for (File run : runs)
+      delete(run);
+    runs.clear();
+    items.clear();
+  }
+
+  protected abstract void write(DataOutputStream iOut, T iItem) throws IOException;
+
+  protected abstract T read(DataInputStream iIn) throws IOException;
+
+  /**
+   * Tells if the items can be written to a temporary file. If not they are all kept in memory from now on.
+   */
+  protected boolean isSpillable(final List<T> iItems) {
+    return true;
+  }
+
+  protected static void writeBytes(final DataOutputStream iOut, final byte[] iBytes) throws IOException {
+    iOut.writeInt(iBytes.length);
+    iOut.write(iBytes);
+  }
+
+  protected static byte[] readBytes(final DataInputStream iIn) throws IOException {
+    final byte[] bytes = new byte[iIn.readInt()];
+    iIn.readFully(bytes);
+    return bytes;
+  }
+
+  private void sort() {
+    if (!sorted) {
+      Collections.sort(items, comparator);
+      sorted = true;
+    }
+  }
+
+  private void spill() {
+    if (!isSpillable(items)) {
+      spillable = false;
+      return;
+    }
+
+    Collections.sort(items, comparator);
+
+    File run = null;
+    try {
+      // THE FILE IS DELETED BY close(): deleteOnExit() WOULD KEEP ITS NAME IN MEMORY UNTIL THE JVM EXITS
+      run = File.createTempFile(filePrefix, ".tmp");
+      runs.add(run);
+
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+      try {
+        out.writeInt(items.size());
+        for (T item : items)
+          write(out, item);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      close();
+      throw new OIOException("Error on writing the temporary file " + run + " to sort the items", e);
+    }
+
+    items.clear();
+  }
+
+  /**
+   * Merges the runs in groups of {@link #maxMergeFanIn} until they can be merged in one pass with the items still in memory.
+   * Consecutive runs are merged together, so the items equal for the comparator keep the order they were added in.
+   */
+  private void mergeRuns() {
+    while (runs.size() + 1 > maxMergeFanIn) {
+      final List<File> pass = new ArrayList<File>(runs);
+      final List<File> merged = new ArrayList<File>();
+      for (int i = 0; i < pass.size(); i += maxMergeFanIn) {
+        final List<File> group = pass.subList(i, Math.min(i + maxMergeFanIn, pass.size()));
+        merged.add(group.size() > 1 ? mergeRuns(group) : group.get(0));
+      }
+      runs.clear();
+      runs.addAll(merged);
+    }
+  }
+
+  private File mergeRuns(final List<File> iGroup) {
+    final List<ORun> sources = new ArrayList<ORun>(iGroup.size());
+    int size = 0;
+    for (int i = 0; i < iGroup.size(); ++i) {
+      final OFileRun run = openRun(i, iGroup.get(i));
+      size += run.left;
+      sources.add(run);
+    }
+
+    File merged = null;
+    try {
+      merged = File.createTempFile(filePrefix, ".tmp");
+      runs.add(merged);
+
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(merged)));
+      try {
+        out.writeInt(size);
+        for (Iterator<T> it = new OMergeIterator(sources); it.hasNext();)
+          write(out, it.next());
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      close();
+      throw new OIOException("Error on writing the temporary file " + merged + " to sort the items", e);
+    }
+
+    for (File run : iGroup) {
+      runs.remove(run);
+      delete(run);
+    }
+    return merged;
+  }
+
+  private OFileRun openRun(final int iPosition, final File iFile) {
+    try {
+      return new OFileRun(iPosition, iFile);
+    } catch (IOException e) {
+      close();
+      throw new OIOException("Error on reading the temporary file " + iFile + " used to sort the items", e);
+    }
+  }
+
+  private void delete(final File iFile) {
+    if (iFile.exists() && !iFile.delete())
+      OLogManager.instance().warn(this, "Cannot delete the temporary file %s used to sort", iFile);
+  }
+
+  /**
+   * Sorted source of items to merge: a run on disk or the last items still in memory.
+   */
+  private abstract class ORun {
+    protected final int position;
+    protected T         current;
+
+    protected ORun(final int iPosition) {
+      position = iPosition;
+    }
+
+    /**
+     * Moves to the next item, sets current to null at the end.
+     */
+    protected abstract void advance();
+  }
+
+  private class OFileRun extends ORun {
+    private final File            file;
+    private final DataInputStream in;
+    private int                   left;
+
+    private OFileRun(final int iPosition, final File iFile) throws IOException {
+      super(iPosition);
+      file = iFile;
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(iFile)));
+      openRuns.add(this);
+      left = in.readInt();
+    }
+
+    @Override
+    protected void advance() {
+      if (left == 0) {
+        current = null;
+        close();
+        return;
+      }
+
+      try {
+        current = read(in);
+        left--;
+      } catch (IOException e) {
+        OExternalSorter.this.close();
+        throw new OIOException("Error on reading the temporary file " + file + " used to sort the items", e);
+      }
+    }
+
+    private void close() {
+      openRuns.remove(this);
+      try {
+        in.close();
+      } catch (IOException e) {
+        // IGNORE IT
+      }
+    }
+  }
+
+  private class OMemoryRun extends ORun {
+    private final Iterator<T> iterator;
+
+    private OMemoryRun(final int iPosition, final Iterator<T> iIterator) {
+      super(iPosition);
+      iterator = iIterator;
+    }
+
+    @Override
+    protected void advance() {
+      current = iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+
+  private class OMergeIterator implements Iterator<T> {
+    private final PriorityQueue<ORun> queue;
+
+    private OMergeIterator(final List<ORun> iSources) {
+      queue = new PriorityQueue<ORun>(iSources.size(), new Comparator<ORun>() {
+        public int compare(final ORun o1, final ORun o2) {
+          final int result = comparator.compare(o1.current, o2.current);
+          if (result != 0)
+            return result;
+          // SAME VALUES: THE OLDEST RUN FIRST
+          return o1.position - o2.position;
+        }
+      });
+
+      for (ORun source : iSources)
+        enqueue(source);
+    }
+
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    public T next() {
+      if (queue.isEmpty())
+        throw new NoSuchElementException();
+
+      final ORun run = queue.poll();
+      final T result = run.current;
+      enqueue(run);
+      return result;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void enqueue(final ORun iRun) {
+      iRun.advance();
+      if (iRun.current != null)
+        queue.offer(iRun);
+    }
+  }
+}
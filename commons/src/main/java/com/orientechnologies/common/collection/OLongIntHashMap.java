@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+import java.util.Arrays;
+
+/**
+ * Hash map of primitive long keys to primitive int values. Keys and values are kept in plain arrays with open addressing and
+ * linear probing, so lookups and updates don't box the keys and don't allocate entries. Removals shift back the following entries
+ * of the probe sequence instead of leaving tombstones.<br/>
+ * The map is not thread-safe and a {@link Cursor} is not valid anymore once the map has been modified.
+ */
+public class OLongIntHashMap {
+  private static final int   DEFAULT_SIZE     = 16;
+  private static final float LOAD_FACTOR      = 0.75f;
+
+  private long[]             keys;
+  private int[]              values;
+  private boolean[]          used;
+  private int                size;
+  private int                mask;
+  private int                threshold;
+
+  /**
+   * Iterates the entries of the map: call {@link #next()} before reading every entry.
+   */
+  public class Cursor {
+    private int slot = -1;
+
+    public boolean next() {
+      while (++slot < used.length)
+        if (used[slot])
+          return true;
+      return false;
+    }
+
+    public long key() {
+      return keys[slot];
+    }
+
+    public int value() {
+      return values[slot];
+    }
+  }
+
+  public OLongIntHashMap() {
+    this(DEFAULT_SIZE);
+  }
+
+  public OLongIntHashMap(final int iExpectedSize) {
+    allocate(capacityFor(iExpectedSize));
+  }
+
+  /**
+   * Returns the value bound to the key or iDefaultValue if the key is not in the map.
+   */
+  public int get(final long iKey, final int iDefaultValue) {
+    final int slot = findSlot(iKey);
+    return slot > -1 ? values[slot] : iDefaultValue;
+  }
+
+  public boolean containsKey(final long iKey) {
+    return findSlot(iKey) > -1;
+  }
+
+  public void put(final long iKey, final int iValue) {
+    int slot = hash(iKey) & mask;
+    while (used[slot]) {
+      if (keys[slot] == iKey) {
+        values[slot] = iValue;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    used[slot] = true;
+    keys[slot] = iKey;
+    values[slot] = iValue;
+
+    if (++size > threshold)
+      rehash(used.length << 1);
+  }
+
+  /**
+   * Removes the key from the map.
+   *
+   * @return true if the key was in the map
+   */
+  public boolean remove(final long iKey) {
+    final int slot = findSlot(iKey);
+    if (slot < 0)
+      return false;
+
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (used[next]) {
+      // MOVE BACK THE ENTRIES WHOSE PROBE SEQUENCE PASSES THROUGH THE GAP
+      final int distance = (next - (hash(keys[next]) & mask)) & mask;
+      if (distance >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    used[gap] = false;
+
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    if (size == 0)
+      return;
+
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  private int findSlot(final long iKey) {
+    int slot = hash(iKey) & mask;
+    while (used[slot]) {
+      if (keys[slot] == iKey)
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(final int iCapacity) {
+    final long[] oldKeys = keys;
+    final int[] oldValues = values;
+    final boolean[] oldUsed = used;
+
+    allocate(iCapacity);
+
+    for (int i = 0; i < oldUsed.length; ++i)
+      if (oldUsed[i]) {
+        int slot = hash(oldKeys[i]) & mask;
+        while (used[slot])
+          slot = (slot + 1) & mask;
+
+        used[slot] = true;
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+  }
+
+  private void allocate(final int iCapacity) {
+    keys = new long[iCapacity];
+    values = new int[iCapacity];
+    used = new boolean[iCapacity];
+    mask = iCapacity - 1;
+    threshold = thresholdFor(iCapacity);
+  }
+
+  static int hash(final long iKey) {
+    // MIX ALL THE BITS: BUCKET INDEXES ARE SEQUENTIAL OR MULTIPLES OF THE SAME POWER OF 2
+    long h = iKey * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    return (int) (h ^ (h >>> 16));
+  }
+
+  static int thresholdFor(final int iCapacity) {
+    return (int) (iCapacity * LOAD_FACTOR);
+  }
+
+  static int capacityFor(final int iExpectedSize) {
+    int capacity = 2;
+    while (capacity * LOAD_FACTOR < iExpectedSize && capacity < 1 << 30)
+      capacity <<= 1;
+    return capacity;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+import java.util.Arrays;
+
+/**
+ * Hash map of primitive long keys to objects, with the same open addressing layout of {@link OLongIntHashMap}. Null values are
+ * not allowed: {@link #get(long)} returns null for missing keys.<br/>
+ * The map is not thread-safe and a {@link Cursor} is not valid anymore once the map has been modified.
+ */
+public class OLongObjectHashMap<V> {
+  private static final int DEFAULT_SIZE = 16;
+
+  private long[]           keys;
+  private Object[]         values;
+  private int              size;
+  private int              mask;
+  private int              threshold;
+
+  /**
+   * Iterates the entries of the map: call {@link #next()} before reading every entry.
+   */
+  public class Cursor {
+    private int slot = -1;
+
+    public boolean next() {
+      while (++slot < values.length)
+        if (values[slot] != null)
+          return true;
+      return false;
+    }
+
+    public long key() {
+      return keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V value() {
+      return (V) values[slot];
+    }
+  }
+
+  public OLongObjectHashMap() {
+    this(DEFAULT_SIZE);
+  }
+
+  public OLongObjectHashMap(final int iExpectedSize) {
+    allocate(OLongIntHashMap.capacityFor(iExpectedSize));
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(final long iKey) {
+    final int slot = findSlot(iKey);
+    return slot > -1 ? (V) values[slot] : null;
+  }
+
+  public boolean containsKey(final long iKey) {
+    return findSlot(iKey) > -1;
+  }
+
+  /**
+   * Binds the value to the key.
+   *
+   * @return the value previously bound to the key, or null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(final long iKey, final V iValue) {
+    if (iValue == null)
+      throw new IllegalArgumentException("Null values are not supported");
+
+    int slot = OLongIntHashMap.hash(iKey) & mask;
+    while (values[slot] != null) {
+      if (keys[slot] == iKey) {
+        final V previous = (V) values[slot];
+        values[slot] = iValue;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    keys[slot] = iKey;
+    values[slot] = iValue;
+
+    if (++size > threshold)
+      rehash(values.length << 1);
+    return null;
+  }
+
+  /**
+   * Removes the key from the map.
+   *
+   * @return the value bound to the key, or null
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(final long iKey) {
+    final int slot = findSlot(iKey);
+    if (slot < 0)
+      return null;
+
+    final V removed = (V) values[slot];
+
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (values[next] != null) {
+      // MOVE BACK THE ENTRIES WHOSE PROBE SEQUENCE PASSES THROUGH THE GAP
+      final int distance = (next - (OLongIntHashMap.hash(keys[next]) & mask)) & mask;
+      if (distance >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[gap] = null;
+
+    size--;
+    return removed;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    if (size == 0)
+      return;
+
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  private int findSlot(final long iKey) {
+    int slot = OLongIntHashMap.hash(iKey) & mask;
+    while (values[slot] != null) {
+      if (keys[slot] == iKey)
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(final int iCapacity) {
+    final long[] oldKeys = keys;
+    final Object[] oldValues = values;
+
+    allocate(iCapacity);
+
+    for (int i = 0; i < oldValues.length; ++i)
+      if (oldValues[i] != null) {
+        int slot = OLongIntHashMap.hash(oldKeys[i]) & mask;
+        while (values[slot] != null)
+          slot = (slot + 1) & mask;
+
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+  }
+
+  private void allocate(final int iCapacity) {
+    keys = new long[iCapacity];
+    values = new Object[iCapacity];
+    mask = iCapacity - 1;
+    threshold = OLongIntHashMap.thresholdFor(iCapacity);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.concur;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter for values updated by many threads and read rarely. The counter starts as a single value and is split in stripes the
+ * first time two threads update it at the same time, so the counters never contended don't pay the memory of the stripes. Once
+ * split, each thread updates the stripe selected by its id so concurrent updates don't compete on the same memory location. Every
+ * stripe is padded to its own cache line. Reading the value sums all the stripes, so it's not an atomic snapshot while the counter
+ * is updated.
+ */
+public class OStripedCounter {
+  // 8 LONGS = 64 BYTES, THE USUAL CACHE LINE SIZE
+  private static final int         PADDING = 8;
+  private static final int         DEFAULT_STRIPES;
+  private final AtomicLong         base    = new AtomicLong();
+  private final int                stripes;
+  private final int                mask;
+  private volatile AtomicLongArray cells;
+
+  static {
+    int stripes = 1;
+    while (stripes < Runtime.getRuntime().availableProcessors() * 2)
+      stripes <<= 1;
+    DEFAULT_STRIPES = stripes;
+  }
+
+  public OStripedCounter() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * @param iStripes
+   *          Number of stripes, rounded up to the next power of 2
+   */
+  public OStripedCounter(final int iStripes) {
+    int stripes = 1;
+    while (stripes < iStripes)
+      stripes <<= 1;
+
+    this.stripes = stripes;
+    mask = stripes - 1;
+  }
+
+  public void add(final long iDelta) {
+    AtomicLongArray c = cells;
+    if (c == null) {
+      final long current = base.get();
+      if (base.compareAndSet(current, current + iDelta))
+        return;
+
+      // CONTENDED: FROM NOW ON EVERY THREAD UPDATES ITS OWN STRIPE
+      c = split();
+    }
+    c.getAndAdd(getCell(), iDelta);
+  }
+
+  public void increment() {
+    add(1);
+  }
+
+  public void decrement() {
+    add(-1);
+  }
+
+  public long sum() {
+    long sum = base.get();
+    final AtomicLongArray c = cells;
+    if (c != null)
+      for (int i = 0; i < c.length(); i += PADDING)
+        sum += c.get(i);
+    return sum;
+  }
+
+  public void reset() {
+    base.set(0);
+    final AtomicLongArray c = cells;
+    if (c != null)
+      for (int i = 0; i < c.length(); i += PADDING)
+        c.set(i, 0);
+  }
+
+  /**
+   * Tells if the counter has been split in stripes.
+   */
+  public boolean isSplit() {
+    return cells != null;
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+
+  private synchronized AtomicLongArray split() {
+    if (cells == null)
+      cells = new AtomicLongArray(stripes * PADDING);
+    return cells;
+  }
+
+  private int getCell() {
+    // THREAD IDS ARE SEQUENTIAL: THE LOWEST BITS SPREAD THE THREADS ON THE STRIPES
+    return ((int) Thread.currentThread().getId() & mask) * PADDING;
+  }
+}
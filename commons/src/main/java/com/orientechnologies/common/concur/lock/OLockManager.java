@@ -17,8 +17,15 @@ package com.orientechnologies.common.concur.lock;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Manages shared and exclusive locks against resources. Locks are created on demand and removed when nobody holds or waits for
+ * them anymore. The lock entries are reference counted: a new entry is published with putIfAbsent() and the counter is updated with
+ * CAS, so acquiring and releasing a lock never goes through a monitor shared between resources. An entry whose counter reached 0
+ * is being removed and can't be reused: who finds it waits for the removal and creates a new one.
+ */
 public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   public enum LOCK {
     SHARED, EXCLUSIVE
@@ -28,17 +35,39 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   protected long                                                  acquireTimeout;
   protected final ConcurrentHashMap<RESOURCE_TYPE, CountableLock> map;
   private final boolean                                           enabled;
-  private final int                                               shift;
-  private final int                                               mask;
-  private final Object[]                                          locks;
 
   @SuppressWarnings("serial")
   protected static class CountableLock extends ReentrantReadWriteLock {
-    protected int countLocks = 0;
+    protected final AtomicInteger countLocks = new AtomicInteger(1);
 
     public CountableLock(final boolean iFair) {
       super(false);
     }
+
+    /**
+     * Registers a new user of the lock.
+     * 
+     * @return false if the lock is being removed and can't be used anymore
+     */
+    protected boolean use() {
+      while (true) {
+        final int current = countLocks.get();
+        if (current == 0)
+          return false;
+
+        if (countLocks.compareAndSet(current, current + 1))
+          return true;
+      }
+    }
+
+    /**
+     * Unregisters a user of the lock.
+     * 
+     * @return true if it was the last one and the lock has to be removed
+     */
+    protected boolean release() {
+      return countLocks.decrementAndGet() == 0;
+    }
   }
 
   public OLockManager(final boolean iEnabled, final int iAcquireTimeout) {
@@ -47,21 +76,10 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
 
   public OLockManager(final boolean iEnabled, final int iAcquireTimeout, final int concurrencyLevel) {
     int cL = 1;
-
-    int sh = 0;
-    while (cL < concurrencyLevel) {
+    while (cL < concurrencyLevel)
       cL <<= 1;
-      sh++;
-    }
-
-    shift = 32 - sh;
-    mask = cL - 1;
 
-    map = new ConcurrentHashMap<RESOURCE_TYPE, CountableLock>(cL);
-    locks = new Object[cL];
-    for (int i = 0; i < locks.length; i++) {
-      locks[i] = new Object();
-    }
+    map = new ConcurrentHashMap<RESOURCE_TYPE, CountableLock>(cL, 0.75f, cL);
 
     acquireTimeout = iAcquireTimeout;
     enabled = iEnabled;
@@ -75,18 +93,7 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     if (!enabled)
       return;
 
-    CountableLock lock;
-    final Object internalLock = internalLock(iResourceId);
-    synchronized (internalLock) {
-      lock = map.get(iResourceId);
-      if (lock == null) {
-        final CountableLock newLock = new CountableLock(iTimeout > 0);
-        lock = map.putIfAbsent(getImmutableResourceId(iResourceId), newLock);
-        if (lock == null)
-          lock = newLock;
-      }
-      lock.countLocks++;
-    }
+    final CountableLock lock = useLock(iResourceId, iTimeout);
 
     try {
       if (iTimeout <= 0) {
@@ -109,11 +116,8 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
         }
       }
     } catch (RuntimeException e) {
-      synchronized (internalLock) {
-        lock.countLocks--;
-        if (lock.countLocks == 0)
-          map.remove(iResourceId);
-      }
+      if (lock.release())
+        map.remove(iResourceId, lock);
       throw e;
     }
 
@@ -124,18 +128,14 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     if (!enabled)
       return;
 
-    final CountableLock lock;
-    final Object internalLock = internalLock(iResourceId);
-    synchronized (internalLock) {
-      lock = map.get(iResourceId);
-      if (lock == null)
-        throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
-            + "' against the resource: '" + iResourceId + "'");
-
-      lock.countLocks--;
-      if (lock.countLocks == 0)
-        map.remove(iResourceId);
-    }
+    final CountableLock lock = map.get(iResourceId);
+    if (lock == null)
+      throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
+          + "' against the resource: '" + iResourceId + "'");
+
+    if (lock.release())
+      map.remove(iResourceId, lock);
+
     if (iLockType == LOCK.SHARED)
       lock.readLock().unlock();
     else
@@ -156,10 +156,26 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     return iResourceId;
   }
 
-  private Object internalLock(final RESOURCE_TYPE iResourceId) {
-    final int hashCode = iResourceId.hashCode();
-    final int index = (hashCode >>> shift) & mask;
-    return locks[index];
+  /**
+   * Returns the lock of the resource registered as used, creating it if needed.
+   */
+  private CountableLock useLock(final RESOURCE_TYPE iResourceId, final long iTimeout) {
+    while (true) {
+      CountableLock lock = map.get(iResourceId);
+      if (lock == null) {
+        final CountableLock newLock = new CountableLock(iTimeout > 0);
+        lock = map.putIfAbsent(getImmutableResourceId(iResourceId), newLock);
+        if (lock == null)
+          // CREATED WITH THE COUNTER ALREADY SET TO 1
+          return newLock;
+      }
+
+      if (lock.use())
+        return lock;
+
+      // THE LOCK IS BEING REMOVED BY ANOTHER THREAD: WAIT FOR IT AND RETRY
+      Thread.yield();
+    }
   }
 
   private static int defaultConcurrency() {
@@ -16,6 +16,8 @@
 
 package com.orientechnologies.common.directmemory;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import com.orientechnologies.common.serialization.OBinaryConverter;
@@ -23,8 +25,9 @@ import com.orientechnologies.common.serialization.OBinaryConverterFactory;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 
 /**
- * Buddy memory allocation algorithm.
- * 
+ * Buddy memory allocation algorithm. The memory is a byte array in the Java heap or, if created as direct, a direct buffer out of
+ * the heap, whose content is never scanned by the garbage collector.
+ *
  * @author Artem Orobets, Andrey Lomakin
  * @since 12.08.12
  */
@@ -42,6 +45,8 @@ public class OBuddyMemory implements ODirectMemory {
   public static final byte              TAG_ALLOCATED    = 1;
 
   private final byte[]                  buffer;
+  private final ByteBuffer              directBuffer;
+  private final int                     size;
 
   private final int                     minChunkSize;
   private final int[]                   freeListHeader;
@@ -54,6 +59,17 @@ public class OBuddyMemory implements ODirectMemory {
    *          - size of chunks on level 0. Should be power of 2.
    */
   public OBuddyMemory(int capacity, int minChunkSize) {
+    this(capacity, minChunkSize, false);
+  }
+
+  /**
+   * @param capacity
+   * @param minChunkSize
+   *          - size of chunks on level 0. Should be power of 2.
+   * @param direct
+   *          - allocates the memory in a direct buffer, out of the Java heap.
+   */
+  public OBuddyMemory(int capacity, int minChunkSize, boolean direct) {
     synchronized (this) {
       minChunkSize = (int) Math.pow(2, (int) Math.ceil(Math.log(minChunkSize) / Math.log(2)));
       this.minChunkSize = minChunkSize;
@@ -63,7 +79,17 @@ public class OBuddyMemory implements ODirectMemory {
 
       freeListHeader = new int[maxLevel + 1];
       freeListTail = new int[maxLevel + 1];
-      buffer = new byte[capacity];
+
+      size = capacity;
+      if (direct) {
+        buffer = null;
+        // SAME BYTE ORDER OF THE CONVERTER, SO THE SERIALIZERS READ WHAT setInt() AND setLong() WRITE
+        directBuffer = ByteBuffer.allocateDirect(capacity).order(
+            CONVERTER.nativeAccelerationUsed() ? ByteOrder.nativeOrder() : ByteOrder.BIG_ENDIAN);
+      } else {
+        buffer = new byte[capacity];
+        directBuffer = null;
+      }
 
       initMemory();
     }
@@ -89,16 +115,15 @@ public class OBuddyMemory implements ODirectMemory {
     int pointer = freeListHeader[level];
     if (pointer != NULL_POINTER) {
       removeNodeFromHead(level);
-      buffer[pointer] = TAG_ALLOCATED;
+      putByte(pointer, TAG_ALLOCATED);
     } else {
       int currentLevel = level + 1;
-      while (freeListHeader[currentLevel] == NULL_POINTER) {
+      while (currentLevel <= maxLevel && freeListHeader[currentLevel] == NULL_POINTER)
         currentLevel++;
 
-        if (currentLevel > maxLevel) {
-          // We have no free space
-          return NULL_POINTER;
-        }
+      if (currentLevel > maxLevel) {
+        // We have no free space
+        return NULL_POINTER;
       }
 
       pointer = removeNodeFromHead(currentLevel);
@@ -106,8 +131,8 @@ public class OBuddyMemory implements ODirectMemory {
       do {
         pointer = split(pointer);
         currentLevel--;
-        buffer[pointer + TAG_OFFSET] = (currentLevel == level) ? TAG_ALLOCATED : TAG_FREE;
-        buffer[pointer + SIZE_OFFSET] = (byte) (currentLevel & 0xFF);
+        putByte(pointer + TAG_OFFSET, (currentLevel == level) ? TAG_ALLOCATED : TAG_FREE);
+        putByte(pointer + SIZE_OFFSET, (byte) (currentLevel & 0xFF));
       } while (currentLevel > level);
     }
 
@@ -115,9 +140,9 @@ public class OBuddyMemory implements ODirectMemory {
   }
 
   public synchronized void free(int pointer) {
-    int level = buffer[pointer + SIZE_OFFSET];
+    int level = getByte(pointer + SIZE_OFFSET);
     int buddy = buddy(pointer, level);
-    while (level < maxLevel && buffer[buddy + TAG_OFFSET] == TAG_FREE && buffer[buddy + SIZE_OFFSET] == level) {
+    while (level < maxLevel && getByte(buddy + TAG_OFFSET) == TAG_FREE && getByte(buddy + SIZE_OFFSET) == level) {
       removeFromFreeList(level, buddy);
 
       if (buddy < pointer) {
@@ -127,13 +152,13 @@ public class OBuddyMemory implements ODirectMemory {
       buddy = buddy(pointer, level);
     }
 
-    buffer[pointer + TAG_OFFSET] = TAG_FREE;
-    buffer[pointer + SIZE_OFFSET] = (byte) (level & 0xFF);
+    putByte(pointer + TAG_OFFSET, TAG_FREE);
+    putByte(pointer + SIZE_OFFSET, (byte) (level & 0xFF));
     addNodeToTail(level, pointer);
   }
 
   public int getActualSpace(int pointer) {
-    return (1 << buffer[pointer + SIZE_OFFSET]) * minChunkSize;
+    return (1 << getByte(pointer + SIZE_OFFSET)) * minChunkSize;
   }
 
   public byte[] get(int pointer, int offset, final int length) {
@@ -145,24 +170,40 @@ public class OBuddyMemory implements ODirectMemory {
     }
 
     byte[] dest = new byte[newLength];
-    System.arraycopy(buffer, pointer + SYSTEM_INFO_SIZE + offset, dest, 0, newLength);
+    read(pointer + SYSTEM_INFO_SIZE + offset, dest, newLength);
     return dest;
   }
 
   public void set(int pointer, int offset, int length, byte[] content) {
-    System.arraycopy(content, 0, buffer, pointer + SYSTEM_INFO_SIZE + offset, length);
+    write(pointer + SYSTEM_INFO_SIZE + offset, content, length);
   }
 
   public <T> T get(int pointer, int offset, OBinarySerializer<T> serializer) {
-    return serializer.deserializeNative(buffer, pointer + SYSTEM_INFO_SIZE + offset);
+    if (buffer != null)
+      return serializer.deserializeNative(buffer, pointer + SYSTEM_INFO_SIZE + offset);
+
+    // THE SERIALIZERS WORK ON ARRAYS: COPY THE VALUE, OR THE REST OF THE CHUNK IF ITS LENGTH IS NOT FIXED
+    final byte[] stream = get(pointer, offset, serializer.isFixedLength() ? serializer.getFixedLength() : 0);
+    return serializer.deserializeNative(stream, 0);
   }
 
   public <T> void set(int pointer, int offset, T data, OBinarySerializer<T> serializer) {
-    serializer.serializeNative(data, buffer, pointer + SYSTEM_INFO_SIZE + offset);
+    if (buffer != null) {
+      serializer.serializeNative(data, buffer, pointer + SYSTEM_INFO_SIZE + offset);
+      return;
+    }
+
+    final byte[] stream = new byte[serializer.getObjectSize(data)];
+    serializer.serializeNative(data, stream, 0);
+    set(pointer, offset, stream.length, stream);
   }
 
   public int capacity() {
-    return buffer.length - 1;
+    return size - 1;
+  }
+
+  public boolean isDirect() {
+    return directBuffer != null;
   }
 
   public synchronized int freeSpace() {
@@ -195,28 +236,40 @@ public class OBuddyMemory implements ODirectMemory {
   }
 
   public long getLong(int pointer, int offset) {
-    return CONVERTER.getLong(buffer, pointer + offset + SYSTEM_INFO_SIZE);
+    final int index = pointer + offset + SYSTEM_INFO_SIZE;
+    return buffer != null ? CONVERTER.getLong(buffer, index) : directBuffer.getLong(index);
   }
 
   public void setLong(int pointer, int offset, long value) {
-    CONVERTER.putLong(buffer, pointer + offset + SYSTEM_INFO_SIZE, value);
+    final int index = pointer + offset + SYSTEM_INFO_SIZE;
+    if (buffer != null)
+      CONVERTER.putLong(buffer, index, value);
+    else
+      directBuffer.putLong(index, value);
   }
 
   public byte getByte(int pointer, int offset) {
     int index = pointer + offset + SYSTEM_INFO_SIZE;
-    return buffer[index];
+    return getByte(index);
   }
 
   public void setByte(int pointer, int offset, byte value) {
     int index = pointer + offset + SYSTEM_INFO_SIZE;
-    buffer[index] = value;
+    putByte(index, value);
   }
 
   public void copyData(int srcPointer, int fromOffset, int destPointer, int toOffset, int len) {
     int fromIndex = srcPointer + fromOffset + SYSTEM_INFO_SIZE;
     int toIndex = destPointer + toOffset + SYSTEM_INFO_SIZE;
 
-    System.arraycopy(buffer, fromIndex, buffer, toIndex, len);
+    if (buffer != null)
+      System.arraycopy(buffer, fromIndex, buffer, toIndex, len);
+    else {
+      // THE AREAS CAN OVERLAP
+      final byte[] data = new byte[len];
+      read(fromIndex, data, len);
+      write(toIndex, data, len);
+    }
   }
 
   private void initMemory() {
@@ -225,13 +278,13 @@ public class OBuddyMemory implements ODirectMemory {
 
     int pointer = 0;
     byte level = (byte) maxLevel;
-    int availSpace = buffer.length;
+    int availSpace = size;
 
     while (level >= 0) {
       int chunkSize = (1 << level) * minChunkSize;
       if (availSpace > chunkSize) {
-        buffer[pointer + TAG_OFFSET] = TAG_FREE;
-        buffer[pointer + SIZE_OFFSET] = level;
+        putByte(pointer + TAG_OFFSET, TAG_FREE);
+        putByte(pointer + SIZE_OFFSET, level);
         addNodeToTail(level, pointer);
         availSpace -= chunkSize;
 
@@ -241,18 +294,19 @@ public class OBuddyMemory implements ODirectMemory {
     }
     assert availSpace == 1;
 
-    buffer[pointer + TAG_OFFSET] = TAG_ALLOCATED;
+    putByte(pointer + TAG_OFFSET, TAG_ALLOCATED);
   }
 
   private int split(int pointer) {
-    int level = --buffer[pointer + SIZE_OFFSET];
+    int level = getByte(pointer + SIZE_OFFSET) - 1;
+    putByte(pointer + SIZE_OFFSET, (byte) level);
     addNodeToTail(level, pointer);
 
     return buddy(pointer, level);
   }
 
   private int size(int pointer) {
-    return (1 << buffer[pointer + SIZE_OFFSET]) * minChunkSize - SYSTEM_INFO_SIZE;
+    return (1 << getByte(pointer + SIZE_OFFSET)) * minChunkSize - SYSTEM_INFO_SIZE;
   }
 
   private int buddy(int pointer, int level) {
@@ -316,10 +370,45 @@ public class OBuddyMemory implements ODirectMemory {
   }
 
   private void writeInt(int pointer, int offset, int value) {
-    CONVERTER.putInt(buffer, pointer + offset, value);
+    if (buffer != null)
+      CONVERTER.putInt(buffer, pointer + offset, value);
+    else
+      directBuffer.putInt(pointer + offset, value);
   }
 
   private int readInt(int pointer, int offset) {
-    return CONVERTER.getInt(buffer, pointer + offset);
+    return buffer != null ? CONVERTER.getInt(buffer, pointer + offset) : directBuffer.getInt(pointer + offset);
+  }
+
+  private byte getByte(int index) {
+    return buffer != null ? buffer[index] : directBuffer.get(index);
+  }
+
+  private void putByte(int index, byte value) {
+    if (buffer != null)
+      buffer[index] = value;
+    else
+      directBuffer.put(index, value);
+  }
+
+  private void read(int index, byte[] dest, int length) {
+    if (buffer != null)
+      System.arraycopy(buffer, index, dest, 0, length);
+    else {
+      // BULK READS NEED A VIEW WITH ITS OWN POSITION: READERS CAN RUN CONCURRENTLY
+      final ByteBuffer view = directBuffer.duplicate();
+      view.position(index);
+      view.get(dest, 0, length);
+    }
+  }
+
+  private void write(int index, byte[] content, int length) {
+    if (buffer != null)
+      System.arraycopy(content, 0, buffer, index, length);
+    else {
+      final ByteBuffer view = directBuffer.duplicate();
+      view.position(index);
+      view.put(content, 0, length);
+    }
   }
 }
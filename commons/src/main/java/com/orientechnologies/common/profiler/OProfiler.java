@@ -38,6 +38,9 @@ import com.orientechnologies.common.util.OPair;
  * 
  * To start the recording use call startRecording(). By default record is turned off to avoid a run-time execution cost.
  * 
+ * Counters, chronos and statistics are updated without locking: the lock only protects the creation and the archiving of the
+ * snapshots. Chronos measure the time in nanoseconds.
+ * 
  * @author Luca Garulli
  * @copyrights Orient Technologies.com
  */
@@ -46,14 +49,14 @@ public class OProfiler extends OSharedResourceAbstract implements OProfilerMBean
     CHRONO, COUNTER, STAT, SIZE, ENABLED, TEXT
   }
 
-  protected long                                   recordingFrom           = -1;
+  protected volatile long                          recordingFrom           = -1;
   protected Map<String, OProfilerHookValue>        hooks                   = new ConcurrentHashMap<String, OProfilerHookValue>();
   protected Date                                   lastReset               = new Date();
 
   protected ConcurrentHashMap<String, String>      dictionary              = new ConcurrentHashMap<String, String>();
   protected ConcurrentHashMap<String, METRIC_TYPE> types                   = new ConcurrentHashMap<String, METRIC_TYPE>();
   protected OProfilerData                          realTime                = new OProfilerData();
-  protected OProfilerData                          lastSnapshot;
+  protected volatile OProfilerData                 lastSnapshot;
   protected List<OProfilerData>                    snapshots               = new ArrayList<OProfilerData>();
   protected List<OProfilerData>                    summaries               = new ArrayList<OProfilerData>();
 
@@ -225,26 +228,17 @@ public class OProfiler extends OSharedResourceAbstract implements OProfilerMBean
 
     updateMetadata(iMetadata, iDescription, METRIC_TYPE.COUNTER);
 
-    acquireSharedLock();
-    try {
-      if (lastSnapshot != null)
-        lastSnapshot.updateCounter(iName, iPlus);
-      realTime.updateCounter(iName, iPlus);
-    } finally {
-      releaseSharedLock();
-    }
+    final OProfilerData snapshot = lastSnapshot;
+    if (snapshot != null)
+      snapshot.updateCounter(iName, iPlus);
+    realTime.updateCounter(iName, iPlus);
   }
 
   public long getCounter(final String iStatName) {
     if (iStatName == null || recordingFrom < 0)
       return -1;
 
-    acquireSharedLock();
-    try {
-      return realTime.getCounter(iStatName);
-    } finally {
-      releaseSharedLock();
-    }
+    return realTime.getCounter(iStatName);
   }
 
   public String toJSON(final String iQuery, final String iPar1, final String iPar2) {
@@ -388,7 +382,7 @@ public class OProfiler extends OSharedResourceAbstract implements OProfilerMBean
     if (recordingFrom < 0)
       return -1;
 
-    return System.currentTimeMillis();
+    return System.nanoTime();
   }
 
   public long stopChrono(final String iName, final String iDescription, final long iStartTime) {
@@ -407,16 +401,13 @@ public class OProfiler extends OSharedResourceAbstract implements OProfilerMBean
 
     updateMetadata(iDictionaryName, iDescription, METRIC_TYPE.CHRONO);
 
-    acquireSharedLock();
-    try {
-
-      if (lastSnapshot != null)
-        lastSnapshot.stopChrono(iName, iStartTime, iPayload);
-      return realTime.stopChrono(iName, iStartTime, iPayload);
+    final long elapsed = System.nanoTime() - iStartTime;
 
-    } finally {
-      releaseSharedLock();
-    }
+    // THE NAMES OF A DICTIONARY ENTRY, LIKE THE TEXTS OF THE COMMANDS, ARE RECORDED UNDER IT ONCE THE CHRONOS ARE TOO MANY
+    final OProfilerData snapshot = lastSnapshot;
+    if (snapshot != null)
+      snapshot.updateChrono(iName, iDictionaryName, elapsed, iPayload);
+    return realTime.updateChrono(iName, iDictionaryName, elapsed, iPayload);
   }
 
   public long updateStat(final String iName, final String iDescription, final long iValue) {
@@ -426,16 +417,10 @@ public class OProfiler extends OSharedResourceAbstract implements OProfilerMBean
 
     updateMetadata(iName, iDescription, METRIC_TYPE.STAT);
 
-    acquireSharedLock();
-    try {
-
-      if (lastSnapshot != null)
-        lastSnapshot.updateStat(iName, iValue);
-      return realTime.updateStat(iName, iValue);
-
-    } finally {
-      releaseSharedLock();
-    }
+    final OProfilerData snapshot = lastSnapshot;
+    if (snapshot != null)
+      snapshot.updateStat(iName, iValue);
+    return realTime.updateStat(iName, iValue);
   }
 
   public String dumpCounters() {
@@ -569,6 +554,15 @@ public class OProfiler extends OSharedResourceAbstract implements OProfilerMBean
     }
   }
 
+  public long getChronoPercentile(final String iChronoName, final double iPercentile) {
+    acquireSharedLock();
+    try {
+      return realTime.getChronoPercentile(iChronoName, iPercentile);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   public void registerHookValue(final String iName, final String iDescription, final METRIC_TYPE iType,
       final OProfilerHookValue iHookValue) {
     registerHookValue(iName, iDescription, iType, iHookValue, iName);
@@ -19,12 +19,14 @@ package com.orientechnologies.common.profiler;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.orientechnologies.common.concur.OStripedCounter;
 import com.orientechnologies.common.log.OLogManager;
 
 /**
@@ -33,25 +35,40 @@ import com.orientechnologies.common.log.OLogManager;
  * 
  * To start the recording use call startRecording(). By default record is turned off to avoid a run-time execution cost.
  * 
+ * Counters, chronos and statistics are updated without locks: counters are striped and chronos and statistics are recorded in
+ * histograms, so percentiles are available besides min, max and average. Chrono times are in nanoseconds.
+ * 
  * @author Luca Garulli
  * @copyrights Orient Technologies.com
  */
 public class OProfilerData {
-  private long                        recordingFrom = 0;
-  private long                        recordingTo   = Long.MAX_VALUE;
-  private Map<String, Long>           counters;
-  private Map<String, OProfilerEntry> chronos;
-  private Map<String, OProfilerEntry> stats;
-  private Map<String, Object>         hooks;
-
-  public class OProfilerEntry {
+  /**
+   * Maximum number of chronos created for names that can be grouped under another one, such as the chronos of the single commands.
+   * Beyond it the new names are recorded under their group.
+   */
+  public static final int                           MAX_GROUPED_CHRONOS = 1000;
+
+  private volatile long                             recordingFrom       = 0;
+  private volatile long                             recordingTo         = Long.MAX_VALUE;
+  private ConcurrentMap<String, OStripedCounter>    counters;
+  private ConcurrentMap<String, OProfilerHistogram> chronos;
+  private ConcurrentMap<String, OProfilerHistogram> stats;
+  private Map<String, Object>                       hooks;
+
+  /**
+   * Snapshot of a chrono or a statistic.
+   */
+  public static class OProfilerEntry {
     public String name    = null;
     public long   entries = 0;
     public long   last    = 0;
-    public long   min     = 999999999;
+    public long   min     = 0;
     public long   max     = 0;
     public long   average = 0;
     public long   total   = 0;
+    public long   p50     = 0;
+    public long   p99     = 0;
+    public long   p999    = 0;
     public String payLoad;
     public String description;
 
@@ -62,23 +79,27 @@ public class OProfilerData {
       buffer.append(String.format("\"%s\":%d,", "min", min));
       buffer.append(String.format("\"%s\":%d,", "max", max));
       buffer.append(String.format("\"%s\":%d,", "average", average));
+      buffer.append(String.format("\"%s\":%d,", "p50", p50));
+      buffer.append(String.format("\"%s\":%d,", "p99", p99));
+      buffer.append(String.format("\"%s\":%d,", "p999", p999));
       buffer.append(String.format("\"%s\":%d", "total", total));
       if (payLoad != null)
-        buffer.append(String.format("\"%s\":%d", "payload", payLoad));
+        buffer.append(String.format(",\"%s\":\"%s\"", "payload", payLoad.replace("\\", "\\\\").replace("\"", "\\\"")));
       buffer.append("}");
     }
 
     @Override
     public String toString() {
-      return String.format("Profiler entry [%s]: total=%d, average=%d, items=%d, last=%d, max=%d, min=%d", total, name, average,
-          entries, last, max, min);
+      return String.format(
+          "Profiler entry [%s]: total=%d, average=%d, items=%d, last=%d, max=%d, min=%d, p50=%d, p99=%d, p999=%d", name, total,
+          average, entries, last, max, min, p50, p99, p999);
     }
   }
 
   public OProfilerData() {
-    counters = new HashMap<String, Long>();
-    chronos = new HashMap<String, OProfilerEntry>();
-    stats = new HashMap<String, OProfilerEntry>();
+    counters = new ConcurrentHashMap<String, OStripedCounter>();
+    chronos = new ConcurrentHashMap<String, OProfilerHistogram>();
+    stats = new ConcurrentHashMap<String, OProfilerHistogram>();
     hooks = new WeakHashMap<String, Object>();
     recordingFrom = System.currentTimeMillis();
   }
@@ -102,12 +123,8 @@ public class OProfilerData {
       recordingTo = iToMerge.recordingTo;
 
     // COUNTERS
-    for (Entry<String, Long> entry : iToMerge.counters.entrySet()) {
-      Long currentValue = counters.get(entry.getKey());
-      if (currentValue == null)
-        currentValue = 0l;
-      counters.put(entry.getKey(), currentValue + entry.getValue());
-    }
+    for (Entry<String, OStripedCounter> entry : iToMerge.counters.entrySet())
+      getOrCreateCounter(entry.getKey()).add(entry.getValue().sum());
 
     // HOOKS
     for (Entry<String, Object> entry : iToMerge.hooks.entrySet()) {
@@ -193,7 +210,7 @@ public class OProfilerData {
         firstItem = false;
       else
         buffer.append(',');
-      chronos.get(k).toJSON(buffer);
+      chronos.get(k).toEntry(k).toJSON(buffer);
     }
     buffer.append("}");
 
@@ -211,7 +228,7 @@ public class OProfilerData {
         firstItem = false;
       else
         buffer.append(',');
-      stats.get(k).toJSON(buffer);
+      stats.get(k).toEntry(k).toJSON(buffer);
     }
     buffer.append("}");
 
@@ -229,7 +246,7 @@ public class OProfilerData {
         firstItem = false;
       else
         buffer.append(',');
-      buffer.append(String.format("\"%s\":%d", k, counters.get(k)));
+      buffer.append(String.format("\"%s\":%d", k, counters.get(k).sum()));
     }
     buffer.append("}");
 
@@ -238,7 +255,7 @@ public class OProfilerData {
 
   public String dump() {
     final StringBuilder buffer = new StringBuilder();
-    buffer.append("Dump of profiler data from " + new Date(recordingFrom) + " to " + new Date(recordingFrom) + "\n");
+    buffer.append("Dump of profiler data from " + new Date(recordingFrom) + " to " + new Date(recordingTo) + "\n");
 
     buffer.append(dumpHookValues());
     buffer.append("\n");
@@ -254,53 +271,68 @@ public class OProfilerData {
     if (iStatName == null)
       return;
 
-    synchronized (counters) {
-      final Long stat = counters.get(iStatName);
-      final long oldValue = stat == null ? 0 : stat.longValue();
-      counters.put(iStatName, new Long(oldValue + iPlus));
-    }
+    getOrCreateCounter(iStatName).add(iPlus);
   }
 
   public long getCounter(final String iStatName) {
     if (iStatName == null)
       return -1;
 
-    synchronized (counters) {
-      final Long stat = counters.get(iStatName);
-      if (stat == null)
-        return -1;
+    final OStripedCounter stat = counters.get(iStatName);
+    if (stat == null)
+      return -1;
 
-      return stat.longValue();
-    }
+    return stat.sum();
   }
 
   public String dumpCounters() {
-    synchronized (counters) {
-      final StringBuilder buffer = new StringBuilder();
-      buffer.append("Dumping COUNTERS:");
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append("Dumping COUNTERS:");
 
-      buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-      buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
-      buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+    buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+    buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
+    buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
 
-      final List<String> keys = new ArrayList<String>(counters.keySet());
-      Collections.sort(keys);
+    final List<String> keys = new ArrayList<String>(counters.keySet());
+    Collections.sort(keys);
 
-      for (String k : keys) {
-        final Long stat = counters.get(k);
-        buffer.append(String.format("\n%-50s | %-65d |", k, stat));
-      }
-      buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-      return buffer.toString();
+    for (String k : keys) {
+      final OStripedCounter stat = counters.get(k);
+      buffer.append(String.format("\n%-50s | %-65d |", k, stat.sum()));
     }
+    buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+    return buffer.toString();
   }
 
   public long stopChrono(final String iName, final long iStartTime, final String iPayload) {
-    return updateEntry(chronos, iName, System.currentTimeMillis() - iStartTime, iPayload);
+    return updateChrono(iName, System.nanoTime() - iStartTime, iPayload);
+  }
+
+  /**
+   * Records an elapsed time already computed by the caller.
+   * 
+   * @param iElapsed
+   *          Elapsed time in nanoseconds
+   */
+  public long updateChrono(final String iName, final long iElapsed, final String iPayload) {
+    return updateEntry(chronos, iName, iElapsed, iPayload);
+  }
+
+  /**
+   * Records an elapsed time under a name that belongs to a group, for example the text of a command under "db.*.command.*". Once the
+   * chronos are {@link #MAX_GROUPED_CHRONOS} the new names are not created anymore and their times are recorded under the group.
+   * 
+   * @param iElapsed
+   *          Elapsed time in nanoseconds
+   */
+  public long updateChrono(final String iName, final String iGroupName, final long iElapsed, final String iPayload) {
+    if (iGroupName != null && !iGroupName.equals(iName) && !chronos.containsKey(iName) && chronos.size() >= MAX_GROUPED_CHRONOS)
+      return updateEntry(chronos, iGroupName, iElapsed, iPayload);
+    return updateEntry(chronos, iName, iElapsed, iPayload);
   }
 
   public String dumpChronos() {
-    return dumpEntries(chronos, new StringBuilder("Dumping CHRONOS. Times in ms:"));
+    return dumpEntries(chronos, new StringBuilder("Dumping CHRONOS. Times in ns:"));
   }
 
   public long updateStat(final String iName, final long iValue) {
@@ -308,7 +340,7 @@ public class OProfilerData {
   }
 
   public String dumpStats() {
-    return dumpEntries(stats, new StringBuilder("Dumping STATISTICS. Times in ms:"));
+    return dumpEntries(stats, new StringBuilder("Dumping STATISTICS:"));
   }
 
   public String dumpHookValues() {
@@ -355,44 +387,24 @@ public class OProfilerData {
   }
 
   public String[] getCountersAsString() {
-    synchronized (counters) {
-      final String[] output = new String[counters.size()];
-      int i = 0;
-      for (Entry<String, Long> entry : counters.entrySet()) {
-        output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-      }
-      return output;
-    }
+    final List<String> output = new ArrayList<String>();
+    for (Entry<String, OStripedCounter> entry : counters.entrySet())
+      output.add(entry.getKey() + ": " + entry.getValue().sum());
+    return output.toArray(new String[output.size()]);
   }
 
   public String[] getChronosAsString() {
-    synchronized (chronos) {
-      final String[] output = new String[chronos.size()];
-      int i = 0;
-      for (Entry<String, OProfilerEntry> entry : chronos.entrySet()) {
-        output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-      }
-      return output;
-    }
+    return getEntriesAsString(chronos);
   }
 
   public String[] getStatsAsString() {
-    synchronized (stats) {
-      final String[] output = new String[stats.size()];
-      int i = 0;
-      for (Entry<String, OProfilerEntry> entry : stats.entrySet()) {
-        output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-      }
-      return output;
-    }
+    return getEntriesAsString(stats);
   }
 
   public List<String> getCounters() {
-    synchronized (counters) {
-      final List<String> list = new ArrayList<String>(counters.keySet());
-      Collections.sort(list);
-      return list;
-    }
+    final List<String> list = new ArrayList<String>(counters.keySet());
+    Collections.sort(list);
+    return list;
   }
 
   public List<String> getHooks() {
@@ -404,109 +416,118 @@ public class OProfilerData {
   }
 
   public List<String> getChronos() {
-    synchronized (chronos) {
-      final List<String> list = new ArrayList<String>(chronos.keySet());
-      Collections.sort(list);
-      return list;
-    }
+    final List<String> list = new ArrayList<String>(chronos.keySet());
+    Collections.sort(list);
+    return list;
   }
 
   public List<String> getStats() {
-    synchronized (stats) {
-      final List<String> list = new ArrayList<String>(stats.keySet());
-      Collections.sort(list);
-      return list;
-    }
+    final List<String> list = new ArrayList<String>(stats.keySet());
+    Collections.sort(list);
+    return list;
   }
 
   public OProfilerEntry getStat(final String iStatName) {
     if (iStatName == null)
       return null;
 
-    synchronized (stats) {
-      return stats.get(iStatName);
-    }
+    final OProfilerHistogram stat = stats.get(iStatName);
+    return stat != null ? stat.toEntry(iStatName) : null;
   }
 
   public OProfilerEntry getChrono(final String iChronoName) {
     if (iChronoName == null)
       return null;
 
-    synchronized (chronos) {
-      return chronos.get(iChronoName);
-    }
+    final OProfilerHistogram chrono = chronos.get(iChronoName);
+    return chrono != null ? chrono.toEntry(iChronoName) : null;
   }
 
-  protected synchronized long updateEntry(final Map<String, OProfilerEntry> iValues, final String iName, final long iValue,
-      final String iPayload) {
-    synchronized (iValues) {
-      OProfilerEntry c = iValues.get(iName);
-
-      if (c == null) {
-        // CREATE NEW CHRONO
-        c = new OProfilerEntry();
-        iValues.put(iName, c);
-      }
-
-      c.name = iName;
-      c.payLoad = iPayload;
-      c.entries++;
-      c.last = iValue;
-      c.total += c.last;
-      c.average = c.total / c.entries;
-
-      if (c.last < c.min)
-        c.min = c.last;
+  /**
+   * Returns the value below which the passed percentage of the times recorded by a chrono falls, or -1 if the chrono doesn't
+   * exist.
+   */
+  public long getChronoPercentile(final String iChronoName, final double iPercentile) {
+    if (iChronoName == null)
+      return -1;
 
-      if (c.last > c.max)
-        c.max = c.last;
+    final OProfilerHistogram chrono = chronos.get(iChronoName);
+    return chrono != null ? chrono.getPercentile(iPercentile) : -1;
+  }
 
-      return c.last;
+  protected long updateEntry(final ConcurrentMap<String, OProfilerHistogram> iValues, final String iName, final long iValue,
+      final String iPayload) {
+    OProfilerHistogram c = iValues.get(iName);
+    if (c == null) {
+      // CREATE NEW ENTRY
+      c = new OProfilerHistogram();
+      final OProfilerHistogram previous = iValues.putIfAbsent(iName, c);
+      if (previous != null)
+        c = previous;
     }
+
+    return c.record(iValue, iPayload);
   }
 
-  protected synchronized String dumpEntries(final Map<String, OProfilerEntry> iValues, final StringBuilder iBuffer) {
+  protected String dumpEntries(final Map<String, OProfilerHistogram> iValues, final StringBuilder iBuffer) {
     // CHECK IF CHRONOS ARE ACTIVED
-    synchronized (iValues) {
-      if (iValues.size() == 0)
-        return "";
+    if (iValues.isEmpty())
+      return "";
 
-      OProfilerEntry c;
+    OProfilerEntry c;
 
-      iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-      iBuffer.append(String.format("\n%50s | %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max", "average",
-          "items"));
-      iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+    iBuffer.append(String.format(
+        "\n%50s +----------------------------------------------------------------------------------------------------------+", ""));
+    iBuffer.append(String.format("\n%50s | %10s %12s %10s %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max",
+        "average", "p50", "p99", "p999", "items"));
+    iBuffer.append(String.format(
+        "\n%50s +----------------------------------------------------------------------------------------------------------+", ""));
 
-      final List<String> keys = new ArrayList<String>(iValues.keySet());
-      Collections.sort(keys);
+    final List<String> keys = new ArrayList<String>(iValues.keySet());
+    Collections.sort(keys);
 
-      for (String k : keys) {
-        c = iValues.get(k);
-        iBuffer.append(String.format("\n%-50s | %10d %10d %10d %10d %10d %10d |", k, c.last, c.total, c.min, c.max, c.average,
-            c.entries));
-      }
-      iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-      return iBuffer.toString();
+    for (String k : keys) {
+      c = iValues.get(k).toEntry(k);
+      iBuffer.append(String.format("\n%-50s | %10d %12d %10d %10d %10d %10d %10d %10d %10d |", k, c.last, c.total, c.min, c.max,
+          c.average, c.p50, c.p99, c.p999, c.entries));
     }
+    iBuffer.append(String.format(
+        "\n%50s +----------------------------------------------------------------------------------------------------------+", ""));
+    return iBuffer.toString();
   }
 
-  protected void mergeEntries(final Map<String, OProfilerEntry> iMyEntries, final Map<String, OProfilerEntry> iOthersEntries) {
-    for (Entry<String, OProfilerEntry> entry : iOthersEntries.entrySet()) {
-      OProfilerEntry currentValue = iMyEntries.get(entry.getKey());
+  protected void mergeEntries(final ConcurrentMap<String, OProfilerHistogram> iMyEntries,
+      final Map<String, OProfilerHistogram> iOthersEntries) {
+    for (Entry<String, OProfilerHistogram> entry : iOthersEntries.entrySet()) {
+      OProfilerHistogram currentValue = iMyEntries.get(entry.getKey());
       if (currentValue == null) {
-        currentValue = entry.getValue();
-        iMyEntries.put(entry.getKey(), currentValue);
-      } else {
-        // MERGE IT
-        currentValue.entries += entry.getValue().entries;
-        currentValue.last = entry.getValue().last;
-        currentValue.min = Math.min(currentValue.min, entry.getValue().min);
-        currentValue.max = Math.max(currentValue.max, entry.getValue().max);
-        currentValue.average = (currentValue.total + entry.getValue().total) / currentValue.entries;
-        currentValue.total += entry.getValue().total;
+        currentValue = new OProfilerHistogram();
+        final OProfilerHistogram previous = iMyEntries.putIfAbsent(entry.getKey(), currentValue);
+        if (previous != null)
+          currentValue = previous;
       }
+
+      // MERGE IT
+      currentValue.mergeWith(entry.getValue());
+    }
+  }
+
+  protected String[] getEntriesAsString(final Map<String, OProfilerHistogram> iValues) {
+    final List<String> output = new ArrayList<String>();
+    for (Entry<String, OProfilerHistogram> entry : iValues.entrySet())
+      output.add(entry.getKey() + ": " + entry.getValue().toEntry(entry.getKey()).toString());
+    return output.toArray(new String[output.size()]);
+  }
+
+  protected OStripedCounter getOrCreateCounter(final String iName) {
+    OStripedCounter counter = counters.get(iName);
+    if (counter == null) {
+      counter = new OStripedCounter();
+      final OStripedCounter previous = counters.putIfAbsent(iName, counter);
+      if (previous != null)
+        counter = previous;
     }
+    return counter;
   }
 
   public boolean isInRange(final long from, final long to) {
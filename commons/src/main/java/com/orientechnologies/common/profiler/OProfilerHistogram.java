@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.orientechnologies.common.concur.OStripedCounter;
+import com.orientechnologies.common.profiler.OProfilerData.OProfilerEntry;
+
+/**
+ * Lock-free recorder of the values of a chrono or a statistic. Besides count, total, min, max and last value it keeps a
+ * log-linear histogram to extract the percentiles: every power of 2 is split in 16 buckets, so a percentile is returned with an
+ * error of 1/16 (6.25%) at most, using a bounded amount of memory whatever the range of the values. The buckets of a power of 2 are
+ * allocated when the first value falls in it, so a histogram takes memory only for the orders of magnitude actually recorded.
+ */
+public class OProfilerHistogram {
+  private static final int                            SUB_BUCKET_BITS = 4;
+  private static final int                            SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+  private static final int                            BLOCKS          = 64 - SUB_BUCKET_BITS;
+  private static final int                            BUCKETS         = BLOCKS * SUB_BUCKETS;
+
+  private final OStripedCounter                       entries         = new OStripedCounter();
+  private final OStripedCounter                       total           = new OStripedCounter();
+  private final AtomicLong                            min             = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong                            max             = new AtomicLong(Long.MIN_VALUE);
+  private final AtomicReferenceArray<AtomicLongArray> blocks          = new AtomicReferenceArray<AtomicLongArray>(BLOCKS);
+  private volatile long                               last;
+  private volatile String                             payload;
+
+  public long record(final long iValue, final String iPayload) {
+    entries.increment();
+    total.add(iValue);
+    last = iValue;
+    if (iPayload != null)
+      payload = iPayload;
+
+    long current = min.get();
+    while (iValue < current && !min.compareAndSet(current, iValue))
+      current = min.get();
+
+    current = max.get();
+    while (iValue > current && !max.compareAndSet(current, iValue))
+      current = max.get();
+
+    addToBucket(getBucket(iValue), 1);
+    return iValue;
+  }
+
+  public void mergeWith(final OProfilerHistogram iOther) {
+    final long otherEntries = iOther.entries.sum();
+    if (otherEntries == 0)
+      return;
+
+    entries.add(otherEntries);
+    total.add(iOther.total.sum());
+    last = iOther.last;
+    if (iOther.payload != null)
+      payload = iOther.payload;
+
+    final long otherMin = iOther.min.get();
+    long current = min.get();
+    while (otherMin < current && !min.compareAndSet(current, otherMin))
+      current = min.get();
+
+    final long otherMax = iOther.max.get();
+    current = max.get();
+    while (otherMax > current && !max.compareAndSet(current, otherMax))
+      current = max.get();
+
+    for (int i = 0; i < BUCKETS; ++i) {
+      final long count = iOther.getBucketCount(i);
+      if (count > 0)
+        addToBucket(i, count);
+    }
+  }
+
+  /**
+   * Returns the value below which the passed percentage of the recorded values falls.
+   *
+   * @param iPercentile
+   *          Percentile between 0 and 100, for example 99.9
+   */
+  public long getPercentile(final double iPercentile) {
+    final long count = entries.sum();
+    if (count == 0)
+      return 0;
+
+    final long target = Math.max(1, (long) Math.ceil(count * Math.min(iPercentile, 100) / 100));
+
+    long cumulated = 0;
+    for (int i = 0; i < BUCKETS; ++i) {
+      cumulated += getBucketCount(i);
+      if (cumulated >= target)
+        return Math.max(Math.min(getBucketHighestValue(i), max.get()), min.get());
+    }
+
+    return max.get();
+  }
+
+  public long getEntries() {
+    return entries.sum();
+  }
+
+  /**
+   * Returns a snapshot of the recorded values.
+   */
+  public OProfilerEntry toEntry(final String iName) {
+    final OProfilerEntry entry = new OProfilerEntry();
+    entry.name = iName;
+    entry.entries = entries.sum();
+    entry.total = total.sum();
+    entry.last = last;
+    entry.payLoad = payload;
+
+    if (entry.entries > 0) {
+      entry.min = min.get();
+      entry.max = max.get();
+      entry.average = entry.total / entry.entries;
+      entry.p50 = getPercentile(50);
+      entry.p99 = getPercentile(99);
+      entry.p999 = getPercentile(99.9);
+    }
+    return entry;
+  }
+
+  private void addToBucket(final int iBucket, final long iCount) {
+    final int block = iBucket >>> SUB_BUCKET_BITS;
+    AtomicLongArray counts = blocks.get(block);
+    if (counts == null) {
+      blocks.compareAndSet(block, null, new AtomicLongArray(SUB_BUCKETS));
+      counts = blocks.get(block);
+    }
+    counts.addAndGet(iBucket & (SUB_BUCKETS - 1), iCount);
+  }
+
+  private long getBucketCount(final int iBucket) {
+    final AtomicLongArray counts = blocks.get(iBucket >>> SUB_BUCKET_BITS);
+    return counts != null ? counts.get(iBucket & (SUB_BUCKETS - 1)) : 0;
+  }
+
+  private static int getBucket(final long iValue) {
+    if (iValue < SUB_BUCKETS)
+      // NEGATIVE VALUES ARE COUNTED AS 0
+      return iValue < 0 ? 0 : (int) iValue;
+
+    final int shift = 63 - Long.numberOfLeadingZeros(iValue) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((iValue >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  private static long getBucketHighestValue(final int iBucket) {
+    final int block = iBucket / SUB_BUCKETS;
+    final int subBucket = iBucket % SUB_BUCKETS;
+
+    if (block == 0)
+      return subBucket;
+
+    final int shift = block - 1;
+    return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+  }
+}
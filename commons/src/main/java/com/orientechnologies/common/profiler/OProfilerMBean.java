@@ -33,10 +33,20 @@ public interface OProfilerMBean {
 
   public String dumpChronos();
 
+  public String dumpStats();
+
   public String[] getCountersAsString();
 
   public String[] getChronosAsString();
 
+  public String[] getStatsAsString();
+
+  /**
+   * Returns the time in nanoseconds below which the passed percentage (for example 99.9) of the executions of a chrono falls, or
+   * -1 if the chrono doesn't exist.
+   */
+  public long getChronoPercentile(String iChronoName, double iPercentile);
+
   public Date getLastReset();
 
   public boolean isRecording();
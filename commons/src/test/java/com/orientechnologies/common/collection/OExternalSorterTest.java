@@ -0,0 +1,167 @@
+package com.orientechnologies.common.collection;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.io.OIOException;
+
+@Test
+public class OExternalSorterTest {
+  private static final String PREFIX = "orientdb-sorter-test-";
+
+  @Test
+  public void testInMemory() {
+    final OPairSorter sorter = new OPairSorter(0);
+    for (int i = 0; i < 100; i++)
+      sorter.add(new int[] { (i * 37) % 10, i });
+
+    Assert.assertFalse(sorter.isSpilled());
+    Assert.assertEquals(ids(sorter), expected(100));
+    Assert.assertEquals(ids(sorter.toList()), expected(100));
+    sorter.close();
+  }
+
+  @Test
+  public void testSpillAndMerge() {
+    final Set<File> before = runFiles();
+
+    final OPairSorter sorter = new OPairSorter(7);
+    for (int i = 0; i < 100; i++)
+      sorter.add(new int[] { (i * 37) % 10, i });
+    Assert.assertTrue(sorter.isSpilled());
+    Assert.assertTrue(runFiles().size() > before.size());
+
+    // THE ITEMS WITH THE SAME VALUE KEEP THE ORDER THEY WERE ADDED IN, ALSO ACROSS THE RUNS
+    Assert.assertEquals(ids(sorter), expected(100));
+    // BROWSED AGAIN
+    Assert.assertEquals(ids(sorter), expected(100));
+
+    try {
+      sorter.add(new int[] { 0, 100 });
+      Assert.fail();
+    } catch (IllegalStateException e) {
+    }
+
+    try {
+      sorter.toList();
+      Assert.fail();
+    } catch (IllegalStateException e) {
+    }
+
+    sorter.close();
+    Assert.assertEquals(runFiles(), before);
+  }
+
+  @Test
+  public void testMergeInPasses() {
+    final Set<File> before = runFiles();
+
+    // 100 ITEMS IN RUNS OF 7: 14 RUNS ON DISK MERGED 3 AT A TIME
+    final OPairSorter sorter = new OPairSorter(7, 3);
+    for (int i = 0; i < 100; i++)
+      sorter.add(new int[] { (i * 37) % 10, i });
+    Assert.assertEquals(runFiles().size() - before.size(), 14);
+
+    final Iterator<int[]> iterator = sorter.iterator();
+    // THE LAST PASS MERGES 2 RUNS ON DISK WITH THE ITEMS IN MEMORY
+    Assert.assertEquals(runFiles().size() - before.size(), 2);
+
+    final List<Integer> ids = new ArrayList<Integer>();
+    while (iterator.hasNext())
+      ids.add(iterator.next()[1]);
+    Assert.assertEquals(ids, expected(100));
+    Assert.assertEquals(ids(sorter), expected(100));
+
+    sorter.close();
+    Assert.assertEquals(runFiles(), before);
+  }
+
+  @Test
+  public void testCloseWhileMerging() {
+    final Set<File> before = runFiles();
+
+    final OPairSorter sorter = new OPairSorter(7);
+    for (int i = 0; i < 100; i++)
+      sorter.add(new int[] { i, i });
+
+    final Iterator<int[]> iterator = sorter.iterator();
+    Assert.assertEquals(iterator.next()[1], 0);
+    Assert.assertEquals(iterator.next()[1], 1);
+
+    // THE RUNS STILL OPEN ARE CLOSED BEFORE THEIR FILES ARE DELETED
+    sorter.close();
+    Assert.assertEquals(runFiles(), before);
+
+    try {
+      while (iterator.hasNext())
+        iterator.next();
+      Assert.fail();
+    } catch (OIOException e) {
+    }
+  }
+
+  private static List<Integer> expected(final int iItems) {
+    final List<Integer> expected = new ArrayList<Integer>();
+    for (int value = 0; value < 10; value++)
+      for (int i = 0; i < iItems; i++)
+        if ((i * 37) % 10 == value)
+          expected.add(i);
+    return expected;
+  }
+
+  private static List<Integer> ids(final Iterable<int[]> iItems) {
+    final List<Integer> ids = new ArrayList<Integer>();
+    for (int[] item : iItems)
+      ids.add(item[1]);
+    return ids;
+  }
+
+  private static Set<File> runFiles() {
+    final Set<File> files = new HashSet<File>();
+    final File[] tmpFiles = new File(System.getProperty("java.io.tmpdir")).listFiles();
+    if (tmpFiles != null)
+      for (File file : tmpFiles)
+        if (file.getName().startsWith(PREFIX))
+          files.add(file);
+    return files;
+  }
+
+  /**
+   * Sorts pairs of value and id by value only.
+   */
+  private static class OPairSorter extends OExternalSorter<int[]> {
+    private OPairSorter(final int iMaxItemsInMemory) {
+      this(iMaxItemsInMemory, DEFAULT_MAX_MERGE_FAN_IN);
+    }
+
+    private OPairSorter(final int iMaxItemsInMemory, final int iMaxMergeFanIn) {
+      super(new Comparator<int[]>() {
+        public int compare(final int[] o1, final int[] o2) {
+          return o1[0] - o2[0];
+        }
+      }, iMaxItemsInMemory, iMaxMergeFanIn, PREFIX);
+    }
+
+    @Override
+    protected void write(final DataOutputStream iOut, final int[] iItem) throws IOException {
+      iOut.writeInt(iItem[0]);
+      iOut.writeInt(iItem[1]);
+    }
+
+    @Override
+    protected int[] read(final DataInputStream iIn) throws IOException {
+      return new int[] { iIn.readInt(), iIn.readInt() };
+    }
+  }
+}
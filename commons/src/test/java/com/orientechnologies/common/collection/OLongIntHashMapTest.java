@@ -0,0 +1,99 @@
+package com.orientechnologies.common.collection;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+@Test
+public class OLongIntHashMapTest {
+
+  @Test
+  public void testPutGet() {
+    final OLongIntHashMap map = new OLongIntHashMap();
+
+    map.put(0, 10);
+    map.put(-1, 20);
+    map.put(Long.MAX_VALUE, 30);
+
+    assertEquals(map.size(), 3);
+    assertEquals(map.get(0, -1), 10);
+    assertEquals(map.get(-1, -1), 20);
+    assertEquals(map.get(Long.MAX_VALUE, -1), 30);
+    assertEquals(map.get(1, -1), -1);
+    assertFalse(map.containsKey(1));
+
+    map.put(0, 11);
+    assertEquals(map.size(), 3);
+    assertEquals(map.get(0, -1), 11);
+  }
+
+  @Test
+  public void testRemove() {
+    final OLongIntHashMap map = new OLongIntHashMap();
+
+    map.put(5, 1);
+    assertTrue(map.remove(5));
+    assertFalse(map.remove(5));
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(5));
+  }
+
+  @Test
+  public void testClear() {
+    final OLongIntHashMap map = new OLongIntHashMap();
+    for (long i = 0; i < 100; i++)
+      map.put(i, (int) i);
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(10));
+    assertFalse(map.cursor().next());
+  }
+
+  @Test
+  public void testCursor() {
+    final OLongIntHashMap map = new OLongIntHashMap(2);
+    for (long i = 0; i < 1000; i++)
+      map.put(i * 1024, (int) i);
+
+    int entries = 0;
+    final OLongIntHashMap.Cursor cursor = map.cursor();
+    while (cursor.next()) {
+      assertEquals(cursor.key(), cursor.value() * 1024L);
+      entries++;
+    }
+    assertEquals(entries, 1000);
+  }
+
+  @Test
+  public void testRandomOperations() {
+    final OLongIntHashMap map = new OLongIntHashMap();
+    final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+
+    final Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      // FEW DISTINCT KEYS TO HAVE LONG PROBE SEQUENCES AND MANY REMOVALS
+      final long key = random.nextInt(2048) * 16L;
+      if (random.nextInt(3) == 0) {
+        assertEquals(map.remove(key), expected.remove(key) != null);
+      } else {
+        map.put(key, i);
+        expected.put(key, i);
+      }
+    }
+
+    assertEquals(map.size(), expected.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet())
+      assertEquals(map.get(entry.getKey(), -1), entry.getValue().intValue());
+
+    final OLongIntHashMap.Cursor cursor = map.cursor();
+    while (cursor.next())
+      assertEquals(expected.get(cursor.key()).intValue(), cursor.value());
+  }
+}
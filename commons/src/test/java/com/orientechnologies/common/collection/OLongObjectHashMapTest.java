@@ -0,0 +1,72 @@
+package com.orientechnologies.common.collection;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+@Test
+public class OLongObjectHashMapTest {
+
+  @Test
+  public void testPutGetRemove() {
+    final OLongObjectHashMap<String> map = new OLongObjectHashMap<String>();
+
+    assertNull(map.put(0, "a"));
+    assertNull(map.put(-7, "b"));
+    assertEquals(map.put(0, "c"), "a");
+
+    assertEquals(map.size(), 2);
+    assertEquals(map.get(0), "c");
+    assertEquals(map.get(-7), "b");
+    assertNull(map.get(1));
+
+    assertEquals(map.remove(0), "c");
+    assertNull(map.remove(0));
+    assertEquals(map.size(), 1);
+    assertFalse(map.containsKey(0));
+    assertTrue(map.containsKey(-7));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullValue() {
+    new OLongObjectHashMap<String>().put(1, null);
+  }
+
+  @Test
+  public void testRandomOperations() {
+    final OLongObjectHashMap<Integer> map = new OLongObjectHashMap<Integer>();
+    final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+
+    final Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      final long key = random.nextInt(2048) << 10;
+      if (random.nextInt(3) == 0) {
+        assertEquals(map.remove(key), expected.remove(key));
+      } else
+        assertEquals(map.put(key, i), expected.put(key, i));
+    }
+
+    assertEquals(map.size(), expected.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet())
+      assertEquals(map.get(entry.getKey()), entry.getValue());
+
+    int entries = 0;
+    final OLongObjectHashMap<Integer>.Cursor cursor = map.cursor();
+    while (cursor.next()) {
+      assertEquals(cursor.value(), expected.get(cursor.key()));
+      entries++;
+    }
+    assertEquals(entries, expected.size());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(0));
+  }
+}
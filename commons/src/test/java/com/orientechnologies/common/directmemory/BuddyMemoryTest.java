@@ -202,4 +202,46 @@ public class BuddyMemoryTest {
 
     Assert.assertEquals(memory.freeSpace(), initialSize);
   }
+
+  @Test
+  public void testAllocateWholeMemoryTwice() {
+    OBuddyMemory memory = new OBuddyMemory(128, 64);
+
+    int pointer = memory.allocate(128 - OBuddyMemory.SYSTEM_INFO_SIZE);
+    Assert.assertEquals(pointer, 0);
+    Assert.assertEquals(memory.allocate(128 - OBuddyMemory.SYSTEM_INFO_SIZE), ODirectMemory.NULL_POINTER);
+  }
+
+  @Test
+  public void testDirectWrites() throws Exception {
+    final OBuddyMemory memory = new OBuddyMemory(8192, 64, true);
+    Assert.assertTrue(memory.isDirect());
+    Assert.assertEquals(memory.freeSpace(), 8192);
+
+    final Random r = new Random();
+    final Map<Integer, byte[]> pointers = new HashMap<Integer, byte[]>();
+
+    for (int i = 0; i < 20; i++) {
+      final byte[] bytes = new byte[50 + r.nextInt(250)];
+      r.nextBytes(bytes);
+
+      final int pointer = memory.allocate(bytes.length + 12);
+      Assert.assertTrue(pointer != ODirectMemory.NULL_POINTER);
+
+      memory.setInt(pointer, 0, bytes.length);
+      memory.setLong(pointer, 4, bytes.length * 31L);
+      memory.set(pointer, 12, bytes.length, bytes);
+      pointers.put(pointer, bytes);
+    }
+
+    for (Map.Entry<Integer, byte[]> entry : pointers.entrySet()) {
+      final int pointer = entry.getKey();
+      Assert.assertEquals(memory.getInt(pointer, 0), entry.getValue().length);
+      Assert.assertEquals(memory.getLong(pointer, 4), entry.getValue().length * 31L);
+      Assert.assertEquals(memory.get(pointer, 12, memory.getInt(pointer, 0)), entry.getValue());
+      memory.free(pointer);
+    }
+
+    Assert.assertEquals(memory.freeSpace(), 8192);
+  }
 }
@@ -0,0 +1,129 @@
+package com.orientechnologies.common.profiler;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.OStripedCounter;
+import com.orientechnologies.common.profiler.OProfilerData.OProfilerEntry;
+
+@Test
+public class OProfilerHistogramTest {
+  public void testEmpty() {
+    final OProfilerHistogram histogram = new OProfilerHistogram();
+    final OProfilerEntry entry = histogram.toEntry("empty");
+
+    Assert.assertEquals(entry.entries, 0);
+    Assert.assertEquals(entry.p99, 0);
+    Assert.assertEquals(histogram.getPercentile(50), 0);
+  }
+
+  public void testSmallValuesAreExact() {
+    final OProfilerHistogram histogram = new OProfilerHistogram();
+    for (int i = 1; i <= 10; ++i)
+      histogram.record(i, null);
+
+    final OProfilerEntry entry = histogram.toEntry("small");
+    Assert.assertEquals(entry.entries, 10);
+    Assert.assertEquals(entry.total, 55);
+    Assert.assertEquals(entry.min, 1);
+    Assert.assertEquals(entry.max, 10);
+    Assert.assertEquals(entry.last, 10);
+    Assert.assertEquals(entry.p50, 5);
+    Assert.assertEquals(entry.p99, 10);
+  }
+
+  public void testPercentilesPrecision() {
+    final OProfilerHistogram histogram = new OProfilerHistogram();
+    for (int i = 1; i <= 100000; ++i)
+      histogram.record(i * 1000L, null);
+
+    assertNear(histogram.getPercentile(50), 50000000L);
+    assertNear(histogram.getPercentile(99), 99000000L);
+    assertNear(histogram.getPercentile(99.9), 99900000L);
+    Assert.assertEquals(histogram.getPercentile(100), 100000000L);
+  }
+
+  public void testMerge() {
+    final OProfilerHistogram first = new OProfilerHistogram();
+    final OProfilerHistogram second = new OProfilerHistogram();
+    for (int i = 0; i < 99; ++i)
+      first.record(100, null);
+    second.record(1000000, "slow");
+
+    first.mergeWith(second);
+
+    final OProfilerEntry entry = first.toEntry("merged");
+    Assert.assertEquals(entry.entries, 100);
+    Assert.assertEquals(entry.max, 1000000);
+    Assert.assertEquals(entry.payLoad, "slow");
+    assertNear(entry.p50, 100);
+    Assert.assertEquals(entry.p999, 1000000);
+  }
+
+  public void testConcurrentRecording() throws InterruptedException {
+    final OProfilerData data = new OProfilerData();
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int k = 0; k < 10000; ++k) {
+            data.updateCounter("counter", 1);
+            data.updateStat("stat", k);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads)
+      t.join();
+
+    Assert.assertEquals(data.getCounter("counter"), 40000);
+    Assert.assertEquals(data.getStat("stat").entries, 40000);
+    Assert.assertEquals(data.getStat("stat").max, 9999);
+  }
+
+  public void testGroupedChronosAreCapped() {
+    final OProfilerData data = new OProfilerData();
+    for (int i = 0; i < OProfilerData.MAX_GROUPED_CHRONOS + 10; ++i)
+      data.updateChrono("db.test.command.select from V where id = " + i, "db.*.command.*", 1000, null);
+
+    Assert.assertEquals(data.getChronos().size(), OProfilerData.MAX_GROUPED_CHRONOS + 1);
+    Assert.assertEquals(data.getChrono("db.*.command.*").entries, 10);
+
+    // THE NAMES ALREADY CREATED ARE STILL UPDATED
+    data.updateChrono("db.test.command.select from V where id = 0", "db.*.command.*", 1000, null);
+    Assert.assertEquals(data.getChrono("db.test.command.select from V where id = 0").entries, 2);
+  }
+
+  public void testCounterIsSplitOnlyWhenContended() throws InterruptedException {
+    final OStripedCounter counter = new OStripedCounter();
+    for (int i = 0; i < 1000; ++i)
+      counter.increment();
+    Assert.assertFalse(counter.isSplit());
+    Assert.assertEquals(counter.sum(), 1000);
+
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int k = 0; k < 100000; ++k)
+            counter.increment();
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads)
+      t.join();
+
+    Assert.assertEquals(counter.sum(), 401000);
+    counter.reset();
+    Assert.assertEquals(counter.sum(), 0);
+  }
+
+  private static void assertNear(final long iValue, final long iExpected) {
+    // THE HISTOGRAM RETURNS THE UPPER BOUND OF THE BUCKET: AT MOST 1/16 MORE
+    Assert.assertTrue(iValue >= iExpected && iValue <= iExpected + iExpected / 16, iValue + " is not near " + iExpected);
+  }
+}
@@ -69,6 +69,12 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
       return;
 
     if (fresh.isPinned() == null || fresh.isPinned()) {
+      if (underlying instanceof OOffHeapRecordCache) {
+        // THE RECORD IS SERIALIZED: NO COPY IS NEEDED AND THE CACHE KEEPS THE NEWER VERSION BY ITSELF
+        underlying.put(fresh);
+        return;
+      }
+
       underlying.lock(fresh.getIdentity());
       try {
         final ORecordInternal<?> current = underlying.get(fresh.getIdentity());
@@ -105,6 +111,19 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
       return null;
 
     ORecordInternal<?> record;
+    if (underlying instanceof OOffHeapRecordCache) {
+      // EVERY RECORD RETURNED IS A NEW INSTANCE: NO NEED TO POP OR COPY IT
+      record = underlying.get(iRID);
+      if (record == null) {
+        Orient.instance().getProfiler()
+            .updateCounter(CACHE_MISS, "Record not found in Level2 Cache", +1, "db.*.cache.level2.cache.notFound");
+        return null;
+      }
+
+      Orient.instance().getProfiler().updateCounter(CACHE_HIT, "Record found in Level2 Cache", +1, "db.*.cache.level2.cache.found");
+      return record;
+    }
+
     underlying.lock(iRID);
     try {
       record = underlying.remove(iRID);
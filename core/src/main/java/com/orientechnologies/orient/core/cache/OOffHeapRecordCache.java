@@ -0,0 +1,463 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Level-2 cache that keeps the serialized content of the records out of the Java heap, in direct buffers of
+ * {@link OGlobalConfiguration#CACHE_LEVEL2_OFFHEAP_SIZE} bytes in total, so the garbage collector never scans the cached records.
+ * Records are serialized on {@link #put(ORecordInternal)} and a new instance is created at every {@link #get(ORID)}, therefore
+ * the records returned are always private copies.<br/>
+ * The memory is split in segments with their own lock, chosen by record identity. Every segment is a circular log: new entries
+ * are appended and the oldest ones are overwritten when the space is over (FIFO eviction). Entries are found through an
+ * open-addressing index of primitive longs that maps the identity to the position in the log. Entry layout:<br/>
+ * <br/>
+ * +--------+------------+-----------+------+---------+---------+<br/>
+ * | LENGTH | RID LENGTH | RID ..... | TYPE | VERSION | CONTENT |<br/>
+ * | 4 bytes| 2 bytes .. | N bytes . | 1 b. | N bytes | N bytes |<br/>
+ * +--------+------------+-----------+------+---------+---------+<br/>
+ * <br/>
+ * A negative length marks the space skipped at the end of the log when the next entry doesn't fit. The limit in number of records
+ * passed to the constructor is ignored: the cache is sized in bytes. Small caches use fewer segments, so no segment is smaller
+ * than 64Kb, which is also the minimum size of the cache.
+ */
+public class OOffHeapRecordCache implements OCache {
+  private static final int    MIN_SEGMENT_SIZE = 1 << 16;
+  private static final int    MAX_SEGMENT_SIZE = 1 << 30;
+  private static final int    HEADER_SIZE      = OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_SHORT + OBinaryProtocol.SIZE_BYTE;
+
+  private final OSegment[]    segments;
+  private final int           segmentMask;
+  private final int           segmentSize;
+  private final int           limit;
+  private final int           versionSize      = OVersionFactory.instance().getVersionSize();
+  private final AtomicBoolean enabled          = new AtomicBoolean(false);
+
+  /**
+   * Portion of the cache: a circular log in a direct buffer plus the index of its entries. All the methods must be called with
+   * the segment lock.
+   */
+  private class OSegment {
+    final ReentrantLock lock  = new ReentrantLock();
+    final OAddressIndex index = new OAddressIndex();
+    ByteBuffer          buffer;
+    long                head;                       // LOGICAL POSITION WHERE THE NEXT ENTRY WILL BE WRITTEN
+    long                tail;                       // LOGICAL POSITION OF THE OLDEST ENTRY
+
+    void write(final long iKey, final byte[] iRid, final byte iType, final byte[] iVersion, final byte[] iContent) {
+      final int length = HEADER_SIZE + iRid.length + iVersion.length + iContent.length;
+
+      if (buffer == null)
+        buffer = ByteBuffer.allocateDirect(segmentSize);
+
+      int position = (int) (head % segmentSize);
+      if (position + length > segmentSize) {
+        // DOESN'T FIT: SKIP TO THE BEGINNING OF THE LOG
+        makeRoom(head + segmentSize - position);
+        if (segmentSize - position >= OBinaryProtocol.SIZE_INT)
+          buffer.putInt(position, position - segmentSize);
+        head += segmentSize - position;
+        position = 0;
+      }
+
+      makeRoom(head + length);
+
+      buffer.putInt(position, length);
+      buffer.putShort(position + OBinaryProtocol.SIZE_INT, (short) iRid.length);
+      buffer.position(position + OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_SHORT);
+      buffer.put(iRid);
+      buffer.put(iType);
+      buffer.put(iVersion);
+      buffer.put(iContent);
+
+      index.put(iKey, head);
+      head += length;
+    }
+
+    /**
+     * Evicts the oldest entries until the log can grow up to the passed position.
+     */
+    void makeRoom(final long iNewHead) {
+      while (tail < head && iNewHead - tail > segmentSize) {
+        final int position = (int) (tail % segmentSize);
+        if (segmentSize - position < OBinaryProtocol.SIZE_INT) {
+          tail += segmentSize - position;
+          continue;
+        }
+
+        final int length = buffer.getInt(position);
+        if (length < 0) {
+          // SKIPPED SPACE
+          tail -= length;
+          continue;
+        }
+
+        final long key = getKey(new ORecordId().fromStream(readRid(position)));
+        if (index.get(key) == tail)
+          // STILL THE LAST VERSION OF THE RECORD
+          index.remove(key);
+        tail += length;
+      }
+    }
+
+    byte[] readRid(final int iPosition) {
+      final byte[] rid = new byte[buffer.getShort(iPosition + OBinaryProtocol.SIZE_INT)];
+      buffer.position(iPosition + OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_SHORT);
+      buffer.get(rid);
+      return rid;
+    }
+
+    /**
+     * Returns the position of the entry of the record in the buffer, or -1 if the record is not cached.
+     */
+    int find(final long iKey, final byte[] iRid) {
+      final long address = index.get(iKey);
+      if (address < 0)
+        return -1;
+
+      final int position = (int) (address % segmentSize);
+      // DIFFERENT RECORDS CAN HAVE THE SAME KEY: CHECK THE IDENTITY
+      return Arrays.equals(readRid(position), iRid) ? position : -1;
+    }
+
+    ORecordInternal<?> read(final ORID iRid, final int iPosition) {
+      final int ridLength = buffer.getShort(iPosition + OBinaryProtocol.SIZE_INT);
+      final int typePosition = iPosition + OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_SHORT + ridLength;
+
+      final byte type = buffer.get(typePosition);
+      final byte[] version = new byte[versionSize];
+      final byte[] content = new byte[buffer.getInt(iPosition) - HEADER_SIZE - ridLength - versionSize];
+      buffer.position(typePosition + OBinaryProtocol.SIZE_BYTE);
+      buffer.get(version);
+      buffer.get(content);
+
+      final ORecordVersion recordVersion = OVersionFactory.instance().createVersion();
+      recordVersion.getSerializer().readFrom(version, 0, recordVersion);
+
+      final ORecordInternal<?> record = Orient.instance().getRecordFactoryManager().newInstance(type);
+      record.fill(iRid, recordVersion, content, false);
+      return record;
+    }
+
+    ORecordVersion readVersion(final int iPosition) {
+      final byte[] version = new byte[versionSize];
+      buffer.position(iPosition + OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_SHORT
+          + buffer.getShort(iPosition + OBinaryProtocol.SIZE_INT) + OBinaryProtocol.SIZE_BYTE);
+      buffer.get(version);
+
+      final ORecordVersion recordVersion = OVersionFactory.instance().createVersion();
+      recordVersion.getSerializer().readFrom(version, 0, recordVersion);
+      return recordVersion;
+    }
+
+    void clear() {
+      index.clear();
+      head = tail = 0;
+    }
+  }
+
+  /**
+   * Open-addressing hash table of primitive longs with linear probing, from the record key to the logical position of its entry.
+   */
+  private static class OAddressIndex {
+    private static final long EMPTY = -1;
+
+    long[]                    keys;
+    long[]                    addresses;
+    int                       size;
+
+    OAddressIndex() {
+      clear();
+    }
+
+    long get(final long iKey) {
+      final int mask = keys.length - 1;
+      for (int i = hash(iKey) & mask;; i = (i + 1) & mask) {
+        if (addresses[i] == EMPTY)
+          return EMPTY;
+        if (keys[i] == iKey)
+          return addresses[i];
+      }
+    }
+
+    void put(final long iKey, final long iAddress) {
+      if ((size + 1) * 4 > keys.length * 3)
+        resize(keys.length * 2);
+
+      final int mask = keys.length - 1;
+      int i = hash(iKey) & mask;
+      while (addresses[i] != EMPTY && keys[i] != iKey)
+        i = (i + 1) & mask;
+
+      if (addresses[i] == EMPTY)
+        size++;
+      keys[i] = iKey;
+      addresses[i] = iAddress;
+    }
+
+    long remove(final long iKey) {
+      final int mask = keys.length - 1;
+      int i = hash(iKey) & mask;
+      while (addresses[i] != EMPTY && keys[i] != iKey)
+        i = (i + 1) & mask;
+
+      final long address = addresses[i];
+      if (address == EMPTY)
+        return EMPTY;
+
+      // SHIFT BACK THE FOLLOWING ENTRIES OF THE SAME CLUSTER OF SLOTS INSTEAD OF LEAVING A TOMBSTONE
+      int hole = i;
+      for (int j = (i + 1) & mask; addresses[j] != EMPTY; j = (j + 1) & mask) {
+        final int home = hash(keys[j]) & mask;
+        if (hole <= j ? home <= hole || home > j : home <= hole && home > j) {
+          keys[hole] = keys[j];
+          addresses[hole] = addresses[j];
+          hole = j;
+        }
+      }
+      addresses[hole] = EMPTY;
+      size--;
+      return address;
+    }
+
+    void clear() {
+      keys = new long[16];
+      addresses = new long[16];
+      Arrays.fill(addresses, EMPTY);
+      size = 0;
+    }
+
+    private void resize(final int iCapacity) {
+      final long[] oldKeys = keys;
+      final long[] oldAddresses = addresses;
+
+      keys = new long[iCapacity];
+      addresses = new long[iCapacity];
+      Arrays.fill(addresses, EMPTY);
+      size = 0;
+
+      for (int i = 0; i < oldKeys.length; ++i)
+        if (oldAddresses[i] != EMPTY)
+          put(oldKeys[i], oldAddresses[i]);
+    }
+
+    private static int hash(final long iKey) {
+      final long h = iKey * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+
+  public OOffHeapRecordCache(final String iName, final int initialLimit) {
+    limit = initialLimit;
+
+    final long totalSize = OGlobalConfiguration.CACHE_LEVEL2_OFFHEAP_SIZE.getValueAsLong();
+
+    int segmentCount = 1;
+    while (segmentCount < Runtime.getRuntime().availableProcessors() * 4 && totalSize / (segmentCount << 1) >= MIN_SEGMENT_SIZE
+        || totalSize / segmentCount > MAX_SEGMENT_SIZE)
+      segmentCount <<= 1;
+
+    segments = new OSegment[segmentCount];
+    segmentMask = segmentCount - 1;
+    // A SEGMENT OF 0 BYTES WOULD CACHE NOTHING AND BREAK THE POSITIONS IN THE LOG
+    segmentSize = (int) Math.max(totalSize / segmentCount, MIN_SEGMENT_SIZE);
+    for (int i = 0; i < segmentCount; ++i)
+      segments[i] = new OSegment();
+  }
+
+  public void startup() {
+    enable();
+  }
+
+  public void shutdown() {
+    disable();
+    for (OSegment segment : segments) {
+      segment.lock.lock();
+      try {
+        // THE DIRECT MEMORY IS RELEASED WHEN THE BUFFER IS COLLECTED
+        segment.buffer = null;
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled.get();
+  }
+
+  public boolean enable() {
+    return enabled.compareAndSet(false, true);
+  }
+
+  public boolean disable() {
+    clear();
+    return enabled.compareAndSet(true, false);
+  }
+
+  public ORecordInternal<?> get(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final long key = getKey(id);
+    final OSegment segment = getSegment(key);
+    segment.lock.lock();
+    try {
+      final int position = segment.find(key, id.toStream());
+      return position > -1 ? segment.read(id, position) : null;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * Serializes the record in the cache. If the cache already contains a newer version of the record the call is ignored.
+   *
+   * @return always null: the previous version is not deserialized
+   */
+  public ORecordInternal<?> put(final ORecordInternal<?> record) {
+    if (!isEnabled())
+      return null;
+
+    final ORID id = record.getIdentity();
+    final byte[] rid = id.toStream();
+    final byte[] content = record.toStream();
+
+    final long key = getKey(id);
+    final OSegment segment = getSegment(key);
+
+    segment.lock.lock();
+    try {
+      final int position = segment.find(key, rid);
+      if (position > -1 && segment.readVersion(position).compareTo(record.getRecordVersion()) > 0)
+        return null;
+
+      if (content == null || HEADER_SIZE + rid.length + versionSize + content.length > segmentSize / 4) {
+        // TOO BIG TO BE CACHED
+        segment.index.remove(key);
+        return null;
+      }
+
+      final byte[] version = new byte[versionSize];
+      record.getRecordVersion().getSerializer().writeTo(version, 0, record.getRecordVersion());
+
+      segment.write(key, rid, record.getRecordType(), version, content);
+    } catch (Exception e) {
+      OLogManager.instance().error(this, "Error on caching record %s", e, id);
+    } finally {
+      segment.lock.unlock();
+    }
+    return null;
+  }
+
+  public ORecordInternal<?> remove(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final long key = getKey(id);
+    final OSegment segment = getSegment(key);
+    segment.lock.lock();
+    try {
+      final int position = segment.find(key, id.toStream());
+      if (position < 0)
+        return null;
+
+      final ORecordInternal<?> record = segment.read(id, position);
+      segment.index.remove(key);
+      return record;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  public void clear() {
+    for (OSegment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.clear();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (OSegment segment : segments)
+      size += segment.index.size;
+    return size;
+  }
+
+  public int limit() {
+    return limit;
+  }
+
+  /**
+   * Returns the bytes of direct memory reserved by the cache.
+   */
+  public long getMemorySize() {
+    return (long) segmentSize * segments.length;
+  }
+
+  public Collection<ORID> keys() {
+    final List<ORID> keys = new ArrayList<ORID>();
+    for (OSegment segment : segments) {
+      segment.lock.lock();
+      try {
+        final OAddressIndex index = segment.index;
+        for (int i = 0; i < index.addresses.length; ++i)
+          if (index.addresses[i] != OAddressIndex.EMPTY)
+            keys.add(new ORecordId().fromStream(segment.readRid((int) (index.addresses[i] % segmentSize))));
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return keys;
+  }
+
+  public void lock(final ORID id) {
+    getSegment(getKey(id)).lock.lock();
+  }
+
+  public void unlock(final ORID id) {
+    getSegment(getKey(id)).lock.unlock();
+  }
+
+  private OSegment getSegment(final long iKey) {
+    return segments[OAddressIndex.hash(iKey) >>> 16 & segmentMask];
+  }
+
+  private static long getKey(final ORID iRid) {
+    return ((long) iRid.getClusterId() << 48) ^ iRid.getClusterPosition().longValue();
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Cache split in segments to be used concurrently by many threads, usually as level-2 cache. Records are distributed among the
+ * segments by identity: every segment is a {@link ConcurrentHashMap} with its own lock, taken only by the changes and by
+ * {@link #lock(ORID)}, so {@link #get(ORID)} never locks. Instead of keeping the records in access order, a read only sets the
+ * "referenced" flag of the entry and the eviction follows the CLOCK algorithm: the hand of the segment moves over the entries
+ * clearing the flags and removes the first entry not referenced since the last pass.
+ */
+public class OSegmentedCache implements OCache {
+  private static final int           DEFAULT_LIMIT = 1000;
+
+  private final OSegment[]           segments;
+  private final int                  segmentMask;
+  private final AtomicInteger        size          = new AtomicInteger();
+  private final AtomicBoolean        enabled       = new AtomicBoolean(false);
+  private final int                  limit;
+
+  protected OMemoryWatchDog.Listener lowMemoryListener;
+
+  private static class OEntry {
+    final ORID               key;
+    final ORecordInternal<?> record;
+    volatile boolean         referenced = true;
+
+    OEntry(final ORID iKey, final ORecordInternal<?> iRecord) {
+      key = iKey;
+      record = iRecord;
+    }
+  }
+
+  private static class OSegment {
+    final ConcurrentHashMap<ORID, OEntry> entries;
+    final ReentrantLock                   lock = new ReentrantLock();
+    Iterator<OEntry>                      hand;
+
+    OSegment(final int iInitialCapacity) {
+      entries = new ConcurrentHashMap<ORID, OEntry>(iInitialCapacity, 0.75f, 1);
+    }
+
+    /**
+     * Removes one entry moving the clock hand. Must be called with the segment lock.
+     *
+     * @param iSkipUnsafe
+     *          if true dirty and pinned records are never removed
+     * @return true if an entry has been removed
+     */
+    boolean evict(final boolean iSkipUnsafe) {
+      // AT MOST TWO ROUNDS: THE FIRST ONE COULD ONLY CLEAR THE REFERENCED FLAGS
+      for (int i = entries.size() * 2; i >= 0; --i) {
+        if (hand == null || !hand.hasNext()) {
+          hand = entries.values().iterator();
+          if (!hand.hasNext())
+            return false;
+        }
+
+        final OEntry entry = hand.next();
+        if (entry.referenced)
+          entry.referenced = false;
+        else if ((!iSkipUnsafe || !entry.record.isDirty() && entry.record.isPinned() != Boolean.TRUE)
+            && entries.remove(entry.key, entry))
+          // THE HAND CAN RETURN AN ENTRY ALREADY REMOVED OR REPLACED: REMOVE IT ONLY IF STILL PRESENT
+          return true;
+      }
+      return false;
+    }
+  }
+
+  public OSegmentedCache(final String iName, final int initialLimit) {
+    limit = initialLimit;
+
+    int segmentCount = 1;
+    while (segmentCount < Runtime.getRuntime().availableProcessors() * 4)
+      segmentCount <<= 1;
+
+    segments = new OSegment[segmentCount];
+    segmentMask = segmentCount - 1;
+
+    final int segmentCapacity = Math.max((initialLimit > 0 ? initialLimit : DEFAULT_LIMIT) / segmentCount, 16);
+    for (int i = 0; i < segmentCount; ++i)
+      segments[i] = new OSegment(segmentCapacity);
+  }
+
+  public void startup() {
+    lowMemoryListener = Orient.instance().getMemoryWatchDog().addListener(new OLowMemoryListener());
+    enable();
+  }
+
+  public void shutdown() {
+    Orient.instance().getMemoryWatchDog().removeListener(lowMemoryListener);
+    disable();
+  }
+
+  public boolean isEnabled() {
+    return enabled.get();
+  }
+
+  public boolean enable() {
+    return enabled.compareAndSet(false, true);
+  }
+
+  public boolean disable() {
+    clear();
+    return enabled.compareAndSet(true, false);
+  }
+
+  public ORecordInternal<?> get(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final OEntry entry = getSegment(id).entries.get(id);
+    if (entry == null)
+      return null;
+
+    // WRITE THE FLAG ONLY IF NEEDED TO AVOID TO INVALIDATE THE CACHE LINE ON EVERY READ
+    if (!entry.referenced)
+      entry.referenced = true;
+    return entry.record;
+  }
+
+  public ORecordInternal<?> put(final ORecordInternal<?> record) {
+    if (!isEnabled())
+      return null;
+
+    final ORID id = record.getIdentity();
+    final int index = getSegmentIndex(id);
+    final OSegment segment = segments[index];
+
+    final OEntry previous;
+    segment.lock.lock();
+    try {
+      previous = segment.entries.put(id, new OEntry(id, record));
+    } finally {
+      segment.lock.unlock();
+    }
+
+    if (previous == null && size.incrementAndGet() > limit && limit > 0)
+      evictOverLimit(index);
+
+    return previous != null ? previous.record : null;
+  }
+
+  public ORecordInternal<?> remove(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final OSegment segment = getSegment(id);
+    segment.lock.lock();
+    try {
+      final OEntry entry = segment.entries.remove(id);
+      if (entry == null)
+        return null;
+
+      size.decrementAndGet();
+      return entry.record;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  public void clear() {
+    if (!isEnabled())
+      return;
+
+    for (OSegment segment : segments) {
+      segment.lock.lock();
+      try {
+        size.addAndGet(-segment.entries.size());
+        segment.entries.clear();
+        segment.hand = null;
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  public int size() {
+    return Math.max(size.get(), 0);
+  }
+
+  public int limit() {
+    return limit;
+  }
+
+  public Collection<ORID> keys() {
+    final List<ORID> keys = new ArrayList<ORID>(size());
+    for (OSegment segment : segments)
+      keys.addAll(segment.entries.keySet());
+    return keys;
+  }
+
+  /**
+   * Locks the segment of the record: changes of all the records of the same segment wait until {@link #unlock(ORID)}.
+   */
+  public void lock(final ORID id) {
+    getSegment(id).lock.lock();
+  }
+
+  public void unlock(final ORID id) {
+    getSegment(id).lock.unlock();
+  }
+
+  /**
+   * Removes the entries in excess starting from the segment after the one just changed, so the record just put is the last
+   * candidate. Segments locked by other threads are skipped.
+   */
+  private void evictOverLimit(final int iChangedSegment) {
+    for (int i = 1; i <= segments.length && size.get() > limit; ++i) {
+      final OSegment segment = segments[(iChangedSegment + i) & segmentMask];
+      if (!segment.lock.tryLock())
+        continue;
+
+      try {
+        while (size.get() > limit && segment.evict(false))
+          size.decrementAndGet();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  private void removeEldest(final int iAmount) {
+    final int total = size();
+    if (total == 0)
+      return;
+
+    for (OSegment segment : segments) {
+      segment.lock.lock();
+      try {
+        // REMOVE FROM EVERY SEGMENT A PART PROPORTIONAL TO ITS SIZE
+        int toRemove = (int) ((long) segment.entries.size() * iAmount / total);
+        while (toRemove-- > 0 && segment.evict(true))
+          size.decrementAndGet();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  private OSegment getSegment(final ORID iRid) {
+    return segments[getSegmentIndex(iRid)];
+  }
+
+  private int getSegmentIndex(final ORID iRid) {
+    // SPREAD THE HASH CODE: CONSECUTIVE POSITIONS OF THE SAME CLUSTER DIFFER ONLY IN THE LOWEST BITS
+    int h = iRid.hashCode();
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return h & segmentMask;
+  }
+
+  class OLowMemoryListener implements OMemoryWatchDog.Listener {
+    public void memoryUsageLow(final long freeMemory, final long freeMemoryPercentage) {
+      try {
+        final int oldSize = size();
+        if (oldSize == 0)
+          return;
+
+        if (freeMemoryPercentage < 10) {
+          OLogManager.instance().debug(this, "Low memory (%d%%): clearing %d cached records", freeMemoryPercentage, size());
+          removeEldest(oldSize);
+        } else {
+          final int newSize = (int) (oldSize * 0.9f);
+          removeEldest(oldSize - newSize);
+          OLogManager.instance().debug(this, "Low memory (%d%%): reducing cached records number from %d to %d",
+              freeMemoryPercentage, oldSize, newSize);
+        }
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error occurred during segmented cache cleanup", e);
+      }
+    }
+  }
+}
@@ -19,6 +19,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -70,21 +72,27 @@ public class OCommandExecutorFunction extends OCommandExecutorAbstract {
     iContext.setVariable("util", new OFunctionUtilWrapper(f));
 
     final OScriptManager scriptManager = Orient.instance().getScriptManager();
-    final ScriptEngine scriptEngine = scriptManager.getEngine(f.getLanguage());
+    final ScriptEngine scriptEngine = scriptManager.acquireEngine(f.getLanguage());
     final Bindings binding = scriptManager.bind(scriptEngine, (ODatabaseRecordTx) db, iContext, iArgs);
 
     try {
       scriptEngine.setBindings(binding, ScriptContext.ENGINE_SCOPE);
 
-      // COMPILE FUNCTION LIBRARY
-      final String lib = scriptManager.getLibrary(db, f.getLanguage());
-      if (lib != null)
-        try {
-          scriptEngine.eval(lib);
-        } catch (ScriptException e) {
-          throw new OCommandScriptException("Error on evaluation of the script library. Error: " + e.getMessage()
-              + "\nScript library was:\n" + lib);
+      // EVALUATE FUNCTION LIBRARY, COMPILED ONLY THE FIRST TIME
+      try {
+        if (scriptEngine instanceof Compilable) {
+          final CompiledScript lib = scriptManager.getCompiledScript(db, scriptEngine, f.getLanguage(), null);
+          if (lib != null)
+            lib.eval();
+        } else {
+          final String lib = scriptManager.getLibrary(db, f.getLanguage());
+          if (lib != null)
+            scriptEngine.eval(lib);
         }
+      } catch (ScriptException e) {
+        throw new OCommandScriptException("Error on evaluation of the script library. Error: " + e.getMessage()
+            + "\nScript library was:\n" + scriptManager.getLibrary(db, f.getLanguage()));
+      }
 
       if (scriptEngine instanceof Invocable) {
         // INVOKE AS FUNCTION. PARAMS ARE PASSED BY POSITION
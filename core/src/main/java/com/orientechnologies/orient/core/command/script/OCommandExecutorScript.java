@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.command.script;
 import java.util.Map;
 
 import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
@@ -61,11 +62,15 @@ public class OCommandExecutorScript extends OCommandExecutorAbstract {
       db = db.getUnderlying();
 
     final OScriptManager scriptManager = Orient.instance().getScriptManager();
-    final ScriptEngine scriptEngine = scriptManager.getEngine(language);
+    final ScriptEngine scriptEngine = scriptManager.acquireEngine(language);
     final Bindings binding = scriptManager.bind(scriptEngine, (ODatabaseRecordTx) db, iContext, iArgs);
 
     try {
-      // COMPILE FUNCTION LIBRARY
+      // COMPILE FUNCTION LIBRARY AND SCRIPT ONLY THE FIRST TIME
+      final CompiledScript compiled = scriptManager.getCompiledScript(db, scriptEngine, language, parserText);
+      if (compiled != null)
+        return compiled.eval(binding);
+
       String lib = scriptManager.getLibrary(db, language);
       if (lib == null)
         lib = "";
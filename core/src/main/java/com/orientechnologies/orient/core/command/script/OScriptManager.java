@@ -17,21 +17,26 @@ package com.orientechnologies.orient.core.command.script;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.script.formatter.OJSScriptFormatter;
 import com.orientechnologies.orient.core.command.script.formatter.ORubyScriptFormatter;
 import com.orientechnologies.orient.core.command.script.formatter.OSQLScriptFormatter;
 import com.orientechnologies.orient.core.command.script.formatter.OScriptFormatter;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
@@ -40,7 +45,9 @@ import com.orientechnologies.orient.core.sql.OSQLScriptEngine;
 import com.orientechnologies.orient.core.sql.OSQLScriptEngineFactory;
 
 /**
- * Executes Script Commands.
+ * Executes Script Commands. Script engines are not thread-safe, so every thread executes the scripts with its own engines
+ * ({@link #acquireEngine(String)}) and keeps the scripts compiled by them ({@link #getCompiledScript(ODatabaseComplex, ScriptEngine,
+ * String, String)}).
  * 
  * @see OCommandScript
  * @author Luca Garulli
@@ -54,6 +61,32 @@ public class OScriptManager {
   protected Map<String, OScriptFormatter> formatters      = new HashMap<String, OScriptFormatter>();
   protected List<OScriptInjection>        injections      = new ArrayList<OScriptInjection>();
   protected static final Object[]         EMPTY_PARAMS    = new Object[] {};
+  protected ThreadLocal<OThreadScripts>   threadScripts   = new ThreadLocal<OThreadScripts>() {
+                                                            @Override
+                                                            protected OThreadScripts initialValue() {
+                                                              return new OThreadScripts(OGlobalConfiguration.SCRIPT_CACHE_SIZE
+                                                                  .getValueAsInteger());
+                                                            }
+                                                          };
+
+  /**
+   * Engines and compiled scripts of a thread. Compiled scripts are kept in LRU order.
+   */
+  @SuppressWarnings("serial")
+  protected static class OThreadScripts extends LinkedHashMap<String, CompiledScript> {
+    private final int                             limit;
+    private final Map<ScriptEngine, ScriptEngine> engines = new HashMap<ScriptEngine, ScriptEngine>();
+
+    public OThreadScripts(final int iLimit) {
+      super(16, 0.75f, true);
+      limit = iLimit;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, CompiledScript> eldest) {
+      return size() > limit;
+    }
+  }
 
   public OScriptManager() {
     if (engines == null) {
@@ -146,6 +179,66 @@ public class OScriptManager {
     return scriptEngine;
   }
 
+  /**
+   * Returns the engine of the language reserved to the current thread, created by the factory of the registered engine. If the
+   * factory can't create engines the registered one is returned.
+   */
+  public ScriptEngine acquireEngine(final String iLanguage) {
+    final ScriptEngine shared = getEngine(iLanguage);
+
+    final Map<ScriptEngine, ScriptEngine> threadEngines = threadScripts.get().engines;
+    ScriptEngine engine = threadEngines.get(shared);
+    if (engine == null) {
+      if (shared.getFactory() != null)
+        engine = shared.getFactory().getScriptEngine();
+      if (engine == null)
+        engine = shared;
+      threadEngines.put(shared, engine);
+    }
+    return engine;
+  }
+
+  /**
+   * Compiles the library of functions of the database followed by a code. The compiled script is cached by the current thread
+   * until the function library changes.
+   * 
+   * @param db
+   *          Current database instance, null for no library
+   * @param iEngine
+   *          Engine of the current thread
+   * @param iLanguage
+   *          Language of the code
+   * @param iCode
+   *          Code to compile after the library, null to compile only the library
+   * @return The compiled script or null if the engine can't compile or there is nothing to compile
+   */
+  public CompiledScript getCompiledScript(final ODatabaseComplex<?> db, final ScriptEngine iEngine, final String iLanguage,
+      final String iCode) throws ScriptException {
+    if (!(iEngine instanceof Compilable))
+      return null;
+
+    final StringBuilder key = new StringBuilder();
+    if (db != null)
+      key.append(db.getURL()).append('|').append(db.getMetadata().getFunctionLibrary().getVersion());
+    key.append('|').append(iLanguage.toLowerCase()).append('|');
+    if (iCode != null)
+      key.append(iCode);
+
+    final OThreadScripts cache = threadScripts.get();
+    CompiledScript compiled = cache.get(key.toString());
+    if (compiled != null && compiled.getEngine() == iEngine)
+      return compiled;
+
+    final String lib = getLibrary(db, iLanguage);
+    final String code = lib == null ? iCode : iCode == null ? lib : lib + iCode;
+    if (code == null)
+      return null;
+
+    compiled = ((Compilable) iEngine).compile(code);
+    cache.put(key.toString(), compiled);
+    return compiled;
+  }
+
   public Bindings bind(final ScriptEngine iEngine, final ODatabaseRecordTx db, final OCommandContext iContext,
       final Map<Object, Object> iArgs) {
     final Bindings binding = iEngine.createBindings();
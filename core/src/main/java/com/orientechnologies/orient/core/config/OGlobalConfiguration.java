@@ -27,7 +27,7 @@ import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.Orient;
-import com.orientechnologies.orient.core.cache.ODefaultCache;
+import com.orientechnologies.orient.core.cache.OSegmentedCache;
 import com.orientechnologies.orient.core.storage.fs.OMMapManagerOld;
 
 /**
@@ -64,9 +64,21 @@ public enum OGlobalConfiguration {
   STORAGE_RECORD_LOCK_TIMEOUT("storage.record.lockTimeout", "Maximum timeout in milliseconds to lock a shared record",
       Integer.class, 5000),
 
+  STORAGE_SEGMENT_LOCKING("storage.segmentLocking",
+      "Record operations against local storage lock only the involved cluster and data segment, keeping the storage lock shared. "
+          + "Data segments switch to asynchronous defrag", Boolean.class, Boolean.FALSE),
+
   STORAGE_USE_TOMBSTONES("storage.useTombstones", "When record will be deleted its cluster"
       + " position will not be freed but tombstone will be placed instead", Boolean.class, false),
 
+  STORAGE_MEMORY_OFFHEAP("storage.memory.offHeap",
+      "Memory storages keep record contents and cluster positions in direct memory, out of the Java heap", Boolean.class,
+      Boolean.FALSE),
+
+  STORAGE_MEMORY_OFFHEAP_CHUNK_SIZE("storage.memory.offHeapChunkSize",
+      "Bytes of direct memory allocated at a time by the data segments of memory storages kept off-heap", Integer.class,
+      16777216),
+
   // CACHE
   CACHE_LEVEL1_ENABLED("cache.level1.enabled", "Use the level-1 cache", Boolean.class, true),
 
@@ -76,8 +88,13 @@ public enum OGlobalConfiguration {
 
   CACHE_LEVEL2_SIZE("cache.level2.size", "Size of the cache that keeps the record in memory", Integer.class, -1),
 
-  CACHE_LEVEL2_IMPL("cache.level2.impl", "Actual implementation of secondary cache", String.class, ODefaultCache.class
-      .getCanonicalName()),
+  CACHE_LEVEL2_IMPL("cache.level2.impl",
+      "Actual implementation of secondary cache: OSegmentedCache never locks on reads, ODefaultCache keeps the exact LRU order, OOffHeapRecordCache keeps the serialized records out of the heap",
+      String.class, OSegmentedCache.class.getCanonicalName()),
+
+  CACHE_LEVEL2_OFFHEAP_SIZE("cache.level2.offHeapSize",
+      "Bytes of direct memory used by every storage for the level-2 cache when implemented by OOffHeapRecordCache", Long.class,
+      268435456),
 
   CACHE_LEVEL2_STRATEGY("cache.level2.strategy",
       "Strategy to use when a database requests a record: 0 = pop the record, 1 = copy the record", Integer.class, 0,
@@ -102,6 +119,10 @@ public enum OGlobalConfiguration {
 
   DB_VALIDATION("db.validation", "Enables or disables validation of records", Boolean.class, true),
 
+  DB_RECORD_SERIALIZER("db.recordSerializer",
+      "Format of the documents in the new databases: ORecordDocument2csv (text) or ORecordDocument2binary (compact binary). "
+          + "Change it on existing databases with ALTER DATABASE RECORDSERIALIZER", String.class, "ORecordDocument2csv"),
+
   DB_USE_DISTRIBUTED_VERSION("db.use.distributedVersion", "Use extended version that is safe in distributed environment",
       Boolean.class, Boolean.FALSE),
 
@@ -118,7 +139,7 @@ public enum OGlobalConfiguration {
   TX_USE_LOG("tx.useLog", "Transactions use log file to store temporary data to be rolled back in case of crash", Boolean.class,
       true),
 
-  TX_LOG_TYPE("tx.log.fileType", "File type to handle transaction logs: mmap or classic", String.class, "classic"),
+  TX_LOG_TYPE("tx.log.fileType", "File type to handle transaction logs: mmap, classic or buffered", String.class, "classic"),
 
   TX_LOG_SYNCH(
       "tx.log.synch",
@@ -145,6 +166,34 @@ public enum OGlobalConfiguration {
       "Configure the TreeMaps for manual indexes as buffered or not. -1 means buffered until tx.commit() or db.close() are called",
       Integer.class, 1),
 
+  INDEX_LOOKUP_CACHE_SIZE(
+      "index.lookupCache.size",
+      "Number of keys per index whose lookup result is kept to serve the following lookups without locking the index. Cached results are discarded at every change of the index. 0 = disabled",
+      Integer.class, 1000),
+
+  INDEX_CURSOR_FETCH_SIZE("index.cursor.fetchSize",
+      "Number of records read from the index at every batch by the cursors used to browse key ranges", Integer.class, 100),
+
+  INDEX_BULK_BUILD("index.bulkBuild",
+      "Rebuild the indexes by sorting all the keys and writing the MVRB-Tree pages bottom-up instead of inserting one key at a time",
+      Boolean.class, true),
+
+  INDEX_BULK_BUILD_MAX_KEYS_IN_MEMORY(
+      "index.bulkBuild.maxKeysInMemory",
+      "Maximum number of keys kept in memory to sort them while an index is rebuilt. Beyond it the keys are sorted in runs written to temporary files and merged while the MVRB-Tree is built",
+      Integer.class, 500000),
+
+  INDEX_HASH_BUCKET_SIZE("index.hash.bucketSize",
+      "Average number of keys in a bucket of the hash indexes. When the keys exceed it the next bucket is split in two",
+      Integer.class, 32),
+
+  INDEX_HASH_BUCKET_CACHE_SIZE("index.hash.bucketCacheSize", "Number of buckets of every hash index kept in memory",
+      Integer.class, 8192),
+
+  INDEX_HASH_RID_SET_THRESHOLD("index.hash.ridSetThreshold",
+      "Maximum number of RIDs of a key kept in the bucket of the hash indexes. Over it they are moved to a hash set of their own",
+      Integer.class, 16),
+
   // TREEMAP
   MVRBTREE_TIMEOUT("mvrbtree.timeout", "Maximum timeout to get lock against the OMVRB-Tree", Integer.class, 5000),
 
@@ -184,6 +233,35 @@ public enum OGlobalConfiguration {
   // COLLECTIONS
   LAZYSET_WORK_ON_STREAM("lazyset.workOnStream", "Upon add avoid unmarshalling set", Boolean.class, true),
 
+  // QUERY
+  QUERY_ORDERBY_MAX_RECORDS_IN_MEMORY(
+      "query.orderBy.maxRecordsInMemory",
+      "Maximum number of records kept in memory to sort the result of a query with ORDER BY and without LIMIT. Beyond it the records are sorted in runs written to temporary files and merged while the result is returned. 0 = unlimited",
+      Integer.class, 0),
+
+  QUERY_PARALLEL("query.parallel",
+      "SELECT against classes without usable indexes scans the clusters in parallel threads. The records are not returned in cluster order",
+      Boolean.class, Boolean.FALSE),
+
+  QUERY_PARALLEL_THREADS("query.parallel.threads", "Threads shared by the parallel scans of the queries. 0 = number of processors",
+      Integer.class, 0),
+
+  QUERY_PARALLEL_RANGE_SIZE("query.parallel.rangeSize",
+      "Number of cluster positions scanned by a parallel thread before taking the next range", Integer.class, 10000),
+
+  QUERY_GRAPH_MAX_VISITED("query.graph.maxVisited",
+      "Maximum number of vertices visited by the path finding functions dijkstra() and shortestPath() before giving up. 0 = unlimited",
+      Integer.class, 0),
+
+  QUERY_STATEMENT_CACHE_SIZE("query.statementCache.size",
+      "Number of parsed SELECT statements kept by every database to execute the same text again without parsing it. 0 = no cache",
+      Integer.class, 500),
+
+  // SCRIPT
+  SCRIPT_CACHE_SIZE("script.cache.size",
+      "Number of compiled scripts and function libraries cached by every thread that executes scripts. 0 = no cache", Integer.class,
+      100),
+
   // FILE
   FILE_LOCK("file.lock", "Locks files when used. Default is false", boolean.class, false),
 
@@ -241,6 +319,18 @@ public enum OGlobalConfiguration {
   FILE_MMAP_FORCE_RETRY("file.mmap.forceRetry", "Number of times the memory-mapped block will try to flush to disk", Integer.class,
       50),
 
+  FILE_BUFFERED_PAGE_SIZE("file.buffered.pageSize",
+      "Size in bytes of the pages kept in memory by the files of type 'buffered'. Reads and writes on disk are aligned to pages",
+      Integer.class, 4096),
+
+  FILE_BUFFERED_MAX_PAGES("file.buffered.maxPages",
+      "Maximum number of pages kept in memory by every file of type 'buffered'. Beyond it the least recently used pages are written back",
+      Integer.class, 256),
+
+  FILE_BUFFERED_MAX_DIRTY_PAGES("file.buffered.maxDirtyPages",
+      "Maximum number of changed pages that files of type 'buffered' keep in memory before writing all of them back. It bounds the changes lost if the process dies before the file is synchronized. 0 means write back only on eviction, synch and close",
+      Integer.class, 64),
+
   JNA_DISABLE_USE_SYSTEM_LIBRARY("jna.disable.system.library",
       "This property disable to using JNA installed in your system. And use JNA bundled with database.", boolean.class, true),
 
@@ -264,6 +354,17 @@ public enum OGlobalConfiguration {
   NETWORK_SOCKET_RETRY_DELAY("network.retryDelay", "Number of ms the client waits before reconnecting to the server on failure",
       Integer.class, 500),
 
+  NETWORK_LISTENER_MODE("network.listener.mode",
+      "How the server listeners serve the connections: 'thread' to dedicate a thread to every connection, 'selector' to wait for"
+          + " the requests of all the connections with a few selector threads and execute them in a pool of workers", String.class,
+      "thread"),
+
+  NETWORK_LISTENER_SELECTORS("network.listener.selectors", "Number of selector threads of a listener in 'selector' mode",
+      Integer.class, 1),
+
+  NETWORK_LISTENER_WORKERS("network.listener.workers",
+      "Maximum number of requests executed at the same time by a listener in 'selector' mode", Integer.class, 32),
+
   NETWORK_BINARY_DNS_LOADBALANCING_ENABLED("network.binary.loadBalancing.enabled",
       "Asks for DNS TXT record to determine if load balancing is supported", Boolean.class, Boolean.FALSE),
 
@@ -283,6 +384,11 @@ public enum OGlobalConfiguration {
 
   NETWORK_HTTP_CONTENT_CHARSET("network.http.charset", "Http response charset", String.class, "utf-8"),
 
+  NETWORK_HTTP_STREAMING("network.http.streaming",
+      "Send the records of HTTP/1.1 responses with chunked transfer encoding as soon as they are produced", Boolean.class, true),
+
+  NETWORK_HTTP_GZIP("network.http.gzip", "Compress HTTP responses with gzip when the client accepts it", Boolean.class, true),
+
   NETWORK_HTTP_SESSION_EXPIRE_TIMEOUT("network.http.sessionExpireTimeout",
       "Timeout after which an http session is considered tp have expired (seconds)", Integer.class, 300),
 
@@ -339,6 +445,14 @@ public enum OGlobalConfiguration {
   CLIENT_DB_RELEASE_WAIT_TIMEOUT("client.channel.dbReleaseWaitTimeout",
       "Delay in ms. after which data modification command will be resent if DB was frozen", Integer.class, 10000),
 
+  CLIENT_PREFETCH_SIZE("client.prefetch.size",
+      "Number of records loaded with one request by the iterators and the lazy collections of remote databases. 0 = disabled",
+      Integer.class, 100),
+
+  CLIENT_PREPARED_COMMANDS("client.preparedCommands",
+      "Prepares on the server the commands executed with parameters, so their text is sent and parsed only once", Boolean.class,
+      Boolean.TRUE),
+
   // SERVER
   SERVER_CHANNEL_CLEAN_DELAY("server.channel.cleanDelay", "Time in ms of delay to check pending closed connections", Integer.class,
       5000),
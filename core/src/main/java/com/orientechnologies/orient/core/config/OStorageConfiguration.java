@@ -31,6 +31,7 @@ import com.orientechnologies.orient.core.id.OImmutableRecordId;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
 import com.orientechnologies.orient.core.version.OVersionFactory;
@@ -40,6 +41,9 @@ import com.orientechnologies.orient.core.version.OVersionFactory;
  * <ul>
  * 3 = introduced file directory in physical segments and data-segment id in clusters
  * </ul>
+ * <ul>
+ * 5 = introduced the record serializer of documents
+ * </ul>
  * </li>
  * 
  * @author Luca
@@ -53,7 +57,7 @@ public class OStorageConfiguration implements OSerializableStream {
   public static final String                DEFAULT_TIMEZONE = "UTC";
   public static final String                DEFAULT_CHARSET  = "UTF-8";
 
-  public static final int                   CURRENT_VERSION  = 4;
+  public static final int                   CURRENT_VERSION  = 5;
 
   public int                                version          = -1;
   public String                             name;
@@ -67,6 +71,7 @@ public class OStorageConfiguration implements OSerializableStream {
   public String                             dateTimeFormat   = "yyyy-MM-dd HH:mm:ss";
   private TimeZone                          timeZone         = TimeZone.getTimeZone(DEFAULT_TIMEZONE);
   private String                            charset          = DEFAULT_CHARSET;
+  private String                            recordSerializer = OGlobalConfiguration.DB_RECORD_SERIALIZER.getValueAsString();
 
   public final OStorageSegmentConfiguration fileTemplate;
 
@@ -262,6 +267,12 @@ public class OStorageConfiguration implements OSerializableStream {
       properties.add(new OStorageEntryConfiguration(read(values[index++]), read(values[index++])));
     }
 
+    // @COMPATIBILTY 1.3.0
+    if (version >= 5)
+      recordSerializer = read(values[index++]);
+    else
+      recordSerializer = ORecordSerializerSchemaAware2CSV.NAME;
+
     return this;
   }
 
@@ -335,6 +346,8 @@ public class OStorageConfiguration implements OSerializableStream {
     for (OStorageEntryConfiguration e : properties)
       entryToStream(buffer, e);
 
+    write(buffer, recordSerializer);
+
     // PLAIN: ALLOCATE ENOUGHT SPACE TO REUSE IT EVERY TIME
     buffer.append("|");
 
@@ -466,6 +479,17 @@ public class OStorageConfiguration implements OSerializableStream {
     this.charset = charset;
   }
 
+  /**
+   * Returns the name of the serializer used to write the documents. Documents written with other formats are still readable.
+   */
+  public String getRecordSerializer() {
+    return recordSerializer;
+  }
+
+  public void setRecordSerializer(final String iRecordSerializer) {
+    recordSerializer = iRecordSerializer;
+  }
+
   public void setLocaleLanguage(final String iValue) {
     localeLanguage = iValue;
     localeInstance = null;
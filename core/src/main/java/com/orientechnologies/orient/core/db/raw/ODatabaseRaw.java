@@ -44,6 +44,7 @@ import com.orientechnologies.orient.core.fetch.OFetchHelper;
 import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.intent.OIntent;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
@@ -548,6 +549,9 @@ public class ODatabaseRaw implements ODatabase {
 
     case CHARSET:
       return storage.getConfiguration().getCharset();
+
+    case RECORDSERIALIZER:
+      return storage.getConfiguration().getRecordSerializer();
     }
 
     return null;
@@ -615,6 +619,14 @@ public class ODatabaseRaw implements ODatabase {
       storage.getConfiguration().update();
       break;
 
+    case RECORDSERIALIZER:
+      if (ORecordSerializerFactory.instance().getFormat(stringValue) == null)
+        throw new IllegalArgumentException("Record serializer '" + stringValue + "' not found");
+      // THE EXISTENT DOCUMENTS ARE CONVERTED WHEN SAVED AGAIN
+      storage.getConfiguration().setRecordSerializer(stringValue);
+      storage.getConfiguration().update();
+      break;
+
     default:
       throw new IllegalArgumentException("Option '" + iAttribute + "' not supported on alter database");
 
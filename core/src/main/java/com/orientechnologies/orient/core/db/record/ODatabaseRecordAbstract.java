@@ -59,6 +59,7 @@ import com.orientechnologies.orient.core.metadata.security.OUserTrigger;
 import com.orientechnologies.orient.core.query.OQuery;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
@@ -159,6 +160,50 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return (DB) this;
   }
 
+  /**
+   * Opens this instance on behalf of the user of another instance already open on the same database, without authenticating
+   * again. Database instances are not thread-safe: this gives another thread its own instance for the same user.
+   *
+   * @param iOpened
+   *          Open instance of the same database, on an embedded storage
+   */
+  public <DB extends ODatabase> DB open(final ODatabaseRecord iOpened) {
+    if (iOpened.getUser() == null || iOpened.getStorage() instanceof OStorageProxy)
+      throw new ODatabaseException("Cannot open database '" + getName() + "' without a user authenticated on an embedded storage");
+
+    setCurrentDatabaseinThreadLocal();
+
+    try {
+      super.open(iOpened.getUser().getName(), null);
+      level1Cache.startup();
+
+      metadata = new OMetadata();
+      metadata.load();
+
+      recordFormat = DEF_RECORD_FORMAT;
+
+      // LOAD THE USER BY RID: A QUERY HERE COULD RECURSE IN THE CALLER'S SCAN
+      final ODocument userDocument = load(iOpened.getUser().getDocument().getIdentity());
+      if (userDocument == null)
+        throw new OSecurityAccessException(getName(), "User '" + iOpened.getUser().getName() + "' not found");
+      user = new OUser(userDocument);
+
+      registerHook(new ORestrictedAccessHook(), ORecordHook.HOOK_POSITION.FIRST);
+      registerHook(new OUserTrigger(), ORecordHook.HOOK_POSITION.EARLY);
+      registerHook(new OFunctionTrigger(), ORecordHook.HOOK_POSITION.REGULAR);
+      registerHook(new OClassIndexManager(), ORecordHook.HOOK_POSITION.LAST);
+
+      checkSecurity(ODatabaseSecurityResources.DATABASE, ORole.PERMISSION_READ);
+    } catch (OException e) {
+      close();
+      throw e;
+    } catch (Exception e) {
+      close();
+      throw new ODatabaseException("Cannot open database", e);
+    }
+    return (DB) this;
+  }
+
   @Override
   public <DB extends ODatabase> DB create() {
     setCurrentDatabaseinThreadLocal();
@@ -563,6 +608,18 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 
   public <RET extends ORecordInternal<?>> RET executeReadRecord(final ORecordId iRid, ORecordInternal<?> iRecord,
       final String iFetchPlan, final boolean iIgnoreCache) {
+    return (RET) executeReadRecord(iRid, iRecord, iFetchPlan, iIgnoreCache, null);
+  }
+
+  /**
+   * Reads a record using the content already received from the storage, if any. Used by the remote iterators and collections that
+   * load many records with one request: transaction, cache, security and hooks are managed as for a regular read.
+   * 
+   * @param iPrefetched
+   *          Content of the record already read, or null to read it from the storage
+   */
+  public <RET extends ORecordInternal<?>> RET executeReadRecord(final ORecordId iRid, ORecordInternal<?> iRecord,
+      final String iFetchPlan, final boolean iIgnoreCache, final ORawBuffer iPrefetched) {
     checkOpeness();
 
     // setCurrentDatabaseinThreadLocal();
@@ -598,7 +655,8 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
         return (RET) record;
       }
 
-      final ORawBuffer recordBuffer = underlying.read(iRid, iFetchPlan, iIgnoreCache).getResult();
+      final ORawBuffer recordBuffer = iPrefetched != null ? iPrefetched : underlying.read(iRid, iFetchPlan, iIgnoreCache)
+          .getResult();
       if (recordBuffer == null)
         return null;
 
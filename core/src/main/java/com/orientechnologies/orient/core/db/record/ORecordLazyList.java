@@ -15,13 +15,19 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 import com.orientechnologies.common.collection.OLazyIterator;
 import com.orientechnologies.common.collection.OLazyIteratorListWrapper;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.ODatabaseWrapperAbstract;
 import com.orientechnologies.orient.core.db.record.ORecordMultiValueHelper.MULTIVALUE_CONTENT_TYPE;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.id.ORID;
@@ -29,6 +35,8 @@ import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
 
 /**
  * Lazy implementation of ArrayList. It's bound to a source ORecord object to keep track of changes. This avoid to call the
@@ -126,8 +134,15 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 	@Override
 	public OLazyIterator<OIdentifiable> iterator() {
 		lazyLoad(false);
-		return new OLazyRecordIterator(sourceRecord, new OLazyIteratorListWrapper<OIdentifiable>(super.listIterator()),
-				autoConvertToRecord);
+		final ListIterator<OIdentifiable> listIterator = super.listIterator();
+		return new OLazyRecordIterator(sourceRecord, new OLazyIteratorListWrapper<OIdentifiable>(listIterator) {
+			@Override
+			public OIdentifiable next() {
+				// LOAD THE NEXT LINKS WITH ONE REQUEST
+				prefetchLinks(listIterator.nextIndex());
+				return super.next();
+			}
+		}, autoConvertToRecord);
 	}
 
 	@Override
@@ -337,6 +352,11 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 			return;
 
 		if (o != null && o instanceof ORecordId) {
+			// LOAD THE NEXT LINKS WITH ONE REQUEST
+			prefetchLinks(iIndex);
+			if (!(super.get(iIndex) instanceof ORecordId))
+				return;
+
 			final ORecordId rid = (ORecordId) o;
 
 			marshalling = true;
@@ -351,6 +371,67 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 		}
 	}
 
+	/**
+	 * Loads with one request the records of the links following the position, up to the prefetch size. Used only against remote
+	 * databases, where every record loaded one by one costs a round trip.
+	 * 
+	 * @param iFrom
+	 *          Position of the first item to load
+	 */
+	private void prefetchLinks(final int iFrom) {
+		if (ridOnly || !autoConvertToRecord || contentType == MULTIVALUE_CONTENT_TYPE.ALL_RECORDS || iFrom >= super.size()
+				|| !(super.get(iFrom) instanceof ORecordId))
+			// PRECONDITIONS
+			return;
+
+		final int prefetchSize = OGlobalConfiguration.CLIENT_PREFETCH_SIZE.getValueAsInteger();
+		if (prefetchSize < 2)
+			return;
+
+		final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+		if (database == null || !(database.getStorage() instanceof OStorageProxy))
+			return;
+
+		ODatabase lowLevelDatabase = database;
+		while (!(lowLevelDatabase instanceof ODatabaseRecordAbstract) && lowLevelDatabase instanceof ODatabaseWrapperAbstract<?>)
+			lowLevelDatabase = ((ODatabaseWrapperAbstract<?>) lowLevelDatabase).getUnderlying();
+		if (!(lowLevelDatabase instanceof ODatabaseRecordAbstract))
+			return;
+
+		final List<ORecordId> rids = new ArrayList<ORecordId>();
+		for (int i = iFrom; i < super.size() && rids.size() < prefetchSize; ++i) {
+			final OIdentifiable o = super.get(i);
+			if (o instanceof ORecordId && ((ORecordId) o).isPersistent() && !rids.contains(o))
+				rids.add((ORecordId) o);
+		}
+
+		if (rids.size() < 2)
+			// NOTHING TO SAVE
+			return;
+
+		final Map<ORecordId, ORawBuffer> buffers = ((OStorageProxy) database.getStorage()).readRecords(rids, false);
+
+		marshalling = true;
+		try {
+			for (int i = iFrom; i < super.size() && !buffers.isEmpty(); ++i) {
+				final OIdentifiable o = super.get(i);
+				if (!(o instanceof ORecordId))
+					continue;
+
+				final ORawBuffer buffer = buffers.remove(o);
+				if (buffer == null)
+					continue;
+
+				final ORecord<?> record = ((ODatabaseRecordAbstract) lowLevelDatabase).executeReadRecord((ORecordId) o, null, null,
+						false, buffer);
+				if (record != null)
+					super.set(i, record);
+			}
+		} finally {
+			marshalling = false;
+		}
+	}
+
 	/**
 	 * Convert the item requested from record to link.
 	 * 
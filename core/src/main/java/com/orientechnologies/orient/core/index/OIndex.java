@@ -211,6 +211,31 @@ public interface OIndex<T> {
   public Collection<OIdentifiable> getValuesBetween(Object iRangeFrom, boolean iFromInclusive, Object iRangeTo,
       boolean iToInclusive, int maxValuesToFetch);
 
+  /**
+   * Returns a lazy cursor over the records with key between the range passed as parameter. Unlike
+   * {@link #getValuesBetween(Object, boolean, Object, boolean)} the result is not loaded in memory: the entries are read from the
+   * index in batches while the cursor is browsed, so the caller can stop at any time without paying for the rest of the range.
+   * 
+   * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as values boundaries.
+   * 
+   * @param iRangeFrom
+   *          Starting range, null means no lower bound
+   * @param iFromInclusive
+   *          Indicates whether start range boundary is included in result.
+   * @param iRangeTo
+   *          Ending range, null means no upper bound
+   * @param iToInclusive
+   *          Indicates whether end range boundary is included in result.
+   * @param iAscendantOrder
+   *          true to browse the keys in ascending order, false for descending order
+   * @param iFetchSize
+   *          Hint about the number of records to read from the index at every batch. 0 or less means the default
+   *          (index.cursor.fetchSize)
+   * @return An Iterator that reads the records of the range lazily
+   */
+  public Iterator<OIdentifiable> cursor(Object iRangeFrom, boolean iFromInclusive, Object iRangeTo, boolean iToInclusive,
+      boolean iAscendantOrder, int iFetchSize);
+
   /**
    * Returns a set of records with keys greater than passed parameter.
    * 
@@ -0,0 +1,613 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.concur.lock.OModificationLock;
+import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.annotation.ODocumentInstance;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.exception.OTransactionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
+
+/**
+ * Base of the indexes handled in the database: keeps the name, the definition and the clusters to index of the index in its
+ * configuration document and applies the changes committed by the transactions. The subclasses store the keys.
+ */
+public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal implements OIndexInternal<T> {
+  protected final OModificationLock modificationLock = new OModificationLock();
+
+  protected static final String     CONFIG_MAP_RID   = "mapRid";
+  protected static final String     CONFIG_CLUSTERS  = "clusters";
+  protected String                  name;
+  protected String                  type;
+  protected Set<String>             clustersToIndex  = new LinkedHashSet<String>();
+  protected OIndexDefinition        indexDefinition;
+  protected final String            databaseName;
+  protected int                     maxUpdatesBeforeSave;
+
+  @ODocumentInstance
+  protected ODocument               configuration;
+
+  public OIndexAbstract(final String iType) {
+    super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean(), OGlobalConfiguration.MVRBTREE_TIMEOUT
+        .getValueAsInteger(), true);
+
+    databaseName = ODatabaseRecordThreadLocal.INSTANCE.get().getName();
+
+    type = iType;
+  }
+
+  /**
+   * Reads name, definition and clusters of the index from its configuration.
+   * 
+   * @return the RID of the record where the index keeps its keys
+   */
+  protected ORID loadConfiguration(final ODocument iConfig) {
+    final ORID rid = (ORID) iConfig.field(CONFIG_MAP_RID, ORID.class);
+    if (rid == null)
+      throw new OIndexException("Error during deserialization of index definition: '" + CONFIG_MAP_RID + "' attribute is null");
+
+    configuration = iConfig;
+    name = configuration.field(OIndexInternal.CONFIG_NAME);
+
+    final ODocument indexDefinitionDoc = configuration.field(OIndexInternal.INDEX_DEFINITION);
+    if (indexDefinitionDoc != null) {
+      try {
+        final String indexDefClassName = configuration.field(OIndexInternal.INDEX_DEFINITION_CLASS);
+        final Class<?> indexDefClass = Class.forName(indexDefClassName);
+        indexDefinition = (OIndexDefinition) indexDefClass.getDeclaredConstructor().newInstance();
+        indexDefinition.fromStream(indexDefinitionDoc);
+
+      } catch (final ClassNotFoundException e) {
+        throw new OIndexException("Error during deserialization of index definition", e);
+      } catch (final NoSuchMethodException e) {
+        throw new OIndexException("Error during deserialization of index definition", e);
+      } catch (final InvocationTargetException e) {
+        throw new OIndexException("Error during deserialization of index definition", e);
+      } catch (final InstantiationException e) {
+        throw new OIndexException("Error during deserialization of index definition", e);
+      } catch (final IllegalAccessException e) {
+        throw new OIndexException("Error during deserialization of index definition", e);
+      }
+    } else {
+      // @COMPATIBILITY 1.0rc6 new index model was implemented
+      final Boolean isAutomatic = configuration.field(OIndexInternal.CONFIG_AUTOMATIC);
+      if (Boolean.TRUE.equals(isAutomatic)) {
+        final int pos = name.lastIndexOf('.');
+        if (pos < 0)
+          throw new OIndexException("Can not convert from old index model to new one. "
+              + "Invalid index name. Dot (.) separator should be present.");
+        final String className = name.substring(0, pos);
+        final String propertyName = name.substring(pos + 1);
+
+        final String keyTypeStr = configuration.field(OIndexInternal.CONFIG_KEYTYPE);
+        if (keyTypeStr == null)
+          throw new OIndexException("Can not convert from old index model to new one. " + "Index key type is absent.");
+        final OType keyType = OType.valueOf(keyTypeStr.toUpperCase(Locale.ENGLISH));
+        indexDefinition = new OPropertyIndexDefinition(className, propertyName, keyType);
+
+        configuration.removeField(OIndexInternal.CONFIG_AUTOMATIC);
+        configuration.removeField(OIndexInternal.CONFIG_KEYTYPE);
+      } else if (configuration.field(OIndexInternal.CONFIG_KEYTYPE) != null) {
+        final String keyTypeStr = configuration.field(OIndexInternal.CONFIG_KEYTYPE);
+        final OType keyType = OType.valueOf(keyTypeStr.toUpperCase(Locale.ENGLISH));
+
+        indexDefinition = new OSimpleKeyIndexDefinition(keyType);
+
+        configuration.removeField(OIndexInternal.CONFIG_KEYTYPE);
+      }
+    }
+
+    clustersToIndex.clear();
+    maxUpdatesBeforeSave = lazyUpdates();
+
+    final Collection<? extends String> clusters = configuration.field(CONFIG_CLUSTERS);
+    if (clusters != null)
+      clustersToIndex.addAll(clusters);
+
+    return rid;
+  }
+
+  public void flush() {
+    lazySave();
+  }
+
+  /**
+   * Returns a set of records with key between the range passed as parameter. Range bounds are included.
+   * <p/>
+   * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as values boundaries.
+   * 
+   * @param iRangeFrom
+   *          Starting range
+   * @param iRangeTo
+   *          Ending range
+   * @return a set of records with key between the range passed as parameter. Range bounds are included.
+   * @see com.orientechnologies.common.collection.OCompositeKey#compareTo(com.orientechnologies.common.collection.OCompositeKey)
+   * @see #getValuesBetween(Object, boolean, Object, boolean)
+   */
+  public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final Object iRangeTo) {
+    return getValuesBetween(iRangeFrom, true, iRangeTo, true);
+  }
+
+  /**
+   * Returns a set of documents with key between the range passed as parameter. Range bounds are included.
+   * 
+   * @param iRangeFrom
+   *          Starting range
+   * @param iRangeTo
+   *          Ending range
+   * @see #getEntriesBetween(Object, Object, boolean)
+   * @return
+   */
+  public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo) {
+    return getEntriesBetween(iRangeFrom, iRangeTo, true);
+  }
+
+  public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive) {
+    return getValuesMajor(fromKey, isInclusive, -1);
+  }
+
+  public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive) {
+    return getValuesMinor(toKey, isInclusive, -1);
+  }
+
+  public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive) {
+    return getEntriesMajor(fromKey, isInclusive, -1);
+  }
+
+  public Collection<ODocument> getEntriesMinor(final Object toKey, final boolean isInclusive) {
+    return getEntriesMinor(toKey, isInclusive, -1);
+  }
+
+  /**
+   * Returns a set of records with key between the range passed as parameter.
+   * <p/>
+   * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as values boundaries.
+   * 
+   * @param iRangeFrom
+   *          Starting range
+   * @param iFromInclusive
+   *          Indicates whether start range boundary is included in result.
+   * @param iRangeTo
+   *          Ending range
+   * @param iToInclusive
+   *          Indicates whether end range boundary is included in result.
+   * @return Returns a set of records with key between the range passed as parameter.
+   * @see com.orientechnologies.common.collection.OCompositeKey#compareTo(com.orientechnologies.common.collection.OCompositeKey)
+   */
+  public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+      final boolean iToInclusive) {
+    return getValuesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, -1);
+  }
+
+  public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo, final boolean iInclusive) {
+    return getEntriesBetween(iRangeFrom, iRangeTo, iInclusive, -1);
+  }
+
+  public Collection<OIdentifiable> getValues(final Collection<?> iKeys) {
+    return getValues(iKeys, -1);
+  }
+
+  public Collection<ODocument> getEntries(final Collection<?> iKeys) {
+    return getEntries(iKeys, -1);
+  }
+
+  public long rebuild() {
+    return rebuild(null);
+  }
+
+  /**
+   * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+   * The keys of the records are passed to {@link #rebuildKey(Object, ODocument)}.
+   */
+  public long rebuild(final OProgressListener iProgressListener) {
+    long documentIndexed = 0;
+
+    final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
+
+    acquireExclusiveLock();
+    try {
+      try {
+        clearKeys();
+      } catch (Exception e) {
+        // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
+      }
+
+      beginRebuild();
+
+      int documentNum = 0;
+      long documentTotal = 0;
+
+      for (final String cluster : clustersToIndex)
+        documentTotal += getDatabase().countClusterElements(cluster);
+
+      if (iProgressListener != null)
+        iProgressListener.onBegin(this, documentTotal);
+
+      for (final String clusterName : clustersToIndex)
+        try {
+          for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
+            if (record instanceof ODocument) {
+              final ODocument doc = (ODocument) record;
+
+              if (indexDefinition == null)
+                throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
+                    + indexDefinition + ")");
+
+              final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+              if (fieldValue != null) {
+                if (fieldValue instanceof Collection) {
+                  for (final Object fieldValueItem : (Collection<?>) fieldValue)
+                    rebuildKey(fieldValueItem, doc);
+                } else
+                  rebuildKey(fieldValue, doc);
+
+                ++documentIndexed;
+              }
+            }
+            documentNum++;
+
+            if (iProgressListener != null)
+              iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+          }
+        } catch (NoSuchElementException e) {
+          // END OF CLUSTER REACHED, IGNORE IT
+        }
+
+      endRebuild();
+
+      lazySave();
+
+      if (iProgressListener != null)
+        iProgressListener.onCompletition(this, true);
+
+    } catch (final Exception e) {
+      if (iProgressListener != null)
+        iProgressListener.onCompletition(this, false);
+
+      try {
+        clearKeys();
+      } catch (Exception e2) {
+        // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
+      }
+
+      throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
+
+    } finally {
+      closeRebuild();
+
+      if (intentInstalled)
+        getDatabase().declareIntent(null);
+
+      releaseExclusiveLock();
+    }
+
+    return documentIndexed;
+  }
+
+  /**
+   * Removes all the keys from the storage of the index. Called by the rebuild under the exclusive lock.
+   */
+  protected abstract void clearKeys();
+
+  /**
+   * Called by the rebuild before scanning the clusters.
+   */
+  protected void beginRebuild() {
+  }
+
+  /**
+   * Indexes a key found by the rebuild. By default puts it in the index.
+   */
+  protected void rebuildKey(final Object iKey, final ODocument iDocument) {
+    put(iKey, iDocument);
+  }
+
+  /**
+   * Called by the rebuild after all the keys have been passed to {@link #rebuildKey(Object, ODocument)}.
+   */
+  protected void endRebuild() {
+  }
+
+  /**
+   * Called by the rebuild when it's over, even if it failed.
+   */
+  protected void closeRebuild() {
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  public OIndexInternal<T> getInternal() {
+    return this;
+  }
+
+  public Set<String> getClusters() {
+
+    acquireSharedLock();
+    try {
+
+      return Collections.unmodifiableSet(clustersToIndex);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public OIndexAbstract<T> addCluster(final String iClusterName) {
+    acquireExclusiveLock();
+    try {
+      if (clustersToIndex.add(iClusterName))
+        updateConfiguration();
+      return this;
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public OIndexAbstract<T> removeCluster(String iClusterName) {
+    acquireExclusiveLock();
+    try {
+      if (clustersToIndex.remove(iClusterName))
+        updateConfiguration();
+      return this;
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void checkEntry(final OIdentifiable iRecord, final Object iKey) {
+  }
+
+  public ODocument updateConfiguration() {
+
+    acquireExclusiveLock();
+    try {
+
+      configuration.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+
+      try {
+        configuration.field(OIndexInternal.CONFIG_TYPE, type);
+        configuration.field(OIndexInternal.CONFIG_NAME, name);
+
+        if (indexDefinition != null) {
+          final ODocument indexDefDocument = indexDefinition.toStream();
+          if (!indexDefDocument.hasOwners())
+            indexDefDocument.addOwner(configuration);
+
+          configuration.field(OIndexInternal.INDEX_DEFINITION, indexDefDocument, OType.EMBEDDED);
+          configuration.field(OIndexInternal.INDEX_DEFINITION_CLASS, indexDefinition.getClass().getName());
+        } else {
+          configuration.removeField(OIndexInternal.INDEX_DEFINITION);
+          configuration.removeField(OIndexInternal.INDEX_DEFINITION_CLASS);
+        }
+
+        configuration.field(CONFIG_CLUSTERS, clustersToIndex, OType.EMBEDDEDSET);
+        configuration.field(CONFIG_MAP_RID, getIdentity());
+
+      } finally {
+        configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
+      }
+
+    } finally {
+      releaseExclusiveLock();
+    }
+    return configuration;
+  }
+
+  @SuppressWarnings("unchecked")
+  public void commit(final ODocument iDocument) {
+    if (iDocument == null)
+      return;
+
+    acquireExclusiveLock();
+    try {
+      final Boolean clearAll = (Boolean) iDocument.field("clear");
+      if (clearAll != null && clearAll)
+        clear();
+
+      final Collection<ODocument> entries = iDocument.field("entries");
+
+      for (final ODocument entry : entries) {
+        final String serializedKey = OStringSerializerHelper.decode((String) entry.field("k"));
+
+        final Object key;
+
+        try {
+          if (serializedKey.equals("*"))
+            key = "*";
+          else {
+            final ODocument keyContainer = new ODocument();
+            keyContainer.setLazyLoad(false);
+
+            keyContainer.fromString(serializedKey);
+
+            final Object storedKey = keyContainer.field("key");
+            if (storedKey instanceof List)
+              key = new OCompositeKey((List<? extends Comparable<?>>) storedKey);
+            else if (Boolean.TRUE.equals(keyContainer.field("binary"))) {
+              key = OStreamSerializerAnyStreamable.INSTANCE.fromStream((byte[]) storedKey);
+            } else
+              key = storedKey;
+          }
+        } catch (IOException ioe) {
+          throw new OTransactionException("Error during index changes deserialization. ", ioe);
+        }
+
+        final List<ODocument> operations = (List<ODocument>) entry.field("ops");
+        if (operations != null) {
+          for (final ODocument op : operations) {
+            final int operation = (Integer) op.rawField("o");
+            final OIdentifiable value = op.field("v", OType.LINK);
+
+            if (operation == OPERATION.PUT.ordinal())
+              put(key, value);
+            else if (operation == OPERATION.REMOVE.ordinal()) {
+              if (key.equals("*"))
+                remove(value);
+              else if (value == null)
+                remove(key);
+              else
+                remove(key, value);
+            }
+          }
+        }
+      }
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public ODocument getConfiguration() {
+    return configuration;
+  }
+
+  public boolean isAutomatic() {
+    return indexDefinition != null && indexDefinition.getClassName() != null;
+  }
+
+  public void onCreate(final ODatabase iDatabase) {
+  }
+
+  public void onDelete(final ODatabase iDatabase) {
+  }
+
+  public void onOpen(final ODatabase iDatabase) {
+  }
+
+  public void onBeforeTxRollback(final ODatabase iDatabase) {
+  }
+
+  public boolean onCorruptionRepairDatabase(final ODatabase iDatabase, final String iReason, String iWhatWillbeFixed) {
+    if (iReason.equals("load"))
+      return true;
+    return false;
+  }
+
+  public void onBeforeTxCommit(final ODatabase iDatabase) {
+  }
+
+  protected void checkForKeyType(final Object iKey) {
+    if (indexDefinition == null) {
+      // RECOGNIZE THE KEY TYPE AT RUN-TIME
+
+      final OType type = OType.getTypeByClass(iKey.getClass());
+      if (type == null)
+        return;
+
+      indexDefinition = new OSimpleKeyIndexDefinition(type);
+      maxUpdatesBeforeSave = lazyUpdates();
+      updateConfiguration();
+    }
+  }
+
+  protected ODatabaseRecord getDatabase() {
+    return ODatabaseRecordThreadLocal.INSTANCE.get();
+  }
+
+  public OType[] getKeyTypes() {
+    if (indexDefinition == null)
+      return null;
+
+    return indexDefinition.getTypes();
+  }
+
+  public OIndexDefinition getDefinition() {
+    return indexDefinition;
+  }
+
+  public void freeze(boolean throwException) {
+    modificationLock.prohibitModifications(throwException);
+  }
+
+  public void release() {
+    modificationLock.allowModifications();
+  }
+
+  public void acquireModificationLock() {
+    modificationLock.requestModificationLock();
+  }
+
+  public void releaseModificationLock() {
+    modificationLock.releaseModificationLock();
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+
+    final OIndexAbstract<?> that = (OIndexAbstract<?>) o;
+
+    if (!name.equals(that.name))
+      return false;
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  public String getDatabaseName() {
+    return databaseName;
+  }
+
+  protected int lazyUpdates() {
+    return isAutomatic() ? OGlobalConfiguration.INDEX_AUTO_LAZY_UPDATES.getValueAsInteger()
+        : OGlobalConfiguration.INDEX_MANUAL_LAZY_UPDATES.getValueAsInteger();
+  }
+}
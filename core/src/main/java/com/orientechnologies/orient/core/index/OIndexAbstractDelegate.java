@@ -231,6 +231,11 @@ public class OIndexAbstractDelegate<T> implements OIndex<T> {
     return delegate.getValuesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, maxValuesToFetch);
   }
 
+  public Iterator<OIdentifiable> cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+      final boolean iToInclusive, final boolean iAscendantOrder, final int iFetchSize) {
+    return delegate.cursor(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, iAscendantOrder, iFetchSize);
+  }
+
   public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive, final int maxValuesToFetch) {
     return delegate.getValuesMajor(fromKey, isInclusive, maxValuesToFetch);
   }
@@ -15,7 +15,10 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.List;
+
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 
 /**
@@ -56,6 +59,14 @@ public class OIndexDictionary extends OIndexOneValue {
     }
   }
 
+  /**
+   * Returns the last record found, as the last put wins.
+   */
+  @Override
+  protected OIdentifiable createBulkValue(final Object iKey, final List<ORID> iRids) {
+    return iRids.get(iRids.size() - 1);
+  }
+
   /**
    * Disables check of entries.
    */
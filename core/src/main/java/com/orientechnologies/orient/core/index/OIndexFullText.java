@@ -84,6 +84,14 @@ public class OIndexFullText extends OIndexMultiValues {
     }
   }
 
+  /**
+   * The keys are the words of the values, so they can't be collected by the rebuild of the index.
+   */
+  @Override
+  protected boolean isBulkBuildSupported() {
+    return false;
+  }
+
   /**
    * Indexes a value and save the index. Splits the value in single words and index each one. Save of the index is responsibility of
    * the caller.
@@ -98,6 +98,14 @@ public interface OIndexInternal<T> extends OIndex<T>, Iterable<Entry<Object, T>>
    */
   public boolean canBeUsedInEqualityOperators();
 
+  /**
+   * Indicates whether the keys of the index are ordered, so it can be used to search ranges of keys and partial composite keys.
+   * Indexes without range support are used only to search whole keys.
+   * 
+   * @return {@code true} if the index supports the range queries.
+   */
+  public boolean hasRangeQuerySupport();
+
   /**
    * Prohibit index modifications. Only index read commands are allowed after this call.
    * 
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.collection.OExternalSorter;
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Collects the keys of an index being rebuilt with the RIDs of their records and returns them sorted by key, every key once with
+ * all its RIDs in the order they were added. The pairs are sorted by an {@link OExternalSorter} that writes them to temporary
+ * files with the key serializer of the index.
+ */
+public class OIndexKeySorter implements Iterable<Map.Entry<Object, List<ORID>>> {
+  private final OExternalSorter<OSortEntry> sorter;
+
+  private static class OSortEntry {
+    private final Object key;
+    private final ORID   rid;
+
+    private OSortEntry(final Object iKey, final ORID iRid) {
+      key = iKey;
+      rid = iRid;
+    }
+  }
+
+  /**
+   * @param iKeySerializer
+   *          Serializer of the keys of the index, used to write them to the temporary files
+   * @param iMaxKeysInMemory
+   *          Number of keys to keep in memory before writing them to a temporary file, 0 means unlimited
+   */
+  public OIndexKeySorter(final OBinarySerializer<Object> iKeySerializer, final int iMaxKeysInMemory) {
+    sorter = new OExternalSorter<OSortEntry>(new Comparator<OSortEntry>() {
+      public int compare(final OSortEntry o1, final OSortEntry o2) {
+        return ODefaultComparator.INSTANCE.compare(o1.key, o2.key);
+      }
+    }, iMaxKeysInMemory, "orientdb-index-") {
+      @Override
+      protected void write(final DataOutputStream iOut, final OSortEntry iEntry) throws IOException {
+        final byte[] key = new byte[iKeySerializer.getObjectSize(iEntry.key)];
+        iKeySerializer.serialize(iEntry.key, key, 0);
+        writeBytes(iOut, key);
+        writeBytes(iOut, ((ORecordId) iEntry.rid).toStream());
+      }
+
+      @Override
+      protected OSortEntry read(final DataInputStream iIn) throws IOException {
+        final Object key = iKeySerializer.deserialize(readBytes(iIn), 0);
+        return new OSortEntry(key, new ORecordId().fromStream(readBytes(iIn)));
+      }
+    };
+  }
+
+  public void add(final Object iKey, final ORID iRid) {
+    sorter.add(new OSortEntry(iKey, iRid));
+  }
+
+  /**
+   * Browses the keys in order with their RIDs, merging the runs written to disk if any. The keys can be browsed more than once.
+   */
+  public Iterator<Map.Entry<Object, List<ORID>>> iterator() {
+    return new OGroupIterator(sorter.iterator());
+  }
+
+  /**
+   * Closes the runs still being merged and deletes the temporary files. Call it also when the browsing stopped early.
+   */
+  public void close() {
+    sorter.close();
+  }
+
+  /**
+   * Groups the RIDs of the same key.
+   */
+  private static class OGroupIterator implements Iterator<Map.Entry<Object, List<ORID>>> {
+    private final Iterator<OSortEntry> entries;
+    private OSortEntry                 next;
+
+    private OGroupIterator(final Iterator<OSortEntry> iEntries) {
+      entries = iEntries;
+      next = entries.hasNext() ? entries.next() : null;
+    }
+
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    public Map.Entry<Object, List<ORID>> next() {
+      if (next == null)
+        throw new NoSuchElementException();
+
+      final Object key = next.key;
+      final List<ORID> rids = new ArrayList<ORID>(1);
+      while (next != null && ODefaultComparator.INSTANCE.compare(next.key, key) == 0) {
+        rids.add(next.rid);
+        next = entries.hasNext() ? entries.next() : null;
+      }
+      return new AbstractMap.SimpleImmutableEntry<Object, List<ORID>>(key, rids);
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+}
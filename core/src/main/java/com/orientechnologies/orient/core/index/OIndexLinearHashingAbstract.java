@@ -0,0 +1,594 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.profiler.OJVMProfiler;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
+import com.orientechnologies.orient.core.type.hash.OLinearHashingPersistent;
+
+/**
+ * Index on a persistent linear hashing map. A key is found by reading one bucket, without comparing it with the keys on the path
+ * of a tree, but the keys are not ordered: the index can't search ranges of keys or partial composite keys. The keys are
+ * converted to the types of the index definition before they are hashed, so the same value is always found under the same key.
+ * The lookups take the shared lock and run concurrently, the changes take the exclusive one.
+ */
+public abstract class OIndexLinearHashingAbstract<T> extends OIndexAbstract<T> {
+  protected OLinearHashingPersistent map;
+
+  public OIndexLinearHashingAbstract(final String iType) {
+    super(iType);
+  }
+
+  /**
+   * Returns the value of the key from its RIDs, or the value of a missing key if the RIDs are null.
+   */
+  protected abstract T createValue(List<ORID> iRids);
+
+  public OIndex<T> create(final String iName, final OIndexDefinition iIndexDefinition, final ODatabaseRecord iDatabase,
+      final String iClusterIndexName, final int[] iClusterIdsToIndex, final OProgressListener iProgressListener) {
+    acquireExclusiveLock();
+    try {
+
+      name = iName;
+      configuration = new ODocument();
+
+      indexDefinition = iIndexDefinition;
+      maxUpdatesBeforeSave = lazyUpdates();
+
+      if (iClusterIdsToIndex != null)
+        for (final int id : iClusterIdsToIndex)
+          clustersToIndex.add(iDatabase.getClusterNameById(id));
+
+      map = new OLinearHashingPersistent(iClusterIndexName, getKeySerializer(), maxUpdatesBeforeSave);
+
+      installHooks(iDatabase);
+
+      rebuild(iProgressListener);
+      updateConfiguration();
+    } catch (Exception e) {
+      if (map != null)
+        map.delete();
+      if (e instanceof OIndexException)
+        throw (OIndexException) e;
+
+      throw new OIndexException("Cannot create the index '" + iName + "'", e);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+    return this;
+  }
+
+  public OIndexInternal<T> loadFromConfiguration(final ODocument iConfig) {
+    acquireExclusiveLock();
+    try {
+
+      final ORID rid = loadConfiguration(iConfig);
+
+      map = new OLinearHashingPersistent(rid, maxUpdatesBeforeSave);
+      try {
+        map.load();
+      } catch (Exception e) {
+        if (onCorruptionRepairDatabase(null, "load", "Index will be rebuilt")) {
+          if (isAutomatic())
+            // AUTOMATIC REBUILD IT
+            OLogManager.instance().warn(this, "Cannot load index '%s' from storage (rid=%s): rebuilt it from scratch", getName(),
+                rid);
+          map = new OLinearHashingPersistent(getDatabase().getClusterNameById(rid.getClusterId()), getKeySerializer(),
+              maxUpdatesBeforeSave);
+          rebuild();
+          updateConfiguration();
+        }
+      }
+
+      installHooks(iConfig.getDatabase());
+
+      return this;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public boolean canBeUsedInEqualityOperators() {
+    return true;
+  }
+
+  public boolean hasRangeQuerySupport() {
+    return false;
+  }
+
+  public T get(final Object iKey) {
+    final Object key = convertKey(iKey);
+
+    acquireSharedLock();
+    try {
+
+      return createValue(key != null ? map.get(key) : null);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public long count(final Object iKey) {
+    final Object key = convertKey(iKey);
+    if (key == null)
+      return 0;
+
+    acquireSharedLock();
+    try {
+
+      return map.count(key);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public boolean contains(final Object iKey) {
+    return count(iKey) > 0;
+  }
+
+  public boolean remove(final Object iKey) {
+    final Object key = convertKey(iKey);
+    if (key == null)
+      return false;
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+
+        return map.remove(key);
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  public boolean remove(final Object iKey, final OIdentifiable iValue) {
+    final Object key = convertKey(iKey);
+    if (key == null)
+      return false;
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+
+        return map.remove(key, iValue.getIdentity());
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  /**
+   * Removes the record from all its keys. The keys of a record are not tracked, so all the buckets are browsed: the cost is the
+   * one of a full scan of the index.
+   */
+  public int remove(final OIdentifiable iRecord) {
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+
+        // COLLECT THE KEYS FIRST SINCE THE MAP CAN'T CHANGE WHILE IT'S BROWSED
+        final List<Object> keys = new ArrayList<Object>();
+        for (Map.Entry<Object, List<ORID>> entry : map)
+          if (entry.getValue().contains(iRecord.getIdentity()))
+            keys.add(entry.getKey());
+
+        for (Object key : keys)
+          map.remove(key, iRecord.getIdentity());
+        return keys.size();
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  /**
+   * Counts the keys of the record. As {@link #remove(OIdentifiable)} it browses all the buckets.
+   */
+  public int count(final OIdentifiable iRecord) {
+    acquireSharedLock();
+    try {
+
+      int tot = 0;
+      for (Map.Entry<Object, List<ORID>> entry : map)
+        if (entry.getValue().contains(iRecord.getIdentity()))
+          ++tot;
+      return tot;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public OIndex<T> clear() {
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+
+        map.clear();
+        return this;
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  public OIndexInternal<T> delete() {
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+
+        map.delete();
+        return this;
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  public OIndexInternal<T> lazySave() {
+    acquireExclusiveLock();
+    try {
+
+      map.save();
+      return this;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void unload() {
+    acquireExclusiveLock();
+    try {
+
+      map.unload();
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public ORID getIdentity() {
+    return map.getRecordId();
+  }
+
+  public long getKeySize() {
+    acquireSharedLock();
+    try {
+      return map.size();
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public Collection<OIdentifiable> getValues(final Collection<?> iKeys, final int maxValuesToFetch) {
+    final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+
+    acquireSharedLock();
+    try {
+
+      for (final Object iKey : iKeys) {
+        final Object key = convertKey(iKey);
+        final List<ORID> rids = key != null ? map.get(key) : null;
+        if (rids == null)
+          continue;
+
+        for (ORID rid : rids) {
+          if (maxValuesToFetch > -1 && result.size() == maxValuesToFetch)
+            return result;
+          result.add(rid);
+        }
+      }
+      return result;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public Collection<ODocument> getEntries(final Collection<?> iKeys, final int maxEntriesToFetch) {
+    final Set<ODocument> result = new ODocumentFieldsHashSet();
+
+    acquireSharedLock();
+    try {
+
+      for (final Object iKey : iKeys) {
+        final Object key = convertKey(iKey);
+        final List<ORID> rids = key != null ? map.get(key) : null;
+        if (rids == null)
+          continue;
+
+        for (ORID rid : rids) {
+          if (maxEntriesToFetch > -1 && result.size() == maxEntriesToFetch)
+            return result;
+
+          final ODocument document = new ODocument();
+          document.field("key", key);
+          document.field("rid", rid);
+          document.unsetDirty();
+          result.add(document);
+        }
+      }
+      return result;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Browses the entries bucket by bucket, so in no particular order.
+   */
+  public Iterator<Entry<Object, T>> iterator() {
+    acquireSharedLock();
+    try {
+
+      final Iterator<Map.Entry<Object, List<ORID>>> entries = map.iterator();
+      return new Iterator<Entry<Object, T>>() {
+        public boolean hasNext() {
+          return entries.hasNext();
+        }
+
+        public Entry<Object, T> next() {
+          final Map.Entry<Object, List<ORID>> entry = entries.next();
+          return new AbstractMap.SimpleImmutableEntry<Object, T>(entry.getKey(), createValue(entry.getValue()));
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException("remove");
+        }
+      };
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public Iterator<OIdentifiable> valuesIterator() {
+    acquireSharedLock();
+    try {
+
+      final Iterator<Map.Entry<Object, List<ORID>>> entries = map.iterator();
+      return new Iterator<OIdentifiable>() {
+        private Iterator<ORID> rids;
+
+        public boolean hasNext() {
+          while ((rids == null || !rids.hasNext()) && entries.hasNext())
+            rids = entries.next().getValue().iterator();
+          return rids != null && rids.hasNext();
+        }
+
+        public OIdentifiable next() {
+          if (!hasNext())
+            throw new NoSuchElementException();
+          return rids.next();
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException("remove");
+        }
+      };
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public Iterable<Object> keys() {
+    acquireSharedLock();
+    try {
+
+      final List<Object> keys = new ArrayList<Object>((int) map.size());
+      for (Map.Entry<Object, List<ORID>> entry : map)
+        keys.add(entry.getKey());
+      return keys;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public Iterator<Entry<Object, T>> inverseIterator() {
+    throw unsupportedRangeQuery();
+  }
+
+  public Iterator<OIdentifiable> valuesInverseIterator() {
+    throw unsupportedRangeQuery();
+  }
+
+  public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+      final boolean iToInclusive, final int maxValuesToFetch) {
+    throw unsupportedRangeQuery();
+  }
+
+  public Iterator<OIdentifiable> cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+      final boolean iToInclusive, final boolean iAscendantOrder, final int iFetchSize) {
+    throw unsupportedRangeQuery();
+  }
+
+  public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive, final int maxValuesToFetch) {
+    throw unsupportedRangeQuery();
+  }
+
+  public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive, final int maxValuesToFetch) {
+    throw unsupportedRangeQuery();
+  }
+
+  public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive, final int maxEntriesToFetch) {
+    throw unsupportedRangeQuery();
+  }
+
+  public Collection<ODocument> getEntriesMinor(final Object toKey, final boolean isInclusive, final int maxEntriesToFetch) {
+    throw unsupportedRangeQuery();
+  }
+
+  public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo, final boolean iInclusive,
+      final int maxEntriesToFetch) {
+    throw unsupportedRangeQuery();
+  }
+
+  protected void clearKeys() {
+    map.clear();
+  }
+
+  public void onBeforeTxBegin(final ODatabase iDatabase) {
+  }
+
+  public void onAfterTxRollback(final ODatabase iDatabase) {
+  }
+
+  public void onAfterTxCommit(final ODatabase iDatabase) {
+  }
+
+  public void onClose(final ODatabase iDatabase) {
+    acquireExclusiveLock();
+    try {
+
+      map.save();
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  /**
+   * Converts the key to the types of the index definition, the same value must always have the same binary form to be found.
+   *
+   * @return the converted key or null if the key is null
+   */
+  protected Object convertKey(final Object iKey) {
+    if (iKey == null || indexDefinition == null || indexDefinition instanceof ORuntimeKeyIndexDefinition)
+      return iKey;
+
+    final OType[] types = indexDefinition.getTypes();
+    if (types.length == 1)
+      return convertKeyItem(iKey, types[0]);
+
+    if (!(iKey instanceof OCompositeKey))
+      return iKey;
+
+    final List<Object> keys = ((OCompositeKey) iKey).getKeys();
+    if (keys.size() != types.length)
+      throw new OIndexException("Hash index '" + name + "' can be searched only by whole composite keys, but " + iKey
+          + " has " + keys.size() + " items of " + types.length);
+
+    final OCompositeKey key = new OCompositeKey();
+    for (int i = 0; i < types.length; ++i)
+      key.addKey(convertKeyItem(keys.get(i), types[i]));
+    return key;
+  }
+
+  private static Object convertKeyItem(final Object iKey, final OType iType) {
+    if (iKey instanceof OIdentifiable)
+      return ((OIdentifiable) iKey).getIdentity();
+
+    final Class<?> javaType = iType.getDefaultJavaType();
+    return javaType != null ? OType.convert(iKey, javaType) : iKey;
+  }
+
+  protected void installHooks(final ODatabaseRecord iDatabase) {
+    final OJVMProfiler profiler = Orient.instance().getProfiler();
+    final String profilerPrefix = profiler.getDatabaseMetric(iDatabase.getName(), "index." + name + '.');
+    final String profilerMetadataPrefix = "db.*.index.*.";
+
+    profiler.registerHookValue(profilerPrefix + "items", "Index size", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+      public Object getValue() {
+        acquireSharedLock();
+        try {
+          return map != null ? map.size() : "-";
+        } finally {
+          releaseSharedLock();
+        }
+      }
+    }, profilerMetadataPrefix + "items");
+
+    profiler.registerHookValue(profilerPrefix + "buckets", "Number of buckets of a hash index", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return map != null ? map.getBucketCount() : "-";
+          }
+        }, profilerMetadataPrefix + "buckets");
+
+    iDatabase.registerListener(this);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private OBinarySerializer<Object> getKeySerializer() {
+    if (indexDefinition == null)
+      return new OSimpleKeySerializer();
+    if (indexDefinition instanceof ORuntimeKeyIndexDefinition)
+      return ((ORuntimeKeyIndexDefinition) indexDefinition).getSerializer();
+    if (indexDefinition.getTypes().length > 1)
+      return (OBinarySerializer<Object>) (OBinarySerializer<?>) OCompositeKeySerializer.INSTANCE;
+    return (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(indexDefinition.getTypes()[0]);
+  }
+
+  private UnsupportedOperationException unsupportedRangeQuery() {
+    return new UnsupportedOperationException("Hash index '" + name
+        + "' does not support range queries since its keys are not ordered");
+  }
+}
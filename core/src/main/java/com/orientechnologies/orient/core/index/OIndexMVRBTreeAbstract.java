@@ -15,52 +15,43 @@
  */
 package com.orientechnologies.orient.core.index;
 
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.common.collection.OMVRBTree;
-import com.orientechnologies.common.concur.lock.OModificationLock;
-import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
+import com.orientechnologies.common.collection.OMVRBTreeEntry;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
 import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.orient.core.Orient;
-import com.orientechnologies.orient.core.annotation.ODocumentInstance;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
-import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
-import com.orientechnologies.orient.core.db.record.ORecordElement;
-import com.orientechnologies.orient.core.exception.OConfigurationException;
-import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
-import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog.Listener;
-import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.profiler.OJVMProfiler;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
-import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
-import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeDatabaseLazySave;
+import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeMapProvider;
 import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeProviderAbstract;
 
 /**
@@ -69,30 +60,35 @@ import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeProviderAbs
  * @author Luca Garulli
  * 
  */
-public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveExternal implements OIndexInternal<T> {
-  protected final OModificationLock              modificationLock = new OModificationLock();
-
-  protected static final String                  CONFIG_MAP_RID   = "mapRid";
-  protected static final String                  CONFIG_CLUSTERS  = "clusters";
-  protected String                               name;
-  protected String                               type;
+public abstract class OIndexMVRBTreeAbstract<T> extends OIndexAbstract<T> {
   protected OMVRBTreeDatabaseLazySave<Object, T> map;
-  protected Set<String>                          clustersToIndex  = new LinkedHashSet<String>();
-  protected OIndexDefinition                     indexDefinition;
-  protected final String                         databaseName;
-  protected int                                  maxUpdatesBeforeSave;
-
-  @ODocumentInstance
-  protected ODocument                            configuration;
   private final Listener                         watchDog;
 
+  private final int                              lookupCacheSize;
+  private final ConcurrentHashMap<Object, CachedLookup> lookupCache;
+  private volatile long                          lookupVersion;
+  private final ReentrantLock                    treeLock = new ReentrantLock();
+  private OIndexKeySorter                        sorter;
+
+  /**
+   * Result of a lookup by key, valid until the index changes.
+   */
+  protected static final class CachedLookup {
+    private final long   version;
+    public final Object value;
+
+    private CachedLookup(final long iVersion, final Object iValue) {
+      version = iVersion;
+      value = iValue;
+    }
+  }
+
   public OIndexMVRBTreeAbstract(final String iType) {
-    super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean(), OGlobalConfiguration.MVRBTREE_TIMEOUT
-        .getValueAsInteger(), true);
+    super(iType);
 
-    databaseName = ODatabaseRecordThreadLocal.INSTANCE.get().getName();
+    lookupCacheSize = OGlobalConfiguration.INDEX_LOOKUP_CACHE_SIZE.getValueAsInteger();
+    lookupCache = lookupCacheSize > 0 ? new ConcurrentHashMap<Object, CachedLookup>() : null;
 
-    type = iType;
     watchDog = new Listener() {
       public void memoryUsageLow(final long iFreeMemory, final long iFreeMemoryPercentage) {
         map.setOptimization(iFreeMemoryPercentage < 10 ? 2 : 1);
@@ -100,8 +96,85 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     };
   }
 
-  public void flush() {
-    lazySave();
+  /**
+   * Every change to the MVRB-Tree is made under the exclusive lock: acquiring it discards the cached lookups. Operations that only
+   * read the index use {@link #acquireReadLock()}.
+   */
+  @Override
+  public void acquireExclusiveLock() {
+    super.acquireExclusiveLock();
+    lookupVersion++;
+  }
+
+  @Override
+  public boolean tryAcquireExclusiveLock() {
+    if (!super.tryAcquireExclusiveLock())
+      return false;
+
+    lookupVersion++;
+    return true;
+  }
+
+  /**
+   * Acquires the lock for operations that only read the index: the shared lock, so readers never wait for each other at the index
+   * level and only writers exclude them, and unlike {@link #acquireExclusiveLock()} it doesn't discard the cached lookups. Since
+   * searching the MVRB-Tree moves its cursor and loads the nodes in memory, readers still walk the tree one at a time under the tree
+   * lock, that writers never take because they already own the index.
+   */
+  protected void acquireReadLock() {
+    super.acquireSharedLock();
+    treeLock.lock();
+  }
+
+  protected void releaseReadLock() {
+    treeLock.unlock();
+    super.releaseSharedLock();
+  }
+
+  /**
+   * Returns the cached result of the lookup by key without locking, or null if it's not cached or the index changed since then.
+   */
+  protected CachedLookup getCachedLookup(final Object iKey) {
+    if (lookupCache == null || !isCacheableKey(iKey))
+      return null;
+
+    final long version = lookupVersion;
+    final CachedLookup lookup = lookupCache.get(iKey);
+    if (lookup != null && lookup.version == version)
+      return lookup;
+
+    return null;
+  }
+
+  /**
+   * Caches the result of a lookup by key. Must be called under the read lock, with the value just read from the MVRB-Tree.
+   */
+  protected void cacheLookup(final Object iKey, final Object iValue) {
+    if (lookupCache == null || !isCacheableKey(iKey))
+      return;
+
+    if (lookupCache.size() >= lookupCacheSize)
+      lookupCache.clear();
+
+    // COPY COMPOSITE KEYS SINCE THEY CAN BE RESET AND REUSED BY THE CALLER
+    final Object key = iKey instanceof OCompositeKey ? new OCompositeKey(((OCompositeKey) iKey).getKeys()) : iKey;
+    lookupCache.put(key, new CachedLookup(lookupVersion, iValue));
+  }
+
+  /**
+   * Only immutable keys can be cached.
+   */
+  private static boolean isCacheableKey(final Object iKey) {
+    if (iKey instanceof OCompositeKey) {
+      for (Object k : ((OCompositeKey) iKey).getKeys())
+        if (!isCacheableKey(k))
+          return false;
+      return true;
+    }
+
+    return iKey instanceof String || iKey instanceof Integer || iKey instanceof Long || iKey instanceof Short
+        || iKey instanceof Byte || iKey instanceof Boolean || iKey instanceof Character || iKey instanceof Double
+        || iKey instanceof Float || iKey instanceof BigDecimal || iKey instanceof BigInteger;
   }
 
   /**
@@ -170,67 +243,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     acquireExclusiveLock();
     try {
 
-      final ORID rid = (ORID) iConfig.field(CONFIG_MAP_RID, ORID.class);
-      if (rid == null)
-        throw new OIndexException("Error during deserialization of index definition: '" + CONFIG_MAP_RID + "' attribute is null");
-
-      configuration = iConfig;
-      name = configuration.field(OIndexInternal.CONFIG_NAME);
-
-      final ODocument indexDefinitionDoc = configuration.field(OIndexInternal.INDEX_DEFINITION);
-      if (indexDefinitionDoc != null) {
-        try {
-          final String indexDefClassName = configuration.field(OIndexInternal.INDEX_DEFINITION_CLASS);
-          final Class<?> indexDefClass = Class.forName(indexDefClassName);
-          indexDefinition = (OIndexDefinition) indexDefClass.getDeclaredConstructor().newInstance();
-          indexDefinition.fromStream(indexDefinitionDoc);
-
-        } catch (final ClassNotFoundException e) {
-          throw new OIndexException("Error during deserialization of index definition", e);
-        } catch (final NoSuchMethodException e) {
-          throw new OIndexException("Error during deserialization of index definition", e);
-        } catch (final InvocationTargetException e) {
-          throw new OIndexException("Error during deserialization of index definition", e);
-        } catch (final InstantiationException e) {
-          throw new OIndexException("Error during deserialization of index definition", e);
-        } catch (final IllegalAccessException e) {
-          throw new OIndexException("Error during deserialization of index definition", e);
-        }
-      } else {
-        // @COMPATIBILITY 1.0rc6 new index model was implemented
-        final Boolean isAutomatic = configuration.field(OIndexInternal.CONFIG_AUTOMATIC);
-        if (Boolean.TRUE.equals(isAutomatic)) {
-          final int pos = name.lastIndexOf('.');
-          if (pos < 0)
-            throw new OIndexException("Can not convert from old index model to new one. "
-                + "Invalid index name. Dot (.) separator should be present.");
-          final String className = name.substring(0, pos);
-          final String propertyName = name.substring(pos + 1);
-
-          final String keyTypeStr = configuration.field(OIndexInternal.CONFIG_KEYTYPE);
-          if (keyTypeStr == null)
-            throw new OIndexException("Can not convert from old index model to new one. " + "Index key type is absent.");
-          final OType keyType = OType.valueOf(keyTypeStr.toUpperCase(Locale.ENGLISH));
-          indexDefinition = new OPropertyIndexDefinition(className, propertyName, keyType);
-
-          configuration.removeField(OIndexInternal.CONFIG_AUTOMATIC);
-          configuration.removeField(OIndexInternal.CONFIG_KEYTYPE);
-        } else if (configuration.field(OIndexInternal.CONFIG_KEYTYPE) != null) {
-          final String keyTypeStr = configuration.field(OIndexInternal.CONFIG_KEYTYPE);
-          final OType keyType = OType.valueOf(keyTypeStr.toUpperCase(Locale.ENGLISH));
-
-          indexDefinition = new OSimpleKeyIndexDefinition(keyType);
-
-          configuration.removeField(OIndexInternal.CONFIG_KEYTYPE);
-        }
-      }
-
-      clustersToIndex.clear();
-      maxUpdatesBeforeSave = lazyUpdates();
-
-      final Collection<? extends String> clusters = configuration.field(CONFIG_CLUSTERS);
-      if (clusters != null)
-        clustersToIndex.addAll(clusters);
+      final ORID rid = loadConfiguration(iConfig);
 
       map = new OMVRBTreeDatabaseLazySave<Object, T>(getDatabase(), rid, maxUpdatesBeforeSave);
       try {
@@ -254,188 +267,125 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
+  public boolean hasRangeQuerySupport() {
+    return true;
+  }
+
   public boolean contains(final Object iKey) {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       return map.containsKey(iKey);
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
-  /**
-   * Returns a set of records with key between the range passed as parameter. Range bounds are included.
-   * <p/>
-   * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as values boundaries.
-   * 
-   * @param iRangeFrom
-   *          Starting range
-   * @param iRangeTo
-   *          Ending range
-   * @return a set of records with key between the range passed as parameter. Range bounds are included.
-   * @see com.orientechnologies.common.collection.OCompositeKey#compareTo(com.orientechnologies.common.collection.OCompositeKey)
-   * @see #getValuesBetween(Object, boolean, Object, boolean)
-   */
-  public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final Object iRangeTo) {
-    return getValuesBetween(iRangeFrom, true, iRangeTo, true);
-  }
-
-  /**
-   * Returns a set of documents with key between the range passed as parameter. Range bounds are included.
-   * 
-   * @param iRangeFrom
-   *          Starting range
-   * @param iRangeTo
-   *          Ending range
-   * @see #getEntriesBetween(Object, Object, boolean)
-   * @return
-   */
-  public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo) {
-    return getEntriesBetween(iRangeFrom, iRangeTo, true);
-  }
-
-  public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive) {
-    return getValuesMajor(fromKey, isInclusive, -1);
-  }
+  public Iterator<OIdentifiable> cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+      final boolean iToInclusive, final boolean iAscendantOrder, final int iFetchSize) {
+    if (iRangeFrom != null && iRangeTo != null && iRangeFrom.getClass() != iRangeTo.getClass())
+      throw new IllegalArgumentException("Range from-to parameters are of different types");
 
-  public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive) {
-    return getValuesMinor(toKey, isInclusive, -1);
+    return new ORangeCursor(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, iAscendantOrder,
+        iFetchSize > 0 ? iFetchSize : OGlobalConfiguration.INDEX_CURSOR_FETCH_SIZE.getValueAsInteger());
   }
 
-  public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive) {
-    return getEntriesMajor(fromKey, isInclusive, -1);
+  public ORID getIdentity() {
+    return ((OMVRBTreeProviderAbstract<Object, ?>) map.getProvider()).getRecord().getIdentity();
   }
 
-  public Collection<ODocument> getEntriesMinor(final Object toKey, final boolean isInclusive) {
-    return getEntriesMinor(toKey, isInclusive, -1);
+  protected void clearKeys() {
+    map.clear();
   }
 
   /**
-   * Returns a set of records with key between the range passed as parameter.
-   * <p/>
-   * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as values boundaries.
-   * 
-   * @param iRangeFrom
-   *          Starting range
-   * @param iFromInclusive
-   *          Indicates whether start range boundary is included in result.
-   * @param iRangeTo
-   *          Ending range
-   * @param iToInclusive
-   *          Indicates whether end range boundary is included in result.
-   * @return Returns a set of records with key between the range passed as parameter.
-   * @see com.orientechnologies.common.collection.OCompositeKey#compareTo(com.orientechnologies.common.collection.OCompositeKey)
+   * If the index supports it, the keys are collected and sorted first, then the MVRB-Tree is built bottom-up from them.
    */
-  public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
-      final boolean iToInclusive) {
-    return getValuesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, -1);
+  @Override
+  protected void beginRebuild() {
+    final OBinarySerializer<Object> keySerializer = ((OMVRBTreeMapProvider<Object, T>) map.getProvider()).getKeySerializer();
+    if (isBulkBuildSupported() && keySerializer != null && OGlobalConfiguration.INDEX_BULK_BUILD.getValueAsBoolean())
+      sorter = new OIndexKeySorter(keySerializer, OGlobalConfiguration.INDEX_BULK_BUILD_MAX_KEYS_IN_MEMORY.getValueAsInteger());
   }
 
-  public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo, final boolean iInclusive) {
-    return getEntriesBetween(iRangeFrom, iRangeTo, iInclusive, -1);
+  @Override
+  protected void rebuildKey(final Object iKey, final ODocument iDocument) {
+    if (sorter == null)
+      put(iKey, iDocument);
+    else if (iKey != null)
+      sorter.add(iKey, iDocument.getIdentity());
   }
 
-  public Collection<OIdentifiable> getValues(final Collection<?> iKeys) {
-    return getValues(iKeys, -1);
+  @Override
+  protected void endRebuild() {
+    if (sorter != null)
+      buildFromSorted(sorter);
   }
 
-  public Collection<ODocument> getEntries(final Collection<?> iKeys) {
-    return getEntries(iKeys, -1);
+  @Override
+  protected void closeRebuild() {
+    if (sorter != null) {
+      sorter.close();
+      sorter = null;
+    }
   }
 
-  public ORID getIdentity() {
-    return ((OMVRBTreeProviderAbstract<Object, ?>) map.getProvider()).getRecord().getIdentity();
+  /**
+   * Tells if the rebuild can collect the keys and build the MVRB-Tree from them sorted with {@link #createBulkValue(Object, List)}.
+   * Returns false if the index doesn't put the keys of the records as they are.
+   */
+  protected boolean isBulkBuildSupported() {
+    return true;
   }
 
-  public long rebuild() {
-    return rebuild(null);
+  /**
+   * Checks the records indexed under the key while the index is rebuilt, before any node of the MVRB-Tree is written.
+   * 
+   * @param iKey
+   *          Key of the index
+   * @param iRids
+   *          RIDs of the records in the order they have been found
+   */
+  protected void checkBulkValue(final Object iKey, final List<ORID> iRids) {
   }
 
   /**
-   * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+   * Creates the value of the key from all the records indexed under it while the index is rebuilt, as {@link #put(Object,
+   * OIdentifiable)} would do adding them one by one.
+   * 
+   * @param iKey
+   *          Key of the index
+   * @param iRids
+   *          RIDs of the records in the order they have been found
    */
-  public long rebuild(final OProgressListener iProgressListener) {
-    long documentIndexed = 0;
+  protected abstract T createBulkValue(final Object iKey, final List<ORID> iRids);
+
+  private void buildFromSorted(final OIndexKeySorter iSorter) {
+    // FIRST PASS: COUNT AND CHECK THE KEYS, SO A WRONG KEY DOESN'T LEAVE A PARTIAL TREE
+    int keys = 0;
+    for (Entry<Object, List<ORID>> entry : iSorter) {
+      checkBulkValue(entry.getKey(), entry.getValue());
+      keys++;
+    }
 
-    final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
+    final Iterator<Entry<Object, List<ORID>>> sortedKeys = iSorter.iterator();
 
-    acquireExclusiveLock();
-    try {
-      try {
-        map.clear();
-      } catch (Exception e) {
-        // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
+    map.buildFromSorted(new Iterator<Entry<Object, T>>() {
+      public boolean hasNext() {
+        return sortedKeys.hasNext();
       }
 
-      int documentNum = 0;
-      long documentTotal = 0;
-
-      for (final String cluster : clustersToIndex)
-        documentTotal += getDatabase().countClusterElements(cluster);
-
-      if (iProgressListener != null)
-        iProgressListener.onBegin(this, documentTotal);
-
-      for (final String clusterName : clustersToIndex)
-        try {
-          for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
-            if (record instanceof ODocument) {
-              final ODocument doc = (ODocument) record;
-
-              if (indexDefinition == null)
-                throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
-                    + indexDefinition + ")");
-
-              final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
-
-              if (fieldValue != null) {
-                if (fieldValue instanceof Collection) {
-                  for (final Object fieldValueItem : (Collection<?>) fieldValue) {
-                    put(fieldValueItem, doc);
-                  }
-                } else
-                  put(fieldValue, doc);
-
-                ++documentIndexed;
-              }
-            }
-            documentNum++;
-
-            if (iProgressListener != null)
-              iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
-          }
-        } catch (NoSuchElementException e) {
-          // END OF CLUSTER REACHED, IGNORE IT
-        }
-
-      lazySave();
-
-      if (iProgressListener != null)
-        iProgressListener.onCompletition(this, true);
-
-    } catch (final Exception e) {
-      if (iProgressListener != null)
-        iProgressListener.onCompletition(this, false);
-
-      try {
-        map.clear();
-      } catch (Exception e2) {
-        // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
+      public Entry<Object, T> next() {
+        final Entry<Object, List<ORID>> entry = sortedKeys.next();
+        return new AbstractMap.SimpleImmutableEntry<Object, T>(entry.getKey(), createBulkValue(entry.getKey(), entry.getValue()));
       }
 
-      throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
-
-    } finally {
-      if (intentInstalled)
-        getDatabase().declareIntent(null);
-
-      releaseExclusiveLock();
-    }
-
-    return documentIndexed;
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    }, keys);
   }
 
   public boolean remove(final Object iKey, final OIdentifiable iValue) {
@@ -555,60 +505,6 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
-  public String getName() {
-    return name;
-  }
-
-  public String getType() {
-    return type;
-  }
-
-  @Override
-  public String toString() {
-    return name;
-  }
-
-  public OIndexInternal<T> getInternal() {
-    return this;
-  }
-
-  public Set<String> getClusters() {
-
-    acquireSharedLock();
-    try {
-
-      return Collections.unmodifiableSet(clustersToIndex);
-
-    } finally {
-      releaseSharedLock();
-    }
-  }
-
-  public OIndexMVRBTreeAbstract<T> addCluster(final String iClusterName) {
-    acquireExclusiveLock();
-    try {
-      if (clustersToIndex.add(iClusterName))
-        updateConfiguration();
-      return this;
-    } finally {
-      releaseExclusiveLock();
-    }
-  }
-
-  public OIndexMVRBTreeAbstract<T> removeCluster(String iClusterName) {
-    acquireExclusiveLock();
-    try {
-      if (clustersToIndex.remove(iClusterName))
-        updateConfiguration();
-      return this;
-    } finally {
-      releaseExclusiveLock();
-    }
-  }
-
-  public void checkEntry(final OIdentifiable iRecord, final Object iKey) {
-  }
-
   public void unload() {
 
     acquireExclusiveLock();
@@ -621,117 +517,19 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
-  public ODocument updateConfiguration() {
-
-    acquireExclusiveLock();
-    try {
-
-      configuration.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
-
-      try {
-        configuration.field(OIndexInternal.CONFIG_TYPE, type);
-        configuration.field(OIndexInternal.CONFIG_NAME, name);
-
-        if (indexDefinition != null) {
-          final ODocument indexDefDocument = indexDefinition.toStream();
-          if (!indexDefDocument.hasOwners())
-            indexDefDocument.addOwner(configuration);
-
-          configuration.field(OIndexInternal.INDEX_DEFINITION, indexDefDocument, OType.EMBEDDED);
-          configuration.field(OIndexInternal.INDEX_DEFINITION_CLASS, indexDefinition.getClass().getName());
-        } else {
-          configuration.removeField(OIndexInternal.INDEX_DEFINITION);
-          configuration.removeField(OIndexInternal.INDEX_DEFINITION_CLASS);
-        }
-
-        configuration.field(CONFIG_CLUSTERS, clustersToIndex, OType.EMBEDDEDSET);
-        configuration.field(CONFIG_MAP_RID, ((OMVRBTreeProviderAbstract<Object, ?>) map.getProvider()).getRecord().getIdentity());
-
-      } finally {
-        configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
-      }
-
-    } finally {
-      releaseExclusiveLock();
-    }
-    return configuration;
-  }
-
-  @SuppressWarnings("unchecked")
+  @Override
   public void commit(final ODocument iDocument) {
     if (iDocument == null)
       return;
 
-    acquireExclusiveLock();
+    map.setRunningTransaction(true);
     try {
-      map.setRunningTransaction(true);
-
-      final Boolean clearAll = (Boolean) iDocument.field("clear");
-      if (clearAll != null && clearAll)
-        clear();
-
-      final Collection<ODocument> entries = iDocument.field("entries");
-
-      for (final ODocument entry : entries) {
-        final String serializedKey = OStringSerializerHelper.decode((String) entry.field("k"));
-
-        final Object key;
-
-        try {
-          if (serializedKey.equals("*"))
-            key = "*";
-          else {
-            final ODocument keyContainer = new ODocument();
-            keyContainer.setLazyLoad(false);
-
-            keyContainer.fromString(serializedKey);
-
-            final Object storedKey = keyContainer.field("key");
-            if (storedKey instanceof List)
-              key = new OCompositeKey((List<? extends Comparable<?>>) storedKey);
-            else if (Boolean.TRUE.equals(keyContainer.field("binary"))) {
-              key = OStreamSerializerAnyStreamable.INSTANCE.fromStream((byte[]) storedKey);
-            } else
-              key = storedKey;
-          }
-        } catch (IOException ioe) {
-          throw new OTransactionException("Error during index changes deserialization. ", ioe);
-        }
-
-        final List<ODocument> operations = (List<ODocument>) entry.field("ops");
-        if (operations != null) {
-          for (final ODocument op : operations) {
-            final int operation = (Integer) op.rawField("o");
-            final OIdentifiable value = op.field("v", OType.LINK);
-
-            if (operation == OPERATION.PUT.ordinal())
-              put(key, value);
-            else if (operation == OPERATION.REMOVE.ordinal()) {
-              if (key.equals("*"))
-                remove(value);
-              else if (value == null)
-                remove(key);
-              else
-                remove(key, value);
-            }
-          }
-        }
-      }
-
+      super.commit(iDocument);
     } finally {
-      releaseExclusiveLock();
       map.setRunningTransaction(false);
     }
   }
 
-  public ODocument getConfiguration() {
-    return configuration;
-  }
-
-  public boolean isAutomatic() {
-    return indexDefinition != null && indexDefinition.getClassName() != null;
-  }
-
   protected void installHooks(final ODatabaseRecord iDatabase) {
     final OJVMProfiler profiler = Orient.instance().getProfiler();
     final String profilerPrefix = profiler.getDatabaseMetric(iDatabase.getName(), "index." + name + '.');
@@ -786,15 +584,6 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     iDatabase.unregisterListener(this);
   }
 
-  public void onCreate(final ODatabase iDatabase) {
-  }
-
-  public void onDelete(final ODatabase iDatabase) {
-  }
-
-  public void onOpen(final ODatabase iDatabase) {
-  }
-
   public void onBeforeTxBegin(final ODatabase iDatabase) {
     acquireExclusiveLock();
     try {
@@ -806,15 +595,6 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
-  public void onBeforeTxRollback(final ODatabase iDatabase) {
-  }
-
-  public boolean onCorruptionRepairDatabase(final ODatabase iDatabase, final String iReason, String iWhatWillbeFixed) {
-    if (iReason.equals("load"))
-      return true;
-    return false;
-  }
-
   public void onAfterTxRollback(final ODatabase iDatabase) {
 
     acquireExclusiveLock();
@@ -827,9 +607,6 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
-  public void onBeforeTxCommit(final ODatabase iDatabase) {
-  }
-
   public void onAfterTxCommit(final ODatabase iDatabase) {
     acquireExclusiveLock();
     try {
@@ -875,77 +652,143 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
-  protected void checkForKeyType(final Object iKey) {
-    if (indexDefinition == null) {
-      // RECOGNIZE THE KEY TYPE AT RUN-TIME
+  /**
+   * Cursor over a range of keys. The values are read in batches of the fetch size, every batch under the read lock starting from
+   * the last key read, so the index is never locked between two batches and the tree can unload its nodes meanwhile. A key with
+   * more values than the ones left in the batch is split across batches: the next batch skips the values of the key already read.
+   */
+  protected class ORangeCursor implements Iterator<OIdentifiable> {
+    private final Object              rangeFrom;
+    private final boolean             fromInclusive;
+    private final Object              rangeTo;
+    private final boolean             toInclusive;
+    private final boolean             ascendantOrder;
+    private final int                 fetchSize;
+    private final List<OIdentifiable> batch;
+    private int                       batchPosition;
+    private Object                    lastKey;
+    private ORID                      lastKeyLastValue;
+    private boolean                   endReached;
+
+    protected ORangeCursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo, final boolean iToInclusive,
+        final boolean iAscendantOrder, final int iFetchSize) {
+      rangeFrom = iRangeFrom;
+      fromInclusive = iFromInclusive;
+      rangeTo = iRangeTo;
+      toInclusive = iToInclusive;
+      ascendantOrder = iAscendantOrder;
+      fetchSize = iFetchSize;
+      batch = new ArrayList<OIdentifiable>(iFetchSize);
+    }
 
-      final OType type = OType.getTypeByClass(iKey.getClass());
-      if (type == null)
-        return;
+    public boolean hasNext() {
+      if (batchPosition < batch.size())
+        return true;
 
-      indexDefinition = new OSimpleKeyIndexDefinition(type);
-      maxUpdatesBeforeSave = lazyUpdates();
-      updateConfiguration();
+      if (endReached)
+        return false;
+
+      fetchNextBatch();
+      return batchPosition < batch.size();
     }
-  }
 
-  protected ODatabaseRecord getDatabase() {
-    return ODatabaseRecordThreadLocal.INSTANCE.get();
-  }
+    public OIdentifiable next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
 
-  public OType[] getKeyTypes() {
-    if (indexDefinition == null)
-      return null;
+      return batch.get(batchPosition++);
+    }
 
-    return indexDefinition.getTypes();
-  }
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
 
-  public OIndexDefinition getDefinition() {
-    return indexDefinition;
-  }
+    @SuppressWarnings("unchecked")
+    private void fetchNextBatch() {
+      batch.clear();
+      batchPosition = 0;
 
-  public void freeze(boolean throwException) {
-    modificationLock.prohibitModifications(throwException);
-  }
+      acquireReadLock();
+      try {
+        OMVRBTreeEntry<Object, T> entry = null;
+        ORID resumeAfter = null;
+        if (lastKey == null)
+          entry = getFirstEntry();
+        else if (lastKeyLastValue != null) {
+          // THE LAST KEY HAS OTHER VALUES TO READ: THEY ARE SORTED BY RID, SO RESUME AFTER THE LAST ONE RETURNED EVEN IF SOME VALUES
+          // HAVE BEEN ADDED OR REMOVED IN THE MEANTIME
+          entry = map.getEntry(lastKey, OMVRBTree.PartialSearchMode.NONE);
+          resumeAfter = lastKeyLastValue;
+        }
+        if (entry == null && lastKey != null)
+          entry = ascendantOrder ? map.getHigherEntry(lastKey) : map.getLowerEntry(lastKey);
+
+        while (entry != null && batch.size() < fetchSize) {
+          final Object key = entry.getKey();
+          if (!isBeforeEnd(key)) {
+            entry = null;
+            break;
+          }
 
-  public void release() {
-    modificationLock.allowModifications();
-  }
+          lastKey = key;
+          lastKeyLastValue = null;
 
-  public void acquireModificationLock() {
-    modificationLock.requestModificationLock();
-  }
+          final T value = entry.getValue();
+          if (value instanceof Collection<?>) {
+            boolean keyFullyRead = true;
+            for (OIdentifiable identifiable : (Collection<? extends OIdentifiable>) value) {
+              if (resumeAfter != null && identifiable.getIdentity().compareTo(resumeAfter) <= 0)
+                continue;
 
-  public void releaseModificationLock() {
-    modificationLock.releaseModificationLock();
-  }
+              if (batch.size() >= fetchSize) {
+                keyFullyRead = false;
+                break;
+              }
+              batch.add(identifiable);
+            }
+            resumeAfter = null;
 
-  @Override
-  public boolean equals(final Object o) {
-    if (this == o)
-      return true;
-    if (o == null || getClass() != o.getClass())
-      return false;
+            if (!keyFullyRead) {
+              // BATCH FULL IN THE MIDDLE OF THE KEY
+              lastKeyLastValue = batch.get(batch.size() - 1).getIdentity();
+              break;
+            }
+          } else if (value != null)
+            batch.add((OIdentifiable) value);
 
-    final OIndexMVRBTreeAbstract<?> that = (OIndexMVRBTreeAbstract<?>) o;
+          entry = ascendantOrder ? OMVRBTree.next(entry) : OMVRBTree.previous(entry);
+        }
 
-    if (!name.equals(that.name))
-      return false;
+        if (entry == null)
+          endReached = true;
 
-    return true;
-  }
+      } finally {
+        releaseReadLock();
+      }
+    }
 
-  @Override
-  public int hashCode() {
-    return name.hashCode();
-  }
+    private OMVRBTreeEntry<Object, T> getFirstEntry() {
+      if (ascendantOrder) {
+        if (rangeFrom == null)
+          return map.isEmpty() ? null : map.getCeilingEntry(map.firstKey(), OMVRBTree.PartialSearchMode.NONE);
+        return fromInclusive ? map.getCeilingEntry(rangeFrom, OMVRBTree.PartialSearchMode.LOWEST_BOUNDARY) : map
+            .getHigherEntry(rangeFrom);
+      }
 
-  public String getDatabaseName() {
-    return databaseName;
-  }
+      if (rangeTo == null)
+        return map.isEmpty() ? null : map.getFloorEntry(map.lastKey(), OMVRBTree.PartialSearchMode.NONE);
+      return toInclusive ? map.getFloorEntry(rangeTo, OMVRBTree.PartialSearchMode.HIGHEST_BOUNDARY) : map.getLowerEntry(rangeTo);
+    }
+
+    private boolean isBeforeEnd(final Object iKey) {
+      final Object end = ascendantOrder ? rangeTo : rangeFrom;
+      if (end == null)
+        return true;
 
-  private int lazyUpdates() {
-    return isAutomatic() ? OGlobalConfiguration.INDEX_AUTO_LAZY_UPDATES.getValueAsInteger()
-        : OGlobalConfiguration.INDEX_MANUAL_LAZY_UPDATES.getValueAsInteger();
+      final int compare = ODefaultComparator.INSTANCE.compare(iKey, end);
+      if (ascendantOrder)
+        return compare < 0 || (compare == 0 && toInclusive);
+      return compare > 0 || (compare == 0 && fromInclusive);
+    }
   }
 }
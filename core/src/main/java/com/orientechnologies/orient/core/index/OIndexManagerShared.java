@@ -29,6 +29,7 @@ import com.orientechnologies.orient.core.db.record.ORecordTrackedSet;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 
 /**
  * Manages indexes at database level. A single instance is shared among multiple databases. Contentions are managed by r/w locks.
@@ -112,6 +113,8 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
   }
 
   private void removeClassPropertyIndex(final OIndex<?> idx) {
+    OSQLStatementCache.invalidate();
+
     final OIndexDefinition indexDefinition = idx.getDefinition();
     if (indexDefinition == null || indexDefinition.getClassName() == null)
       return;
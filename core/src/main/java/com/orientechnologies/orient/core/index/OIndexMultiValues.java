@@ -30,6 +30,7 @@ import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -48,35 +49,43 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
   }
 
   public Set<OIdentifiable> get(final Object iKey) {
+    final Set<OIdentifiable> values = getValueSnapshot(iKey);
 
-    acquireExclusiveLock();
-    try {
+    if (values == null)
+      return Collections.emptySet();
 
-      final OMVRBTreeRIDSet values = (OMVRBTreeRIDSet) map.get(iKey);
+    return new HashSet<OIdentifiable>(values);
+  }
 
-      if (values == null)
-        return Collections.emptySet();
+  public long count(final Object iKey) {
+    final Set<OIdentifiable> values = getValueSnapshot(iKey);
 
-      return new HashSet<OIdentifiable>(values);
+    if (values == null)
+      return 0;
 
-    } finally {
-      releaseExclusiveLock();
-    }
+    return values.size();
   }
 
-  public long count(final Object iKey) {
-    acquireExclusiveLock();
+  /**
+   * Returns a copy of the values for the key, taken from the lookup cache when possible. The copy is shared with the cache and
+   * must not be modified.
+   */
+  @SuppressWarnings("unchecked")
+  private Set<OIdentifiable> getValueSnapshot(final Object iKey) {
+    final CachedLookup lookup = getCachedLookup(iKey);
+    if (lookup != null)
+      return (Set<OIdentifiable>) lookup.value;
+
+    acquireReadLock();
     try {
 
       final OMVRBTreeRIDSet values = (OMVRBTreeRIDSet) map.get(iKey);
-
-      if (values == null)
-        return 0;
-
-      return values.size();
+      final Set<OIdentifiable> snapshot = values != null ? new HashSet<OIdentifiable>(values) : null;
+      cacheLookup(iKey, snapshot);
+      return snapshot;
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -110,6 +119,14 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
     }
   }
 
+  @Override
+  protected Set<OIdentifiable> createBulkValue(final Object iKey, final List<ORID> iRids) {
+    final Set<OIdentifiable> values = new OMVRBTreeRIDSet().setAutoConvert(false);
+    for (ORID rid : iRids)
+      values.add(rid);
+    return values;
+  }
+
   @Override
   public boolean remove(final Object iKey, final OIdentifiable iValue) {
     modificationLock.requestModificationLock();
@@ -165,7 +182,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
   public int count(final OIdentifiable iRecord) {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       Set<OIdentifiable> rids;
@@ -182,7 +199,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
       return tot;
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -194,7 +211,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
   public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
       final boolean iToInclusive, final int maxValuesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, Set<OIdentifiable>> firstEntry;
@@ -245,12 +262,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive, final int maxValuesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, Set<OIdentifiable>> firstEntry;
@@ -284,12 +301,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive, final int maxValuesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, Set<OIdentifiable>> lastEntry;
@@ -323,7 +340,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -331,7 +348,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
     final List<Object> sortedKeys = new ArrayList<Object>(iKeys);
     Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
       final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
 
@@ -353,12 +370,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive, final int maxEntriesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, Set<OIdentifiable>> firstEntry;
@@ -398,12 +415,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<ODocument> getEntriesMinor(Object toKey, boolean isInclusive, int maxEntriesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, Set<OIdentifiable>> lastEntry;
@@ -444,7 +461,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -456,7 +473,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
       iRangeTo = OType.convert(iRangeTo, types[0].getDefaultJavaType());
     }
 
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, Set<OIdentifiable>> firstEntry;
@@ -514,7 +531,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
 
   }
@@ -523,7 +540,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
     final List<Object> sortedKeys = new ArrayList<Object>(iKeys);
     Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
       final Set<ODocument> result = new ODocumentFieldsHashSet();
 
@@ -550,7 +567,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -558,7 +575,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
     if (map.size() == 0)
       return 0;
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
       OMVRBTreeEntry<Object, Set<OIdentifiable>> rootEntry = map.getRoot();
       long size = 0;
@@ -581,7 +598,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
       return size;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -596,26 +613,26 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 
   public Iterator<OIdentifiable> valuesIterator() {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       return new OFlattenIterator<OIdentifiable>(map.values().iterator());
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public Iterator<OIdentifiable> valuesInverseIterator() {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       return new OFlattenIterator<OIdentifiable>(((OMVRBTree.Values) map.values()).inverseIterator());
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ORecord;
+
+/**
+ * Hash index that allows multiple values for the same key. The few RIDs of a key are stored with it in its bucket, the many ones in
+ * a RID set of the key.
+ */
+public class OIndexNotUniqueHash extends OIndexLinearHashingAbstract<Set<OIdentifiable>> {
+
+  public static final String TYPE_ID = OClass.INDEX_TYPE.NOTUNIQUE_HASH.toString();
+
+  public OIndexNotUniqueHash() {
+    super(TYPE_ID);
+  }
+
+  public OIndexNotUniqueHash put(final Object iKey, final OIdentifiable iSingleValue) {
+    if (iKey == null)
+      return this;
+
+    modificationLock.requestModificationLock();
+
+    try {
+      acquireExclusiveLock();
+      try {
+        checkForKeyType(iKey);
+
+        if (!iSingleValue.getIdentity().isValid())
+          ((ORecord<?>) iSingleValue).save();
+
+        map.add(convertKey(iKey), iSingleValue.getIdentity());
+        return this;
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  public long getSize() {
+    acquireSharedLock();
+    try {
+      return map.getValueCount();
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  protected Set<OIdentifiable> createValue(final List<ORID> iRids) {
+    if (iRids == null)
+      return Collections.emptySet();
+    return new HashSet<OIdentifiable>(iRids);
+  }
+}
@@ -51,25 +51,24 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
   }
 
   public OIdentifiable get(final Object iKey) {
-    acquireExclusiveLock();
+    final CachedLookup lookup = getCachedLookup(iKey);
+    if (lookup != null)
+      return (OIdentifiable) lookup.value;
+
+    acquireReadLock();
     try {
 
-      return map.get(iKey);
+      final OIdentifiable value = map.get(iKey);
+      cacheLookup(iKey, value);
+      return value;
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public long count(final Object iKey) {
-    acquireExclusiveLock();
-    try {
-
-      return map.containsKey(iKey) ? 1 : 0;
-
-    } finally {
-      releaseExclusiveLock();
-    }
+    return get(iKey) != null ? 1 : 0;
   }
 
   public int remove(final OIdentifiable iRecord) {
@@ -98,7 +97,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
   public int count(final OIdentifiable iRecord) {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       int tot = 0;
@@ -110,7 +109,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
       return tot;
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -149,7 +148,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
     if (iRangeFrom.getClass() != iRangeTo.getClass())
       throw new IllegalArgumentException("Range from-to parameters are of different types");
 
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, OIdentifiable> firstEntry;
@@ -192,12 +191,12 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive, final int maxValuesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, OIdentifiable> firstEntry;
@@ -220,12 +219,12 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive, final int maxValuesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
 
@@ -251,7 +250,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -259,7 +258,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
     final List<Object> sortedKeys = new ArrayList<Object>(iKeys);
     Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
 
-    acquireExclusiveLock();
+    acquireReadLock();
 
     final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
     try {
@@ -275,12 +274,12 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive, final int maxEntriesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, OIdentifiable> firstEntry;
@@ -309,13 +308,13 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
 
   }
 
   public Collection<ODocument> getEntriesMinor(final Object toKey, final boolean isInclusive, final int maxEntriesToFetch) {
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
 
@@ -346,7 +345,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
 
   }
@@ -356,7 +355,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
     if (iRangeFrom.getClass() != iRangeTo.getClass())
       throw new IllegalArgumentException("Range from-to parameters are of different types");
 
-    acquireExclusiveLock();
+    acquireReadLock();
 
     try {
       final OMVRBTreeEntry<Object, OIdentifiable> firstEntry;
@@ -405,7 +404,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
 
   }
@@ -414,7 +413,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
     final List<Object> sortedKeys = new ArrayList<Object>(iKeys);
     Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
 
-    acquireExclusiveLock();
+    acquireReadLock();
 
     final Set<ODocument> result = new ODocumentFieldsHashSet();
     try {
@@ -435,7 +434,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
       return result;
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
 
   }
@@ -460,26 +459,26 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 
   public Iterator<OIdentifiable> valuesIterator() {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       return map.values().iterator();
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public Iterator<OIdentifiable> valuesInverseIterator() {
 
-    acquireExclusiveLock();
+    acquireReadLock();
     try {
 
       return ((OMVRBTree.Values) map.values()).inverseIterator();
 
     } finally {
-      releaseExclusiveLock();
+      releaseReadLock();
     }
   }
 
@@ -15,12 +15,16 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
@@ -391,6 +395,44 @@ public abstract class OIndexRemote<T> implements OIndex<T> {
     return getDatabase().command(cmd).execute(iRangeFrom, iRangeTo);
   }
 
+  /**
+   * Remote indexes are browsed with a single query, so the cursor iterates the whole result set fetched from the server. The
+   * entries are sorted by key on the client in the order requested.
+   */
+  public Iterator<OIdentifiable> cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+      final boolean iToInclusive, final boolean iAscendantOrder, final int iFetchSize) {
+    final StringBuilder query = new StringBuilder(String.format(QUERY_ENTRIES, name));
+    final List<Object> params = new ArrayList<Object>(2);
+
+    if (iRangeFrom != null) {
+      query.append(" where ");
+      query.append(iFromInclusive ? QUERY_GET_VALUES_BEETWEN_INCLUSIVE_FROM_CONDITION
+          : QUERY_GET_VALUES_BEETWEN_EXCLUSIVE_FROM_CONDITION);
+      params.add(iRangeFrom);
+    }
+
+    if (iRangeTo != null) {
+      query.append(params.isEmpty() ? " where " : QUERY_GET_VALUES_AND_OPERATOR);
+      query.append(iToInclusive ? QUERY_GET_VALUES_BEETWEN_INCLUSIVE_TO_CONDITION : QUERY_GET_VALUES_BEETWEN_EXCLUSIVE_TO_CONDITION);
+      params.add(iRangeTo);
+    }
+
+    final List<ODocument> entries = new ArrayList<ODocument>((Collection<ODocument>) getDatabase().command(
+        new OCommandSQL(query.toString())).execute(params.toArray()));
+
+    Collections.sort(entries, new Comparator<ODocument>() {
+      public int compare(final ODocument iEntry1, final ODocument iEntry2) {
+        final int compare = ODefaultComparator.INSTANCE.compare(iEntry1.field("key"), iEntry2.field("key"));
+        return iAscendantOrder ? compare : -compare;
+      }
+    });
+
+    final List<OIdentifiable> values = new ArrayList<OIdentifiable>(entries.size());
+    for (ODocument entry : entries)
+      values.add((OIdentifiable) entry.field("rid", OType.LINK));
+    return values.iterator();
+  }
+
   public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive, final int maxValuesToFetch) {
     if (maxValuesToFetch < 0)
       return getValuesMajor(fromKey, isInclusive);
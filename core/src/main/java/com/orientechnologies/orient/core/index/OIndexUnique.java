@@ -15,7 +15,10 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.List;
+
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.record.ORecord;
 
@@ -66,6 +69,20 @@ public class OIndexUnique extends OIndexOneValue {
     }
   }
 
+  @Override
+  protected void checkBulkValue(final Object iKey, final List<ORID> iRids) {
+    final ORID rid = iRids.get(0);
+    for (int i = 1; i < iRids.size(); ++i)
+      if (!iRids.get(i).equals(rid))
+        throw new OIndexException("Found duplicated key '" + iKey + "' on unique index '" + name + "' for record " + iRids.get(i)
+            + ". The record already present in the index is " + rid);
+  }
+
+  @Override
+  protected OIdentifiable createBulkValue(final Object iKey, final List<ORID> iRids) {
+    return iRids.get(0);
+  }
+
   public boolean canBeUsedInEqualityOperators() {
     return true;
   }
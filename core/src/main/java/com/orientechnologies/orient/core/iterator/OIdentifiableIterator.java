@@ -17,8 +17,10 @@ package com.orientechnologies.orient.core.iterator;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -26,7 +28,9 @@ import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
 
 /**
  * Iterator class to browse forward and backward the records of a cluster. Once browsed in a direction, the iterator cannot change
@@ -60,11 +64,20 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
 
   public long                           totalLength            = 0;
 
+  // RECORDS READ WITH ONE REQUEST FROM REMOTE STORAGES
+  private final int                     prefetchSize;
+  private Iterator<Map.Entry<ORecordId, ORawBuffer>> prefetched;
+  private ORecordId                     prefetchedLast;
+  private boolean                       prefetchedForward;
+  private ORecordId                     prefetchedRid;
+  private ORawBuffer                    prefetchedBuffer;
+
   public OIdentifiableIterator(final ODatabaseRecord iDatabase, final ODatabaseRecordAbstract iLowLevelDatabase) {
     database = iDatabase;
     lowLevelDatabase = iLowLevelDatabase;
 
     dbStorage = iLowLevelDatabase.getStorage();
+    prefetchSize = dbStorage instanceof OStorageProxy ? OGlobalConfiguration.CLIENT_PREFETCH_SIZE.getValueAsInteger() : 0;
 
     current.clusterPosition = OClusterPosition.INVALID_POSITION; // DEFAULT = START FROM THE BEGIN
   }
@@ -232,7 +245,12 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
     if (!nextPosition(iMovement))
       return null;
 
-    if (iRecord != null) {
+    final ORawBuffer buffer = takePrefetched();
+    if (buffer != null) {
+      if (iRecord != null)
+        iRecord.setIdentity(current);
+      iRecord = lowLevelDatabase.executeReadRecord(current, iRecord, fetchPlan, false, buffer);
+    } else if (iRecord != null) {
       iRecord.setIdentity(current);
       iRecord = lowLevelDatabase.load(iRecord, fetchPlan);
     } else
@@ -251,7 +269,8 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
 
       for (int i = 0; i < iMovement; ++i) {
         // get next record from cluster
-        currentEntry = dbStorage.getNextClusterPosition(current.clusterId, currentEntry);
+        currentEntry = isPrefetchEnabled() ? nextPrefetched(true) : dbStorage.getNextClusterPosition(current.clusterId,
+            currentEntry);
       }
 
       totalLength += iMovement;
@@ -265,7 +284,8 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
 
       for (int i = 0; i > iMovement; --i) {
         // get next record from cluster
-        currentEntry = dbStorage.getPrevClusterPosition(current.clusterId, currentEntry);
+        currentEntry = isPrefetchEnabled() ? nextPrefetched(false) : dbStorage.getPrevClusterPosition(current.clusterId,
+            currentEntry);
       }
 
       if (currentEntry.compareTo(firstClusterEntry) < 0)
@@ -284,4 +304,59 @@ public abstract class OIdentifiableIterator<REC extends OIdentifiable> implement
   protected OClusterPosition currentPosition() {
     return currentEntry;
   }
+
+  /**
+   * Records are read in pages only from remote storages, when the range can't change while browsing. The server applies the fetch
+   * plan to every page.
+   */
+  private boolean isPrefetchEnabled() {
+    return prefetchSize > 0 && !liveUpdated;
+  }
+
+  /**
+   * Moves to the next position using the records already read. When the page is over, or the iterator has been moved in the
+   * meanwhile, reads the next page with one request.
+   * 
+   * @return The next position, or {@link OClusterPosition#INVALID_POSITION} if there are no more records
+   */
+  private OClusterPosition nextPrefetched(final boolean iForward) {
+    prefetchedRid = null;
+    prefetchedBuffer = null;
+
+    if (prefetched == null || !prefetched.hasNext() || prefetchedForward != iForward || prefetchedLast == null
+        || prefetchedLast.clusterId != current.clusterId || !prefetchedLast.clusterPosition.equals(currentEntry)) {
+      int pageSize = prefetchSize;
+      if (limit > -1)
+        pageSize = (int) Math.max(Math.min(pageSize, limit - browsedRecords), 1);
+
+      prefetched = ((OStorageProxy) dbStorage).browseCluster(current.clusterId, currentEntry, pageSize, iForward, fetchPlan)
+          .entrySet().iterator();
+      prefetchedForward = iForward;
+    }
+
+    if (!prefetched.hasNext()) {
+      prefetched = null;
+      prefetchedLast = null;
+      return OClusterPosition.INVALID_POSITION;
+    }
+
+    final Map.Entry<ORecordId, ORawBuffer> entry = prefetched.next();
+    prefetchedRid = entry.getKey();
+    prefetchedBuffer = entry.getValue();
+    prefetchedLast = prefetchedRid;
+    return prefetchedRid.clusterPosition;
+  }
+
+  /**
+   * Returns the content of the current record if already read with the last page, only once.
+   */
+  private ORawBuffer takePrefetched() {
+    if (prefetchedBuffer == null || !prefetchedRid.equals(current))
+      return null;
+
+    final ORawBuffer buffer = prefetchedBuffer;
+    prefetchedRid = null;
+    prefetchedBuffer = null;
+    return buffer;
+  }
 }
@@ -32,6 +32,12 @@ public interface OFunctionLibrary {
 
   public void create();
 
+  /**
+   * Returns a number that changes every time the functions are created or loaded, so what is built from the functions, like the
+   * compiled script libraries, can be rebuilt only when needed.
+   */
+  public long getVersion();
+
   public void load();
 
   public void close();
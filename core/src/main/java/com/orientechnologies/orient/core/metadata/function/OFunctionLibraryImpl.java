@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.script.OCommandExecutorFunction;
@@ -39,6 +40,7 @@ import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
  */
 public class OFunctionLibraryImpl implements OFunctionLibrary {
   protected Map<String, OFunction> functions = new ConcurrentHashMap<String, OFunction>();
+  protected final AtomicLong       version   = new AtomicLong();
 
   static {
     OCommandManager.instance().registerExecutor(OCommandFunction.class, OCommandExecutorFunction.class);
@@ -52,6 +54,8 @@ public class OFunctionLibraryImpl implements OFunctionLibrary {
   }
 
   public void load() {
+    // CHANGE THE VERSION ALSO BEFORE: WHO READS THE FUNCTIONS DURING THE LOADING BUILDS ON A VERSION THAT WILL BE OBSOLETE
+    version.incrementAndGet();
     functions.clear();
 
     // LOAD ALL THE FUNCTIONS IN MEMORY
@@ -63,6 +67,11 @@ public class OFunctionLibraryImpl implements OFunctionLibrary {
         functions.put(d.field("name").toString().toUpperCase(), new OFunction(d));
       }
     }
+    version.incrementAndGet();
+  }
+
+  public long getVersion() {
+    return version.get();
   }
 
   public Set<String> getFunctionNames() {
@@ -78,12 +87,14 @@ public class OFunctionLibraryImpl implements OFunctionLibrary {
 
     final OFunction f = new OFunction().setName(iName);
     functions.put(iName.toUpperCase(), f);
+    version.incrementAndGet();
 
     return f;
   }
 
   public void close() {
     functions.clear();
+    version.incrementAndGet();
   }
 
   protected void init() {
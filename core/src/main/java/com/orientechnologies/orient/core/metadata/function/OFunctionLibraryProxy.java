@@ -56,6 +56,11 @@ public class OFunctionLibraryProxy extends OProxedResource<OFunctionLibrary> imp
     delegate.load();
   }
 
+  @Override
+  public long getVersion() {
+    return delegate.getVersion();
+  }
+
   @Override
   public void close() {
     delegate.close();
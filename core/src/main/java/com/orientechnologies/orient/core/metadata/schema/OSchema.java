@@ -91,4 +91,21 @@ public interface OSchema {
    *          Cluster name
    */
   public Set<OClass> getClassesRelyOnCluster(String iClusterName);
+
+  /**
+   * Returns the id of a property name in the binary record format, or -1 if no id has been assigned yet. Ids are shared by all
+   * the classes, are assigned when the schema is saved and are never reused.
+   * 
+   * @param iFieldName
+   *          Property name
+   */
+  public int getFieldId(String iFieldName);
+
+  /**
+   * Returns the property name with the requested id in the binary record format, or null if unknown.
+   * 
+   * @param iFieldId
+   *          Id returned by {@link #getFieldId(String)}
+   */
+  public String getFieldName(int iFieldId);
 }
\ No newline at end of file
@@ -186,4 +186,12 @@ public class OSchemaProxy extends OProxedResource<OSchemaShared> implements OSch
   public Set<OClass> getClassesRelyOnCluster(final String iClusterName) {
     return delegate.getClassesRelyOnCluster(iClusterName);
   }
+
+  public int getFieldId(final String iFieldName) {
+    return delegate.getFieldId(iFieldName);
+  }
+
+  public String getFieldName(final int iFieldId) {
+    return delegate.getFieldName(iFieldId);
+  }
 }
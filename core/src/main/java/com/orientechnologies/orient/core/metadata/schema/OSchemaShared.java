@@ -15,12 +15,16 @@
  */
 package com.orientechnologies.orient.core.metadata.schema;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.orientechnologies.common.concur.resource.OCloseable;
 import com.orientechnologies.common.util.OArrays;
@@ -40,8 +44,10 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
 
@@ -53,11 +59,15 @@ import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
  */
 @SuppressWarnings("unchecked")
 public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, OCloseable {
-  private static final long     serialVersionUID       = 1L;
+  private static final long          serialVersionUID       = 1L;
 
-  public static final int       CURRENT_VERSION_NUMBER = 4;
-  private static final String   DROP_INDEX_QUERY       = "drop index ";
-  protected Map<String, OClass> classes                = new HashMap<String, OClass>();
+  public static final int            CURRENT_VERSION_NUMBER = 4;
+  private static final String        DROP_INDEX_QUERY       = "drop index ";
+  protected Map<String, OClass>      classes                = new HashMap<String, OClass>();
+
+  // FIELD IDS OF THE BINARY RECORD FORMAT: THE POSITION IN THE LIST IS THE ID
+  private final List<String>         fieldNames             = new CopyOnWriteArrayList<String>();
+  private final Map<String, Integer> fieldIds               = new ConcurrentHashMap<String, Integer>();
 
   public OSchemaShared(final int schemaClusterId) {
     super(new ODocument());
@@ -259,6 +269,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
               index.getInternal().addCluster(clusterName);
         }
 
+        OSQLStatementCache.invalidate();
         return cls;
       }
     }, true);
@@ -361,6 +372,8 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
         if (cls.getShortName() != null)
           // REMOVE THE ALIAS TOO
           classes.remove(cls.getShortName().toLowerCase());
+
+        OSQLStatementCache.invalidate();
         return null;
       }
     }, true);
@@ -439,9 +452,19 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
     return cls;
   }
 
+  public int getFieldId(final String iFieldName) {
+    final Integer id = fieldIds.get(iFieldName);
+    return id != null ? id : -1;
+  }
+
+  public String getFieldName(final int iFieldId) {
+    return iFieldId > -1 && iFieldId < fieldNames.size() ? fieldNames.get(iFieldId) : null;
+  }
+
   public void changeClassName(String iOldName, String iNewName) {
     OClass clazz = classes.remove(iOldName.toLowerCase());
     classes.put(iNewName.toLowerCase(), clazz);
+    OSQLStatementCache.invalidate();
   }
 
   /**
@@ -489,6 +512,14 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
         cls.setSuperClassInternal(superClass);
       }
     }
+
+    final List<String> storedFieldNames = document.field("fieldNames");
+    if (storedFieldNames != null)
+      for (String fieldName : storedFieldNames)
+        registerFieldName(fieldName);
+
+    // PARSED STATEMENTS POINT TO THE OLD CLASSES
+    OSQLStatementCache.invalidate();
   }
 
   /**
@@ -508,6 +539,15 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
       document.field("classes", cc, OType.EMBEDDEDSET);
 
+      final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+      if (db != null && !(db.getStorage() instanceof OStorageProxy))
+        // ASSIGN THE IDS TO THE NEW PROPERTIES, REMOTE CLIENTS RECEIVE THEM WITH THE SCHEMA
+        for (OClass c : classes.values())
+          for (OProperty p : c.declaredProperties())
+            registerFieldName(p.getName());
+
+      document.field("fieldNames", new ArrayList<String>(fieldNames), OType.EMBEDDEDLIST);
+
     } finally {
       document.setInternalStatus(ORecordElement.STATUS.LOADED);
     }
@@ -640,7 +680,16 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
     document.clear();
   }
 
+  private synchronized void registerFieldName(final String iFieldName) {
+    if (!fieldIds.containsKey(iFieldName)) {
+      // ADD THE NAME BEFORE THE ID, SO WHO FINDS THE ID CAN ALWAYS RESOLVE IT
+      fieldNames.add(iFieldName);
+      fieldIds.put(iFieldName, fieldNames.size() - 1);
+    }
+  }
+
   private void saveInternal(final String iClusterName) {
+    OSQLStatementCache.invalidate();
     document.setDirty();
     super.save(OMetadata.CLUSTER_INTERNAL_NAME);
   }
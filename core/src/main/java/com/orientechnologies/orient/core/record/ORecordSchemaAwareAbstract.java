@@ -55,7 +55,9 @@ public abstract class ORecordSchemaAwareAbstract<T> extends ORecordAbstract<T> i
       return;
 
     checkForLoading();
-    checkForFields();
+    if (!isLoadableByField())
+      // LOAD ALL THE FIELDS AT ONCE, OTHERWISE EVERY PROPERTY IS LOADED WHEN CHECKED
+      checkForFields();
 
     if (_clazz != null) {
       if (_clazz.isStrictMode()) {
@@ -135,6 +137,14 @@ public abstract class ORecordSchemaAwareAbstract<T> extends ORecordAbstract<T> i
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Tells if the single fields can be deserialized without parsing the entire content. In this case loading the fields one at a
+   * time is cheaper than loading all of them.
+   */
+  public boolean isLoadableByField() {
+    return false;
+  }
+
   protected boolean checkForFields(final String... iFields) {
     if (_status == ORecordElement.STATUS.LOADED && fields() == 0)
       // POPULATE FIELDS LAZY
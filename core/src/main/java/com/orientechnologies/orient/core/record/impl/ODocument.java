@@ -59,7 +59,10 @@ import com.orientechnologies.orient.core.record.ORecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAwareAbstract;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBinaryFieldTable;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
 /**
@@ -76,6 +79,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   protected Map<String, OType>                                           _fieldTypes;
   protected Map<String, OSimpleMultiValueChangeListener<String, Object>> _fieldChangeListeners;
   protected Map<String, OMultiValueChangeTimeLine<String, Object>>       _fieldCollectionChangeTimeLines;
+  protected OBinaryFieldTable                                            _fieldTable;
 
   protected boolean                                                      _trackingChanges = true;
   protected boolean                                                      _ordered         = true;
@@ -236,7 +240,13 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
    * instance has the same identity and values but all the internal structure are totally independent by the source.
    */
   public ODocument copy() {
-    return copy((ODocument) copyTo(new ODocument()));
+    final ODocument destination = (ODocument) copyTo(new ODocument());
+    if (!isLoadableByField())
+      return copy(destination);
+
+    // THE COPY SHARES THE CONTENT: THE FIELDS NOT LOADED YET ARE LOADED BY EACH INSTANCE ON ITS OWN
+    destination._fieldTable = _fieldTable;
+    return copyLoadedFields(destination);
   }
 
   /**
@@ -246,6 +256,10 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     // TODO: REMOVE THIS
     checkForFields();
 
+    return copyLoadedFields(iDestination);
+  }
+
+  private ODocument copyLoadedFields(final ODocument iDestination) {
     iDestination._ordered = _ordered;
     iDestination._clazz = _clazz;
     iDestination._trackingChanges = _trackingChanges;
@@ -647,7 +661,11 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     iFieldName = checkFieldName(iFieldName);
 
     checkForLoading();
-    checkForFields();
+    if (isLoadableByField())
+      // LOAD ONLY THIS FIELD: THE OTHERS ARE COPIED AS THEY ARE WHEN THE RECORD IS SAVED
+      checkForFields(iFieldName);
+    else
+      checkForFields();
 
     final boolean knownProperty = _fieldValues.containsKey(iFieldName);
     final Object oldValue = _fieldValues.get(iFieldName);
@@ -993,8 +1011,14 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
           e.setDirty();
       }
     }
-    // THIS IS IMPORTANT TO BE SURE THAT FIELDS ARE LOADED BEFORE IT'S TOO LATE AND THE RECORD _SOURCE IS NULL
-    checkForFields();
+    if (_status == STATUS.LOADED && isLoadableByField()) {
+      // KEEP THE CONTENT IN THE FIELD TABLE: THE FIELDS NOT LOADED YET ARE READ FROM IT WHEN NEEDED
+      if (_source != null && (_fieldTable == null || _fieldTable.getSource() != _source))
+        _fieldTable = new OBinaryFieldTable(_source);
+      _source = null;
+    } else
+      // THIS IS IMPORTANT TO BE SURE THAT FIELDS ARE LOADED BEFORE IT'S TOO LATE AND THE RECORD _SOURCE IS NULL
+      checkForFields();
 
     return super.setDirty();
   }
@@ -1037,6 +1061,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     _fieldOriginalValues = null;
     _fieldChangeListeners = null;
     _fieldCollectionChangeTimeLines = null;
+    _fieldTable = null;
 
     super.fromStream(iRecordBuffer);
 
@@ -1102,6 +1127,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 
   protected void internalReset() {
     removeAllCollectionChangeListeners();
+    _fieldTable = null;
 
     if (_fieldCollectionChangeTimeLines != null)
       _fieldCollectionChangeTimeLines.clear();
@@ -1192,10 +1218,12 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
    * Returns the number of fields in memory.
    */
   public int fields() {
+    checkForPendingFields();
     return _fieldValues == null ? 0 : _fieldValues.size();
   }
 
   public boolean isEmpty() {
+    checkForPendingFields();
     return _fieldValues == null || _fieldValues.isEmpty();
   }
 
@@ -1208,20 +1236,65 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     if (_fieldValues == null)
       _fieldValues = _ordered ? new LinkedHashMap<String, Object>() : new HashMap<String, Object>();
 
-    if (_status == ORecordElement.STATUS.LOADED && _source != null)
+    if (_status == ORecordElement.STATUS.LOADED && (_source != null || _fieldTable != null))
       // POPULATE FIELDS LAZY
       return deserializeFields(iFields);
 
     return true;
   }
 
+  /**
+   * Internal. Returns the offsets of the fields in the binary content the document has been read from, if any.
+   */
+  public OBinaryFieldTable getFieldTable() {
+    return _fieldTable;
+  }
+
   /**
    * Internal.
    */
+  public void setFieldTable(final OBinaryFieldTable iFieldTable) {
+    _fieldTable = iFieldTable;
+  }
+
+  /**
+   * Internal. Returns the names of the fields already deserialized, without loading the others.
+   */
+  public Set<String> getLoadedFieldNames() {
+    if (_fieldValues == null)
+      return Collections.emptySet();
+    return Collections.unmodifiableSet(_fieldValues.keySet());
+  }
+
+  /**
+   * Returns true if the content is in binary format, where every field is read on its own.
+   */
+  @Override
+  public boolean isLoadableByField() {
+    return _source != null ? ORecordSerializerSchemaAware2Binary.isBinary(_source) : _fieldTable != null;
+  }
+
+  /**
+   * Loads the fields not loaded yet of a changed document that keeps its original content in the field table.
+   */
+  private void checkForPendingFields() {
+    if (_source == null && _fieldTable != null)
+      checkForFields();
+  }
+
+  /**
+   * Internal. Uses the record format configured in the current database, CSV if none.
+   */
   @Override
   protected void setup() {
     super.setup();
-    _recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+
+    ORecordSerializer format = null;
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db != null && !db.isClosed() && db.getStorage().getConfiguration() != null)
+      format = ORecordSerializerFactory.instance().getFormat(db.getStorage().getConfiguration().getRecordSerializer());
+
+    _recordFormat = format != null ? format : ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
   }
 
   /**
@@ -1280,7 +1353,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
    */
   @Override
   public boolean deserializeFields(final String... iFields) {
-    if (_source == null)
+    if (_source == null && _fieldTable == null)
       // ALREADY UNMARSHALLED OR JUST EMPTY
       return true;
 
@@ -1320,7 +1393,10 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     if (_recordFormat == null)
       setup();
 
-    super.deserializeFields(iFields);
+    // THE CONTENT OF A CHANGED RECORD IS STILL AVAILABLE IN THE FIELD TABLE
+    _status = ORecordElement.STATUS.UNMARSHALLING;
+    _recordFormat.fromStream(_source != null ? _source : _fieldTable.getSource(), this, iFields);
+    _status = ORecordElement.STATUS.LOADED;
 
     if (iFields != null && iFields.length > 0) {
       if (iFields[0].startsWith("@"))
@@ -1335,9 +1411,11 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 
       // NO FIELDS FOUND
       return false;
-    } else if (_source != null)
+    } else {
       // FULL UNMARSHALLING
       _source = null;
+      _fieldTable = null;
+    }
 
     return true;
   }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Offsets of the fields of a record serialized by {@link ORecordSerializerSchemaAware2Binary}, collected with one pass on the
+ * field headers the first time a single field is requested. The document keeps it together with the serialized content, so every
+ * field is deserialized only when accessed and the fields never accessed are copied as they are when the document is serialized
+ * again.
+ */
+public class OBinaryFieldTable {
+  private final byte[]             source;
+  private Map<String, OFieldEntry> fields;
+
+  /**
+   * Position of a field in the serialized content.
+   */
+  static class OFieldEntry {
+    final int start;
+    final int typePosition;
+    final int end;
+
+    OFieldEntry(final int iStart, final int iTypePosition, final int iEnd) {
+      start = iStart;
+      typePosition = iTypePosition;
+      end = iEnd;
+    }
+  }
+
+  public OBinaryFieldTable(final byte[] iSource) {
+    source = iSource;
+  }
+
+  public byte[] getSource() {
+    return source;
+  }
+
+  boolean isIndexed() {
+    return fields != null;
+  }
+
+  void setFields(final LinkedHashMap<String, OFieldEntry> iFields) {
+    fields = iFields;
+  }
+
+  OFieldEntry getField(final String iFieldName) {
+    return fields.get(iFieldName);
+  }
+
+  Map<String, OFieldEntry> getFields() {
+    return fields;
+  }
+}
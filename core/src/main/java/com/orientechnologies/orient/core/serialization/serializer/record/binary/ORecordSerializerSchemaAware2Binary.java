@@ -0,0 +1,726 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.ODecimalSerializer;
+import com.orientechnologies.common.serialization.types.ODoubleSerializer;
+import com.orientechnologies.common.serialization.types.OFloatSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.OUserObject2RecordHandler;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.profiler.OJVMProfiler;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationLongIdThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBinaryFieldTable.OFieldEntry;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerCSVAbstract;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV.OFieldTypes;
+
+/**
+ * Compact binary format of documents. Field names of schema properties are written as ids assigned by the schema, numbers as
+ * variable length integers, links as fixed size RIDs and embedded documents recursively in the same format. Collections, maps
+ * and custom types keep the CSV format inside the binary field, so the lazy collections work unchanged. Every value is prefixed
+ * by its length, so the fields not requested are skipped without parsing them.
+ * <p>
+ * Layout: MAGIC, VERSION, class name, number of fields, then for every field:
+ * <ul>
+ * <li>header: (property id &lt;&lt; 1 | 1) or (name length &lt;&lt; 1) followed by the name as UTF-8</li>
+ * <li>type: OType id, NULL_TYPE for null, or'ed with CSV_ENCODED if the value is in CSV format</li>
+ * <li>length of the value and the value. CSV values are preceded by the linked type and the linked class</li>
+ * </ul>
+ * Records in CSV format are recognized and delegated to {@link ORecordSerializerSchemaAware2CSV}, that does the same for binary
+ * records, so a database can switch format at any time: the records are converted when saved again. The CSV format is UTF-8
+ * text, so it can't start with MAGIC: 0xFF is never part of UTF-8.
+ */
+public class ORecordSerializerSchemaAware2Binary implements ORecordSerializer {
+  public static final String                               NAME        = "ORecordDocument2binary";
+  public static final ORecordSerializerSchemaAware2Binary INSTANCE    = new ORecordSerializerSchemaAware2Binary();
+
+  public static final byte                                 MAGIC       = (byte) 0xFF;
+  private static final byte                                VERSION     = 1;
+  private static final byte                                NULL_TYPE   = -1;
+  private static final int                                 CSV_ENCODED = 0x40;
+
+  private static final OJVMProfiler                        PROFILER    = Orient.instance().getProfiler();
+
+  /**
+   * Tells if a stream has been written by this serializer.
+   */
+  public static boolean isBinary(final byte[] iSource) {
+    return iSource != null && iSource.length > 0 && iSource[0] == MAGIC;
+  }
+
+  public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+    if (!isBinary(iSource))
+      // WRITTEN BEFORE THE DATABASE SWITCHED TO THE BINARY FORMAT
+      return ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    final long timer = PROFILER.startChrono();
+    try {
+      if (iFields != null && iFields.length > 0)
+        // READ ONLY THE REQUESTED FIELDS THROUGH THEIR OFFSETS
+        return fromFieldTable(iSource, (ODocument) iRecord, iFields);
+
+      return fromBytes(new OBytesReader(iSource, 1), (ODocument) iRecord, null);
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.fromStream"), "Deserialize record from stream",
+          timer);
+    }
+  }
+
+  public byte[] toStream(final ORecordInternal<?> iRecord, final boolean iOnlyDelta) {
+    if (!(iRecord instanceof ODocument))
+      throw new OSerializationException("Cannot marshall a record of type " + iRecord.getClass().getSimpleName());
+
+    final long timer = PROFILER.startChrono();
+    try {
+      final ODocument record = (ODocument) iRecord;
+      final OMemoryStream out = new OMemoryStream(256);
+      toBytes(record, out, null, OSerializationLongIdThreadLocal.INSTANCE.get(), iOnlyDelta);
+
+      // GET THE OVERSIZE IF ANY
+      final float overSize = record.getSchemaClass() != null ? record.getSchemaClass().getOverSize() : 0;
+
+      // APPEND ZEROES IF NEEDED: THEY ARE IGNORED ON READING
+      final int newSize;
+      if (record.hasOwners())
+        // EMBEDDED: GET REAL SIZE
+        newSize = out.size();
+      else if (record.getSize() > out.size())
+        // FILL ALL THE AVAILABLE SPACE TO AVOID FRAGMENTATION
+        newSize = record.getSize();
+      else if (overSize > 0)
+        newSize = (int) (out.size() * overSize);
+      else
+        newSize = out.size();
+
+      final byte[] result = new byte[newSize];
+      System.arraycopy(out.getInternalBuffer(), 0, result, 0, out.size());
+      return result;
+
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.toStream"), "Serialize record to stream", timer);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+
+  protected void toBytes(final ODocument iRecord, final OMemoryStream iOutput, OUserObject2RecordHandler iObjHandler,
+      final Set<Long> iMarshalledRecords, final boolean iOnlyDelta) {
+    final Long identityRecord = ORecordSerializerSchemaAware2CSV.getSerializationId(iRecord);
+    if (iMarshalledRecords != null)
+      if (iMarshalledRecords.contains(identityRecord))
+        return;
+      else
+        iMarshalledRecords.add(identityRecord);
+
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (iObjHandler == null)
+      iObjHandler = db;
+    final OSchema schema = getSchema(db);
+
+    iOutput.write(MAGIC);
+    iOutput.write(VERSION);
+
+    if (!iOnlyDelta && iRecord.getSchemaClass() != null)
+      writeString(iOutput, iRecord.getSchemaClass().getStreamableName());
+    else
+      writeVarInt(iOutput, 0);
+
+    // THE FIELDS NEVER LOADED ARE COPIED AS THEY ARE FROM THE CONTENT THE RECORD HAS BEEN READ FROM
+    final OBinaryFieldTable table = iOnlyDelta ? null : iRecord.getFieldTable();
+    if (table != null && !table.isIndexed())
+      indexFields(table, schema);
+
+    final Set<String> loadedFields = table != null ? iRecord.getLoadedFieldNames() : null;
+    final String[] fieldNames;
+    if (iOnlyDelta && iRecord.isTrackingChanges())
+      fieldNames = iRecord.getDirtyFields();
+    else if (table != null)
+      fieldNames = loadedFields.toArray(new String[loadedFields.size()]);
+    else
+      fieldNames = iRecord.fieldNames();
+
+    final OFieldTypes fieldTypes = new OFieldTypes();
+    final OMemoryStream value = new OMemoryStream(64);
+    final StringBuilder csvValue = new StringBuilder();
+
+    // THE TRANSIENT FIELDS ARE SKIPPED: THE NUMBER OF FIELDS IS KNOWN ONLY AT THE END
+    final OMemoryStream fields = new OMemoryStream(256);
+    int fieldCount = 0;
+
+    for (String fieldName : fieldNames) {
+      Object fieldValue = iRecord.rawField(fieldName);
+
+      ORecordSerializerSchemaAware2CSV.INSTANCE.resolveFieldTypes(iRecord, fieldName, fieldValue, true, fieldTypes);
+      OType type = fieldTypes.type;
+
+      if (type == OType.TRANSIENT)
+        // TRANSIENT FIELD
+        continue;
+
+      if (type == null && fieldValue != null && !(fieldValue instanceof ODocument)) {
+        // THE CSV FORMAT RECOGNIZES THESE TYPES FROM THE TEXT WHEN READ: STORE THE TYPE
+        type = OType.getTypeByClass(fieldValue.getClass());
+        if (type == null && (fieldValue instanceof Enum<?> || fieldValue instanceof Character))
+          type = OType.STRING;
+      }
+
+      if (type == null)
+        type = OType.EMBEDDED;
+
+      // FIELD NAME: AS ID IF IT'S A SCHEMA PROPERTY WITH AN ID ASSIGNED
+      final int fieldId = schema != null && iRecord.getSchemaClass() != null
+          && iRecord.getSchemaClass().getProperty(fieldName) != null ? schema.getFieldId(fieldName) : -1;
+      if (fieldId > -1)
+        writeVarInt(fields, (fieldId << 1) | 1);
+      else {
+        final byte[] name = OBinaryProtocol.string2bytes(fieldName);
+        writeVarInt(fields, name.length << 1);
+        fields.write(name, 0, name.length);
+      }
+
+      fieldCount++;
+
+      if (type == OType.LINK && fieldValue instanceof OIdentifiable
+          && !(!((OIdentifiable) fieldValue).getIdentity().isValid() && fieldValue instanceof ODocument && ((ODocument) fieldValue)
+              .isEmbedded())) {
+        // SAVE THE LINKED RECORD IF NEEDED AND WRITE ITS RID
+        final OIdentifiable link = ORecordSerializerCSVAbstract.linkToStream(null, iRecord, fieldValue);
+        if (link != null) {
+          // OVERWRITE CONTENT
+          iRecord.field(fieldName, link);
+          fieldValue = link;
+        }
+        if (!((OIdentifiable) fieldValue).getIdentity().isValid())
+          fieldValue = null;
+      }
+
+      if (fieldValue == null) {
+        fields.write(NULL_TYPE);
+        continue;
+      }
+
+      value.reset();
+      if (writeValue(value, type, fieldValue, iObjHandler, iMarshalledRecords))
+        fields.write(type.getId());
+      else {
+        // NOT A SIMPLE VALUE: WRITE IT IN CSV FORMAT
+        fields.write(type.getId() | CSV_ENCODED);
+
+        value.write(fieldTypes.linkedType != null ? fieldTypes.linkedType.getId() : NULL_TYPE);
+        writeString(value, fieldTypes.linkedClass != null ? fieldTypes.linkedClass.getName() : null);
+
+        csvValue.setLength(0);
+        ORecordSerializerSchemaAware2CSV.INSTANCE.fieldToStream(iRecord, csvValue, iObjHandler, type, fieldTypes.linkedClass,
+            fieldTypes.linkedType, fieldName, fieldValue, iMarshalledRecords, true);
+        try {
+          OBinaryProtocol.string2bytes(csvValue.toString(), value);
+        } catch (IOException e) {
+          // NEVER HAPPENS WITH A MEMORY STREAM
+          throw new OSerializationException("Error on serializing the field '" + fieldName + "'", e);
+        }
+      }
+
+      writeVarInt(fields, value.size());
+      fields.write(value.getInternalBuffer(), 0, value.size());
+    }
+
+    if (table != null)
+      for (Map.Entry<String, OFieldEntry> entry : table.getFields().entrySet())
+        if (!loadedFields.contains(entry.getKey())) {
+          final OFieldEntry field = entry.getValue();
+          fields.write(table.getSource(), field.start, field.end - field.start);
+          fieldCount++;
+        }
+
+    writeVarInt(iOutput, fieldCount);
+    iOutput.write(fields.getInternalBuffer(), 0, fields.size());
+
+    if (iMarshalledRecords != null)
+      iMarshalledRecords.remove(identityRecord);
+  }
+
+  /**
+   * Writes the values with a binary representation, returns false for the others.
+   */
+  private boolean writeValue(final OMemoryStream iOutput, final OType iType, final Object iValue,
+      final OUserObject2RecordHandler iObjHandler, final Set<Long> iMarshalledRecords) {
+    switch (iType) {
+    case BOOLEAN:
+      if (!(iValue instanceof Boolean))
+        return false;
+      iOutput.write(((Boolean) iValue) ? 1 : 0);
+      return true;
+
+    case BYTE:
+      if (!(iValue instanceof Number))
+        return false;
+      iOutput.write(((Number) iValue).byteValue());
+      return true;
+
+    case SHORT:
+    case INTEGER:
+    case LONG:
+      if (!(iValue instanceof Number) || iValue instanceof Float || iValue instanceof Double || iValue instanceof BigDecimal)
+        return false;
+      writeVarLong(iOutput, zigZag(((Number) iValue).longValue()));
+      return true;
+
+    case FLOAT: {
+      if (!(iValue instanceof Number))
+        return false;
+      final byte[] buffer = new byte[OFloatSerializer.FLOAT_SIZE];
+      OFloatSerializer.INSTANCE.serialize(((Number) iValue).floatValue(), buffer, 0);
+      iOutput.write(buffer, 0, buffer.length);
+      return true;
+    }
+
+    case DOUBLE: {
+      if (!(iValue instanceof Number))
+        return false;
+      final byte[] buffer = new byte[ODoubleSerializer.DOUBLE_SIZE];
+      ODoubleSerializer.INSTANCE.serialize(((Number) iValue).doubleValue(), buffer, 0);
+      iOutput.write(buffer, 0, buffer.length);
+      return true;
+    }
+
+    case DECIMAL: {
+      if (!(iValue instanceof BigDecimal))
+        return false;
+      final BigDecimal decimal = (BigDecimal) iValue;
+      final byte[] buffer = new byte[ODecimalSerializer.INSTANCE.getObjectSize(decimal)];
+      ODecimalSerializer.INSTANCE.serialize(decimal, buffer, 0);
+      iOutput.write(buffer, 0, buffer.length);
+      return true;
+    }
+
+    case DATE:
+      if (!(iValue instanceof Date))
+        return false;
+      // RESET HOURS, MINUTES, SECONDS AND MILLISECONDS
+      final Calendar calendar = Calendar.getInstance();
+      calendar.setTime((Date) iValue);
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+      writeVarLong(iOutput, zigZag(calendar.getTimeInMillis()));
+      return true;
+
+    case DATETIME:
+      if (!(iValue instanceof Date))
+        return false;
+      writeVarLong(iOutput, zigZag(((Date) iValue).getTime()));
+      return true;
+
+    case STRING:
+      try {
+        OBinaryProtocol.string2bytes(iValue.toString(), iOutput);
+      } catch (IOException e) {
+        // NEVER HAPPENS WITH A MEMORY STREAM
+        throw new OSerializationException("Error on serializing the string: " + iValue, e);
+      }
+      return true;
+
+    case BINARY:
+      if (!(iValue instanceof byte[]))
+        return false;
+      iOutput.write((byte[]) iValue, 0, ((byte[]) iValue).length);
+      return true;
+
+    case LINK: {
+      if (!(iValue instanceof OIdentifiable) || !((OIdentifiable) iValue).getIdentity().isValid())
+        return false;
+      final byte[] buffer = new byte[OLinkSerializer.RID_SIZE];
+      OLinkSerializer.INSTANCE.serialize((OIdentifiable) iValue, buffer, 0);
+      iOutput.write(buffer, 0, buffer.length);
+      return true;
+    }
+
+    case EMBEDDED:
+      if (!(iValue instanceof ODocument))
+        return false;
+      toBytes((ODocument) iValue, iOutput, iObjHandler, iMarshalledRecords, false);
+      return true;
+
+    default:
+      // COLLECTIONS, MAPS AND CUSTOM TYPES
+      return false;
+    }
+  }
+
+  protected ODocument fromBytes(final OBytesReader iInput, final ODocument iRecord, final String[] iFields) {
+    readHeader(iInput, iRecord);
+
+    if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
+      // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
+      return iRecord;
+
+    final OSchema schema = getSchema(ODatabaseRecordThreadLocal.INSTANCE.getIfDefined());
+    final int fieldCount = readVarInt(iInput);
+
+    for (int i = 0; i < fieldCount; ++i) {
+      final String fieldName = readFieldName(iInput, schema);
+
+      if (iRecord.containsField(fieldName) || !isRequested(iFields, fieldName))
+        // ALREADY UNMARSHALLED OR NOT REQUESTED: SKIP IT
+        skipValue(iInput);
+      else
+        readField(iInput, iRecord, fieldName);
+    }
+
+    return iRecord;
+  }
+
+  /**
+   * Deserializes only the requested fields, looking them up in the field table of the record. The table is built on the first
+   * call and kept by the record until its content changes.
+   */
+  protected ODocument fromFieldTable(final byte[] iSource, final ODocument iRecord, final String[] iFields) {
+    OBinaryFieldTable table = iRecord.getFieldTable();
+    if (table == null || table.getSource() != iSource) {
+      table = new OBinaryFieldTable(iSource);
+      iRecord.setFieldTable(table);
+    }
+
+    final OBytesReader input = new OBytesReader(iSource, 1);
+    readHeader(input, iRecord);
+
+    if (iFields.length == 1 && iFields[0].equals("@class"))
+      // ONLY THE CLASS NAME HAS BEEN REQUESTED
+      return iRecord;
+
+    if (!table.isIndexed())
+      indexFields(table, getSchema(ODatabaseRecordThreadLocal.INSTANCE.getIfDefined()));
+
+    for (String fieldName : iFields) {
+      final OFieldEntry field = table.getField(fieldName);
+      if (field == null || iRecord.containsField(fieldName))
+        // NOT IN THE RECORD OR ALREADY UNMARSHALLED
+        continue;
+
+      input.position = field.typePosition;
+      readField(input, iRecord, fieldName);
+    }
+
+    return iRecord;
+  }
+
+  /**
+   * Collects the offsets of all the fields with one pass on their headers.
+   */
+  private void indexFields(final OBinaryFieldTable iTable, final OSchema iSchema) {
+    final OBytesReader input = new OBytesReader(iTable.getSource(), 2);
+    // SKIP THE CLASS NAME
+    final int classNameLength = readVarInt(input);
+    input.position += classNameLength;
+
+    final int fieldCount = readVarInt(input);
+    final LinkedHashMap<String, OFieldEntry> fields = new LinkedHashMap<String, OFieldEntry>(fieldCount * 2);
+    for (int i = 0; i < fieldCount; ++i) {
+      final int start = input.position;
+      final String fieldName = readFieldName(input, iSchema);
+      final int typePosition = input.position;
+      skipValue(input);
+      fields.put(fieldName, new OFieldEntry(start, typePosition, input.position));
+    }
+
+    iTable.setFields(fields);
+  }
+
+  private static void readHeader(final OBytesReader iInput, final ODocument iRecord) {
+    final int version = iInput.readByte();
+    if (version != VERSION)
+      throw new OSerializationException("Record format version " + version + " is not supported, expected " + VERSION);
+
+    iRecord.setClassNameIfExists(readString(iInput));
+  }
+
+  private static String readFieldName(final OBytesReader iInput, final OSchema iSchema) {
+    final int header = readVarInt(iInput);
+    if ((header & 1) == 1)
+      return getFieldName(iSchema, header >>> 1);
+
+    final int nameLength = header >>> 1;
+    final String fieldName = OBinaryProtocol.bytes2string(iInput.bytes, iInput.position, nameLength);
+    iInput.position += nameLength;
+    return fieldName;
+  }
+
+  private static void skipValue(final OBytesReader iInput) {
+    if (iInput.readByte() != NULL_TYPE) {
+      final int length = readVarInt(iInput);
+      iInput.position += length;
+    }
+  }
+
+  /**
+   * Reads type and value of a field and sets it in the record. The input must be positioned on the type of the field.
+   */
+  private void readField(final OBytesReader iInput, final ODocument iRecord, final String iFieldName) {
+    final byte typeId = iInput.readByte();
+    final int length = typeId == NULL_TYPE ? 0 : readVarInt(iInput);
+    final int valueEnd = iInput.position + length;
+    iInput.valueEnd = valueEnd;
+
+    try {
+      final OProperty prop = iRecord.getSchemaClass() != null ? iRecord.getSchemaClass().getProperty(iFieldName) : null;
+      final OType forcedType = prop == null ? iRecord.fieldType(iFieldName) : null;
+
+      if (typeId == NULL_TYPE) {
+        if (forcedType != null)
+          iRecord.field(iFieldName, null, forcedType);
+        else
+          iRecord.field(iFieldName, (Object) null);
+        return;
+      }
+
+      final OType type = OType.getById((byte) (typeId & ~CSV_ENCODED));
+      final Object value;
+      if ((typeId & CSV_ENCODED) == 0)
+        value = readValue(iInput, type, iRecord);
+      else {
+        final byte linkedTypeId = iInput.readByte();
+        OType linkedType = linkedTypeId == NULL_TYPE ? null : OType.getById(linkedTypeId);
+        final String linkedClassName = readString(iInput);
+        OClass linkedClass = linkedClassName != null && ODatabaseRecordThreadLocal.INSTANCE.isDefined() ? ODatabaseRecordThreadLocal.INSTANCE
+            .get().getMetadata().getSchema().getClass(linkedClassName) : null;
+
+        if (prop != null) {
+          // RECOGNIZED PROPERTY
+          linkedClass = prop.getLinkedClass();
+          linkedType = prop.getLinkedType();
+        }
+
+        value = ORecordSerializerSchemaAware2CSV.INSTANCE.fieldFromStream(iRecord, type, linkedClass, linkedType, iFieldName,
+            OBinaryProtocol.bytes2string(iInput.bytes, iInput.position, valueEnd - iInput.position));
+      }
+
+      if (forcedType != null || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP
+          || type == OType.EMBEDDED)
+        // SAVE THE TYPE AS EMBEDDED
+        iRecord.field(iFieldName, value, forcedType != null ? forcedType : type);
+      else
+        iRecord.field(iFieldName, value);
+
+      if (prop == null && forcedType == null && type == OType.EMBEDDEDLIST && OMultiValue.getSize(value) == 0)
+        // THE TYPE OF EMPTY COLLECTIONS IS UNCERTAIN
+        iRecord.setFieldType(iFieldName, null);
+
+    } catch (Exception e) {
+      OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s", e, OSerializationException.class,
+          iFieldName, iRecord.getIdentity());
+    } finally {
+      iInput.position = valueEnd;
+    }
+  }
+
+  private Object readValue(final OBytesReader iInput, final OType iType, final ODocument iRecord) {
+    final byte[] bytes = iInput.bytes;
+
+    switch (iType) {
+    case BOOLEAN:
+      return iInput.readByte() != 0;
+
+    case BYTE:
+      return iInput.readByte();
+
+    case SHORT:
+      return (short) unZigZag(readVarLong(iInput));
+
+    case INTEGER:
+      return (int) unZigZag(readVarLong(iInput));
+
+    case LONG:
+      return unZigZag(readVarLong(iInput));
+
+    case FLOAT:
+      return OFloatSerializer.INSTANCE.deserialize(bytes, iInput.position);
+
+    case DOUBLE:
+      return ODoubleSerializer.INSTANCE.deserialize(bytes, iInput.position);
+
+    case DECIMAL:
+      return ODecimalSerializer.INSTANCE.deserialize(bytes, iInput.position);
+
+    case DATE:
+    case DATETIME:
+      return new Date(unZigZag(readVarLong(iInput)));
+
+    case LINK:
+      return OLinkSerializer.INSTANCE.deserialize(bytes, iInput.position);
+
+    case EMBEDDED: {
+      final int length = getValueLength(iInput);
+      final byte[] content = new byte[length];
+      System.arraycopy(bytes, iInput.position, content, 0, length);
+
+      final ODocument embedded = new ODocument();
+      embedded.fromStream(content);
+      return embedded.addOwner(iRecord);
+    }
+
+    case BINARY: {
+      final byte[] content = new byte[getValueLength(iInput)];
+      System.arraycopy(bytes, iInput.position, content, 0, content.length);
+      return content;
+    }
+
+    case STRING:
+      return OBinaryProtocol.bytes2string(bytes, iInput.position, getValueLength(iInput));
+
+    default:
+      throw new OSerializationException("Type " + iType + " is not supported in binary format");
+    }
+  }
+
+  private static int getValueLength(final OBytesReader iInput) {
+    return iInput.valueEnd - iInput.position;
+  }
+
+  private static boolean isRequested(final String[] iFields, final String iFieldName) {
+    if (iFields == null || iFields.length == 0)
+      return true;
+
+    for (String f : iFields)
+      if (f.equals(iFieldName))
+        return true;
+    return false;
+  }
+
+  private static OSchema getSchema(final ODatabaseRecord iDatabase) {
+    if (iDatabase == null || iDatabase.isClosed() || iDatabase.getMetadata() == null)
+      return null;
+    return iDatabase.getMetadata().getSchema();
+  }
+
+  private static String getFieldName(final OSchema iSchema, final int iFieldId) {
+    if (iSchema == null)
+      throw new OSerializationException("Cannot resolve the field id " + iFieldId + " without an open database");
+
+    String fieldName = iSchema.getFieldName(iFieldId);
+    if (fieldName == null) {
+      // ASSIGNED AFTER THE SCHEMA WAS LOADED (REMOTE CLIENTS): RELOAD IT
+      iSchema.reload();
+      fieldName = iSchema.getFieldName(iFieldId);
+      if (fieldName == null)
+        throw new OSerializationException("Field id " + iFieldId + " not found in schema");
+    }
+    return fieldName;
+  }
+
+  private static void writeString(final OMemoryStream iOutput, final String iValue) {
+    if (iValue == null) {
+      writeVarInt(iOutput, 0);
+      return;
+    }
+
+    final byte[] bytes = OBinaryProtocol.string2bytes(iValue);
+    writeVarInt(iOutput, bytes.length);
+    iOutput.write(bytes, 0, bytes.length);
+  }
+
+  private static String readString(final OBytesReader iInput) {
+    final int length = readVarInt(iInput);
+    if (length == 0)
+      return null;
+
+    final String value = OBinaryProtocol.bytes2string(iInput.bytes, iInput.position, length);
+    iInput.position += length;
+    return value;
+  }
+
+  private static long zigZag(final long iValue) {
+    return (iValue << 1) ^ (iValue >> 63);
+  }
+
+  private static long unZigZag(final long iValue) {
+    return (iValue >>> 1) ^ -(iValue & 1);
+  }
+
+  private static void writeVarInt(final OMemoryStream iOutput, final int iValue) {
+    writeVarLong(iOutput, iValue & 0xFFFFFFFFL);
+  }
+
+  private static void writeVarLong(final OMemoryStream iOutput, long iValue) {
+    while ((iValue & ~0x7FL) != 0) {
+      iOutput.write((int) ((iValue & 0x7F) | 0x80));
+      iValue >>>= 7;
+    }
+    iOutput.write((int) iValue);
+  }
+
+  private static int readVarInt(final OBytesReader iInput) {
+    return (int) readVarLong(iInput);
+  }
+
+  private static long readVarLong(final OBytesReader iInput) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = iInput.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  /**
+   * Cursor over the serialized record.
+   */
+  protected static class OBytesReader {
+    private final byte[] bytes;
+    private int          position;
+    private int          valueEnd;
+
+    private OBytesReader(final byte[] iBytes, final int iPosition) {
+      bytes = iBytes;
+      position = iPosition;
+    }
+
+    private byte readByte() {
+      return bytes[position++];
+    }
+  }
+}
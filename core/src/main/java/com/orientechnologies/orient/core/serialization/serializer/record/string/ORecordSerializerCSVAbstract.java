@@ -714,9 +714,10 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
   }
 
   /**
-   * Serialize the link.
+   * Serialize the link, saving the linked record if it's new or dirty.
    * 
    * @param buffer
+   *          Buffer where to write the RID, null to only save the linked record
    * @param iParentRecord
    * @param iFieldName
    *          TODO
@@ -724,7 +725,7 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
    *          Can be an instance of ORID or a Record<?>
    * @return
    */
-  private static OIdentifiable linkToStream(final StringBuilder buffer, final ORecordSchemaAware<?> iParentRecord, Object iLinked) {
+  public static OIdentifiable linkToStream(final StringBuilder buffer, final ORecordSchemaAware<?> iParentRecord, Object iLinked) {
     if (iLinked == null)
       // NULL REFERENCE
       return null;
@@ -793,7 +794,7 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
       }
     }
 
-    if (rid.isValid())
+    if (buffer != null && rid.isValid())
       rid.toString(buffer);
 
     return resultRid;
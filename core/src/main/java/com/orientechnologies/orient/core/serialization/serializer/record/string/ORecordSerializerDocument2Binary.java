@@ -35,7 +35,12 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
 
+/**
+ * @deprecated Never completed, use {@link ORecordSerializerSchemaAware2Binary} instead.
+ */
+@Deprecated
 public class ORecordSerializerDocument2Binary implements ORecordSerializer {
   public static final String NAME = "ORecordDocument2binary";
 
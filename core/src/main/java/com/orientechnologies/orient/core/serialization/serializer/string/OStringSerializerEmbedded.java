@@ -19,6 +19,7 @@ import com.orientechnologies.orient.core.exception.OSerializationException;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerHelper;
 
 public class OStringSerializerEmbedded implements OStringSerializer {
@@ -51,7 +52,11 @@ public class OStringSerializerEmbedded implements OStringSerializer {
       OSerializableStream stream = (OSerializableStream) iValue;
       iOutput.append(iValue.getClass().getName());
       iOutput.append(OStreamSerializerHelper.SEPARATOR);
-      iOutput.append(OBinaryProtocol.bytes2string(stream.toStream()));
+      if (iValue instanceof ODocument)
+        // ALWAYS AS TEXT, WHATEVER THE RECORD FORMAT OF THE DATABASE
+        ORecordSerializerSchemaAware2CSV.INSTANCE.toString((ODocument) iValue, iOutput, null);
+      else
+        iOutput.append(OBinaryProtocol.bytes2string(stream.toStream()));
     }
     return iOutput;
   }
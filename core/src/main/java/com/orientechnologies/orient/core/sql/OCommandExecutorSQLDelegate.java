@@ -32,6 +32,8 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
  */
 public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   protected OCommandExecutorSQLAbstract delegate;
+  protected OSQLStatementCache          statementCache;
+  protected String                      statementText;
 
   @SuppressWarnings("unchecked")
   public OCommandExecutorSQLDelegate parse(final OCommandRequest iCommand) {
@@ -40,6 +42,19 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
       final String text = textRequest.getText();
       final String textUpperCase = text.toUpperCase(Locale.ENGLISH);
 
+      if (textUpperCase.startsWith(OCommandExecutorSQLSelect.KEYWORD_SELECT)) {
+        // REUSE THE STATEMENT IF ALREADY PARSED
+        statementCache = OSQLStatementCache.get(getDatabase());
+        statementText = text;
+
+        final OCommandExecutorSQLSelect cached = statementCache != null ? statementCache.acquire(text) : null;
+        if (cached != null) {
+          delegate = cached.reset(iCommand);
+          delegate.setProgressListener(progressListener);
+          return this;
+        }
+      }
+
       delegate = (OCommandExecutorSQLAbstract) OSQLEngine.getInstance().getCommand(textUpperCase);
       if (delegate == null)
         throw new OCommandExecutorNotFoundException("Cannot find a command executor for the command request: " + iCommand);
@@ -53,7 +68,13 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   }
 
   public Object execute(final Map<Object, Object> iArgs) {
-    return delegate.execute(iArgs);
+    final Object result = delegate.execute(iArgs);
+
+    if (statementCache != null && delegate instanceof OCommandExecutorSQLSelect
+        && ((OCommandExecutorSQLSelect) delegate).isReusable())
+      statementCache.release(statementText, ((OCommandExecutorSQLSelect) delegate).reset(null));
+
+    return result;
   }
 
   @Override
@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.sql;
 import java.util.Collection;
 import java.util.Map;
 
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
@@ -39,12 +40,14 @@ public class OCommandExecutorSQLExplain extends OCommandExecutorSQLDelegate {
 
 	@Override
 	public Object execute(Map<Object, Object> iArgs) {
-		delegate.getContext().setRecordingMetrics(true);
+		// THE DELEGATE CAN BE REUSED BY OTHER EXECUTIONS AS SOON AS IT'S FINISHED: KEEP ITS CONTEXT
+		final OCommandContext context = delegate.getContext();
+		context.setRecordingMetrics(true);
 
 		final long startTime = System.nanoTime();
 
 		final Object result = super.execute(iArgs);
-		final ODocument report = new ODocument(delegate.getContext().getVariables());
+		final ODocument report = new ODocument(context.getVariables());
 
 		report.field("elapsed", (System.nanoTime() - startTime) / 1000000000f);
 
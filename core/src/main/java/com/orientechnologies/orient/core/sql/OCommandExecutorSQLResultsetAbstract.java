@@ -98,17 +98,24 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
 
     init(textRequest.getText());
 
+    setRequest(textRequest);
+    return this;
+  }
+
+  /**
+   * Sets the query that receives the results, building it if the request is not a query.
+   */
+  protected void setRequest(final OCommandRequestText iRequest) {
     if (iRequest instanceof OSQLSynchQuery) {
       request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
     } else if (iRequest instanceof OSQLAsynchQuery)
       request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
     else {
       // BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(textRequest.getText());
-      if (textRequest.getResultListener() != null)
-        request.setResultListener(textRequest.getResultListener());
+      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+      if (iRequest.getResultListener() != null)
+        request.setResultListener(iRequest.getResultListener());
     }
-    return this;
   }
 
   @Override
@@ -396,7 +403,7 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
 
       // APPLY LIMIT
       final int start = Math.min(skip, tempResult.size());
-      final int tot = Math.min(limit + start, tempResult.size());
+      final int tot = limit > -1 ? Math.min(limit + start, tempResult.size()) : tempResult.size();
       for (int i = start; i < tot; ++i)
         newList.add(tempResult.get(i));
 
@@ -35,24 +35,32 @@ import com.orientechnologies.common.concur.resource.OSharedResource;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorClass;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
@@ -72,6 +80,7 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 /**
@@ -95,12 +104,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private Map<String, Object>         projections          = null;    // THIS HAS BEEN KEPT FOR COMPATIBILITY; BUT IT'S USED THE
                                                                        // PROJECTIONS IN GROUPED-RESULTS
   private List<OPair<String, String>> orderedFields;
+  private List<OPair<String, String>> parsedOrderedFields;
+  private int                         parsedLimit          = -1;
+  private boolean                     boundToLocalNode;
   private List<String>                groupByFields;
   private Map<Object, ORuntimeResult> groupedResult;
   private Object                      flattenTarget;
   private int                         fetchLimit           = -1;
+  private OOrderByBuffer              orderByBuffer;
   private OIdentifiable               lastRecord;
   private Iterator<OIdentifiable>     subIterator;
+  private String                      whereText;
 
   /**
    * Compile the filter conditions only the first time.
@@ -138,8 +152,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           final String w = parserGetLastWord();
 
           if (w.equals(KEYWORD_WHERE)) {
-            compiledFilter = OSQLEngine.getInstance().parseCondition(parserText.substring(parserGetCurrentPosition(), endPosition),
-                getContext(), KEYWORD_WHERE);
+            whereText = parserText.substring(parserGetCurrentPosition(), endPosition);
+            compiledFilter = OSQLEngine.getInstance().parseCondition(whereText, getContext(), KEYWORD_WHERE);
             optimize();
             parserSetCurrentPosition(compiledFilter.parserIsEnded() ? endPosition : compiledFilter.parserGetCurrentPosition()
                 + parserGetCurrentPosition());
@@ -150,7 +164,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           else if (w.equals(KEYWORD_ORDER))
             parseOrderBy(w);
           else if (w.equals(KEYWORD_LIMIT))
-            parseLimit(w);
+            parsedLimit = parseLimit(w);
           else if (w.equals(KEYWORD_SKIP))
             parseSkip(w);
           else
@@ -162,6 +176,68 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    if (orderedFields != null)
+      // THE EXECUTION CONSUMES THE ORDER BY FIELDS: KEEP THEM FOR THE NEXT ONE
+      parsedOrderedFields = new ArrayList<OPair<String, String>>(orderedFields);
+
+    return this;
+  }
+
+  /**
+   * Tells if the statement, once executed, can be executed again for other requests with the same text (see
+   * {@link OSQLStatementCache}). Statements that keep state between the executions (LET, GROUP BY, FLATTEN, functions in the
+   * projections) or with targets other than classes and clusters are parsed every time.
+   */
+  public boolean isReusable() {
+    if (parsedTarget == null || parsedTarget.getTargetClasses() == null && parsedTarget.getTargetClusters() == null)
+      return false;
+
+    if (let != null || groupByFields != null || groupedResult != null || flattenTarget != null || boundToLocalNode)
+      return false;
+
+    if (projections != null)
+      for (Object projection : projections.values())
+        if (projection instanceof OSQLFunctionRuntime)
+          return false;
+
+    return true;
+  }
+
+  /**
+   * Prepares the parsed statement for the execution of a new request with the same text, or drops the references to the last
+   * execution if the request is null.
+   */
+  public OCommandExecutorSQLSelect reset(final OCommandRequest iRequest) {
+    context = new OBasicCommandContext();
+    parameters = null;
+    target = null;
+    tempResult = null;
+    resultCount = 0;
+    fetchLimit = -1;
+    if (orderByBuffer != null) {
+      // DELETES THE TEMPORARY FILES OF AN EXECUTION THAT FAILED
+      orderByBuffer.close();
+      orderByBuffer = null;
+    }
+    lastRecord = null;
+    subIterator = null;
+    orderedFields = parsedOrderedFields != null ? new ArrayList<OPair<String, String>>(parsedOrderedFields) : null;
+    // THE PARAMETERS NOT PASSED BY THE NEW REQUEST MUST NOT KEEP THE VALUES OF THE LAST ONE
+    if (compiledFilter != null)
+      compiledFilter.resetParameters();
+
+    if (iRequest == null) {
+      request = null;
+      return this;
+    }
+
+    getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
+    setRequest((OCommandRequestText) iRequest);
+
+    limit = parsedLimit > -1 ? parsedLimit : iRequest.getLimit();
+    if (limit == 0 || limit < -1)
+      throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
+
     return this;
   }
 
@@ -218,6 +294,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           getConditionForRidPosRange(-1L, toId));
     }
 
+    boundToLocalNode = true;
+
     if (compiledFilter == null) {
       compiledFilter = OSQLEngine.getInstance().parseCondition("", getContext(), KEYWORD_WHERE);
     }
@@ -307,17 +385,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       for (Entry<Object, Object> arg : iArgs.entrySet())
         context.setVariable(arg.getKey().toString(), arg.getValue());
 
-    if (!optimizeExecution()) {
-      fetchLimit = getQueryFetchLimit();
+    try {
+      if (!optimizeExecution()) {
+        fetchLimit = getQueryFetchLimit();
 
-      executeSearch(iArgs);
-      applyFlatten();
-      handleNoTarget();
-      handleGroupBy();
-      applyOrderBy();
-      applyLimitAndSkip();
+        executeSearch(iArgs);
+        applyFlatten();
+        handleNoTarget();
+        handleGroupBy();
+        applyOrderBy();
+        applyLimitAndSkip();
+      }
+      return getResult();
+    } finally {
+      if (orderByBuffer != null) {
+        // THE EXECUTION FAILED BEFORE THE SORTED RECORDS WERE SENT: DELETE THEIR TEMPORARY FILES
+        orderByBuffer.close();
+        orderByBuffer = null;
+      }
     }
-    return getResult();
   }
 
   protected void executeSearch(final Map<Object, Object> iArgs) {
@@ -332,12 +418,89 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       return;
     }
 
+    if (isParallelScanAllowed()) {
+      executeParallelSearch();
+      return;
+    }
+
     // BROWSE ALL THE RECORDS
     while (target.hasNext())
       if (!executeSearchRecord(target.next()))
         break;
   }
 
+  /**
+   * Tells if the scan of the target class can be split across parallel threads: only for embedded storages, out of transactions,
+   * with a WHERE condition and without LET and RID ranges, and never from a worker or the caller of another parallel scan.
+   */
+  protected boolean isParallelScanAllowed() {
+    if (!OGlobalConfiguration.QUERY_PARALLEL.getValueAsBoolean() || !(target instanceof ORecordIteratorClass<?>) || let != null
+        || whereText == null || compiledFilter == null || compiledFilter.getRootCondition() == null
+        || OParallelClusterScan.isInsideScan())
+      return false;
+
+    final ODatabaseRecord database = getDatabase();
+    if (!(database instanceof ODatabaseRecordAbstract) || !(database.getStorage() instanceof OStorageEmbedded)
+        || database.getTransaction().isActive())
+      return false;
+
+    final ORID[] range = getRange();
+    return range[0] == null && range[1] == null;
+  }
+
+  /**
+   * Scans the clusters of the target class in parallel threads, each one with its own copy of the WHERE condition. The records that
+   * match are handled in the current thread, so projections, aggregates, ORDER BY and LIMIT work as in the sequential scan.
+   */
+  protected void executeParallelSearch() {
+    final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
+
+    final List<OParallelClusterScan.OFilter> filters = new ArrayList<OParallelClusterScan.OFilter>();
+    for (int i = 0; i < OParallelClusterScan.getThreads(); ++i)
+      filters.add(createParallelFilter());
+
+    final OParallelClusterScan scan = new OParallelClusterScan((ODatabaseRecordAbstract) getDatabase(),
+        cls.getPolymorphicClusterIds(), filters).start();
+    try {
+      while (scan.hasNext())
+        if (!handleResult(scan.next()))
+          // END OF EXECUTION
+          break;
+    } finally {
+      scan.close();
+
+      context.updateMetric("recordReads", scan.getRecordReads());
+      context.updateMetric("documentReads", scan.getDocumentReads());
+    }
+  }
+
+  private OParallelClusterScan.OFilter createParallelFilter() {
+    // FILTERS AND CONTEXTS ARE NOT THREAD-SAFE: PARSE THE CONDITION AGAIN AND COPY THE VARIABLES
+    final OCommandContext workerContext = new OBasicCommandContext();
+    workerContext.setParent(context.getParent());
+    for (Entry<String, Object> variable : context.getVariables().entrySet())
+      workerContext.setVariable(variable.getKey(), variable.getValue());
+
+    final OSQLFilter workerFilter = OSQLEngine.getInstance().parseCondition(whereText, workerContext, KEYWORD_WHERE);
+    if (parameters != null && parameters.size() > 0)
+      workerFilter.bindParameters(parameters);
+
+    final Set<OClass> targetClasses = parsedTarget.getTargetClasses().keySet();
+
+    return new OParallelClusterScan.OFilter() {
+      public boolean evaluate(final ORecordInternal<?> iRecord) {
+        workerContext.setVariable("current", iRecord);
+
+        if (iRecord instanceof ORecordSchemaAware<?>)
+          for (OClass targetClass : targetClasses)
+            if (!targetClass.isSuperClassOf(((ORecordSchemaAware<?>) iRecord).getSchemaClass()))
+              return false;
+
+        return (Boolean) workerFilter.evaluate(iRecord, null, workerContext);
+      }
+    };
+  }
+
   @Override
   protected boolean assignTarget(Map<Object, Object> iArgs) {
     if (!super.assignTarget(iArgs)) {
@@ -425,6 +588,16 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (request.getResultListener() != null)
         request.getResultListener().result(iRecord);
 
+    } else if (flattenTarget == null) {
+
+      // ORDER BY: KEEP ONLY THE RECORDS THAT CAN BE RETURNED
+      if (orderByBuffer == null) {
+        final int queryLimit = getQueryLimit();
+        orderByBuffer = new OOrderByBuffer(orderedFields, queryLimit > -1 ? skip + queryLimit : -1,
+            OGlobalConfiguration.QUERY_ORDERBY_MAX_RECORDS_IN_MEMORY.getValueAsInteger());
+      }
+      orderByBuffer.add(iRecord);
+
     } else {
 
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
@@ -481,6 +654,13 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       return -1;
     }
 
+    return getQueryLimit();
+  }
+
+  /**
+   * Returns the maximum number of records to return between the LIMIT of the query and the limit of the request, -1 if none.
+   */
+  private int getQueryLimit() {
     final int sqlLimit;
     final int requestLimit;
 
@@ -788,6 +968,24 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
               break;
           }
         }
+      } else if (indexResult instanceof Iterator<?>) {
+        // BROWSE THE INDEX CURSOR: THE REMAINING ENTRIES ARE NEVER READ ONCE THE LIMIT IS REACHED
+        final Iterator<OIdentifiable> cursor = (Iterator<OIdentifiable>) indexResult;
+
+        int indexReads = 0;
+        while (cursor.hasNext()) {
+          final OIdentifiable identifiable = cursor.next();
+          indexReads++;
+
+          ORecord<?> record = identifiable.getRecord();
+          if (record == null)
+            throw new OException("Error during loading record with id : " + identifiable.getIdentity());
+
+          if (filter((ORecordInternal<?>) record) && !handleResult(record))
+            break;
+        }
+
+        context.updateMetric("indexReads", indexReads);
       } else {
         final ORecord<?> record = ((OIdentifiable) indexResult).getRecord();
         if (filter((ORecordInternal<?>) record))
@@ -937,10 +1135,48 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (orderedFields == null)
       return;
 
-    ODocumentHelper.sort(tempResult, orderedFields);
+    if (orderByBuffer != null) {
+      if (!orderByBuffer.isSpilled()) {
+        // ALL THE RECORDS ARE IN MEMORY
+        tempResult = orderByBuffer.toList();
+        orderByBuffer = null;
+      }
+      // OTHERWISE THEY ARE MERGED BY getResult()
+    } else
+      ODocumentHelper.sort(tempResult, orderedFields);
+
     orderedFields.clear();
   }
 
+  @Override
+  protected Object getResult() {
+    if (orderByBuffer != null) {
+      // SEND THE SORTED RECORDS, APPLYING SKIP AND LIMIT
+      try {
+        int toSkip = skip;
+        int sent = 0;
+        for (OIdentifiable d : orderByBuffer) {
+          if (toSkip > 0) {
+            toSkip--;
+            continue;
+          }
+
+          if (limit > -1 && sent >= limit)
+            break;
+
+          if (d != null)
+            request.getResultListener().result(d);
+          sent++;
+        }
+      } finally {
+        orderByBuffer.close();
+        orderByBuffer = null;
+      }
+    }
+
+    return super.getResult();
+  }
+
   /**
    * Extract the content of collections and/or links and put it as result
    */
@@ -1291,7 +1527,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           final Set<OIndex<?>> involvedIndexes = cls.getInvolvedIndexes(orderByFirstField.getKey());
           if (involvedIndexes != null && !involvedIndexes.isEmpty()) {
             for (OIndex<?> idx : involvedIndexes) {
-              if (idx.getKeyTypes().length == 1) {
+              // HASH INDEXES DON'T KEEP THE KEYS SORTED
+              if (idx.getKeyTypes().length == 1 && idx.getInternal().hasRangeQuerySupport()) {
                 if (orderByFirstField.getValue().equalsIgnoreCase("asc"))
                   target = (Iterator<? extends OIdentifiable>) idx.valuesIterator();
                 else
@@ -1314,7 +1551,14 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     private static final IndexComparator INSTANCE = new IndexComparator();
 
     public int compare(final OIndex<?> indexOne, final OIndex<?> indexTwo) {
-      return indexOne.getDefinition().getParamCount() - indexTwo.getDefinition().getParamCount();
+      final int result = indexOne.getDefinition().getParamCount() - indexTwo.getDefinition().getParamCount();
+      if (result != 0)
+        return result;
+
+      // SAME FIELDS: THE HASH INDEXES FIRST, THEIR LOOKUPS ARE CHEAPER AND THEY GIVE UP ON RANGE OPERATORS ANYWAY
+      final boolean rangeOne = indexOne.getInternal().hasRangeQuerySupport();
+      final boolean rangeTwo = indexTwo.getInternal().hasRangeQuerySupport();
+      return rangeOne == rangeTwo ? 0 : (rangeOne ? 1 : -1);
     }
   }
 }
@@ -22,8 +22,10 @@ import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
 import com.orientechnologies.orient.core.index.OIndexNotUnique;
+import com.orientechnologies.orient.core.index.OIndexNotUniqueHash;
 import com.orientechnologies.orient.core.index.OIndexOneValue;
 import com.orientechnologies.orient.core.index.OIndexUnique;
+import com.orientechnologies.orient.core.index.OIndexUniqueHash;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.profiler.OJVMProfiler;
@@ -94,7 +96,7 @@ public class OIndexProxy<T> implements OIndex<T> {
     final Object result = lastIndex.get(iKey);
 
     final Collection<T> resultSet = applyTailIndexes(result, -1);
-    if (getInternal() instanceof OIndexOneValue && resultSet.size() == 1) {
+    if ((getInternal() instanceof OIndexOneValue || getInternal() instanceof OIndexUniqueHash) && resultSet.size() == 1) {
       return resultSet.iterator().next();
     } else {
       return (T) resultSet;
@@ -133,6 +135,30 @@ public class OIndexProxy<T> implements OIndex<T> {
     return (Collection<OIdentifiable>) applyTailIndexes(result, maxValuesToFetch);
   }
 
+  /**
+   * {@inheritDoc}
+   * 
+   * The values of the last index of the chain have to be collected to look up the previous indexes, so the cursor iterates a
+   * result already loaded in memory. The values are sorted by RID, not by key, so the descending order is not supported.
+   */
+  public Iterator<OIdentifiable> cursor(Object iRangeFrom, boolean iFromInclusive, Object iRangeTo, boolean iToInclusive,
+      boolean iAscendantOrder, int iFetchSize) {
+    if (!iAscendantOrder)
+      throw new UnsupportedOperationException("Descending order is not supported by index proxies");
+
+    if (iRangeFrom == null && iRangeTo == null) {
+      final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+      for (Iterator<OIdentifiable> it = lastIndex.valuesIterator(); it.hasNext();)
+        result.add(it.next());
+      return ((Collection<OIdentifiable>) applyTailIndexes(result, -1)).iterator();
+    }
+    if (iRangeFrom == null)
+      return getValuesMinor(iRangeTo, iToInclusive).iterator();
+    if (iRangeTo == null)
+      return getValuesMajor(iRangeFrom, iFromInclusive).iterator();
+    return getValuesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive).iterator();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -344,7 +370,8 @@ public class OIndexProxy<T> implements OIndex<T> {
     for (OIndex<?> index : involvedIndexes) {
       bestIndex = index;
       OIndexInternal<?> bestInternalIndex = index.getInternal();
-      if (bestInternalIndex instanceof OIndexUnique || bestInternalIndex instanceof OIndexNotUnique) {
+      if (bestInternalIndex instanceof OIndexUnique || bestInternalIndex instanceof OIndexNotUnique
+          || bestInternalIndex instanceof OIndexUniqueHash || bestInternalIndex instanceof OIndexNotUniqueHash) {
         return index;
       }
     }
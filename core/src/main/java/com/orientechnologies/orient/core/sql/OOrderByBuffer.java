@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.collection.OExternalSorter;
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Collects the records of a query with ORDER BY and returns them sorted.
+ * <ul>
+ * <li>When the number of records to return is known (SKIP + LIMIT) only the best ones are kept in a bounded heap, so the memory
+ * used and the sorting cost don't depend on the number of records that match the query</li>
+ * <li>Otherwise the records are kept in memory up to the configured maximum, then sorted and written to a temporary file by an
+ * {@link OExternalSorter}. The sorted runs are merged while the result is browsed</li>
+ * </ul>
+ * Records with the same ordering values are returned in the order they were added, like the stable sort used before.
+ */
+public class OOrderByBuffer implements Iterable<OIdentifiable> {
+  private final Comparator<OIdentifiable> comparator;
+  private final int                       maxRecords;
+  private PriorityQueue<OSortEntry>       heap;
+  private OExternalSorter<OIdentifiable>  sorter;
+  private long                            sequence;
+
+  private static class OSortEntry {
+    private final OIdentifiable record;
+    private final long          sequence;
+
+    private OSortEntry(final OIdentifiable iRecord, final long iSequence) {
+      record = iRecord;
+      sequence = iSequence;
+    }
+  }
+
+  /**
+   * Writes the documents with their identity and version, so they are read back as they were loaded.
+   */
+  private static class ODocumentSorter extends OExternalSorter<OIdentifiable> {
+    private ODocumentSorter(final Comparator<OIdentifiable> iComparator, final int iMaxRecordsInMemory) {
+      super(iComparator, iMaxRecordsInMemory, "orientdb-orderby-");
+    }
+
+    @Override
+    protected boolean isSpillable(final List<OIdentifiable> iRecords) {
+      for (OIdentifiable record : iRecords)
+        if (!(record instanceof ODocument))
+          // ONLY DOCUMENTS CAN BE SERIALIZED: KEEP EVERYTHING IN MEMORY
+          return false;
+      return true;
+    }
+
+    @Override
+    protected void write(final DataOutputStream iOut, final OIdentifiable iRecord) throws IOException {
+      final ODocument doc = (ODocument) iRecord;
+      writeBytes(iOut, ((ORecordId) doc.getIdentity()).toStream());
+      writeBytes(iOut, doc.getRecordVersion().getSerializer().toByteArray(doc.getRecordVersion()));
+      writeBytes(iOut, doc.toStream());
+    }
+
+    @Override
+    protected OIdentifiable read(final DataInputStream iIn) throws IOException {
+      final ORecordId rid = new ORecordId().fromStream(readBytes(iIn));
+
+      final ORecordVersion version = OVersionFactory.instance().createVersion();
+      version.getSerializer().readFrom(readBytes(iIn), 0, version);
+
+      final ODocument doc = new ODocument();
+      doc.fill(rid, version, readBytes(iIn), false);
+      return doc;
+    }
+  }
+
+  /**
+   * @param iOrderCriteria
+   *          Fields and directions of the ORDER BY
+   * @param iMaxRecords
+   *          Number of records to return (SKIP + LIMIT), -1 means all
+   * @param iMaxRecordsInMemory
+   *          Number of records to keep in memory before writing them to a temporary file, 0 means unlimited. Ignored when
+   *          iMaxRecords is set
+   */
+  public OOrderByBuffer(final List<OPair<String, String>> iOrderCriteria, final int iMaxRecords, final int iMaxRecordsInMemory) {
+    comparator = new ODocumentComparator(new ArrayList<OPair<String, String>>(iOrderCriteria));
+    maxRecords = iMaxRecords;
+
+    if (maxRecords > -1)
+      heap = new PriorityQueue<OSortEntry>(Math.min(maxRecords, 1024) + 1, new Comparator<OSortEntry>() {
+        public int compare(final OSortEntry o1, final OSortEntry o2) {
+          // REVERSED: THE HEAD IS THE WORST ENTRY, THE FIRST TO DISCARD
+          return compareEntries(o2, o1);
+        }
+      });
+    else
+      sorter = new ODocumentSorter(comparator, iMaxRecordsInMemory);
+  }
+
+  public void add(final OIdentifiable iRecord) {
+    if (heap != null) {
+      if (maxRecords == 0)
+        return;
+
+      if (heap.size() < maxRecords)
+        heap.offer(new OSortEntry(iRecord, sequence++));
+      else if (comparator.compare(iRecord, heap.peek().record) < 0) {
+        // BETTER THAN THE WORST ONE: REPLACE IT
+        heap.poll();
+        heap.offer(new OSortEntry(iRecord, sequence++));
+      }
+      return;
+    }
+
+    sorter.add(iRecord);
+  }
+
+  /**
+   * Tells if some records have been written to temporary files. In this case the result can be only browsed with
+   * {@link #iterator()} and {@link #close()} has to be called at the end.
+   */
+  public boolean isSpilled() {
+    return sorter != null && sorter.isSpilled();
+  }
+
+  /**
+   * Returns the sorted records kept in memory. Can't be called after the records have been spilled to disk.
+   */
+  public List<OIdentifiable> toList() {
+    if (heap != null) {
+      final List<OSortEntry> entries = new ArrayList<OSortEntry>(heap);
+      heap.clear();
+
+      Collections.sort(entries, new Comparator<OSortEntry>() {
+        public int compare(final OSortEntry o1, final OSortEntry o2) {
+          return compareEntries(o1, o2);
+        }
+      });
+
+      final List<OIdentifiable> result = new ArrayList<OIdentifiable>(entries.size());
+      for (OSortEntry entry : entries)
+        result.add(entry.record);
+      return result;
+    }
+
+    return sorter.toList();
+  }
+
+  /**
+   * Browses the records in order, merging the runs written to disk if any.
+   */
+  public Iterator<OIdentifiable> iterator() {
+    if (heap != null)
+      return toList().iterator();
+
+    return sorter.iterator();
+  }
+
+  /**
+   * Closes the runs still being merged and deletes the temporary files.
+   */
+  public void close() {
+    if (sorter != null)
+      sorter.close();
+  }
+
+  private int compareEntries(final OSortEntry o1, final OSortEntry o2) {
+    final int result = comparator.compare(o1.record, o2.record);
+    if (result != 0)
+      return result;
+    return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+  }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Scans clusters in parallel threads and returns the records that satisfy a filter. The clusters are split in ranges of
+ * {@link OGlobalConfiguration#QUERY_PARALLEL_RANGE_SIZE} positions, consumed by up to {@link OGlobalConfiguration#QUERY_PARALLEL_THREADS}
+ * workers of a shared pool. Every worker reads the records directly from the storage, deserializes them and evaluates its own filter
+ * with its own database instance opened for the same user, so databases, filters and command contexts are never shared between
+ * threads.<br/>
+ * The records that match are returned by the iterator in the caller thread, loaded again through the database with the content
+ * already read: transaction, cache, security and hooks are applied as for a regular read. Records are not returned in cluster
+ * order. Call {@link #close()} to stop the workers when the iteration ends before the last record.<br/>
+ * The pool is shared by all the scans, so its threads never wait for the caller: when the queue of the results is full a worker
+ * puts back the rest of its range and ends, and the caller starts the workers again once it has read half of the queue. The caller
+ * is marked as inside a scan until it closes it, so the queries it executes meanwhile don't start other parallel scans.
+ */
+public class OParallelClusterScan implements Iterator<OIdentifiable> {
+  private static final Object                  END            = new Object();
+  private static final ThreadLocal<Integer>    openScans      = new ThreadLocal<Integer>();
+  private static ExecutorService               executor;
+
+  private final ODatabaseRecordAbstract        database;
+  private final OStorage                       storage;
+  private final ConcurrentLinkedQueue<OFilter> idleFilters    = new ConcurrentLinkedQueue<OFilter>();
+  private final ConcurrentLinkedQueue<ORange>  ranges         = new ConcurrentLinkedQueue<ORange>();
+  private final BlockingQueue<Object>          results;
+  private final int                            resultsSize;
+  private final AtomicInteger                  runningWorkers = new AtomicInteger();
+  private final AtomicLong                     recordReads    = new AtomicLong();
+  private final AtomicLong                     documentReads  = new AtomicLong();
+  private volatile boolean                     cancelled      = false;
+  private volatile Throwable                   error;
+  private boolean                              started;
+  private ORecordInternal<?>                   nextRecord;
+
+  /**
+   * Filter evaluated by a worker. Every worker receives its own instance.
+   */
+  public interface OFilter {
+    public boolean evaluate(ORecordInternal<?> iRecord);
+  }
+
+  private static class ORange {
+    private final int              clusterId;
+    private final OClusterPosition from;
+    private final OClusterPosition to;
+
+    private ORange(final int iClusterId, final OClusterPosition iFrom, final OClusterPosition iTo) {
+      clusterId = iClusterId;
+      from = iFrom;
+      to = iTo;
+    }
+  }
+
+  private static class OWorkerThread extends Thread {
+    private OWorkerThread(final Runnable iTask, final String iName) {
+      super(iTask, iName);
+    }
+  }
+
+  private static class OMatch {
+    private final ORecordId  rid;
+    private final ORawBuffer buffer;
+
+    private OMatch(final ORecordId iRid, final ORawBuffer iBuffer) {
+      rid = iRid;
+      buffer = iBuffer;
+    }
+  }
+
+  /**
+   * @param iDatabase
+   *          Database of the caller. Every worker opens its own instance for the same user
+   * @param iClusterIds
+   *          Clusters to scan
+   * @param iFilters
+   *          One filter per worker: the number of workers never exceeds the filters
+   */
+  public OParallelClusterScan(final ODatabaseRecordAbstract iDatabase, final int[] iClusterIds, final List<OFilter> iFilters) {
+    this(iDatabase, iClusterIds, iFilters, Math.max(iFilters.size() * 1000, 1000));
+  }
+
+  /**
+   * @param iResultsSize
+   *          Number of matching records the workers can read ahead of the caller
+   */
+  public OParallelClusterScan(final ODatabaseRecordAbstract iDatabase, final int[] iClusterIds, final List<OFilter> iFilters,
+      final int iResultsSize) {
+    database = iDatabase;
+    storage = iDatabase.getStorage();
+    idleFilters.addAll(iFilters);
+    resultsSize = iResultsSize;
+    results = new ArrayBlockingQueue<Object>(iResultsSize);
+
+    final long rangeSize = OGlobalConfiguration.QUERY_PARALLEL_RANGE_SIZE.getValueAsLong();
+    for (int clusterId : iClusterIds) {
+      final OClusterPosition[] range = storage.getClusterDataRange(clusterId);
+      if (!range[0].isValid() || !range[1].isValid() || range[0].compareTo(range[1]) > 0)
+        // EMPTY CLUSTER
+        continue;
+
+      if (rangeSize > 0 && range[0] instanceof OClusterPositionLong)
+        for (long from = range[0].longValue(); from <= range[1].longValue(); from += rangeSize)
+          ranges.add(new ORange(clusterId, OClusterPositionFactory.INSTANCE.valueOf(from), OClusterPositionFactory.INSTANCE
+              .valueOf(Math.min(from + rangeSize - 1, range[1].longValue()))));
+      else
+        // POSITIONS ARE NOT CONTIGUOUS NUMBERS: SCAN THE WHOLE CLUSTER IN ONE WORKER
+        ranges.add(new ORange(clusterId, range[0], range[1]));
+    }
+  }
+
+  /**
+   * Starts the workers and marks the current thread as inside a scan until {@link #close()}.
+   */
+  public OParallelClusterScan start() {
+    final Integer scans = openScans.get();
+    openScans.set(scans == null ? 1 : scans + 1);
+    started = true;
+
+    resumeWorkers();
+    return this;
+  }
+
+  public boolean hasNext() {
+    while (nextRecord == null && !cancelled) {
+      Object result = results.poll();
+      if (result == null) {
+        if (runningWorkers.get() == 0) {
+          // THE RESULTS ARE QUEUED BEFORE THE WORKERS END: READ THE LAST ONES
+          result = results.poll();
+          if (result == null) {
+            checkError();
+            if (ranges.isEmpty())
+              break;
+            resumeWorkers();
+            continue;
+          }
+        } else
+          try {
+            result = results.poll(100, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new OCommandExecutionException("Parallel scan interrupted");
+          }
+      }
+
+      checkError();
+      if (result != null && result != END) {
+        final OMatch match = (OMatch) result;
+        nextRecord = database.executeReadRecord(match.rid, null, null, false, match.buffer);
+      }
+
+      if (results.size() <= resultsSize / 2)
+        resumeWorkers();
+    }
+    return nextRecord != null;
+  }
+
+  public OIdentifiable next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    final ORecordInternal<?> record = nextRecord;
+    nextRecord = null;
+    return record;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove");
+  }
+
+  /**
+   * Stops the workers. The records already read and not returned are discarded.
+   */
+  public void close() {
+    cancelled = true;
+    nextRecord = null;
+    results.clear();
+
+    if (started) {
+      started = false;
+      final int scans = openScans.get() - 1;
+      if (scans == 0)
+        openScans.remove();
+      else
+        openScans.set(scans);
+    }
+  }
+
+  public long getRecordReads() {
+    return recordReads.get();
+  }
+
+  public long getDocumentReads() {
+    return documentReads.get();
+  }
+
+  /**
+   * Starts a worker for every idle filter while there are ranges to scan.
+   */
+  private void resumeWorkers() {
+    while (!cancelled && !ranges.isEmpty()) {
+      final OFilter filter = idleFilters.poll();
+      if (filter == null)
+        return;
+
+      runningWorkers.incrementAndGet();
+      getExecutor().execute(new Runnable() {
+        public void run() {
+          try {
+            scan(filter);
+          } finally {
+            // THE FILTER IS IDLE BEFORE THE WORKER ENDS: WHO SEES THE WORKERS ENDED FINDS THE FILTERS TO START THEM AGAIN
+            idleFilters.add(filter);
+            runningWorkers.decrementAndGet();
+            // WAKE UP THE CALLER, IF THE QUEUE IS FULL IT'S NOT WAITING
+            results.offer(END);
+          }
+        }
+      });
+    }
+  }
+
+  private void checkError() {
+    if (error != null) {
+      close();
+      throw new OCommandExecutionException("Error on parallel scan of clusters", error);
+    }
+  }
+
+  private void scan(final OFilter iFilter) {
+    ODatabaseRecordTx workerDatabase = null;
+    try {
+      // DATABASE INSTANCES ARE NOT THREAD-SAFE: DESERIALIZE AND EVALUATE WITH AN INSTANCE OWNED BY THE WORKER
+      final ODatabaseRecordTx db = new ODatabaseRecordTx(database.getURL(), database.getRecordType());
+      db.open(database);
+      workerDatabase = db;
+
+      ORange range;
+      while (!cancelled && (range = ranges.poll()) != null) {
+        OClusterPosition position = range.from;
+        while (!cancelled && position.isValid() && position.compareTo(range.to) <= 0) {
+          final ORecordId rid = new ORecordId(range.clusterId, position);
+          final ORawBuffer buffer = storage.readRecord(rid, null, false, null).getResult();
+          if (buffer != null) {
+            recordReads.incrementAndGet();
+
+            if (buffer.recordType == ODocument.RECORD_TYPE) {
+              documentReads.incrementAndGet();
+
+              final ORecordInternal<?> record = Orient.instance().getRecordFactoryManager().newInstance(buffer.recordType);
+              record.fill(rid, buffer.version, buffer.buffer, false);
+              record.fromStream(buffer.buffer);
+
+              if (iFilter.evaluate(record) && !results.offer(new OMatch(rid, buffer))) {
+                // THE CALLER IS SLOWER: DON'T WAIT FOR IT, SCAN THE REST OF THE RANGE LATER STARTING AGAIN FROM THIS RECORD
+                ranges.add(new ORange(range.clusterId, position, range.to));
+                return;
+              }
+            }
+          }
+
+          position = storage.getNextClusterPosition(range.clusterId, position);
+        }
+      }
+
+    } catch (Throwable t) {
+      if (error == null)
+        error = t;
+    } finally {
+      if (workerDatabase != null)
+        workerDatabase.close();
+      ODatabaseRecordThreadLocal.INSTANCE.remove();
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      final AtomicInteger counter = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(getThreads(), new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+          final Thread thread = new OWorkerThread(r, "OrientDB ParallelScan-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+  /**
+   * Tells if the current thread is a worker of a scan or the caller of a scan not closed yet. These threads must not start other
+   * parallel scans, for example to evaluate a sub-query or in a result listener: the queries they execute run in the thread.
+   */
+  public static boolean isInsideScan() {
+    return Thread.currentThread() instanceof OWorkerThread || openScans.get() != null;
+  }
+
+  /**
+   * Returns the number of threads of the shared pool, that is the maximum number of workers of a scan.
+   */
+  public static int getThreads() {
+    final int threads = OGlobalConfiguration.QUERY_PARALLEL_THREADS.getValueAsInteger();
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.profiler.OJVMProfiler;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Parsed SELECT statements of a storage, kept in LRU order by text. Executors are not thread-safe, so every statement keeps the
+ * executors that are not running: an execution takes one out with {@link #acquire(String)} and gives it back with
+ * {@link #release(String, OCommandExecutorSQLSelect)} when it's finished. The cache is a shared resource of the storage and it's
+ * dropped by {@link #invalidate()} when the schema or the indexes change, since the parsed statements point to classes and indexes.
+ */
+public class OSQLStatementCache {
+  private static final String     RESOURCE_NAME           = OSQLStatementCache.class.getSimpleName();
+  private static final int        EXECUTORS_PER_STATEMENT = 16;
+
+  private final String            storageName;
+  private final OStatementsByText statements;
+
+  @SuppressWarnings("serial")
+  private static class OStatementsByText extends LinkedHashMap<String, LinkedList<OCommandExecutorSQLSelect>> {
+    private final int limit;
+
+    public OStatementsByText(final int iLimit) {
+      super(16, 0.75f, true);
+      limit = iLimit;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, LinkedList<OCommandExecutorSQLSelect>> eldest) {
+      return size() > limit;
+    }
+  }
+
+  public OSQLStatementCache(final String iStorageName, final int iSize) {
+    storageName = iStorageName;
+    statements = new OStatementsByText(iSize);
+  }
+
+  /**
+   * Returns the cache of the storage of the database, or null if it's disabled.
+   */
+  public static OSQLStatementCache get(final ODatabaseRecord iDatabase) {
+    final int size = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+    if (size <= 0 || iDatabase == null)
+      return null;
+
+    final OStorage storage = iDatabase.getStorage();
+    return storage.getResource(RESOURCE_NAME, new Callable<OSQLStatementCache>() {
+      public OSQLStatementCache call() throws Exception {
+        return new OSQLStatementCache(storage.getName(), size);
+      }
+    });
+  }
+
+  /**
+   * Drops the parsed statements of the storage of the current database. The executions in progress give back their executors to
+   * the old cache, so they are never executed again.
+   */
+  public static void invalidate() {
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database != null && database.getStorage() != null)
+      database.getStorage().removeResource(RESOURCE_NAME);
+  }
+
+  /**
+   * Takes a parsed executor of the statement out of the cache.
+   *
+   * @return the executor or null if the statement has never been executed or all its executors are running
+   */
+  public synchronized OCommandExecutorSQLSelect acquire(final String iText) {
+    final LinkedList<OCommandExecutorSQLSelect> executors = statements.get(iText);
+    final OCommandExecutorSQLSelect executor = executors != null ? executors.poll() : null;
+
+    final OJVMProfiler profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.updateCounter(
+          profiler.getDatabaseMetric(storageName, executor != null ? "statementCache.hits" : "statementCache.misses"),
+          "Executions of SELECT statements with and without a parsed statement in cache", +1);
+    return executor;
+  }
+
+  /**
+   * Gives back the executor of the statement after its execution.
+   */
+  public synchronized void release(final String iText, final OCommandExecutorSQLSelect iExecutor) {
+    LinkedList<OCommandExecutorSQLSelect> executors = statements.get(iText);
+    if (executors == null) {
+      executors = new LinkedList<OCommandExecutorSQLSelect>();
+      statements.put(iText, executors);
+    }
+
+    if (executors.size() < EXECUTORS_PER_STATEMENT)
+      executors.add(iExecutor);
+  }
+
+  public synchronized int size() {
+    return statements.size();
+  }
+}
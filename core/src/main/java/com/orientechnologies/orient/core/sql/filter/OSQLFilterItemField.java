@@ -53,8 +53,11 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
       preLoadedFields.toArray(preLoadedFieldsArray);
     }
 
+    // WITH THE BINARY FORMAT EVERY FIELD IS READ ON ITS OWN: WITHOUT PRELOADED FIELDS LOAD ONLY THIS ONE
+    final String[] fields = preLoadedFieldsArray == null && doc.isLoadableByField() ? new String[] { name } : preLoadedFieldsArray;
+
     // UNMARSHALL THE SINGLE FIELD
-    if (doc.deserializeFields(preLoadedFieldsArray))
+    if (doc.deserializeFields(fields))
       // FIELD FOUND
       return transformValue(iRecord, ODocumentHelper.getFieldValue(doc, name));
 
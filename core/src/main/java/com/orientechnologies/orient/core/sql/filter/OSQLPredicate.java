@@ -380,6 +380,15 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     }
   }
 
+  /**
+   * Unbinds all the parameters, so a predicate executed again doesn't use the values of the last execution.
+   */
+  public void resetParameters() {
+    if (parameterItems != null)
+      for (OSQLFilterItemParameter value : parameterItems)
+        value.reset();
+  }
+
   public OSQLFilterItemParameter addParameter(final String iName) {
     final String name;
     if (iName.charAt(0) == OStringSerializerHelper.PARAMETER_NAMED) {
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of vertex ids (see {@link OPathVertexTable}) ordered by a float priority. The position of every id in the heap is
+ * tracked, so the priority of a queued id can be decreased in O(log n) instead of queueing it again.
+ */
+public class OPathFinderHeap {
+  private static final int NOT_QUEUED = -1;
+  private static final int POLLED     = -2;
+
+  private int[]            heap       = new int[64];
+  private float[]          priorities = new float[64];
+  private int[]            positions  = new int[64];
+  private int              size;
+
+  public OPathFinderHeap() {
+    Arrays.fill(positions, NOT_QUEUED);
+  }
+
+  /**
+   * Queues the id with the priority, or moves it up if it's already queued with a higher priority. Ids already polled are ignored.
+   */
+  public void offer(final int iId, final float iPriority) {
+    ensureId(iId);
+
+    int position = positions[iId];
+    if (position == POLLED)
+      return;
+
+    if (position == NOT_QUEUED) {
+      if (size == heap.length) {
+        final int[] newHeap = new int[size << 1];
+        System.arraycopy(heap, 0, newHeap, 0, size);
+        heap = newHeap;
+      }
+      position = size++;
+      heap[position] = iId;
+      positions[iId] = position;
+    } else if (priorities[iId] <= iPriority)
+      return;
+
+    priorities[iId] = iPriority;
+    siftUp(position);
+  }
+
+  /**
+   * Removes the id with the lowest priority.
+   *
+   * @return the id or -1 if the heap is empty
+   */
+  public int poll() {
+    if (size == 0)
+      return -1;
+
+    final int id = heap[0];
+    positions[id] = POLLED;
+
+    if (--size > 0) {
+      heap[0] = heap[size];
+      positions[heap[0]] = 0;
+      siftDown(0);
+    }
+    return id;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isPolled(final int iId) {
+    return iId < positions.length && positions[iId] == POLLED;
+  }
+
+  public float getPriority(final int iId) {
+    return priorities[iId];
+  }
+
+  private void siftUp(int iPosition) {
+    final int id = heap[iPosition];
+    final float priority = priorities[id];
+
+    while (iPosition > 0) {
+      final int parent = (iPosition - 1) >>> 1;
+      final int parentId = heap[parent];
+      if (priorities[parentId] <= priority)
+        break;
+
+      heap[iPosition] = parentId;
+      positions[parentId] = iPosition;
+      iPosition = parent;
+    }
+
+    heap[iPosition] = id;
+    positions[id] = iPosition;
+  }
+
+  private void siftDown(int iPosition) {
+    final int id = heap[iPosition];
+    final float priority = priorities[id];
+
+    for (;;) {
+      int child = (iPosition << 1) + 1;
+      if (child >= size)
+        break;
+
+      if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]])
+        child++;
+
+      final int childId = heap[child];
+      if (priorities[childId] >= priority)
+        break;
+
+      heap[iPosition] = childId;
+      positions[childId] = iPosition;
+      iPosition = child;
+    }
+
+    heap[iPosition] = id;
+    positions[id] = iPosition;
+  }
+
+  private void ensureId(final int iId) {
+    if (iId < positions.length)
+      return;
+
+    int capacity = positions.length << 1;
+    while (capacity <= iId)
+      capacity <<= 1;
+
+    final int[] newPositions = new int[capacity];
+    System.arraycopy(positions, 0, newPositions, 0, positions.length);
+    Arrays.fill(newPositions, positions.length, capacity, NOT_QUEUED);
+    positions = newPositions;
+
+    final float[] newPriorities = new float[capacity];
+    System.arraycopy(priorities, 0, newPriorities, 0, priorities.length);
+    priorities = newPriorities;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import com.orientechnologies.common.collection.OLongIntHashMap;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Vertices visited by a path search. Every vertex gets a sequential id used as index of the primitive arrays that keep its
+ * predecessor, depth and distance from the start of the search. Ids are found by RID in a primitive map keyed by cluster id and
+ * cluster position, RIDs that don't fit in a long (node id positions) fall back to a plain map.
+ */
+public class OPathVertexTable {
+  private static final int           POSITION_BITS = 48;
+
+  private final OLongIntHashMap      ids           = new OLongIntHashMap();
+  private Map<ORID, Integer>         otherIds;
+
+  private ORID[]                     rids          = new ORID[64];
+  private int[]                      predecessors  = new int[64];
+  private int[]                      depths        = new int[64];
+  private float[]                    distances     = new float[64];
+  private int                        size;
+
+  /**
+   * Returns the id of the vertex or -1 if it has not been visited.
+   */
+  public int get(final ORID iRid) {
+    final long key = key(iRid);
+    if (key > -1)
+      return ids.get(key, -1);
+
+    if (otherIds == null)
+      return -1;
+    final Integer id = otherIds.get(iRid);
+    return id != null ? id.intValue() : -1;
+  }
+
+  /**
+   * Adds a vertex not visited yet.
+   *
+   * @return the id of the vertex
+   */
+  public int add(final ORID iRid, final int iPredecessor, final int iDepth, final float iDistance) {
+    if (size == rids.length) {
+      final int capacity = size << 1;
+      final ORID[] newRids = new ORID[capacity];
+      System.arraycopy(rids, 0, newRids, 0, size);
+      rids = newRids;
+
+      final int[] newPredecessors = new int[capacity];
+      System.arraycopy(predecessors, 0, newPredecessors, 0, size);
+      predecessors = newPredecessors;
+
+      final int[] newDepths = new int[capacity];
+      System.arraycopy(depths, 0, newDepths, 0, size);
+      depths = newDepths;
+
+      final float[] newDistances = new float[capacity];
+      System.arraycopy(distances, 0, newDistances, 0, size);
+      distances = newDistances;
+    }
+
+    final int id = size++;
+    rids[id] = iRid;
+    predecessors[id] = iPredecessor;
+    depths[id] = iDepth;
+    distances[id] = iDistance;
+
+    final long key = key(iRid);
+    if (key > -1)
+      ids.put(key, id);
+    else {
+      if (otherIds == null)
+        otherIds = new HashMap<ORID, Integer>();
+      otherIds.put(iRid, id);
+    }
+    return id;
+  }
+
+  /**
+   * Updates the vertex when a shorter path to it has been found.
+   */
+  public void update(final int iId, final int iPredecessor, final int iDepth, final float iDistance) {
+    predecessors[iId] = iPredecessor;
+    depths[iId] = iDepth;
+    distances[iId] = iDistance;
+  }
+
+  public ORID getRid(final int iId) {
+    return rids[iId];
+  }
+
+  public int getPredecessor(final int iId) {
+    return predecessors[iId];
+  }
+
+  public int getDepth(final int iId) {
+    return depths[iId];
+  }
+
+  public float getDistance(final int iId) {
+    return distances[iId];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the path from the first vertex of the search to the vertex following the predecessors.
+   */
+  public LinkedList<OIdentifiable> getPath(final int iId) {
+    final LinkedList<OIdentifiable> path = new LinkedList<OIdentifiable>();
+    for (int id = iId; id > -1; id = predecessors[id])
+      path.addFirst(rids[id]);
+    return path;
+  }
+
+  private static long key(final ORID iRid) {
+    final OClusterPosition position = iRid.getClusterPosition();
+    if (!(position instanceof OClusterPositionLong))
+      return -1;
+
+    final long value = position.longValue();
+    if (value < 0 || value >= 1L << POSITION_BITS || iRid.getClusterId() < 0)
+      return -1;
+
+    return ((long) iRid.getClusterId() << POSITION_BITS) | value;
+  }
+}
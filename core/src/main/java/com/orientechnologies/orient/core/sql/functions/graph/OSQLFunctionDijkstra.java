@@ -15,8 +15,9 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
-import java.util.Set;
+import java.util.LinkedList;
 
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
@@ -24,24 +25,32 @@ import com.orientechnologies.orient.core.db.graph.OGraphDatabase.DIRECTION;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.filter.OSQLPredicate;
 
 /**
- * Dijkstra's algorithm describes how to find the cheapest path from one node to another node in a directed weighted graph.
+ * Dijkstra's algorithm describes how to find the cheapest path from one node to another node in a directed weighted graph. The
+ * vertices to expand are kept in a binary heap ordered by distance.<br/>
+ * If a heuristic expression is passed the search becomes an A*: the expression is evaluated against every vertex reached, with
+ * the destination vertex as $destination variable, and added to its distance to order the heap. The heuristic must never
+ * overestimate the distance to the destination, otherwise the path found could be not the cheapest.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
-public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
-  public static final String NAME = "dijkstra";
-  private static final Float MIN  = new Float(0f);
+public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder {
+  public static final String  NAME = "dijkstra";
 
-  private String             paramWeightFieldName;
+  private String              paramWeightFieldName;
+  private OSQLPredicate       paramHeuristic;
+  private OCommandContext     heuristicContext;
 
   public OSQLFunctionDijkstra() {
-    super(NAME, 3, 4);
+    super(NAME, 3, 6);
   }
 
   public Object execute(OIdentifiable iCurrentRecord, ODocument iCurrentResult, final Object[] iParameters, OCommandContext iContext) {
@@ -54,48 +63,77 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
     paramSourceVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[0], record, iContext);
     paramDestinationVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[1], record, iContext);
     paramWeightFieldName = (String) OSQLHelper.getValue(iParameters[2], record, iContext);
-    if (iParameters.length > 3)
+    if (iParameters.length > 3 && iParameters[3] != null)
       paramDirection = DIRECTION.valueOf(iParameters[3].toString().toUpperCase());
+    if (iParameters.length > 4) {
+      final Object heuristic = OSQLHelper.getValue(iParameters[4], record, iContext);
+      paramHeuristic = heuristic != null ? new OSQLPredicate(heuristic.toString()) : null;
+    }
+    if (iParameters.length > 5) {
+      final Object maxDepth = OSQLHelper.getValue(iParameters[5], record, iContext);
+      paramMaxDepth = maxDepth instanceof Number ? ((Number) maxDepth).intValue() : -1;
+    }
 
     return super.execute(iParameters, iContext);
   }
 
   public String getSyntax() {
-    return "Syntax error: dijkstra(<sourceVertex>, <destinationVertex>, <weightEdgeFieldName>, [<direction>])";
+    return "Syntax error: dijkstra(<sourceVertex>, <destinationVertex>, <weightEdgeFieldName>, [<direction>], [<heuristic>], [<maxDepth>])";
   }
 
   @Override
-  protected Float getShortestDistance(final OIdentifiable destination) {
-    if (destination == null)
-      return Float.MAX_VALUE;
+  protected LinkedList<OIdentifiable> search(final ORID iSource, final ORID iDestination) {
+    if (paramHeuristic != null) {
+      heuristicContext = new OBasicCommandContext();
+      heuristicContext.setVariable("destination", db.load(iDestination));
+    }
 
-    final Float d = distance.get(destination);
-    return d == null ? Float.MAX_VALUE : d;
-  }
+    final OPathVertexTable vertices = new OPathVertexTable();
+    final OPathFinderHeap queue = new OPathFinderHeap();
+    queue.offer(vertices.add(iSource, -1, 0, 0f), getHeuristic(iSource));
 
-  @Override
-  protected Float getMinimumDistance() {
-    return MIN;
-  }
+    while (!queue.isEmpty()) {
+      final int current = queue.poll();
+      final ORID vertex = vertices.getRid(current);
+      if (vertex.equals(iDestination))
+        return vertices.getPath(current);
+
+      final int depth = vertices.getDepth(current);
+      if (paramMaxDepth > -1 && depth >= paramMaxDepth)
+        continue;
 
-  protected Float getDistance(final OIdentifiable node, final OIdentifiable target) {
-    final Set<OIdentifiable> edges = db.getEdgesBetweenVertexes(node, target);
-    if (!edges.isEmpty()) {
-      final ODocument e = edges.iterator().next().getRecord();
-      if (e != null) {
-        final Object fieldValue = e.field(paramWeightFieldName);
-        if (fieldValue != null)
-          if (fieldValue instanceof Float)
-            return (Float) fieldValue;
-          else if (fieldValue instanceof Number)
-            return ((Number) fieldValue).floatValue();
+      final float distance = vertices.getDistance(current);
+      loadNeighbors(vertex, paramDirection, paramWeightFieldName);
+
+      for (int i = 0; i < neighborsCount; ++i) {
+        final float d = distance + neighborWeights[i];
+
+        int id = vertices.get(neighbors[i]);
+        if (id == -1) {
+          if (isMaxVisitedReached(vertices.size()))
+            return null;
+
+          id = vertices.add(neighbors[i], current, depth + 1, d);
+          queue.offer(id, d + getHeuristic(neighbors[i]));
+
+        } else if (!queue.isPolled(id) && d < vertices.getDistance(id)) {
+          // SHORTER PATH: REUSE THE HEURISTIC ALREADY COMPUTED, IT'S THE PRIORITY MINUS THE DISTANCE
+          final float heuristic = queue.getPriority(id) - vertices.getDistance(id);
+          vertices.update(id, current, depth + 1, d);
+          queue.offer(id, d + heuristic);
+        }
       }
     }
-    return MIN;
+
+    return null;
   }
 
-  @Override
-  protected Float sumDistances(final Float iDistance1, final Float iDistance2) {
-    return iDistance1.floatValue() + iDistance2.floatValue();
+  private float getHeuristic(final ORID iVertex) {
+    if (paramHeuristic == null)
+      return 0f;
+
+    final ORecord<?> vertex = db.load(iVertex);
+    final Object value = paramHeuristic.evaluate(vertex, null, heuristicContext);
+    return value instanceof Number ? ((Number) value).floatValue() : 0f;
   }
 }
@@ -15,86 +15,62 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase.DIRECTION;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMathAbstract;
 
 /**
- * Abstract class to find paths between nodes.
+ * Abstract class to find paths between nodes. Visited vertices are kept by RID in a {@link OPathVertexTable}: expanding a vertex
+ * loads the vertex and its edges but never the adjacent vertices.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
-public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OSQLFunctionMathAbstract {
-  protected OGraphDatabase                    db;
-  protected Set<OIdentifiable>                settledNodes;
-  protected Set<OIdentifiable>                unSettledNodes;
-  protected Map<OIdentifiable, OIdentifiable> predecessors;
-  protected Map<OIdentifiable, T>             distance;
+public abstract class OSQLFunctionPathFinder extends OSQLFunctionMathAbstract {
+  protected OGraphDatabase            db;
 
-  protected OIdentifiable                     paramSourceVertex;
-  protected OIdentifiable                     paramDestinationVertex;
-  protected OGraphDatabase.DIRECTION          paramDirection = DIRECTION.OUT;
+  protected OIdentifiable             paramSourceVertex;
+  protected OIdentifiable             paramDestinationVertex;
+  protected OGraphDatabase.DIRECTION  paramDirection   = DIRECTION.OUT;
+  protected int                       paramMaxDepth    = -1;
+  protected int                       maxVisited;
+
+  protected ORID[]                    neighbors        = new ORID[16];
+  protected float[]                   neighborWeights  = new float[16];
+  protected int                       neighborsCount;
+
+  private LinkedList<OIdentifiable>   path;
 
   public OSQLFunctionPathFinder(final String iName, final int iMinParams, final int iMaxParams) {
     super(iName, iMinParams, iMaxParams);
   }
 
-  protected abstract T getDistance(OIdentifiable node, OIdentifiable target);
-
-  protected abstract T getShortestDistance(OIdentifiable destination);
-
-  protected abstract T getMinimumDistance();
-
-  protected abstract T sumDistances(T iDistance1, T iDistance2);
+  /**
+   * Searches the path between the two vertices.
+   * 
+   * @return the RIDs of the vertices of the path, including source and destination, or null if no path exists within the limits.
+   */
+  protected abstract LinkedList<OIdentifiable> search(ORID iSource, ORID iDestination);
 
   public Object execute(final Object[] iParameters, final OCommandContext iContext) {
-    settledNodes = new HashSet<OIdentifiable>();
-    unSettledNodes = new HashSet<OIdentifiable>();
-    distance = new HashMap<OIdentifiable, T>();
-    predecessors = new HashMap<OIdentifiable, OIdentifiable>();
-    distance.put(paramSourceVertex, getMinimumDistance());
-    unSettledNodes.add(paramSourceVertex);
-
-    while (continueTraversing()) {
-      final OIdentifiable node = getMinimum(unSettledNodes);
-      settledNodes.add(node);
-      unSettledNodes.remove(node);
-      findMinimalDistances(node);
-    }
+    maxVisited = OGlobalConfiguration.QUERY_GRAPH_MAX_VISITED.getValueAsInteger();
 
-    return getPath(paramDestinationVertex);
-  }
+    if (paramSourceVertex == null || paramDestinationVertex == null)
+      path = null;
+    else if (paramSourceVertex.getIdentity().equals(paramDestinationVertex.getIdentity())) {
+      path = new LinkedList<OIdentifiable>();
+      path.add(paramSourceVertex.getIdentity());
+    } else
+      path = search(paramSourceVertex.getIdentity(), paramDestinationVertex.getIdentity());
 
-  /*
-   * This method returns the path from the source to the selected target and NULL if no path exists
-   */
-  public LinkedList<OIdentifiable> getPath(final OIdentifiable target) {
-    final LinkedList<OIdentifiable> path = new LinkedList<OIdentifiable>();
-    OIdentifiable step = target;
-    // Check if a path exists
-    if (predecessors.get(step) == null) {
-      return null;
-    }
-    path.add(step);
-    while (predecessors.get(step) != null) {
-      step = predecessors.get(step);
-      path.add(step);
-    }
-    // Put it into the correct order
-    Collections.reverse(path);
     return path;
   }
 
@@ -104,57 +80,87 @@ public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OS
 
   @Override
   public Object getResult() {
-    return settledNodes;
+    return path;
   }
 
-  protected void findMinimalDistances(final OIdentifiable node) {
-    final List<OIdentifiable> adjacentNodes = getNeighbors(node);
-    for (OIdentifiable target : adjacentNodes) {
-      final T d = sumDistances(getShortestDistance(node), getDistance(node, target));
+  /**
+   * Copies the RIDs of the vertices adjacent to the vertex in the neighbors array. The adjacent vertices are not loaded.
+   * 
+   * @param iVertex
+   *          vertex to expand
+   * @param iDirection
+   *          direction of the edges to follow
+   * @param iWeightFieldName
+   *          edge field to copy in the neighborWeights array, null to ignore the weights
+   * @return the number of neighbors
+   */
+  protected int loadNeighbors(final ORID iVertex, final DIRECTION iDirection, final String iWeightFieldName) {
+    neighborsCount = 0;
 
-      if (getShortestDistance(target).compareTo(d) > 0) {
-        distance.put(target, d);
-        predecessors.put(target, node);
-        unSettledNodes.add(target);
-      }
-    }
+    final ORecord<?> record = db.load(iVertex);
+    if (!(record instanceof ODocument))
+      return 0;
+
+    final ODocument vertex = (ODocument) record;
+    if (iDirection == DIRECTION.BOTH || iDirection == DIRECTION.OUT)
+      addNeighbors(vertex.field(OGraphDatabase.VERTEX_FIELD_OUT), OGraphDatabase.EDGE_FIELD_IN, iWeightFieldName);
+    if (iDirection == DIRECTION.BOTH || iDirection == DIRECTION.IN)
+      addNeighbors(vertex.field(OGraphDatabase.VERTEX_FIELD_IN), OGraphDatabase.EDGE_FIELD_OUT, iWeightFieldName);
 
+    return neighborsCount;
   }
 
-  protected List<OIdentifiable> getNeighbors(final OIdentifiable node) {
-    final List<OIdentifiable> neighbors = new ArrayList<OIdentifiable>();
-    if (node != null) {
-      if (paramDirection == DIRECTION.BOTH || paramDirection == DIRECTION.OUT)
-        for (OIdentifiable edge : db.getOutEdges(node)) {
-          final ODocument inVertex = db.getInVertex(edge);
-          if (inVertex != null && !isSettled(inVertex))
-            neighbors.add(inVertex);
-        }
-
-      if (paramDirection == DIRECTION.BOTH || paramDirection == DIRECTION.IN)
-        for (OIdentifiable edge : db.getInEdges(node)) {
-          final ODocument outVertex = db.getOutVertex(edge);
-          if (outVertex != null && !isSettled(outVertex))
-            neighbors.add(outVertex);
-        }
-    }
-    return neighbors;
+  /**
+   * Returns true if the search visited as many vertices as allowed by query.graph.maxVisited.
+   */
+  protected boolean isMaxVisitedReached(final int iVisited) {
+    return maxVisited > 0 && iVisited >= maxVisited;
   }
 
-  protected OIdentifiable getMinimum(final Set<OIdentifiable> vertexes) {
-    OIdentifiable minimum = null;
-    for (OIdentifiable vertex : vertexes) {
-      if (minimum == null || getShortestDistance(vertex).compareTo(getShortestDistance(minimum)) < 0)
-        minimum = vertex;
-    }
-    return minimum;
+  protected static DIRECTION reverse(final DIRECTION iDirection) {
+    if (iDirection == DIRECTION.OUT)
+      return DIRECTION.IN;
+    else if (iDirection == DIRECTION.IN)
+      return DIRECTION.OUT;
+    return iDirection;
   }
 
-  protected boolean isSettled(final OIdentifiable vertex) {
-    return settledNodes.contains(vertex);
+  private void addNeighbors(final Object iEdges, final String iVertexFieldName, final String iWeightFieldName) {
+    if (!(iEdges instanceof Iterable<?>))
+      return;
+
+    for (Object e : (Iterable<?>) iEdges) {
+      if (!(e instanceof OIdentifiable))
+        continue;
+
+      final ORecord<?> record = ((OIdentifiable) e).getRecord();
+      if (!(record instanceof ODocument))
+        continue;
+
+      final ODocument edge = (ODocument) record;
+      final Object vertex = edge.rawField(iVertexFieldName);
+      if (!(vertex instanceof OIdentifiable))
+        continue;
+
+      if (neighborsCount == neighbors.length) {
+        final ORID[] newNeighbors = new ORID[neighborsCount << 1];
+        System.arraycopy(neighbors, 0, newNeighbors, 0, neighborsCount);
+        neighbors = newNeighbors;
+
+        final float[] newWeights = new float[neighborsCount << 1];
+        System.arraycopy(neighborWeights, 0, newWeights, 0, neighborsCount);
+        neighborWeights = newWeights;
+      }
+
+      neighbors[neighborsCount] = ((OIdentifiable) vertex).getIdentity();
+      neighborWeights[neighborsCount] = iWeightFieldName != null ? getWeight(edge.field(iWeightFieldName)) : 0f;
+      neighborsCount++;
+    }
   }
 
-  protected boolean continueTraversing() {
-    return unSettledNodes.size() > 0;
+  private static float getWeight(final Object iFieldValue) {
+    if (iFieldValue instanceof Number)
+      return ((Number) iFieldValue).floatValue();
+    return 0f;
   }
 }
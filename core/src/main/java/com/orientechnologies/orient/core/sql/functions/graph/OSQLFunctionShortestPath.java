@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
+import java.util.LinkedList;
+
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
@@ -22,23 +24,24 @@ import com.orientechnologies.orient.core.db.graph.OGraphDatabase.DIRECTION;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 
 /**
- * Shortest path algorithm to find the shortest path from one node to another node in a directed graph.
+ * Shortest path algorithm to find the shortest path from one node to another node in a directed graph. The search is a breadth
+ * first search started from both the vertices: at every step the smaller frontier is expanded by one level, following the
+ * edges backward from the destination, until the two searches meet.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
-public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
-  public static final String   NAME     = "shortestPath";
-  private static final Integer MIN      = new Integer(0);
-  private static final Integer DISTANCE = new Integer(1);
+public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder {
+  public static final String NAME = "shortestPath";
 
   public OSQLFunctionShortestPath() {
-    super(NAME, 2, 3);
+    super(NAME, 2, 4);
   }
 
   public Object execute(final OIdentifiable iCurrentRecord, ODocument iCurrentResult, final Object[] iParameters, final OCommandContext iContext) {
@@ -50,36 +53,107 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
 
     paramSourceVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[0], record, iContext);
     paramDestinationVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[1], record, iContext);
-    if (iParameters.length > 2)
+    if (iParameters.length > 2 && iParameters[2] != null)
       paramDirection = DIRECTION.valueOf(iParameters[2].toString().toUpperCase());
+    if (iParameters.length > 3) {
+      final Object maxDepth = OSQLHelper.getValue(iParameters[3], record, iContext);
+      paramMaxDepth = maxDepth instanceof Number ? ((Number) maxDepth).intValue() : -1;
+    }
 
     return super.execute(iParameters, iContext);
   }
 
   public String getSyntax() {
-    return "Syntax error: shortestPath(<sourceVertex>, <destinationVertex>, [<direction>])";
+    return "Syntax error: shortestPath(<sourceVertex>, <destinationVertex>, [<direction>], [<maxDepth>])";
   }
 
   @Override
-  protected Integer getShortestDistance(final OIdentifiable destination) {
-    if (destination == null)
-      return Integer.MAX_VALUE;
+  protected LinkedList<OIdentifiable> search(final ORID iSource, final ORID iDestination) {
+    final OPathVertexTable forward = new OPathVertexTable();
+    final OPathVertexTable backward = new OPathVertexTable();
 
-    final Integer d = distance.get(destination);
-    return d == null ? Integer.MAX_VALUE : d;
-  }
+    int[] forwardFrontier = new int[] { forward.add(iSource, -1, 0, 0f) };
+    int forwardFrontierSize = 1;
+    int forwardDepth = 0;
 
-  @Override
-  protected Integer getMinimumDistance() {
-    return MIN;
-  }
+    int[] backwardFrontier = new int[] { backward.add(iDestination, -1, 0, 0f) };
+    int backwardFrontierSize = 1;
+    int backwardDepth = 0;
 
-  protected Integer getDistance(final OIdentifiable node, final OIdentifiable target) {
-    return DISTANCE;
-  }
+    while (forwardFrontierSize > 0 && backwardFrontierSize > 0) {
+      if (paramMaxDepth > -1 && forwardDepth + backwardDepth >= paramMaxDepth)
+        // NEXT PATHS WOULD BE LONGER THAN THE MAX DEPTH
+        return null;
 
-  @Override
-  protected Integer sumDistances(final Integer iDistance1, final Integer iDistance2) {
-    return iDistance1.intValue() + iDistance2.intValue();
+      final boolean expandForward = forwardFrontierSize <= backwardFrontierSize;
+
+      final OPathVertexTable expanded = expandForward ? forward : backward;
+      final OPathVertexTable other = expandForward ? backward : forward;
+      final int[] frontier = expandForward ? forwardFrontier : backwardFrontier;
+      final int frontierSize = expandForward ? forwardFrontierSize : backwardFrontierSize;
+      final DIRECTION direction = expandForward ? paramDirection : reverse(paramDirection);
+
+      int[] nextFrontier = new int[Math.max(frontierSize, 16)];
+      int nextFrontierSize = 0;
+
+      // THE WHOLE LEVEL IS EXPANDED BEFORE STOPPING, SO THE SHORTEST OF THE MEETING PATHS IS FOUND
+      int bestLength = Integer.MAX_VALUE;
+      int bestExpanded = -1;
+      int bestOther = -1;
+
+      for (int f = 0; f < frontierSize; ++f) {
+        final int current = frontier[f];
+        loadNeighbors(expanded.getRid(current), direction, null);
+
+        for (int i = 0; i < neighborsCount; ++i) {
+          if (expanded.get(neighbors[i]) > -1)
+            continue;
+
+          if (isMaxVisitedReached(forward.size() + backward.size()))
+            return null;
+
+          final int id = expanded.add(neighbors[i], current, expanded.getDepth(current) + 1, 0f);
+
+          final int otherId = other.get(neighbors[i]);
+          if (otherId > -1) {
+            final int length = expanded.getDepth(id) + other.getDepth(otherId);
+            if (length < bestLength) {
+              bestLength = length;
+              bestExpanded = id;
+              bestOther = otherId;
+            }
+          } else {
+            if (nextFrontierSize == nextFrontier.length) {
+              final int[] newFrontier = new int[nextFrontierSize << 1];
+              System.arraycopy(nextFrontier, 0, newFrontier, 0, nextFrontierSize);
+              nextFrontier = newFrontier;
+            }
+            nextFrontier[nextFrontierSize++] = id;
+          }
+        }
+      }
+
+      if (bestExpanded > -1) {
+        final int forwardMeeting = expandForward ? bestExpanded : bestOther;
+        final int backwardMeeting = expandForward ? bestOther : bestExpanded;
+
+        final LinkedList<OIdentifiable> path = forward.getPath(forwardMeeting);
+        for (int id = backward.getPredecessor(backwardMeeting); id > -1; id = backward.getPredecessor(id))
+          path.add(backward.getRid(id));
+        return path;
+      }
+
+      if (expandForward) {
+        forwardFrontier = nextFrontier;
+        forwardFrontierSize = nextFrontierSize;
+        forwardDepth++;
+      } else {
+        backwardFrontier = nextFrontier;
+        backwardFrontierSize = nextFrontierSize;
+        backwardDepth++;
+      }
+    }
+
+    return null;
   }
 }
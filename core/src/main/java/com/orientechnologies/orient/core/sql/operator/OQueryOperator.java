@@ -21,8 +21,11 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
 import com.orientechnologies.orient.core.profiler.OJVMProfiler;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -206,6 +209,26 @@ public abstract class OQueryOperator {
     return ORDER.EQUAL;
   }
 
+  /**
+   * Tells whether the records of an index range can be returned through a lazy cursor instead of a set. The records must be indexed
+   * under one key only, otherwise the cursor would return them once per key.
+   */
+  protected static boolean canBeBrowsedWithCursor(final INDEX_OPERATION_TYPE iOperationType, final OIndexDefinition iIndexDefinition) {
+    if (!INDEX_OPERATION_TYPE.GET.equals(iOperationType) || iIndexDefinition instanceof OIndexDefinitionMultiValue)
+      return false;
+
+    return !(iIndexDefinition instanceof OCompositeIndexDefinition)
+        || ((OCompositeIndexDefinition) iIndexDefinition).getMultiValueDefinitionIndex() == -1;
+  }
+
+  /**
+   * Returns the number of records the index cursor reads at every batch: no more than the records requested by the query.
+   */
+  protected static int getCursorFetchSize(final int iFetchLimit) {
+    final int fetchSize = OGlobalConfiguration.INDEX_CURSOR_FETCH_SIZE.getValueAsInteger();
+    return iFetchLimit > 0 && iFetchLimit < fetchSize ? iFetchLimit : fetchSize;
+  }
+
   protected void updateProfiler(final OCommandContext iContext, final OIndex<?> index, final List<Object> keyParams,
       final OIndexDefinition indexDefinition) {
     if (iContext.isRecordingMetrics())
@@ -91,7 +91,7 @@ public class OQueryOperatorBetween extends OQueryOperatorEqualityNotNulls {
     final Object result;
 
     final OIndexInternal<?> internalIndex = index.getInternal();
-    if (!internalIndex.canBeUsedInEqualityOperators())
+    if (!internalIndex.canBeUsedInEqualityOperators() || !internalIndex.hasRangeQuerySupport())
       return null;
 
     if (indexDefinition.getParamCount() == 1) {
@@ -103,7 +103,9 @@ public class OQueryOperatorBetween extends OQueryOperatorEqualityNotNulls {
       if (keyOne == null || keyTwo == null)
         return null;
 
-      if (fetchLimit > -1)
+      if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(keyOne, true, keyTwo, true, true, getCursorFetchSize(fetchLimit));
+      else if (fetchLimit > -1)
         result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
       else
         result = index.getValuesBetween(keyOne, true, keyTwo, true);
@@ -141,7 +143,9 @@ public class OQueryOperatorBetween extends OQueryOperatorEqualityNotNulls {
       if (keyTwo == null)
         return null;
 
-      if (fetchLimit > -1)
+      if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(keyOne, true, keyTwo, true, true, getCursorFetchSize(fetchLimit));
+      else if (fetchLimit > -1)
         result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
       else
         result = index.getValuesBetween(keyOne, true, keyTwo, true);
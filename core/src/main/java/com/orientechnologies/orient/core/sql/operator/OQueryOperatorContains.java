@@ -151,6 +151,8 @@ public class OQueryOperatorContains extends OQueryOperatorEqualityNotNulls {
     } else {
       // in case of composite keys several items can be returned in case of we perform search
       // using part of composite key stored in index.
+      if (!internalIndex.hasRangeQuerySupport())
+        return null;
 
       final OCompositeIndexDefinition compositeIndexDefinition = (OCompositeIndexDefinition) indexDefinition;
 
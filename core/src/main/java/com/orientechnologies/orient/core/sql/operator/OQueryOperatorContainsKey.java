@@ -97,6 +97,8 @@ public class OQueryOperatorContainsKey extends OQueryOperatorEqualityNotNulls {
     } else {
       // in case of composite keys several items can be returned in case of we perform search
       // using part of composite key stored in index.
+      if (!internalIndex.hasRangeQuerySupport())
+        return null;
 
       final OCompositeIndexDefinition compositeIndexDefinition = (OCompositeIndexDefinition) indexDefinition;
 
@@ -156,7 +156,23 @@ public class OQueryOperatorEquals extends OQueryOperatorEqualityNotNulls {
 
       final Object keyTwo = compositeIndexDefinition.createSingleValue(keyParams);
 
-      if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType)) {
+      if (!internalIndex.hasRangeQuerySupport()) {
+        // UNORDERED INDEX: ONLY THE WHOLE KEY CAN BE LOOKED UP
+        if (keyParams.size() < indexDefinition.getParamCount())
+          return null;
+
+        if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
+          result = index.count(keyOne);
+        else {
+          final Object indexResult = index.get(keyOne);
+          if (indexResult instanceof Collection)
+            result = indexResult;
+          else if (indexResult == null)
+            result = Collections.emptyList();
+          else
+            result = Collections.singletonList((OIdentifiable) indexResult);
+        }
+      } else if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType)) {
         result = (long) index.getValuesBetween(keyOne, true, keyTwo, true).size();
       } else if (fetchLimit > -1)
         result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
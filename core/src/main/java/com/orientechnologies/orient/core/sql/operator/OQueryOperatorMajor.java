@@ -68,7 +68,7 @@ public class OQueryOperatorMajor extends OQueryOperatorEqualityNotNulls {
     final OIndexDefinition indexDefinition = index.getDefinition();
 
     final OIndexInternal<?> internalIndex = index.getInternal();
-    if (!internalIndex.canBeUsedInEqualityOperators())
+    if (!internalIndex.canBeUsedInEqualityOperators() || !internalIndex.hasRangeQuerySupport())
       return null;
     final Object result;
 
@@ -84,6 +84,8 @@ public class OQueryOperatorMajor extends OQueryOperatorEqualityNotNulls {
 
       if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
         result = index.getValuesMajor(key, false).size();
+      else if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(key, false, null, true, true, getCursorFetchSize(fetchLimit));
       else if (fetchLimit > -1)
         result = index.getValuesMajor(key, false, fetchLimit);
       else
@@ -108,6 +110,8 @@ public class OQueryOperatorMajor extends OQueryOperatorEqualityNotNulls {
 
       if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
         result = index.getValuesBetween(keyOne, false, keyTwo, true).size();
+      else if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(keyOne, false, keyTwo, true, true, getCursorFetchSize(fetchLimit));
       else if (fetchLimit > -1)
         result = index.getValuesBetween(keyOne, false, keyTwo, true, fetchLimit);
       else
@@ -66,7 +66,7 @@ public class OQueryOperatorMinor extends OQueryOperatorEqualityNotNulls {
     final OIndexDefinition indexDefinition = index.getDefinition();
 
     final OIndexInternal<?> internalIndex = index.getInternal();
-    if (!internalIndex.canBeUsedInEqualityOperators())
+    if (!internalIndex.canBeUsedInEqualityOperators() || !internalIndex.hasRangeQuerySupport())
       return null;
 
     final Object result;
@@ -82,6 +82,8 @@ public class OQueryOperatorMinor extends OQueryOperatorEqualityNotNulls {
 
       if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
         result = index.getValuesMinor(key, false).size();
+      else if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(null, true, key, false, true, getCursorFetchSize(fetchLimit));
       else if (fetchLimit > -1)
         result = index.getValuesMinor(key, false, fetchLimit);
       else
@@ -106,6 +108,8 @@ public class OQueryOperatorMinor extends OQueryOperatorEqualityNotNulls {
 
       if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
         result = index.getValuesBetween(keyOne, true, keyTwo, false).size();
+      else if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(keyOne, true, keyTwo, false, true, getCursorFetchSize(fetchLimit));
       else if (fetchLimit > -1)
         result = index.getValuesBetween(keyOne, true, keyTwo, false, fetchLimit);
       else
@@ -67,7 +67,7 @@ public class OQueryOperatorMinorEquals extends OQueryOperatorEqualityNotNulls {
     final OIndexDefinition indexDefinition = index.getDefinition();
 
     final OIndexInternal<?> internalIndex = index.getInternal();
-    if (!internalIndex.canBeUsedInEqualityOperators())
+    if (!internalIndex.canBeUsedInEqualityOperators() || !internalIndex.hasRangeQuerySupport())
       return null;
 
     final Object result;
@@ -83,6 +83,8 @@ public class OQueryOperatorMinorEquals extends OQueryOperatorEqualityNotNulls {
 
       if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
         result = index.getValuesMinor(key, true).size();
+      else if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(null, true, key, true, true, getCursorFetchSize(fetchLimit));
       else if (fetchLimit > -1)
         result = index.getValuesMinor(key, true, fetchLimit);
       else
@@ -107,6 +109,8 @@ public class OQueryOperatorMinorEquals extends OQueryOperatorEqualityNotNulls {
 
       if (INDEX_OPERATION_TYPE.COUNT.equals(iOperationType))
         result = index.getValuesBetween(keyOne, true, keyTwo, true).size();
+      else if (canBeBrowsedWithCursor(iOperationType, indexDefinition))
+        result = index.cursor(keyOne, true, keyTwo, true, true, getCursorFetchSize(fetchLimit));
       else if (fetchLimit > -1)
         result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
       else
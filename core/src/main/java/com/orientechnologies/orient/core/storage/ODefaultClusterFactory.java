@@ -29,6 +29,7 @@ import com.orientechnologies.orient.core.storage.impl.local.OClusterLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OClusterLocalLHPEPS;
 import com.orientechnologies.orient.core.storage.impl.memory.OClusterMemory;
 import com.orientechnologies.orient.core.storage.impl.memory.OClusterMemoryArrayList;
+import com.orientechnologies.orient.core.storage.impl.memory.OClusterMemoryOffHeap;
 import com.orientechnologies.orient.core.storage.impl.memory.lh.OClusterMemoryLinearHashing;
 
 public class ODefaultClusterFactory implements OClusterFactory {
@@ -37,9 +38,12 @@ public class ODefaultClusterFactory implements OClusterFactory {
   public OCluster createCluster(final String iType) {
     if (iType.equalsIgnoreCase(OClusterLocal.TYPE))
       return OGlobalConfiguration.USE_LHPEPS_CLUSTER.getValueAsBoolean() ? new OClusterLocalLHPEPS() : new OClusterLocal();
-    else if (iType.equalsIgnoreCase(OClusterMemory.TYPE))
+    else if (iType.equalsIgnoreCase(OClusterMemory.TYPE)) {
+      if (OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP.getValueAsBoolean())
+        return new OClusterMemoryOffHeap();
       return OGlobalConfiguration.USE_LHPEPS_MEMORY_CLUSTER.getValueAsBoolean() ? new OClusterMemoryLinearHashing()
           : new OClusterMemoryArrayList();
+    }
     else
       OLogManager.instance().exception(
           "Cluster type '" + iType + "' is not supported. Supported types are: " + Arrays.toString(TYPES), null,
@@ -53,7 +57,8 @@ public class ODefaultClusterFactory implements OClusterFactory {
     else if (iConfig instanceof OStoragePhysicalClusterLHPEPSConfiguration)
       return new OClusterLocalLHPEPS();
     else if (iConfig instanceof OStorageMemoryClusterConfiguration)
-      return new OClusterMemoryArrayList();
+      return OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP.getValueAsBoolean() ? new OClusterMemoryOffHeap()
+          : new OClusterMemoryArrayList();
     else if (iConfig instanceof OStorageMemoryLinearHashingClusterConfiguration)
       return new OClusterMemoryLinearHashing();
     else
@@ -15,6 +15,12 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import java.util.Collection;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORecordId;
+
 /**
  * Tagged interface for proxy storage implementation
  * 
@@ -22,4 +28,33 @@ package com.orientechnologies.orient.core.storage;
  * 
  */
 public interface OStorageProxy extends OStorage {
+  /**
+   * Reads many records with one request, or a few when they are more than a request can carry.
+   * 
+   * @param iRids
+   *          Records to read
+   * @param iIgnoreCache
+   *          Ignore the server cache
+   * @return The content of the records found, in the same order of the request. Records not found are not contained in the map.
+   */
+  Map<ORecordId, ORawBuffer> readRecords(Collection<ORecordId> iRids, boolean iIgnoreCache);
+
+  /**
+   * Reads with one request the records of a cluster following (or preceding) a position. The records linked by the fetch plan are
+   * loaded in the local cache.
+   * 
+   * @param iClusterId
+   *          Cluster to browse
+   * @param iFrom
+   *          Position to start from, excluded
+   * @param iLimit
+   *          Maximum number of records to read. The server can return less records, the last one tells where to continue from
+   * @param iAscending
+   *          true to read the records after the position, false to read the records before it
+   * @param iFetchPlan
+   *          Fetch plan to apply to the records read, or null
+   * @return The content of the records in the browsing order. An empty map means there are no more records.
+   */
+  Map<ORecordId, ORawBuffer> browseCluster(int iClusterId, OClusterPosition iFrom, int iLimit, boolean iAscending,
+      String iFetchPlan);
 }
\ No newline at end of file
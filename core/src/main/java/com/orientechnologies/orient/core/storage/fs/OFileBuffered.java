@@ -0,0 +1,318 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+
+/**
+ * File with the same layout of {@link OFileClassic} that accesses the disk only by pages of fixed size, aligned to the beginning of
+ * the file. Pages are kept in memory up to a maximum number (LRU) and the changes are written back when a dirty page is evicted,
+ * when the dirty pages exceed {@link OGlobalConfiguration#FILE_BUFFERED_MAX_DIRTY_PAGES}, on {@link #synch()} and on close:
+ * contiguous dirty pages are written with a single positional write. In this way the many small reads and writes of the storage
+ * (record positions, headers, small records) become few page-sized system calls.<br/>
+ * Unlike {@link OFileClassic} a change is not in the file as soon as the write returns: if the process dies, the changes still in
+ * the dirty pages are lost. They are at most {@link OGlobalConfiguration#FILE_BUFFERED_MAX_DIRTY_PAGES} pages, or
+ * {@link OGlobalConfiguration#FILE_BUFFERED_MAX_PAGES} if the limit is disabled.<br/>
+ * Page size and number of pages are configured with {@link OGlobalConfiguration#FILE_BUFFERED_PAGE_SIZE} and
+ * {@link OGlobalConfiguration#FILE_BUFFERED_MAX_PAGES}. Like the other file types it needs to be synchronized by the external; the
+ * page table is guarded by the file instance since also readers update it.
+ */
+public class OFileBuffered extends OFileClassic {
+  public final static String          NAME            = "buffered";
+  private static final int            MAX_WRITE_PAGES = 64;
+
+  private final int                   pageSize;
+  private final int                   maxPages;
+  private final int                   maxDirtyPages;
+  private final Map<Long, OPage>      pages           = new LinkedHashMap<Long, OPage>(16, 0.75f, true);
+  private final TreeMap<Long, OPage>  dirtyPages      = new TreeMap<Long, OPage>();
+  private final byte[]                primitiveBuffer = new byte[OBinaryProtocol.SIZE_LONG];
+  private long                        diskSize;                                                 // BYTES REALLY PRESENT ON DISK
+  private long                        fileSize;                                                 // BYTES PRESENT ONCE THE PAGES ARE WRITTEN
+
+  private static class OPage {
+    final long   index;
+    final byte[] content;
+    boolean      dirty;
+
+    OPage(final long iIndex, final int iPageSize) {
+      index = iIndex;
+      content = new byte[iPageSize];
+    }
+  }
+
+  public OFileBuffered() {
+    pageSize = Math.max(OGlobalConfiguration.FILE_BUFFERED_PAGE_SIZE.getValueAsInteger(), OBinaryProtocol.SIZE_LONG);
+    maxPages = Math.max(OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.getValueAsInteger(), 1);
+    maxDirtyPages = OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.getValueAsInteger();
+  }
+
+  @Override
+  public OFileBuffered init(final String iFileName, final String iMode) {
+    super.init(iFileName, iMode);
+    return this;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null && channel.isOpen())
+      flushPages();
+    clearPages();
+    super.close();
+  }
+
+  @Override
+  public synchronized void delete() throws IOException {
+    // THE CONTENT IS LOST ANYWAY: AVOID TO WRITE THE DIRTY PAGES
+    clearPages();
+    super.delete();
+  }
+
+  @Override
+  public synchronized void shrink(final int iSize) throws IOException {
+    flushPages();
+
+    final long newSize = HEADER_SIZE + iSize;
+    for (Iterator<OPage> it = pages.values().iterator(); it.hasNext();)
+      if ((it.next().index + 1) * pageSize > newSize)
+        it.remove();
+
+    super.shrink(iSize);
+    diskSize = fileSize = newSize;
+  }
+
+  @Override
+  public synchronized void read(long iOffset, final byte[] iData, final int iLength, final int iArrayOffset) throws IOException {
+    iOffset = checkRegions(iOffset, iLength);
+    readBytes(iOffset, iData, iArrayOffset, iLength);
+  }
+
+  @Override
+  public synchronized void write(final long iOffset, final byte[] iData, final int iSize, final int iArrayOffset)
+      throws IOException {
+    if (iData != null) {
+      writeBytes(iOffset + HEADER_SIZE, iData, iArrayOffset, iSize);
+      setDirty();
+    }
+  }
+
+  @Override
+  public synchronized int readInt(long iOffset) throws IOException {
+    iOffset = checkRegions(iOffset, OBinaryProtocol.SIZE_INT);
+    readBytes(iOffset, primitiveBuffer, 0, OBinaryProtocol.SIZE_INT);
+    return OBinaryProtocol.bytes2int(primitiveBuffer, 0);
+  }
+
+  @Override
+  public synchronized long readLong(long iOffset) throws IOException {
+    iOffset = checkRegions(iOffset, OBinaryProtocol.SIZE_LONG);
+    readBytes(iOffset, primitiveBuffer, 0, OBinaryProtocol.SIZE_LONG);
+    return OBinaryProtocol.bytes2long(primitiveBuffer, 0);
+  }
+
+  @Override
+  public synchronized short readShort(long iOffset) throws IOException {
+    iOffset = checkRegions(iOffset, OBinaryProtocol.SIZE_SHORT);
+    readBytes(iOffset, primitiveBuffer, 0, OBinaryProtocol.SIZE_SHORT);
+    return OBinaryProtocol.bytes2short(primitiveBuffer, 0);
+  }
+
+  @Override
+  public synchronized byte readByte(long iOffset) throws IOException {
+    iOffset = checkRegions(iOffset, OBinaryProtocol.SIZE_BYTE);
+    return getPage(iOffset / pageSize, true).content[(int) (iOffset % pageSize)];
+  }
+
+  @Override
+  public synchronized void writeInt(final long iOffset, final int iValue) throws IOException {
+    OBinaryProtocol.int2bytes(iValue, primitiveBuffer, 0);
+    writeBytes(iOffset + HEADER_SIZE, primitiveBuffer, 0, OBinaryProtocol.SIZE_INT);
+    setDirty();
+  }
+
+  @Override
+  public synchronized void writeLong(final long iOffset, final long iValue) throws IOException {
+    OBinaryProtocol.long2bytes(iValue, primitiveBuffer, 0);
+    writeBytes(iOffset + HEADER_SIZE, primitiveBuffer, 0, OBinaryProtocol.SIZE_LONG);
+    setDirty();
+  }
+
+  @Override
+  public synchronized void writeShort(final long iOffset, final short iValue) throws IOException {
+    OBinaryProtocol.short2bytes(iValue, primitiveBuffer, 0);
+    writeBytes(iOffset + HEADER_SIZE, primitiveBuffer, 0, OBinaryProtocol.SIZE_SHORT);
+    setDirty();
+  }
+
+  @Override
+  public synchronized void writeByte(final long iOffset, final byte iValue) throws IOException {
+    primitiveBuffer[0] = iValue;
+    writeBytes(iOffset + HEADER_SIZE, primitiveBuffer, 0, OBinaryProtocol.SIZE_BYTE);
+    setDirty();
+  }
+
+  @Override
+  public synchronized void writeHeaderLong(final int iPosition, final long iValue) throws IOException {
+    OBinaryProtocol.long2bytes(iValue, primitiveBuffer, 0);
+    writeBytes(HEADER_DATA_OFFSET + iPosition, primitiveBuffer, 0, OBinaryProtocol.SIZE_LONG);
+    setHeaderDirty();
+  }
+
+  @Override
+  public synchronized long readHeaderLong(final int iPosition) throws IOException {
+    readBytes(HEADER_DATA_OFFSET + iPosition, primitiveBuffer, 0, OBinaryProtocol.SIZE_LONG);
+    return OBinaryProtocol.bytes2long(primitiveBuffer, 0);
+  }
+
+  /**
+   * Writes back all the dirty pages and synchronizes the file to disk.
+   */
+  @Override
+  public synchronized void synch() throws IOException {
+    flushPages();
+    super.synch();
+  }
+
+  @Override
+  protected void openChannel(final int iNewSize) throws IOException {
+    clearPages();
+    super.openChannel(iNewSize);
+    diskSize = fileSize = channel.size();
+  }
+
+  /**
+   * Writes back all the dirty pages, coalescing the contiguous ones in one write.
+   */
+  protected void flushPages() throws IOException {
+    while (!dirtyPages.isEmpty())
+      writeRun(dirtyPages.firstKey());
+  }
+
+  private void readBytes(long iPosition, final byte[] iBuffer, int iBufferOffset, int iLength) throws IOException {
+    while (iLength > 0) {
+      final OPage page = getPage(iPosition / pageSize, true);
+      final int pageOffset = (int) (iPosition % pageSize);
+      final int chunk = Math.min(iLength, pageSize - pageOffset);
+
+      System.arraycopy(page.content, pageOffset, iBuffer, iBufferOffset, chunk);
+
+      iPosition += chunk;
+      iBufferOffset += chunk;
+      iLength -= chunk;
+    }
+  }
+
+  private void writeBytes(long iPosition, final byte[] iBuffer, int iBufferOffset, int iLength) throws IOException {
+    fileSize = Math.max(fileSize, iPosition + iLength);
+
+    while (iLength > 0) {
+      final int pageOffset = (int) (iPosition % pageSize);
+      final int chunk = Math.min(iLength, pageSize - pageOffset);
+
+      // A PAGE COMPLETELY OVERWRITTEN DOESN'T NEED TO BE READ FROM DISK
+      final OPage page = getPage(iPosition / pageSize, chunk < pageSize);
+      System.arraycopy(iBuffer, iBufferOffset, page.content, pageOffset, chunk);
+      if (!page.dirty) {
+        page.dirty = true;
+        dirtyPages.put(page.index, page);
+      }
+
+      iPosition += chunk;
+      iBufferOffset += chunk;
+      iLength -= chunk;
+    }
+
+    if (maxDirtyPages > 0 && dirtyPages.size() > maxDirtyPages)
+      // BOUND THE CHANGES NOT YET WRITTEN
+      flushPages();
+  }
+
+  private OPage getPage(final long iIndex, final boolean iLoad) throws IOException {
+    OPage page = pages.get(iIndex);
+    if (page != null)
+      return page;
+
+    page = new OPage(iIndex, pageSize);
+
+    final long position = iIndex * pageSize;
+    if (iLoad && position < diskSize) {
+      final ByteBuffer buffer = ByteBuffer.wrap(page.content);
+      while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > -1)
+        ;
+      Orient.instance().getProfiler().updateCounter(PROFILER_CHANNEL_READS, "Reads executed on the file channels", +1);
+    }
+
+    pages.put(iIndex, page);
+
+    if (pages.size() > maxPages) {
+      // EVICT THE LEAST RECENTLY USED PAGE WRITING IT BACK IF NEEDED
+      final OPage eldest = pages.values().iterator().next();
+      if (eldest.dirty)
+        writeRun(eldest.index);
+      pages.remove(eldest.index);
+    }
+
+    return page;
+  }
+
+  /**
+   * Writes the dirty page with the passed index together with the dirty pages that follow it, up to {@link #MAX_WRITE_PAGES}.
+   */
+  private void writeRun(final long iFirstIndex) throws IOException {
+    long last = iFirstIndex;
+    while (last - iFirstIndex + 1 < MAX_WRITE_PAGES && dirtyPages.containsKey(last + 1))
+      ++last;
+
+    final long start = iFirstIndex * pageSize;
+    // NEVER WRITE BEYOND THE LAST BYTE WRITTEN: THE FILE SIZE IS THE SIZE OF THE FILE ON DISK
+    final int length = (int) Math.min((last + 1) * pageSize, fileSize) - (int) start;
+
+    final ByteBuffer buffer;
+    if (last == iFirstIndex)
+      buffer = ByteBuffer.wrap(dirtyPages.get(iFirstIndex).content, 0, length);
+    else {
+      final byte[] content = new byte[length];
+      for (long i = iFirstIndex; i <= last; ++i) {
+        final int offset = (int) ((i - iFirstIndex) * pageSize);
+        System.arraycopy(dirtyPages.get(i).content, 0, content, offset, Math.min(pageSize, length - offset));
+      }
+      buffer = ByteBuffer.wrap(content);
+    }
+
+    while (buffer.hasRemaining())
+      channel.write(buffer, start + buffer.position());
+    Orient.instance().getProfiler().updateCounter(PROFILER_CHANNEL_WRITES, "Writes executed on the file channels", +1);
+
+    for (long i = iFirstIndex; i <= last; ++i)
+      dirtyPages.remove(i).dirty = false;
+
+    diskSize = Math.max(diskSize, start + length);
+  }
+
+  private void clearPages() {
+    pages.clear();
+    dirtyPages.clear();
+  }
+}
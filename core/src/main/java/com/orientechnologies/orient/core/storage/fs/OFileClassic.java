@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 
 /**
@@ -33,8 +34,10 @@ import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
  * <br/>
  */
 public class OFileClassic extends OAbstractFile {
-  public final static String NAME                = "classic";
-  protected ByteBuffer       internalWriteBuffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_LONG);
+  public final static String    NAME                    = "classic";
+  protected static final String PROFILER_CHANNEL_READS  = "system.file.channelReads";
+  protected static final String PROFILER_CHANNEL_WRITES = "system.file.channelWrites";
+  protected ByteBuffer          internalWriteBuffer     = ByteBuffer.allocate(OBinaryProtocol.SIZE_LONG);
 
   public OFileClassic init(String iFileName, String iMode) {
     super.init(iFileName, iMode);
@@ -81,6 +84,7 @@ public class OFileClassic extends OAbstractFile {
 
     ByteBuffer buffer = ByteBuffer.wrap(iData, iArrayOffset, iLength);
     channel.read(buffer, iOffset);
+    Orient.instance().getProfiler().updateCounter(PROFILER_CHANNEL_READS, "Reads executed on the file channels", +1);
   }
 
   public void write(long iOffset, byte[] iData, int iSize, int iArrayOffset) throws IOException {
@@ -88,6 +92,7 @@ public class OFileClassic extends OAbstractFile {
       iOffset += HEADER_SIZE;
       ByteBuffer byteBuffer = ByteBuffer.wrap(iData, iArrayOffset, iSize);
       channel.write(byteBuffer, iOffset);
+      Orient.instance().getProfiler().updateCounter(PROFILER_CHANNEL_WRITES, "Writes executed on the file channels", +1);
       setDirty();
     }
   }
@@ -233,6 +238,7 @@ public class OFileClassic extends OAbstractFile {
   private ByteBuffer readData(final long iOffset, final int iSize) throws IOException {
     ByteBuffer buffer = getBuffer(iSize);
     channel.read(buffer, iOffset);
+    Orient.instance().getProfiler().updateCounter(PROFILER_CHANNEL_READS, "Reads executed on the file channels", +1);
     buffer.rewind();
     return buffer;
   }
@@ -240,6 +246,7 @@ public class OFileClassic extends OAbstractFile {
   private void writeBuffer(final ByteBuffer iBuffer, final long iOffset) throws IOException {
     iBuffer.rewind();
     channel.write(iBuffer, iOffset);
+    Orient.instance().getProfiler().updateCounter(PROFILER_CHANNEL_WRITES, "Writes executed on the file channels", +1);
   }
 
   private ByteBuffer getBuffer(final int iLenght) {
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.storage.fs;
 
 import java.lang.reflect.Method;
 import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAbstract;
 import com.orientechnologies.common.log.OLogManager;
@@ -38,6 +39,8 @@ public class OMMapBufferEntry extends OSharedResourceAbstract implements Compara
   final int                         size;
   volatile long                     counter;
   volatile boolean                  dirty;
+  volatile boolean                  recentlyUsed;
+  private final AtomicInteger       pins = new AtomicInteger();
 
   static {
     FORCE_DELAY = OGlobalConfiguration.FILE_MMAP_FORCE_DELAY.getValueAsInteger();
@@ -73,6 +76,10 @@ public class OMMapBufferEntry extends OSharedResourceAbstract implements Compara
     acquireExclusiveLock();
     try {
 
+      if (buffer == null)
+        // ALREADY UNMAPPED: THE BUFFER HAS BEEN FORCED ON CLOSE
+        return true;
+
       final long timer = PROFILER.startChrono();
 
       // FORCE THE WRITE OF THE BUFFER
@@ -158,6 +165,47 @@ public class OMMapBufferEntry extends OSharedResourceAbstract implements Compara
     this.dirty = true;
   }
 
+  /**
+   * Prevents the entry from being unmapped until {@link #unpin()} is called.
+   * 
+   * @return false if the entry has been already unmapped, otherwise true.
+   */
+  boolean pin() {
+    for (;;) {
+      final int current = pins.get();
+      if (current < 0)
+        return false;
+      if (pins.compareAndSet(current, current + 1))
+        return true;
+    }
+  }
+
+  void unpin() {
+    for (;;) {
+      final int current = pins.get();
+      if (current <= 0 || pins.compareAndSet(current, current - 1))
+        return;
+    }
+  }
+
+  /**
+   * Marks the entry as unmapped if nobody pinned it.
+   * 
+   * @return true if the entry can be closed by the caller, otherwise false.
+   */
+  boolean tryEvict() {
+    return pins.compareAndSet(0, -1);
+  }
+
+  /**
+   * Marks the entry as unmapped even if it's pinned.
+   * 
+   * @return true if the entry can be closed by the caller, false if it has been already unmapped.
+   */
+  boolean forceEvict() {
+    return pins.getAndSet(-1) != -1;
+  }
+
   void acquireWriteLock() {
     super.acquireExclusiveLock();
   }
@@ -19,8 +19,13 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-import com.orientechnologies.common.concur.lock.OLockManager;
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
 import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
 import com.orientechnologies.orient.core.Orient;
@@ -31,24 +36,45 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
  * @since 06.05.12
  *        <p/>
  *        This class in new realization of mmap manager that uses OS swap mechanism to mmap files.
+ *        <p/>
+ *        Files are mapped in chunks of fixed size (file.mmap.blockSize rounded to the next power of 2) aligned to the chunk size, so
+ *        the chunk that contains an offset is found by index without searching and without locks. Only the last chunk of a file
+ *        can be smaller than the chunk size: it's mapped again when the file grows. Every acquired chunk is pinned until it's
+ *        released, when the mapped memory exceeds file.mmap.maxMemory the chunks not pinned are unmapped following a clock
+ *        (second chance) policy.
  */
 public class OMMapManagerNew extends OMMapManagerAbstract implements OMMapManager {
-  private static final int                                            BINARY_SEARCH_THRESHOLD = 10;
+  private final ConcurrentHashMap<OFileMMap, OMMapFileChunks> chunksPerFile      = new ConcurrentHashMap<OFileMMap, OMMapFileChunks>();
+  private final ConcurrentLinkedQueue<OMMapBufferEntry>       clock              = new ConcurrentLinkedQueue<OMMapBufferEntry>();
+  private final AtomicLong                                    totalMemory        = new AtomicLong();
 
-  private static final OMMapBufferEntry[]                             EMPTY_BUFFER_ENTRIES    = new OMMapBufferEntry[0];
+  private int                                                 chunkShift;
+  private int                                                 chunkSize;
 
-  private final ConcurrentHashMap<OFileMMap, OMMapBufferEntry[]>      bufferPoolPerFile       = new ConcurrentHashMap<OFileMMap, OMMapBufferEntry[]>();
-  private final ConcurrentHashMap<OFileMMap, LastMMapEntrySearchInfo> mapEntrySearchInfo      = new ConcurrentHashMap<OFileMMap, LastMMapEntrySearchInfo>();
+  private volatile long                                       metricMappedPages  = 0;
+  private volatile long                                       metricReusedPages  = 0;
+  private volatile long                                       metricEvictedPages = 0;
 
-  private final OLockManager<OFileMMap, Runnable>                     lockManager             = new OLockManager<OFileMMap, Runnable>(
-                                                                                                  OGlobalConfiguration.ENVIRONMENT_CONCURRENT
-                                                                                                      .getValueAsBoolean(),
-                                                                                                  OGlobalConfiguration.STORAGE_RECORD_LOCK_TIMEOUT
-                                                                                                      .getValueAsInteger());
-  private long                                                        metricMappedPages       = 0;
-  private long                                                        metricReusedPages       = 0;
+  /**
+   * Chunks of one file indexed by offset / chunk size. The array is replaced with a bigger one when the file grows.
+   */
+  private static final class OMMapFileChunks {
+    private final Lock                                      lock   = new ReentrantLock();
+    private volatile AtomicReferenceArray<OMMapBufferEntry> chunks = new AtomicReferenceArray<OMMapBufferEntry>(0);
+
+    private AtomicReferenceArray<OMMapBufferEntry> grow(final int iSize) {
+      final AtomicReferenceArray<OMMapBufferEntry> newChunks = new AtomicReferenceArray<OMMapBufferEntry>(iSize);
+      for (int i = 0; i < chunks.length(); ++i)
+        newChunks.set(i, chunks.get(i));
+      chunks = newChunks;
+      return newChunks;
+    }
+  }
 
   public void init() {
+    chunkShift = 32 - Integer.numberOfLeadingZeros(Math.max(OGlobalConfiguration.FILE_MMAP_BLOCK_SIZE.getValueAsInteger(), 4096) - 1);
+    chunkSize = 1 << chunkShift;
+
     Orient
         .instance()
         .getProfiler()
@@ -67,108 +93,109 @@ public class OMMapManagerNew extends OMMapManagerAbstract implements OMMapManage
                 return metricReusedPages;
               }
             });
+    Orient
+        .instance()
+        .getProfiler()
+        .registerHookValue("system.file.mmap.evictedPages", "Number of memory mapped pages unmapped to stay under the max memory",
+            METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+              public Object getValue() {
+                return metricEvictedPages;
+              }
+            });
+    Orient
+        .instance()
+        .getProfiler()
+        .registerHookValue("system.file.mmap.totalMemory", "Total memory used by memory mapping", METRIC_TYPE.SIZE,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return totalMemory.get();
+              }
+            });
   }
 
   /**
    * {@inheritDoc}
    * <p/>
-   * If file is not mapped new file record will be created inside mmap manager. First method search if necessary record is already
-   * mapped. And returns buffer on success. If additional mapping is required it will be performed to map all files content. After
-   * that mapped array will be returned.
+   * Returns the chunks that contain the requested range. Chunks already mapped are found by index and pinned without locking, the
+   * file is locked only to map the missing chunks.
    */
   public OMMapBufferEntry[] acquire(final OFileMMap iFile, final long iBeginOffset, final int iSize,
       final OMMapManager.OPERATION_TYPE iOperationType, final OMMapManager.ALLOC_STRATEGY iStrategy) {
-    if (iStrategy == OMMapManager.ALLOC_STRATEGY.MMAP_NEVER) {
+    if (iStrategy == OMMapManager.ALLOC_STRATEGY.MMAP_NEVER)
       return null;
-    }
 
-    // lockManager.acquireLock(iFile, this, OLockManager.LOCK.EXCLUSIVE);
-    // if entry for this file does not exist then we create it
-    OMMapBufferEntry[] fileEntries = bufferPoolPerFile.get(iFile);
-    if (fileEntries == null) {
-      fileEntries = EMPTY_BUFFER_ENTRIES;
-      bufferPoolPerFile.putIfAbsent(iFile, fileEntries);
+    OMMapFileChunks fileChunks = chunksPerFile.get(iFile);
+    if (fileChunks == null) {
+      fileChunks = new OMMapFileChunks();
+      final OMMapFileChunks existent = chunksPerFile.putIfAbsent(iFile, fileChunks);
+      if (existent != null)
+        fileChunks = existent;
     }
 
-    // search for entries among existing
-    OMMapBufferEntry[] foundEntries = searchAmongExisting(iFile, fileEntries, iBeginOffset, iSize);
-
-    // if something is found we look whether the range is complete
-    if (foundEntries.length > 0) {
-      // look if requested range's right boundary is less than last entry's right boundary
-      final OMMapBufferEntry lastEntry = foundEntries[foundEntries.length - 1];
-      if (lastEntry.beginOffset + lastEntry.size >= iBeginOffset + iSize) {
-        acquireLocksOnEntries(foundEntries, iOperationType);
-        metricReusedPages++;
-        return foundEntries;
-      }
-    }
-
-    // map new entry
-    final OMMapBufferEntry newMappedEntry;
-
-    lockManager.acquireLock(Thread.currentThread(), iFile, OLockManager.LOCK.EXCLUSIVE);
-    try {
-
-      // second search after locking file
-      fileEntries = bufferPoolPerFile.get(iFile);
-      foundEntries = searchAmongExisting(iFile, fileEntries, iBeginOffset, iSize);
+    final long endOffset = iBeginOffset + iSize;
+    final int firstChunk = (int) (iBeginOffset >>> chunkShift);
+    final int lastChunk = (int) ((endOffset - 1) >>> chunkShift);
 
-      // total size that is mapped
-      long totalMappedSize = 0;
-      if (fileEntries.length > 0) {
-        final OMMapBufferEntry lastEntry = fileEntries[fileEntries.length - 1];
-        totalMappedSize = lastEntry.beginOffset + lastEntry.size;
-      }
+    final OMMapBufferEntry[] entries = new OMMapBufferEntry[lastChunk - firstChunk + 1];
+    for (int i = 0; i < entries.length; ++i) {
+      final int chunk = firstChunk + i;
+      final long chunkEnd = Math.min(endOffset, ((long) chunk + 1) << chunkShift);
 
-      try {
-        newMappedEntry = mapNew(iFile, totalMappedSize);
-      } catch (IOException ex) {
+      entries[i] = acquireChunk(iFile, fileChunks, chunk, chunkEnd, iOperationType, iStrategy);
+      if (entries[i] == null) {
+        // CANNOT MAP THE WHOLE RANGE: USE THE CHANNEL
+        for (int k = 0; k < i; ++k)
+          entries[k].unpin();
         return null;
       }
-      final OMMapBufferEntry[] newEntries = addEntry(fileEntries, newMappedEntry);
-      bufferPoolPerFile.put(iFile, newEntries);
+    }
 
-      // add new entry to previously found
-      final OMMapBufferEntry[] resultEntries = addEntry(foundEntries, newMappedEntry);
-      acquireLocksOnEntries(resultEntries, iOperationType);
+    acquireLocksOnEntries(entries, iOperationType);
+    return entries;
+  }
 
-      return resultEntries;
-    } finally {
-      lockManager.releaseLock(Thread.currentThread(), iFile, OLockManager.LOCK.EXCLUSIVE);
-    }
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Unlocks the entries and unpins them, so they can be unmapped again.
+   */
+  @Override
+  public void release(final OMMapBufferEntry[] entries, final OPERATION_TYPE operationType) {
+    super.release(entries, operationType);
+    for (OMMapBufferEntry entry : entries)
+      entry.unpin();
   }
 
   /**
    * {@inheritDoc}
    * <p/>
-   * Flush all closed files on disk. If some mapped entries not flushed successfully file will be asociated with not flushed
-   * entries. When flush will be performed again not flushed records will be flushed again, File information for files which have
-   * all records flushed will be removed from mmap manager.
+   * Flush all closed files on disk. If some mapped entries not flushed successfully the file keeps all its entries and they will
+   * be flushed again on the next call. Files which have all records flushed are removed from mmap manager.
    */
   public void flush() {
-    for (Iterator<Map.Entry<OFileMMap, OMMapBufferEntry[]>> it = bufferPoolPerFile.entrySet().iterator(); it.hasNext();) {
-      OFileMMap file;
-      final Map.Entry<OFileMMap, OMMapBufferEntry[]> mapEntry = it.next();
-      file = mapEntry.getKey();
-      lockManager.acquireLock(Thread.currentThread(), file, OLockManager.LOCK.EXCLUSIVE);
+    for (Iterator<Map.Entry<OFileMMap, OMMapFileChunks>> it = chunksPerFile.entrySet().iterator(); it.hasNext();) {
+      final Map.Entry<OFileMMap, OMMapFileChunks> mapEntry = it.next();
+      final OFileMMap file = mapEntry.getKey();
+      if (!file.isClosed())
+        continue;
+
+      final OMMapFileChunks fileChunks = mapEntry.getValue();
+      fileChunks.lock.lock();
       try {
-        if (file.isClosed()) {
-          OMMapBufferEntry[] notFlushed = EMPTY_BUFFER_ENTRIES;
-          for (OMMapBufferEntry entry : mapEntry.getValue()) {
-            if (!removeEntry(entry)) {
-              notFlushed = addEntry(notFlushed, entry);
-            }
-          }
-
-          if (notFlushed.length == 0) {
-            it.remove();
-          } else {
-            mapEntry.setValue(notFlushed);
-          }
+        boolean flushed = true;
+        final AtomicReferenceArray<OMMapBufferEntry> chunks = fileChunks.chunks;
+        for (int i = 0; i < chunks.length(); ++i) {
+          final OMMapBufferEntry entry = chunks.get(i);
+          if (entry != null && entry.isValid() && !entry.flush())
+            flushed = false;
+        }
+
+        if (flushed) {
+          it.remove();
+          removeFileEntries(file, fileChunks);
         }
       } finally {
-        lockManager.releaseLock(Thread.currentThread(), file, OLockManager.LOCK.EXCLUSIVE);
+        fileChunks.lock.unlock();
       }
     }
   }
@@ -179,287 +206,220 @@ public class OMMapManagerNew extends OMMapManagerAbstract implements OMMapManage
    * Removes mapped entries for all existing files.
    */
   public void shutdown() {
-    for (Map.Entry<OFileMMap, OMMapBufferEntry[]> entries : bufferPoolPerFile.entrySet()) {
-      OFileMMap file;
-      file = entries.getKey();
-      lockManager.acquireLock(Thread.currentThread(), file, OLockManager.LOCK.EXCLUSIVE);
+    for (Map.Entry<OFileMMap, OMMapFileChunks> mapEntry : chunksPerFile.entrySet()) {
+      final OMMapFileChunks fileChunks = mapEntry.getValue();
+      fileChunks.lock.lock();
       try {
-        removeFileEntries(entries.getValue());
+        removeFileEntries(mapEntry.getKey(), fileChunks);
       } finally {
-        lockManager.releaseLock(Thread.currentThread(), file, OLockManager.LOCK.EXCLUSIVE);
+        fileChunks.lock.unlock();
       }
     }
-    bufferPoolPerFile.clear();
-    mapEntrySearchInfo.clear();
+    chunksPerFile.clear();
+    clock.clear();
   }
 
   /**
-   * This method search in already mapped entries to find if necessary entry is already mapped and can be returned.
-   * 
-   * @param file
-   *          to search mapped entry for it.
-   * @param fileEntries
-   *          already mapped entries.
-   * @param beginOffset
-   *          position in file that should be mmaped.
-   * @param size
-   *          size that should be mmaped.
-   * @return {@code EMPTY_BUFFER_ENTRIES} if nothing found or found entries otherwise.
+   * Removes the file.
    */
-  private OMMapBufferEntry[] searchAmongExisting(OFileMMap file, final OMMapBufferEntry[] fileEntries, final long beginOffset,
-      final int size) {
-    if (fileEntries.length == 0) {
-      return EMPTY_BUFFER_ENTRIES;
+  public void removeFile(final OFileMMap iFile) {
+    final OMMapFileChunks fileChunks = chunksPerFile.remove(iFile);
+    if (fileChunks == null)
+      return;
+
+    fileChunks.lock.lock();
+    try {
+      removeFileEntries(iFile, fileChunks);
+    } finally {
+      fileChunks.lock.unlock();
     }
+  }
 
-    final OMMapBufferEntry lastEntry = fileEntries[fileEntries.length - 1];
-    if (lastEntry.beginOffset + lastEntry.size <= beginOffset) {
-      return EMPTY_BUFFER_ENTRIES;
+  /**
+   * {@inheritDoc}
+   */
+  public void flushFile(final OFileMMap iFile) {
+    final OMMapFileChunks fileChunks = chunksPerFile.get(iFile);
+    if (fileChunks == null)
+      return;
+
+    final AtomicReferenceArray<OMMapBufferEntry> chunks = fileChunks.chunks;
+    for (int i = 0; i < chunks.length(); ++i) {
+      final OMMapBufferEntry entry = chunks.get(i);
+      if (entry != null && entry.isValid())
+        entry.flush();
     }
+  }
 
-    final LastMMapEntrySearchInfo entrySearchInfo = mapEntrySearchInfo.get(file);
-
-    final int beginSearchPosition;
-    final int endSearchPosition;
-
-    if (entrySearchInfo == null) {
-      beginSearchPosition = 0;
-      endSearchPosition = fileEntries.length - 1;
-    } else {
-      if (entrySearchInfo.requestedPosition <= beginOffset) {
-        beginSearchPosition = entrySearchInfo.foundMmapIndex;
-        endSearchPosition = fileEntries.length - 1;
-      } else {
-        beginSearchPosition = 0;
-        endSearchPosition = entrySearchInfo.foundMmapIndex;
-      }
+  /**
+   * Returns the pinned entry of the chunk, mapping it if it's not mapped yet or if it's the last chunk of the file and it doesn't
+   * reach the requested offset.
+   *
+   * @return the pinned entry or null if the allocation strategy doesn't allow to map the chunk.
+   */
+  private OMMapBufferEntry acquireChunk(final OFileMMap iFile, final OMMapFileChunks iFileChunks, final int iChunk,
+      final long iEndOffset, final OPERATION_TYPE iOperationType, final ALLOC_STRATEGY iStrategy) {
+    AtomicReferenceArray<OMMapBufferEntry> chunks = iFileChunks.chunks;
+    OMMapBufferEntry entry = iChunk < chunks.length() ? chunks.get(iChunk) : null;
+    if (entry != null && entry.beginOffset + entry.size >= iEndOffset && entry.pin()) {
+      if (!entry.recentlyUsed)
+        entry.recentlyUsed = true;
+      metricReusedPages++;
+      return entry;
     }
 
-    final int resultFirstPosition;
-    if (endSearchPosition - beginSearchPosition > BINARY_SEARCH_THRESHOLD)
-      resultFirstPosition = binarySearch(fileEntries, beginOffset, beginSearchPosition, endSearchPosition);
-    else
-      resultFirstPosition = linearSearch(fileEntries, beginOffset, beginSearchPosition, endSearchPosition);
+    iFileChunks.lock.lock();
+    try {
+      // SEARCH AGAIN AFTER LOCKING THE FILE
+      chunks = iFileChunks.chunks;
+      if (iChunk >= chunks.length())
+        chunks = iFileChunks.grow(Math.max(iChunk + 1, (int) (((long) iFile.getFileSize() - 1) >>> chunkShift) + 1));
 
-    if (beginSearchPosition < 0)
-      return EMPTY_BUFFER_ENTRIES;
+      entry = chunks.get(iChunk);
+      if (entry != null && entry.beginOffset + entry.size >= iEndOffset && entry.pin()) {
+        metricReusedPages++;
+        return entry;
+      }
 
-    int resultLastPosition = fileEntries.length - 1;
+      if (iOperationType == OPERATION_TYPE.READ && iStrategy == ALLOC_STRATEGY.MMAP_WRITE_ALWAYS_READ_IF_IN_MEM)
+        return null;
 
-    for (int i = resultFirstPosition; i <= resultLastPosition; i++) {
-      final OMMapBufferEntry entry = fileEntries[i];
-      if (entry.beginOffset + entry.size >= beginOffset + size) {
-        resultLastPosition = i;
-        break;
+      final long beginOffset = (long) iChunk << chunkShift;
+      final int size = (int) Math.min(chunkSize, iFile.getFileSize() - beginOffset);
+
+      if (!makeRoom(size)
+          && (iStrategy == ALLOC_STRATEGY.MMAP_ONLY_AVAIL_POOL || iOperationType == OPERATION_TYPE.READ
+              && iStrategy == ALLOC_STRATEGY.MMAP_WRITE_ALWAYS_READ_IF_AVAIL_POOL))
+        return null;
+
+      final OMMapBufferEntry newEntry;
+      try {
+        newEntry = new OMMapBufferEntry(iFile, iFile.map(beginOffset, size), beginOffset, size);
+      } catch (IOException e) {
+        OLogManager.instance().debug(this, "Cannot map %d bytes from the offset %d of file %s", e, size, beginOffset, iFile);
+        return null;
       }
-    }
 
-    final int length = resultLastPosition - resultFirstPosition + 1;
-    final OMMapBufferEntry[] foundEntries = new OMMapBufferEntry[length];
+      newEntry.pin();
+      chunks.set(iChunk, newEntry);
+      totalMemory.addAndGet(size);
+      clock.add(newEntry);
+      metricMappedPages++;
 
-    if (length > 0) {
-      System.arraycopy(fileEntries, resultFirstPosition, foundEntries, 0, length);
-      mapEntrySearchInfo.put(file, new LastMMapEntrySearchInfo(resultFirstPosition, beginOffset));
-    }
+      if (entry != null && entry.isValid() && !evictEntry(entry))
+        // THE SHORTER ENTRY IS STILL IN USE: LET THE CLOCK UNMAP IT AS SOON AS IT'S RELEASED
+        entry.recentlyUsed = false;
 
-    return foundEntries;
+      return newEntry;
+    } finally {
+      iFileChunks.lock.unlock();
+    }
   }
 
   /**
-   * This method is used in
-   * com.orientechnologies.orient.core.storage.fs.OMMapManagerNew#searchAmongExisting(com.orientechnologies.orient
-   * .core.storage.fs.OFileMMap, com.orientechnologies.orient.core.storage.fs.OMMapBufferEntry[], long, int) to search necessary
-   * entry.
-   * 
-   * @param fileEntries
-   *          already mapped entries.
-   * @param beginOffset
-   *          position in file that should be mmaped.
-   * @param beginPosition
-   *          first position in fileEntries.
-   * @param endPosition
-   *          last position in fileEntries.
-   * @return -1 if entries is not found. Otherwise returns middle position of file entries to perform new binary search step.
+   * Unmaps the entries not pinned until the requested size fits under file.mmap.maxMemory. Entries used since the last round get a
+   * second chance.
+   *
+   * @return true if the requested size fits in the max memory, otherwise false.
    */
-  private int binarySearch(OMMapBufferEntry[] fileEntries, long beginOffset, int beginPosition, int endPosition) {
-    int midPosition;
-
-    while (beginPosition <= endPosition) {
-      midPosition = (beginPosition + endPosition) >>> 1;
-
-      final OMMapBufferEntry entry = fileEntries[midPosition];
+  private boolean makeRoom(final int iSize) {
+    final long maxMemory = OGlobalConfiguration.FILE_MMAP_MAX_MEMORY.getValueAsLong();
 
-      if (entry.beginOffset + entry.size > beginOffset && entry.beginOffset <= beginOffset) {
-        // FOUND: USE IT
-        return midPosition;
-      }
+    for (int i = clock.size() * 2; i > 0 && totalMemory.get() + iSize > maxMemory; --i) {
+      final OMMapBufferEntry entry = clock.poll();
+      if (entry == null)
+        break;
 
-      if (beginPosition == endPosition) {
-        // NOT FOUND
-        return -1;
-      }
+      if (!entry.isValid())
+        // ALREADY REMOVED
+        continue;
 
-      if (beginOffset > entry.beginOffset)
-        beginPosition = midPosition + 1;
+      if (entry.recentlyUsed) {
+        entry.recentlyUsed = false;
+        clock.add(entry);
+      } else if (evictEntry(entry))
+        metricEvictedPages++;
       else
-        endPosition = midPosition;
+        clock.add(entry);
     }
 
-    // NOT FOUND
-    return -1;
+    return totalMemory.get() + iSize <= maxMemory;
   }
 
   /**
-   * This method is used in
-   * com.orientechnologies.orient.core.storage.fs.OMMapManagerNew#searchAmongExisting(com.orientechnologies.orient
-   * .core.storage.fs.OFileMMap, com.orientechnologies.orient.core.storage.fs.OMMapBufferEntry[], long, int) to search necessary
-   * entry.
-   * 
-   * @param fileEntries
-   *          already mapped entries.
-   * @param beginOffset
-   *          position in file that should be mmaped.
-   * @param beginPosition
-   *          first position in fileEntries.
-   * @param endPosition
-   *          last position in fileEntries.
-   * @return -1 if entries is not found. Otherwise returns position of necessary file entry.
+   * Unmaps the entry if it's not pinned.
+   *
+   * @return true if the entry has been unmapped, otherwise false.
    */
-  private int linearSearch(OMMapBufferEntry[] fileEntries, long beginOffset, int beginPosition, int endPosition) {
-    for (int i = beginPosition; i <= endPosition; i++) {
-      final OMMapBufferEntry entry = fileEntries[i];
-      if (entry.beginOffset + entry.size > beginOffset && entry.beginOffset <= beginOffset) {
-        return i;
-      }
-    }
-    return -1;
-  }
+  private boolean evictEntry(final OMMapBufferEntry entry) {
+    if (!entry.tryEvict())
+      return false;
 
-  /**
-   * This method maps new part of file if not all file content is mapped.
-   * 
-   * @param file
-   *          that will be mapped.
-   * @param beginOffset
-   *          position in file from what mapping should be applied.
-   * @return mapped entry.
-   * @throws IOException
-   *           is thrown if mapping is unsuccessfully.
-   */
-  private OMMapBufferEntry mapNew(final OFileMMap file, final long beginOffset) throws IOException {
-    metricMappedPages++;
-    return new OMMapBufferEntry(file, file.map(beginOffset, file.getFileSize() - (int) beginOffset), beginOffset,
-        file.getFileSize() - (int) beginOffset);
-  }
+    final OFileMMap file = entry.file;
+    if (file != null) {
+      final OMMapFileChunks fileChunks = chunksPerFile.get(file);
+      if (fileChunks != null)
+        fileChunks.chunks.compareAndSet((int) (entry.beginOffset >>> chunkShift), entry, null);
+    }
 
-  private OMMapBufferEntry[] addEntry(final OMMapBufferEntry[] sourceEntries, final OMMapBufferEntry newEntry) {
-    final OMMapBufferEntry[] newEntries = new OMMapBufferEntry[sourceEntries.length + 1];
-    System.arraycopy(sourceEntries, 0, newEntries, 0, sourceEntries.length);
-    newEntries[sourceEntries.length] = newEntry;
-    return newEntries;
+    closeEntry(entry);
+    return true;
   }
 
   /**
-   * Locks all entries.
-   * 
-   * @param entries
-   *          that will be locked.
-   * @param operationType
-   *          determine read or write lock will be performed.
+   * Unmaps all the entries of the file, also the ones still pinned. Flush will be performed before removing.
    */
-  private void acquireLocksOnEntries(final OMMapBufferEntry[] entries, OPERATION_TYPE operationType) {
-    if (operationType == OPERATION_TYPE.WRITE)
-      for (OMMapBufferEntry entry : entries) {
-        entry.acquireWriteLock();
-        entry.setDirty();
-      }
-    else
-      for (OMMapBufferEntry entry : entries)
-        entry.acquireReadLock();
-  }
+  private void removeFileEntries(final OFileMMap iFile, final OMMapFileChunks iFileChunks) {
+    final AtomicReferenceArray<OMMapBufferEntry> chunks = iFileChunks.chunks;
+    for (int i = 0; i < chunks.length(); ++i) {
+      final OMMapBufferEntry entry = chunks.getAndSet(i, null);
+      if (entry != null && entry.forceEvict())
+        closeEntry(entry);
+    }
 
-  /**
-   * Removes the file.
-   */
-  public void removeFile(final OFileMMap iFile) {
-    lockManager.acquireLock(Thread.currentThread(), iFile, OLockManager.LOCK.EXCLUSIVE);
-    try {
-      mapEntrySearchInfo.remove(iFile);
-      final OMMapBufferEntry[] entries = bufferPoolPerFile.remove(iFile);
-      removeFileEntries(entries);
-    } finally {
-      lockManager.releaseLock(Thread.currentThread(), iFile, OLockManager.LOCK.EXCLUSIVE);
+    // UNMAP ALSO THE ENTRIES REPLACED BY BIGGER ONES BUT NOT RELEASED YET
+    for (Iterator<OMMapBufferEntry> it = clock.iterator(); it.hasNext();) {
+      final OMMapBufferEntry entry = it.next();
+      if (entry.file == iFile || !entry.isValid()) {
+        it.remove();
+        if (entry.forceEvict())
+          closeEntry(entry);
+      }
     }
   }
 
   /**
    * Close one file mapped entry.
-   * 
+   *
    * @param entry
    *          that will be closed.
    */
-  private void closeEntry(OMMapBufferEntry entry) {
+  private void closeEntry(final OMMapBufferEntry entry) {
     entry.acquireWriteLock();
     try {
       entry.close();
     } finally {
       entry.releaseWriteLock();
     }
+    totalMemory.addAndGet(-entry.size);
   }
 
   /**
-   * Removes all files entries. Flush will be performed before removing.
-   * 
-   * @param fileEntries
-   *          that will be removed.
-   */
-  private void removeFileEntries(OMMapBufferEntry[] fileEntries) {
-    if (fileEntries != null) {
-      for (OMMapBufferEntry entry : fileEntries) {
-        removeEntry(entry);
-      }
-    }
-  }
-
-  /**
-   * Flush and remove one mapped file entry.
-   * 
-   * @param entry
-   *          that will be removed.
-   * @return true on success and false otherwise.
-   */
-  private boolean removeEntry(final OMMapBufferEntry entry) {
-    if (!entry.flush()) {
-      return false;
-    }
-    closeEntry(entry);
-    return true;
-  }
-
-  /**
-   * {@inheritDoc}
+   * Locks all entries.
+   *
+   * @param entries
+   *          that will be locked.
+   * @param operationType
+   *          determine read or write lock will be performed.
    */
-  public void flushFile(final OFileMMap iFile) {
-    lockManager.acquireLock(Thread.currentThread(), iFile, OLockManager.LOCK.SHARED);
-    try {
-      final OMMapBufferEntry[] fileEntries = bufferPoolPerFile.get(iFile);
-      if (fileEntries != null) {
-        for (OMMapBufferEntry entry : fileEntries) {
-          entry.flush();
-        }
+  private void acquireLocksOnEntries(final OMMapBufferEntry[] entries, final OPERATION_TYPE operationType) {
+    if (operationType == OPERATION_TYPE.WRITE)
+      for (OMMapBufferEntry entry : entries) {
+        entry.acquireWriteLock();
+        entry.setDirty();
       }
-    } finally {
-      lockManager.releaseLock(Thread.currentThread(), iFile, OLockManager.LOCK.SHARED);
-    }
-  }
-
-  private static final class LastMMapEntrySearchInfo {
-    private final int  foundMmapIndex;
-    private final long requestedPosition;
-
-    private LastMMapEntrySearchInfo(int foundMmapIndex, long requestedPosition) {
-      this.foundMmapIndex = foundMmapIndex;
-      this.requestedPosition = requestedPosition;
-    }
+    else
+      for (OMMapBufferEntry entry : entries)
+        entry.acquireReadLock();
   }
 }
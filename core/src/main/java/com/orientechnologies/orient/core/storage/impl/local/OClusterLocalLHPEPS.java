@@ -6,12 +6,12 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
+import com.orientechnologies.common.collection.OLongIntHashMap;
+import com.orientechnologies.common.collection.OLongObjectHashMap;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptive;
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.io.OIOException;
@@ -70,10 +70,10 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
 
   private BitSet                                                splittedBuckets;
 
-  private Map<Long, Integer>                                    mainBucketOverflowInfoByIndex;
-  private Map<Long, Integer>                                    groupBucketOverflowInfoByIndex;
+  private OLongIntHashMap                                       mainBucketOverflowInfoByIndex;
+  private OLongIntHashMap                                       groupBucketOverflowInfoByIndex;
 
-  private Map<Long, Integer>[]                                  groupBucketOverflowInfoByChainLength;
+  private OLongIntHashMap[]                                     groupBucketOverflowInfoByChainLength;
   private int                                                   maxChainIndex;
 
   private OMultiFileSegment                                     fileSegment;
@@ -85,21 +85,21 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
   private OClusterLocalLHPEOverflow                             overflowSegment;
   private OClusterLocalLHPEStatistic                            overflowStatistic;
 
-  private final ThreadLocal<Map<Long, OClusterLocalLHPEBucket>> mainBucketCache        = new ThreadLocal<Map<Long, OClusterLocalLHPEBucket>>() {
-                                                                                         @Override
-                                                                                         protected Map<Long, OClusterLocalLHPEBucket> initialValue() {
-                                                                                           return new HashMap<Long, OClusterLocalLHPEBucket>(
-                                                                                               32);
-                                                                                         }
-                                                                                       };
-
-  private final ThreadLocal<Map<Long, OClusterLocalLHPEBucket>> overflowBucketCache    = new ThreadLocal<Map<Long, OClusterLocalLHPEBucket>>() {
-                                                                                         @Override
-                                                                                         protected Map<Long, OClusterLocalLHPEBucket> initialValue() {
-                                                                                           return new HashMap<Long, OClusterLocalLHPEBucket>(
-                                                                                               32);
-                                                                                         }
-                                                                                       };
+  private final ThreadLocal<OLongObjectHashMap<OClusterLocalLHPEBucket>> mainBucketCache     = new ThreadLocal<OLongObjectHashMap<OClusterLocalLHPEBucket>>() {
+                                                                                        @Override
+                                                                                        protected OLongObjectHashMap<OClusterLocalLHPEBucket> initialValue() {
+                                                                                          return new OLongObjectHashMap<OClusterLocalLHPEBucket>(
+                                                                                              32);
+                                                                                        }
+                                                                                      };
+
+  private final ThreadLocal<OLongObjectHashMap<OClusterLocalLHPEBucket>> overflowBucketCache = new ThreadLocal<OLongObjectHashMap<OClusterLocalLHPEBucket>>() {
+                                                                                        @Override
+                                                                                        protected OLongObjectHashMap<OClusterLocalLHPEBucket> initialValue() {
+                                                                                          return new OLongObjectHashMap<OClusterLocalLHPEBucket>(
+                                                                                              32);
+                                                                                        }
+                                                                                      };
 
   private final Set<OClusterLocalLHPEBucket>                    mainBucketsToStore     = new HashSet<OClusterLocalLHPEBucket>(32);
   private final Set<OClusterLocalLHPEBucket>                    overflowBucketsToStore = new HashSet<OClusterLocalLHPEBucket>(32);
@@ -342,9 +342,9 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
 
     splittedBuckets = new BitSet((int) pageSize);
 
-    mainBucketOverflowInfoByIndex = new HashMap<Long, Integer>(1024);
-    groupBucketOverflowInfoByIndex = new HashMap<Long, Integer>(1024);
-    groupBucketOverflowInfoByChainLength = new HashMap[16];
+    mainBucketOverflowInfoByIndex = new OLongIntHashMap(1024);
+    groupBucketOverflowInfoByIndex = new OLongIntHashMap(1024);
+    groupBucketOverflowInfoByChainLength = new OLongIntHashMap[16];
     maxChainIndex = 0;
   }
 
@@ -764,7 +764,7 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
 
     splittedBuckets.clear((int) positionToMerge);
 
-    Map<Long, OClusterLocalLHPEBucket> bucketMap = new HashMap<Long, OClusterLocalLHPEBucket>(g);
+    OLongObjectHashMap<OClusterLocalLHPEBucket> bucketMap = new OLongObjectHashMap<OClusterLocalLHPEBucket>(g + 1);
     List<Long> bucketsToMerge = new ArrayList<Long>(g);
 
     for (long ptr = positionToMerge; ptr <= positionToMerge + pageSize * g; ptr += pageSize) {
@@ -834,7 +834,7 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
   }
 
   private OClusterLocalLHPEBucket loadMainBucket(long position) throws IOException {
-    final Map<Long, OClusterLocalLHPEBucket> bucketCache = mainBucketCache.get();
+    final OLongObjectHashMap<OClusterLocalLHPEBucket> bucketCache = mainBucketCache.get();
 
     OClusterLocalLHPEBucket clusterBucket = bucketCache.get(position);
     if (clusterBucket != null)
@@ -853,7 +853,7 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
   }
 
   private OClusterLocalLHPEBucket loadOverflowBucket(long position) throws IOException {
-    final Map<Long, OClusterLocalLHPEBucket> bucketCache = overflowBucketCache.get();
+    final OLongObjectHashMap<OClusterLocalLHPEBucket> bucketCache = overflowBucketCache.get();
 
     OClusterLocalLHPEBucket clusterBucket = bucketCache.get(position);
     if (clusterBucket != null)
@@ -919,7 +919,7 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
     // TODO discuss if we need load main bucket or just empty file and construct new bucket
     OClusterLocalLHPEBucket addedBucket = loadMainBucket(positionToAdd);
 
-    Map<Long, OClusterLocalLHPEBucket> bucketMap = new HashMap<Long, OClusterLocalLHPEBucket>(g);
+    OLongObjectHashMap<OClusterLocalLHPEBucket> bucketMap = new OLongObjectHashMap<OClusterLocalLHPEBucket>(g + 1);
     List<Long> bucketsToSplit = new ArrayList<Long>(g);
 
     for (long ptr = positionToSplit; ptr < positionToSplit + pageSize * g; ptr += pageSize) {
@@ -1174,13 +1174,15 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
       return recordSplitPointer;
     else {
       for (int i = maxChainIndex; i >= 1; i--) {
-        final Map<Long, Integer> infoMap = groupBucketOverflowInfoByChainLength[i];
+        final OLongIntHashMap infoMap = groupBucketOverflowInfoByChainLength[i];
 
         if (infoMap == null || infoMap.isEmpty())
           continue;
 
-        for (Long index : infoMap.keySet()) {
-          if (!splittedBuckets.get(index.intValue())) {
+        final OLongIntHashMap.Cursor cursor = infoMap.cursor();
+        while (cursor.next()) {
+          final long index = cursor.key();
+          if (!splittedBuckets.get((int) index)) {
             return index;
           }
         }
@@ -1191,21 +1193,17 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
   }
 
   private int getMainBucketOverflowChainLength(long bucketIndex) {
-    final Integer mainBucketOverflowInfo = mainBucketOverflowInfoByIndex.get(bucketIndex);
-    if (mainBucketOverflowInfo == null)
-      return 0;
-
-    return mainBucketOverflowInfo;
+    return mainBucketOverflowInfoByIndex.get(bucketIndex, 0);
   }
 
   private void updateBucketGroupOverflowChainLength(long groupIndex, int diff) {
     if (diff == 0)
       return;
 
-    Integer mainBucketOverflowInfo = groupBucketOverflowInfoByIndex.get(groupIndex);
+    int mainBucketOverflowInfo = groupBucketOverflowInfoByIndex.get(groupIndex, 0);
 
     int prevChainLength = 0;
-    if (mainBucketOverflowInfo == null) {
+    if (mainBucketOverflowInfo == 0) {
       mainBucketOverflowInfo = diff;
       groupBucketOverflowInfoByIndex.put(groupIndex, mainBucketOverflowInfo);
     } else {
@@ -1219,21 +1217,21 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
         groupBucketOverflowInfoByIndex.put(groupIndex, mainBucketOverflowInfo);
     }
 
-    Map<Long, Integer> prevChainMap = null;
+    OLongIntHashMap prevChainMap = null;
     if (prevChainLength > 0)
       prevChainMap = groupBucketOverflowInfoByChainLength[prevChainLength];
 
     if (mainBucketOverflowInfo > 0) {
       if (mainBucketOverflowInfo == groupBucketOverflowInfoByChainLength.length) {
-        final Map<Long, Integer>[] newGroupBucketOverflow = new HashMap[groupBucketOverflowInfoByChainLength.length << 1];
+        final OLongIntHashMap[] newGroupBucketOverflow = new OLongIntHashMap[groupBucketOverflowInfoByChainLength.length << 1];
         System.arraycopy(groupBucketOverflowInfoByChainLength, 0, newGroupBucketOverflow, 0,
             groupBucketOverflowInfoByChainLength.length);
         groupBucketOverflowInfoByChainLength = newGroupBucketOverflow;
       }
 
-      Map<Long, Integer> nextChainMap = groupBucketOverflowInfoByChainLength[mainBucketOverflowInfo];
+      OLongIntHashMap nextChainMap = groupBucketOverflowInfoByChainLength[mainBucketOverflowInfo];
       if (nextChainMap == null) {
-        nextChainMap = new HashMap<Long, Integer>(1024);
+        nextChainMap = new OLongIntHashMap(1024);
         groupBucketOverflowInfoByChainLength[mainBucketOverflowInfo] = nextChainMap;
       }
 
@@ -1256,9 +1254,9 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
   }
 
   private void updateMainBucketOverflowChainLength(long mainBucketIndex, int val) {
-    Integer mainBucketOverflowInfo = mainBucketOverflowInfoByIndex.get(mainBucketIndex);
+    final int mainBucketOverflowInfo = mainBucketOverflowInfoByIndex.get(mainBucketIndex, 0);
 
-    if (mainBucketOverflowInfo == null) {
+    if (mainBucketOverflowInfo == 0) {
       if (val == 0)
         return;
 
@@ -1275,7 +1273,7 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
   }
 
   private void rebuildGroupOverflowChain() {
-    groupBucketOverflowInfoByChainLength = new HashMap[16];
+    groupBucketOverflowInfoByChainLength = new OLongIntHashMap[16];
     groupBucketOverflowInfoByIndex.clear();
 
     maxChainIndex = -1;
@@ -1284,22 +1282,20 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
       int chainLength = 0;
 
       for (int cg = 0; cg < g; cg++) {
-        final Integer mainBucketOverflowInfo = mainBucketOverflowInfoByIndex.get(cg * pageSize + i);
-        if (mainBucketOverflowInfo != null)
-          chainLength += mainBucketOverflowInfo;
+        chainLength += mainBucketOverflowInfoByIndex.get(cg * pageSize + i, 0);
       }
 
       if (chainLength > 0) {
         if (chainLength > groupBucketOverflowInfoByChainLength.length) {
-          final Map<Long, Integer>[] newGroupBucketOverflow = new HashMap[groupBucketOverflowInfoByChainLength.length << 1];
+          final OLongIntHashMap[] newGroupBucketOverflow = new OLongIntHashMap[groupBucketOverflowInfoByChainLength.length << 1];
           System.arraycopy(groupBucketOverflowInfoByChainLength, 0, newGroupBucketOverflow, 0,
               groupBucketOverflowInfoByChainLength.length);
           groupBucketOverflowInfoByChainLength = newGroupBucketOverflow;
         }
 
-        Map<Long, Integer> infoMap = groupBucketOverflowInfoByChainLength[chainLength];
+        OLongIntHashMap infoMap = groupBucketOverflowInfoByChainLength[chainLength];
         if (infoMap == null) {
-          infoMap = new HashMap<Long, Integer>(1024);
+          infoMap = new OLongIntHashMap(1024);
           groupBucketOverflowInfoByChainLength[chainLength] = infoMap;
         }
 
@@ -1387,12 +1383,14 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
     serializedBitSet = null;
 
     statisticsFile.writeInt(pos, mainBucketOverflowInfoByIndex.size());
+    pos += OIntegerSerializer.INT_SIZE;
 
-    for (Map.Entry<Long, Integer> statisticEntry : mainBucketOverflowInfoByIndex.entrySet()) {
-      statisticsFile.writeLong(pos, statisticEntry.getKey());
+    final OLongIntHashMap.Cursor statisticEntry = mainBucketOverflowInfoByIndex.cursor();
+    while (statisticEntry.next()) {
+      statisticsFile.writeLong(pos, statisticEntry.key());
       pos += OLongSerializer.LONG_SIZE;
 
-      statisticsFile.writeInt(pos, statisticEntry.getValue());
+      statisticsFile.writeInt(pos, statisticEntry.value());
       pos += OIntegerSerializer.INT_SIZE;
     }
   }
@@ -1458,7 +1456,7 @@ public class OClusterLocalLHPEPS extends OSharedResourceAdaptive implements OClu
     final int mapSize = statisticsFile.readInt(pos);
     pos += OIntegerSerializer.INT_SIZE;
 
-    mainBucketOverflowInfoByIndex = new HashMap<Long, Integer>(mapSize);
+    mainBucketOverflowInfoByIndex = new OLongIntHashMap(mapSize);
     for (int i = 0; i < mapSize; i++) {
       final long key = statisticsFile.readLong(pos);
       pos += OLongSerializer.LONG_SIZE;
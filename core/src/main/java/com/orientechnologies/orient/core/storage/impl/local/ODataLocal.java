@@ -85,7 +85,11 @@ public class ODataLocal extends OMultiFileSegment implements ODataSegment {
 
     defStartSize = OFileUtils.getSizeAsNumber(iConfig.fileStartSize);
     defragMaxHoleDistance = OGlobalConfiguration.FILE_DEFRAG_HOLE_MAX_DISTANCE.getValueAsInteger();
-    defragStrategy = OGlobalConfiguration.FILE_DEFRAG_STRATEGY.getValueAsInteger();
+    if (iStorage.isSegmentLocking())
+      // SYNCHRONOUS DEFRAG MOVES RECORDS OF OTHER CLUSTERS: NOT ALLOWED WHEN ONLY THE SEGMENTS ARE LOCKED
+      defragStrategy = 1;
+    else
+      defragStrategy = OGlobalConfiguration.FILE_DEFRAG_STRATEGY.getValueAsInteger();
 
     PROFILER_HOLE_CREATE = "db." + storage.getName() + ".data.createHole";
     PROFILER_HOLE_FIND_CLOSER = "db." + storage.getName() + ".data.findClosestHole";
@@ -277,18 +277,21 @@ public class OMultiFileSegment extends OSegment {
   }
 
   private void addInfoFileConfigEntry(final OFile file) throws IOException {
-    OStorageFileConfiguration[] newConfigFiles = new OStorageFileConfiguration[config.infoFiles.length + 1];
-    for (int i = 0; i < config.infoFiles.length; ++i)
-      newConfigFiles[i] = config.infoFiles[i];
-    config.infoFiles = newConfigFiles;
-
     // CREATE A NEW ENTRY FOR THE NEW FILE
     String fileNameToStore = storage.getVariableParser().convertPathToRelative(OFileUtils.getPath(file.getPath()));
 
     final OStorageSegmentConfiguration template = config.root.fileTemplate;
 
-    config.infoFiles[config.infoFiles.length - 1] = new OStorageFileConfiguration(config, fileNameToStore, template.fileType,
-        template.fileMaxSize, template.fileIncrementSize);
+    // OTHER SEGMENTS CAN WRITE THE CONFIGURATION CONCURRENTLY: NEVER LET THEM SEE A PARTIAL ARRAY
+    synchronized (config.root) {
+      OStorageFileConfiguration[] newConfigFiles = new OStorageFileConfiguration[config.infoFiles.length + 1];
+      for (int i = 0; i < config.infoFiles.length; ++i)
+        newConfigFiles[i] = config.infoFiles[i];
+
+      newConfigFiles[newConfigFiles.length - 1] = new OStorageFileConfiguration(config, fileNameToStore, template.fileType,
+          template.fileMaxSize, template.fileIncrementSize);
+      config.infoFiles = newConfigFiles;
+    }
   }
 
   public long allocateSpaceContinuously(final int iSize) throws IOException {
@@ -75,8 +75,12 @@ public class OStorageConfigurationSegment extends OStorageConfiguration {
     return this;
   }
 
+  /**
+   * Writes the configuration. It's synchronized because segments can grow concurrently when records are written with the storage
+   * lock held in shared mode: see {@link OMultiFileSegment}.
+   */
   @Override
-  public void update() throws OSerializationException {
+  public synchronized void update() throws OSerializationException {
     try {
       if (!segment.getFile().isOpen())
         return;
@@ -91,6 +91,8 @@ public class OStorageLocal extends OStorageEmbedded {
 
   private final Set<String>             clustersToSyncImmediately = new HashSet<String>();
 
+  private final boolean                 segmentLocking;
+
   public OStorageLocal(final String iName, final String iFilePath, final String iMode) throws IOException {
     super(iName, iFilePath, iMode);
 
@@ -119,6 +121,8 @@ public class OStorageLocal extends OStorageEmbedded {
         .split("\\s*,\\s*");
     clustersToSyncImmediately.addAll(Arrays.asList(clustersToSync));
 
+    segmentLocking = OGlobalConfiguration.STORAGE_SEGMENT_LOCKING.getValueAsBoolean();
+
     installProfilerHooks();
   }
 
@@ -1518,7 +1522,8 @@ public class OStorageLocal extends OStorageEmbedded {
 
     final long timer = Orient.instance().getProfiler().startChrono();
 
-    lock.acquireExclusiveLock();
+    final boolean segmentLock = isSegmentLocking(iClusterSegment);
+    acquireRecordOperationLock(segmentLock);
     try {
       final OPhysicalPosition ppos = new OPhysicalPosition(-1, -1, iRecordType);
 
@@ -1566,7 +1571,7 @@ public class OStorageLocal extends OStorageEmbedded {
       return null;
 
     } finally {
-      lock.releaseExclusiveLock();
+      releaseRecordOperationLock(segmentLock);
 
       Orient.instance().getProfiler()
           .stopChrono(PROFILER_CREATE_RECORD, "Create a record in local database", timer, "db.*.createRecord");
@@ -1622,6 +1627,32 @@ public class OStorageLocal extends OStorageEmbedded {
     }
   }
 
+  /**
+   * Tells if the record operations against the cluster can rely on the cluster and data segment locks, holding the storage lock
+   * only in shared mode. LH clusters still need the storage exclusive lock since they generate the positions before creation.
+   */
+  public boolean isSegmentLocking(final OCluster iClusterSegment) {
+    return segmentLocking && iClusterSegment instanceof OClusterLocal;
+  }
+
+  public boolean isSegmentLocking() {
+    return segmentLocking;
+  }
+
+  private void acquireRecordOperationLock(final boolean iSegmentLock) {
+    if (iSegmentLock)
+      lock.acquireSharedLock();
+    else
+      lock.acquireExclusiveLock();
+  }
+
+  private void releaseRecordOperationLock(final boolean iSegmentLock) {
+    if (iSegmentLock)
+      lock.releaseSharedLock();
+    else
+      lock.releaseExclusiveLock();
+  }
+
   @Override
   public boolean isLHClustersAreUsed() {
     return OGlobalConfiguration.USE_LHPEPS_CLUSTER.getValueAsBoolean();
@@ -1679,7 +1710,8 @@ public class OStorageLocal extends OStorageEmbedded {
 
     final long timer = Orient.instance().getProfiler().startChrono();
 
-    lock.acquireExclusiveLock();
+    final boolean segmentLock = isSegmentLocking(iClusterSegment);
+    acquireRecordOperationLock(segmentLock);
     try {
 
       // GET THE SHARED LOCK AND GET AN EXCLUSIVE LOCK AGAINST THE RECORD
@@ -1750,7 +1782,7 @@ public class OStorageLocal extends OStorageEmbedded {
       OLogManager.instance().error(this, "Error on updating record " + iRid + " (cluster: " + iClusterSegment + ")", e);
 
     } finally {
-      lock.releaseExclusiveLock();
+      releaseRecordOperationLock(segmentLock);
 
       Orient.instance().getProfiler()
           .stopChrono(PROFILER_UPDATE_RECORD, "Update a record to local database", timer, "db.*.updateRecord");
@@ -1763,7 +1795,8 @@ public class OStorageLocal extends OStorageEmbedded {
       boolean useTombstones) {
     final long timer = Orient.instance().getProfiler().startChrono();
 
-    lock.acquireExclusiveLock();
+    final boolean segmentLock = isSegmentLocking(iClusterSegment);
+    acquireRecordOperationLock(segmentLock);
     try {
 
       lockManager.acquireLock(Thread.currentThread(), iRid, LOCK.EXCLUSIVE);
@@ -1800,7 +1833,7 @@ public class OStorageLocal extends OStorageEmbedded {
       OLogManager.instance().error(this, "Error on deleting record " + iRid + "( cluster: " + iClusterSegment + ")", e);
 
     } finally {
-      lock.releaseExclusiveLock();
+      releaseRecordOperationLock(segmentLock);
 
       Orient.instance().getProfiler()
           .stopChrono(PROFILER_DELETE_RECORD, "Delete a record from local database", timer, "db.*.deleteRecord");
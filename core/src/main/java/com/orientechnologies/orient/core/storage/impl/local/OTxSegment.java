@@ -114,7 +114,8 @@ public class OTxSegment extends OSingleFileSegment {
   }
 
   /**
-   * Appends a log entry
+   * Appends a log entry. The entry is assembled in memory and written with a single positional write. If tx.log.synch is true the
+   * file is synched at every entry.
    */
   public void addLog(final byte iOperation, final int iTxId, final int iClusterId, final OClusterPosition iClusterOffset,
       final byte iRecordType, final ORecordVersion iRecordVersion, final byte[] iRecordContent, int dataSegmentId)
@@ -123,40 +124,44 @@ public class OTxSegment extends OSingleFileSegment {
     final int contentSize = iRecordContent != null ? iRecordContent.length : 0;
     final int size = OFFSET_RECORD_CONTENT + contentSize;
 
-    lock.acquireExclusiveLock();
-    try {
+    final byte[] entry = new byte[size];
+    int pos = 0;
 
-      int offset = file.allocateSpace(size);
+    entry[pos] = STATUS_COMMITTING;
+    pos += OBinaryProtocol.SIZE_BYTE;
 
-      file.writeByte(offset, STATUS_COMMITTING);
-      offset += OBinaryProtocol.SIZE_BYTE;
+    entry[pos] = iOperation;
+    pos += OBinaryProtocol.SIZE_BYTE;
 
-      file.writeByte(offset, iOperation);
-      offset += OBinaryProtocol.SIZE_BYTE;
+    OBinaryProtocol.int2bytes(iTxId, entry, pos);
+    pos += OBinaryProtocol.SIZE_INT;
 
-      file.writeInt(offset, iTxId);
-      offset += OBinaryProtocol.SIZE_INT;
+    OBinaryProtocol.short2bytes((short) iClusterId, entry, pos);
+    pos += OBinaryProtocol.SIZE_SHORT;
 
-      file.writeShort(offset, (short) iClusterId);
-      offset += OBinaryProtocol.SIZE_SHORT;
+    final byte[] clusterContent = iClusterOffset.toStream();
+    System.arraycopy(clusterContent, 0, entry, pos, CLUSTER_OFFSET_SIZE);
+    pos += CLUSTER_OFFSET_SIZE;
 
-      final byte[] clusterContent = iClusterOffset.toStream();
-      file.write(offset, clusterContent);
-      offset += CLUSTER_OFFSET_SIZE;
+    entry[pos] = iRecordType;
+    pos += OBinaryProtocol.SIZE_BYTE;
 
-      file.writeByte(offset, iRecordType);
-      offset += OBinaryProtocol.SIZE_BYTE;
+    pos += iRecordVersion.getSerializer().writeTo(entry, pos, iRecordVersion);
 
-      offset += iRecordVersion.getSerializer().writeTo(file, offset, iRecordVersion);
+    OBinaryProtocol.int2bytes(dataSegmentId, entry, pos);
+    pos += OBinaryProtocol.SIZE_INT;
 
-      file.writeInt(offset, dataSegmentId);
-      offset += OBinaryProtocol.SIZE_INT;
+    OBinaryProtocol.int2bytes(contentSize, entry, pos);
+    pos += OBinaryProtocol.SIZE_INT;
 
-      file.writeInt(offset, contentSize);
-      offset += OBinaryProtocol.SIZE_INT;
+    if (contentSize > 0)
+      System.arraycopy(iRecordContent, 0, entry, pos, contentSize);
+
+    lock.acquireExclusiveLock();
+    try {
 
-      file.write(offset, iRecordContent);
-      offset += contentSize;
+      final int offset = file.allocateSpace(size);
+      file.write(offset, entry);
 
       if (synchEnabled)
         file.synch();
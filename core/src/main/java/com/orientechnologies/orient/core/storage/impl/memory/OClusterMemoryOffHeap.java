@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Memory cluster that keeps the physical positions in direct memory, out of the Java heap, as entries of fixed size in pages of
+ * {@link #ENTRIES_PER_PAGE} entries. The entry of a position is found by index like in {@link OClusterMemoryArrayList}, but
+ * {@link #getPhysicalPosition(OPhysicalPosition)} returns a new instance: changes must be stored back with the update methods.
+ * Entry layout:<br/>
+ * <br/>
+ * +-------+-------------+--------------+------+-----------+---------+<br/>
+ * | STATE | DATA SEG ID | DATA SEG POS | TYPE | REC. SIZE | VERSION |<br/>
+ * | 1 b.. | 4 bytes ... | 8 bytes .... | 1 b. | 4 bytes . | N bytes |<br/>
+ * +-------+-------------+--------------+------+-----------+---------+<br/>
+ */
+public class OClusterMemoryOffHeap extends OClusterMemory implements OCluster {
+  public static final int    ENTRIES_PER_PAGE        = 1024;
+
+  private static final byte  STATE_REMOVED           = 0;
+  private static final byte  STATE_USED              = 1;
+
+  private static final int   STATE_OFFSET            = 0;
+  private static final int   DATA_SEGMENT_ID_OFFSET  = 1;
+  private static final int   DATA_SEGMENT_POS_OFFSET = 5;
+  private static final int   RECORD_TYPE_OFFSET      = 13;
+  private static final int   RECORD_SIZE_OFFSET      = 14;
+  private static final int   VERSION_OFFSET          = 18;
+
+  private final int          versionSize             = OVersionFactory.instance().getVersionSize();
+  private final int          entrySize               = VERSION_OFFSET + versionSize;
+
+  private ByteBuffer[]       pages                   = new ByteBuffer[0];
+  private int                size                    = 0;
+
+  private long[]             removed                 = new long[16];
+  private int                removedCount            = 0;
+
+  protected void clear() {
+    // THE DIRECT BUFFERS ARE RELEASED AS SOON AS THE PAGES ARE COLLECTED
+    pages = new ByteBuffer[0];
+    size = 0;
+    removed = new long[16];
+    removedCount = 0;
+  }
+
+  public long getEntries() {
+    acquireSharedLock();
+    try {
+
+      return size - removedCount;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public boolean isRequiresValidPositionBeforeCreation() {
+    return false;
+  }
+
+  public long getRecordsSize() {
+    acquireSharedLock();
+    try {
+
+      long recordsSize = 0;
+      for (int i = 0; i < size; ++i)
+        if (isUsed(i))
+          recordsSize += page(i).getInt(offset(i) + RECORD_SIZE_OFFSET);
+      return recordsSize;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OClusterPosition getFirstPosition() {
+    acquireSharedLock();
+    try {
+
+      return OClusterPositionFactory.INSTANCE.valueOf(size == 0 ? -1 : 0);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OClusterPosition getLastPosition() {
+    acquireSharedLock();
+    try {
+      return OClusterPositionFactory.INSTANCE.valueOf(size - 1);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public boolean addPhysicalPosition(final OPhysicalPosition iPPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final int position;
+      if (removedCount > 0) {
+        position = (int) removed[--removedCount];
+
+        // OVERWRITE DATA
+        iPPosition.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(position);
+        iPPosition.recordVersion = readVersion(position);
+        if (iPPosition.recordVersion.isTombstone())
+          iPPosition.recordVersion.revive();
+
+        iPPosition.recordVersion.increment();
+
+      } else {
+        if (size == pages.length * ENTRIES_PER_PAGE) {
+          pages = Arrays.copyOf(pages, pages.length + 1);
+          pages[pages.length - 1] = ByteBuffer.allocateDirect(ENTRIES_PER_PAGE * entrySize);
+        }
+
+        position = size++;
+        iPPosition.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(position);
+        iPPosition.recordVersion.reset();
+      }
+
+      final ByteBuffer page = page(position);
+      final int offset = offset(position);
+      page.put(offset + STATE_OFFSET, STATE_USED);
+      page.putInt(offset + DATA_SEGMENT_ID_OFFSET, iPPosition.dataSegmentId);
+      page.putLong(offset + DATA_SEGMENT_POS_OFFSET, iPPosition.dataSegmentPos);
+      page.put(offset + RECORD_TYPE_OFFSET, iPPosition.recordType);
+      page.putInt(offset + RECORD_SIZE_OFFSET, iPPosition.recordSize);
+      writeVersion(position, iPPosition.recordVersion);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+
+    return true;
+  }
+
+  public void updateRecordType(final OClusterPosition iPosition, final byte iRecordType) throws IOException {
+    acquireExclusiveLock();
+    try {
+
+      final int position = iPosition.intValue();
+      page(position).put(offset(position) + RECORD_TYPE_OFFSET, iRecordType);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void updateVersion(final OClusterPosition iPosition, final ORecordVersion iVersion) throws IOException {
+    acquireExclusiveLock();
+    try {
+
+      writeVersion(iPosition.intValue(), iVersion);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public OPhysicalPosition getPhysicalPosition(final OPhysicalPosition iPPosition) {
+    acquireSharedLock();
+    try {
+      final long position = iPPosition.clusterPosition.longValue();
+      if (position < 0 || position >= size || !isUsed((int) position))
+        return null;
+
+      final ByteBuffer page = page((int) position);
+      final int offset = offset((int) position);
+
+      final OPhysicalPosition ppos = new OPhysicalPosition(page.getInt(offset + DATA_SEGMENT_ID_OFFSET), page.getLong(offset
+          + DATA_SEGMENT_POS_OFFSET), page.get(offset + RECORD_TYPE_OFFSET));
+      ppos.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(position);
+      ppos.recordSize = page.getInt(offset + RECORD_SIZE_OFFSET);
+      ppos.recordVersion = readVersion((int) position);
+      return ppos;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public void removePhysicalPosition(final OClusterPosition iPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final int position = iPosition.intValue();
+
+      // ADD AS HOLE, KEEPING THE VERSION TO INCREMENT WHEN THE POSITION IS RECYCLED
+      if (removedCount == removed.length)
+        removed = Arrays.copyOf(removed, removed.length << 1);
+      removed[removedCount++] = position;
+
+      page(position).put(offset(position) + STATE_OFFSET, STATE_REMOVED);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void updateDataSegmentPosition(final OClusterPosition iPosition, final int iDataSegmentId, final long iDataPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final int position = iPosition.intValue();
+      final ByteBuffer page = page(position);
+      page.putInt(offset(position) + DATA_SEGMENT_ID_OFFSET, iDataSegmentId);
+      page.putLong(offset(position) + DATA_SEGMENT_POS_OFFSET, iDataPosition);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public OClusterPosition nextRecord(final OClusterPosition position) {
+    acquireSharedLock();
+    try {
+
+      int positionInEntries = position.intValue() + 1;
+      while (positionInEntries < size && !isUsed(positionInEntries))
+        positionInEntries++;
+
+      if (positionInEntries >= 0 && positionInEntries < size)
+        return OClusterPositionFactory.INSTANCE.valueOf(positionInEntries);
+      else
+        return OClusterPosition.INVALID_POSITION;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OClusterPosition prevRecord(final OClusterPosition position) {
+    acquireSharedLock();
+    try {
+
+      int positionInEntries = Math.min(position.intValue(), size) - 1;
+      while (positionInEntries >= 0 && !isUsed(positionInEntries))
+        positionInEntries--;
+
+      if (positionInEntries >= 0)
+        return OClusterPositionFactory.INSTANCE.valueOf(positionInEntries);
+      else
+        return OClusterPosition.INVALID_POSITION;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "OClusterMemoryOffHeap [name=" + getName() + ", id=" + getId() + ", entries=" + size + ", removed=" + removedCount
+        + "]";
+  }
+
+  private boolean isUsed(final int iPosition) {
+    return page(iPosition).get(offset(iPosition) + STATE_OFFSET) == STATE_USED;
+  }
+
+  private ORecordVersion readVersion(final int iPosition) {
+    final byte[] buffer = new byte[versionSize];
+
+    // BULK READS NEED A VIEW WITH ITS OWN POSITION: READERS CAN RUN CONCURRENTLY
+    final ByteBuffer view = page(iPosition).duplicate();
+    view.position(offset(iPosition) + VERSION_OFFSET);
+    view.get(buffer);
+
+    final ORecordVersion version = OVersionFactory.instance().createVersion();
+    version.getSerializer().readFrom(buffer, 0, version);
+    return version;
+  }
+
+  private void writeVersion(final int iPosition, final ORecordVersion iVersion) {
+    final byte[] buffer = new byte[versionSize];
+    iVersion.getSerializer().writeTo(buffer, 0, iVersion);
+
+    final ByteBuffer view = page(iPosition).duplicate();
+    view.position(offset(iPosition) + VERSION_OFFSET);
+    view.put(buffer);
+  }
+
+  private ByteBuffer page(final int iPosition) {
+    return pages[iPosition / ENTRIES_PER_PAGE];
+  }
+
+  private int offset(final int iPosition) {
+    return (iPosition % ENTRIES_PER_PAGE) * entrySize;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.orientechnologies.common.directmemory.OBuddyMemory;
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
+
+/**
+ * Memory data segment that keeps the record contents in direct memory, out of the Java heap. The memory is allocated in chunks of
+ * {@link OGlobalConfiguration#STORAGE_MEMORY_OFFHEAP_CHUNK_SIZE} bytes, each one managed by a direct {@link OBuddyMemory}. The
+ * heap holds only an array of primitive pointers, addressed by the record position, so the garbage collector never scans the
+ * contents. Every record is stored as its length (4 bytes) followed by the content.
+ */
+public class ODataSegmentMemoryOffHeap extends ODataSegmentMemory {
+  private static final int          MIN_CHUNK_SIZE = 32;
+  private static final int          LENGTH_SIZE    = 4;
+  private static final long         NULL_POINTER   = -1;
+
+  private final int                 chunkSize;
+  private final List<OBuddyMemory>  chunks         = new ArrayList<OBuddyMemory>();
+  private int                       currentChunk   = -1;
+
+  private long[]                    pointers       = new long[1024];
+  private int                       size           = 0;
+  private long                      contentSize    = 0;
+
+  public ODataSegmentMemoryOffHeap(final String iDataSegmentName, final int iId) {
+    super(iDataSegmentName, iId);
+    chunkSize = OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP_CHUNK_SIZE.getValueAsInteger();
+  }
+
+  @Override
+  public void close() {
+    acquireExclusiveLock();
+    try {
+
+      // THE DIRECT BUFFERS ARE RELEASED AS SOON AS THE CHUNKS ARE COLLECTED
+      chunks.clear();
+      currentChunk = -1;
+      pointers = new long[1024];
+      size = 0;
+      contentSize = 0;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public int count() {
+    acquireSharedLock();
+    try {
+
+      return size;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long getSize() {
+    acquireSharedLock();
+    try {
+
+      return contentSize;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long createRecord(final byte[] iContent) {
+    acquireExclusiveLock();
+    try {
+
+      if (size == pointers.length)
+        pointers = Arrays.copyOf(pointers, pointers.length << 1);
+
+      pointers[size] = iContent != null ? store(iContent) : NULL_POINTER;
+      return size++;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public void deleteRecord(final long iRecordPosition) {
+    acquireExclusiveLock();
+    try {
+
+      release(pointers[(int) iRecordPosition]);
+      pointers[(int) iRecordPosition] = NULL_POINTER;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public byte[] readRecord(final long iRecordPosition) {
+    acquireSharedLock();
+    try {
+
+      if (iRecordPosition >= size)
+        throw new IndexOutOfBoundsException("Index: " + iRecordPosition + ", Size: " + size);
+
+      final long pointer = pointers[(int) iRecordPosition];
+      if (pointer == NULL_POINTER)
+        return null;
+
+      final OBuddyMemory memory = chunks.get(chunkOf(pointer));
+      final int length = memory.getInt(pointerOf(pointer), 0);
+      if (length == 0)
+        // A ZERO LENGTH WOULD READ THE WHOLE CHUNK
+        return new byte[0];
+
+      return memory.get(pointerOf(pointer), LENGTH_SIZE, length);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public void updateRecord(final long iRecordPosition, final byte[] iContent) {
+    acquireExclusiveLock();
+    try {
+
+      final long pointer = pointers[(int) iRecordPosition];
+      if (pointer != NULL_POINTER && iContent != null) {
+        final OBuddyMemory memory = chunks.get(chunkOf(pointer));
+        if (memory.getActualSpace(pointerOf(pointer)) - OBuddyMemory.SYSTEM_INFO_SIZE >= LENGTH_SIZE + iContent.length) {
+          // THE NEW CONTENT FITS IN THE SAME SPACE
+          contentSize += iContent.length - memory.getInt(pointerOf(pointer), 0);
+          write(memory, pointerOf(pointer), iContent);
+          return;
+        }
+      }
+
+      release(pointer);
+      pointers[(int) iRecordPosition] = iContent != null ? store(iContent) : NULL_POINTER;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  private long store(final byte[] iContent) {
+    final int needed = LENGTH_SIZE + iContent.length;
+
+    int pointer = ODirectMemory.NULL_POINTER;
+    if (currentChunk > -1)
+      pointer = chunks.get(currentChunk).allocate(needed);
+
+    if (pointer == ODirectMemory.NULL_POINTER)
+      // LOOK FOR SPACE FREED IN THE OTHER CHUNKS
+      for (int i = 0; i < chunks.size() && pointer == ODirectMemory.NULL_POINTER; ++i)
+        if (i != currentChunk) {
+          pointer = chunks.get(i).allocate(needed);
+          if (pointer != ODirectMemory.NULL_POINTER)
+            currentChunk = i;
+        }
+
+    if (pointer == ODirectMemory.NULL_POINTER) {
+      // ALLOCATE A NEW CHUNK, BIG ENOUGH FOR RECORDS LARGER THAN THE CONFIGURED SIZE
+      int capacity = Integer.highestOneBit(Math.max(chunkSize, MIN_CHUNK_SIZE));
+      while (capacity > 0 && capacity < needed + OBuddyMemory.SYSTEM_INFO_SIZE)
+        capacity <<= 1;
+
+      if (capacity <= 0)
+        throw new OStorageException("Record of " + iContent.length + " bytes is too large for the off-heap memory storage");
+
+      chunks.add(new OBuddyMemory(capacity, MIN_CHUNK_SIZE, true));
+      currentChunk = chunks.size() - 1;
+      pointer = chunks.get(currentChunk).allocate(needed);
+    }
+
+    write(chunks.get(currentChunk), pointer, iContent);
+    contentSize += iContent.length;
+
+    return ((long) currentChunk << 32) | pointer;
+  }
+
+  private void write(final OBuddyMemory iMemory, final int iPointer, final byte[] iContent) {
+    iMemory.setInt(iPointer, 0, iContent.length);
+    if (iContent.length > 0)
+      iMemory.set(iPointer, LENGTH_SIZE, iContent.length, iContent);
+  }
+
+  private void release(final long iPointer) {
+    if (iPointer == NULL_POINTER)
+      return;
+
+    final OBuddyMemory memory = chunks.get(chunkOf(iPointer));
+    contentSize -= memory.getInt(pointerOf(iPointer), 0);
+    memory.free(pointerOf(iPointer));
+  }
+
+  private static int chunkOf(final long iPointer) {
+    return (int) (iPointer >>> 32);
+  }
+
+  private static int pointerOf(final long iPointer) {
+    return (int) iPointer;
+  }
+}
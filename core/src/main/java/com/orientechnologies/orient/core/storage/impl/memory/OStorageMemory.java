@@ -61,6 +61,7 @@ import com.orientechnologies.orient.core.version.OVersionFactory;
  * <ul>
  * <li>The name is "Memory"</li>
  * <li>Has a unique Data Segment</li>
+ * <li>Keeps records and cluster positions out of the Java heap if {@link OGlobalConfiguration#STORAGE_MEMORY_OFFHEAP} is true</li>
  * </ul>
  * 
  * @author Luca Garulli
@@ -270,7 +271,8 @@ public class OStorageMemory extends OStorageEmbedded {
       if (pos == -1)
         pos = dataSegments.size();
 
-      final ODataSegmentMemory dataSegment = new ODataSegmentMemory(iDataSegmentName, pos);
+      final ODataSegmentMemory dataSegment = OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP.getValueAsBoolean() ? new ODataSegmentMemoryOffHeap(
+          iDataSegmentName, pos) : new ODataSegmentMemory(iDataSegmentName, pos);
 
       if (pos == dataSegments.size())
         dataSegments.add(dataSegment);
@@ -410,6 +412,9 @@ public class OStorageMemory extends OStorageEmbedded {
             ppos.recordVersion.increment();
           } else
             ppos.recordVersion.decrement();
+
+          // OFF-HEAP CLUSTERS RETURN A COPY OF THE POSITION
+          cluster.updateVersion(iRid.clusterPosition, ppos.recordVersion);
         }
 
         final ODataSegmentMemory dataSegment = getDataSegmentById(ppos.dataSegmentId);
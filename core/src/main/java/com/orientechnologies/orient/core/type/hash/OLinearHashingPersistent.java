@@ -0,0 +1,823 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.type.hash;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Persistent hash map of the keys of an index to the RIDs of their records, grown one bucket at a time with linear hashing. A key
+ * goes in the bucket addressed by the lowest "level" bits of its hash, or by one more bit if that bucket comes before the "next"
+ * one to split. When the keys are more than the bucket size on average the "next" bucket is split in two, so the keys are never
+ * rehashed all together.
+ * <p>
+ * The keys are hashed and compared in the binary form written by the key serializer. Every bucket is a record of the index
+ * cluster holding all its keys, so there are no overflow buckets. The RIDs of the buckets are listed in segment records and the
+ * root record points to the segments. The buckets are kept in an LRU cache and the changes are saved every
+ * "maxUpdatesBeforeSave" updates, 0 means at every update and -1 only when {@link #save()} is called.
+ * <p>
+ * The RIDs of a key are kept with it in its bucket up to "index.hash.ridSetThreshold". Over it they are moved to a RID set of the
+ * key: another map of this class having the RIDs as keys, so adding a RID to a key with many of them costs as adding a key and
+ * doesn't rewrite all of them. The RID sets are saved together with the map.
+ * <p>
+ * The changes must be exclusive, while the reads can run concurrently: the index takes its exclusive lock to change the map and
+ * the shared one to read it. The reads change only the LRU order of the bucket cache, the buckets and the RID sets loaded on
+ * demand and the buckets saved when evicted: all of them under the monitor of the cache.
+ */
+public class OLinearHashingPersistent implements Iterable<Map.Entry<Object, List<ORID>>> {
+  private static final int            SEGMENT_SIZE  = 1024;
+  private static final int            RID_SIZE      = ORecordId.PERSISTENT_SIZE;
+
+  private final int                   clusterId;
+  private final ORecordId             root;
+  private final int                   maxUpdatesBeforeSave;
+  private final OBucketCache          cache;
+  private final int                   ridSetThreshold;
+  private OBinarySerializer<Object>   keySerializer;
+  private int                         bucketSize;
+  private int                         level;
+  private int                         next;
+  private long                        keys;
+  private long                        values;
+  private final List<ORecordId>       buckets       = new ArrayList<ORecordId>();
+  private final List<ORecordId>       segments      = new ArrayList<ORecordId>();
+  private final Set<Integer>          dirtySegments = new TreeSet<Integer>();
+  private final Map<Integer, OBucket> dirtyBuckets  = new LinkedHashMap<Integer, OBucket>();
+  private final Set<OEntry>           dirtyRidSets  = new HashSet<OEntry>();
+  private boolean                     rootDirty;
+  private int                         updates;
+
+  /**
+   * Key with its RIDs, or with the root of its RID set if they are too many. The RID set is loaded on demand.
+   */
+  private static final class OEntry {
+    private final byte[]             key;
+    private final int                hash;
+    private List<ORID>               rids;
+    private ORecordId                ridSetRoot;
+    private OLinearHashingPersistent ridSet;
+
+    private OEntry(final byte[] iKey, final int iHash, final List<ORID> iRids) {
+      key = iKey;
+      hash = iHash;
+      rids = iRids;
+    }
+  }
+
+  private static final class OBucket {
+    private final int          index;
+    private final ORecordId    rid;
+    private final List<OEntry> entries;
+
+    private OBucket(final int iIndex, final ORecordId iRid, final List<OEntry> iEntries) {
+      index = iIndex;
+      rid = iRid;
+      entries = iEntries;
+    }
+
+    private OEntry find(final byte[] iKey, final int iHash) {
+      for (OEntry entry : entries)
+        if (entry.hash == iHash && Arrays.equals(entry.key, iKey))
+          return entry;
+      return null;
+    }
+  }
+
+  /**
+   * Buckets by position in LRU order. The eldest bucket is saved before it's dropped if it has changes.
+   */
+  @SuppressWarnings("serial")
+  private final class OBucketCache extends LinkedHashMap<Integer, OBucket> {
+    private final int limit;
+
+    private OBucketCache(final int iLimit) {
+      super(16, 0.75f, true);
+      limit = iLimit;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Integer, OBucket> eldest) {
+      if (size() <= limit)
+        return false;
+
+      saveBucket(eldest.getValue());
+      // THE RID SETS ARE SAVED: FREE THEIR MEMORY TOO
+      for (OEntry entry : eldest.getValue().entries)
+        entry.ridSet = null;
+      return true;
+    }
+  }
+
+  /**
+   * Creates an empty map. Its records are written at the first save.
+   *
+   * @param iClusterName
+   *          Cluster where to store the records, null means the index cluster
+   */
+  public OLinearHashingPersistent(final String iClusterName, final OBinarySerializer<Object> iKeySerializer,
+      final int iMaxUpdatesBeforeSave) {
+    this(getStorage().getClusterIdByName(iClusterName != null ? iClusterName : OMetadata.CLUSTER_INDEX_NAME), iKeySerializer,
+        iMaxUpdatesBeforeSave);
+  }
+
+  /**
+   * Opens the map stored in the root record passed. Call {@link #load()} before using it.
+   */
+  public OLinearHashingPersistent(final ORID iRoot, final int iMaxUpdatesBeforeSave) {
+    clusterId = iRoot.getClusterId();
+    root = new ORecordId(iRoot);
+    maxUpdatesBeforeSave = iMaxUpdatesBeforeSave;
+    cache = new OBucketCache(getCacheSize());
+    ridSetThreshold = getRidSetThreshold();
+  }
+
+  @SuppressWarnings("unchecked")
+  private OLinearHashingPersistent(final int iClusterId, final OBinarySerializer<?> iKeySerializer, final int iMaxUpdatesBeforeSave) {
+    clusterId = iClusterId;
+    root = new ORecordId();
+    maxUpdatesBeforeSave = iMaxUpdatesBeforeSave;
+    cache = new OBucketCache(getCacheSize());
+    ridSetThreshold = getRidSetThreshold();
+    keySerializer = (OBinarySerializer<Object>) iKeySerializer;
+    bucketSize = Math.max(1, OGlobalConfiguration.INDEX_HASH_BUCKET_SIZE.getValueAsInteger());
+    reset();
+  }
+
+  public ORID getRecordId() {
+    return root;
+  }
+
+  public OBinarySerializer<Object> getKeySerializer() {
+    return keySerializer;
+  }
+
+  /**
+   * Returns the number of keys.
+   */
+  public long size() {
+    return keys;
+  }
+
+  /**
+   * Returns the number of RIDs under all the keys.
+   */
+  public long getValueCount() {
+    return values;
+  }
+
+  public int getBucketCount() {
+    return buckets.size();
+  }
+
+  /**
+   * Returns the RIDs of the key, or null if the key is not in the map. The RIDs kept in the bucket are in the order they were
+   * added, the ones of a RID set in no particular order. The list can't be modified.
+   */
+  public List<ORID> get(final Object iKey) {
+    final byte[] key = serializeKey(iKey);
+    final int hash = hash(key);
+
+    final OEntry entry = getBucket(getBucketIndex(hash)).find(key, hash);
+    return entry != null ? getRids(entry) : null;
+  }
+
+  /**
+   * Returns the number of RIDs of the key without loading them.
+   */
+  public long count(final Object iKey) {
+    final byte[] key = serializeKey(iKey);
+    final int hash = hash(key);
+
+    final OEntry entry = getBucket(getBucketIndex(hash)).find(key, hash);
+    if (entry == null)
+      return 0;
+    return entry.rids != null ? entry.rids.size() : getRidSet(entry).size();
+  }
+
+  /**
+   * Adds the RID to the ones of the key.
+   *
+   * @return false if the RID was already under the key
+   */
+  public boolean add(final Object iKey, final ORID iRid) {
+    final byte[] key = serializeKey(iKey);
+    final int hash = hash(key);
+
+    final OBucket bucket = getBucket(getBucketIndex(hash));
+    final OEntry entry = bucket.find(key, hash);
+    if (entry == null) {
+      final List<ORID> rids = new ArrayList<ORID>(1);
+      rids.add(iRid);
+      addEntry(bucket, new OEntry(key, hash, rids));
+    } else if (entry.rids == null) {
+      if (!getRidSet(entry).addKey(iRid))
+        return false;
+      dirtyRidSets.add(entry);
+    } else if (entry.rids.size() < ridSetThreshold) {
+      // FEW RIDS: THE LOOKUP IS BOUNDED BY THE THRESHOLD
+      if (entry.rids.contains(iRid))
+        return false;
+      entry.rids.add(iRid);
+      setDirty(bucket);
+    } else {
+      if (entry.rids.contains(iRid))
+        return false;
+      moveToRidSet(entry).addKey(iRid);
+      setDirty(bucket);
+    }
+    values++;
+    rootDirty = true;
+
+    commitChanges();
+    return true;
+  }
+
+  /**
+   * Removes the key with all its RIDs.
+   */
+  public boolean remove(final Object iKey) {
+    final byte[] key = serializeKey(iKey);
+    final int hash = hash(key);
+
+    final OBucket bucket = getBucket(getBucketIndex(hash));
+    final OEntry entry = bucket.find(key, hash);
+    if (entry == null)
+      return false;
+
+    removeEntry(bucket, entry);
+    commitChanges();
+    return true;
+  }
+
+  /**
+   * Removes the RID from the ones of the key, and the key too if it was the last one.
+   */
+  public boolean remove(final Object iKey, final ORID iRid) {
+    final byte[] key = serializeKey(iKey);
+    final int hash = hash(key);
+
+    final OBucket bucket = getBucket(getBucketIndex(hash));
+    final OEntry entry = bucket.find(key, hash);
+    if (entry == null)
+      return false;
+
+    if (entry.rids == null) {
+      final OLinearHashingPersistent ridSet = getRidSet(entry);
+      if (!ridSet.remove(iRid))
+        return false;
+
+      values--;
+      if (ridSet.size() == 0)
+        removeEntry(bucket, entry);
+      else {
+        dirtyRidSets.add(entry);
+        rootDirty = true;
+      }
+    } else {
+      if (!entry.rids.contains(iRid))
+        return false;
+
+      if (entry.rids.size() == 1)
+        removeEntry(bucket, entry);
+      else {
+        entry.rids.remove(iRid);
+        values--;
+        setDirty(bucket);
+        rootDirty = true;
+      }
+    }
+    commitChanges();
+    return true;
+  }
+
+  /**
+   * Removes all the keys, deleting the records of the buckets.
+   */
+  public void clear() {
+    deleteBuckets();
+    reset();
+    commitChanges();
+  }
+
+  /**
+   * Deletes all the records of the map.
+   */
+  public void delete() {
+    deleteBuckets();
+    if (root.isValid())
+      getStorage().deleteRecord(root, OVersionFactory.instance().createUntrackedVersion(), 0, null);
+    root.reset();
+  }
+
+  @SuppressWarnings("unchecked")
+  public void load() {
+    final byte[] content = readRecord(root);
+
+    int offset = 0;
+    keySerializer = (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(content[offset++]);
+    if (keySerializer == null)
+      throw new OConfigurationException("Cannot find the key serializer with id " + content[0] + " of the hash map " + root);
+    bucketSize = OBinaryProtocol.bytes2int(content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+    level = OBinaryProtocol.bytes2int(content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+    next = OBinaryProtocol.bytes2int(content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+    keys = OBinaryProtocol.bytes2long(content, offset);
+    offset += OBinaryProtocol.SIZE_LONG;
+    values = OBinaryProtocol.bytes2long(content, offset);
+    offset += OBinaryProtocol.SIZE_LONG;
+
+    segments.clear();
+    offset = readRids(content, offset, segments);
+
+    buckets.clear();
+    for (ORecordId segment : segments)
+      readRids(readRecord(segment), 0, buckets);
+
+    cache.clear();
+    dirtySegments.clear();
+    dirtyBuckets.clear();
+    dirtyRidSets.clear();
+    rootDirty = false;
+    updates = 0;
+  }
+
+  /**
+   * Writes the changed RID sets and buckets, then the directory. A RID set is also saved when the bucket of its key is evicted by
+   * a reader, so it takes the monitor of the cache as the readers do.
+   */
+  public void save() {
+    synchronized (cache) {
+      for (OEntry entry : dirtyRidSets)
+        entry.ridSet.save();
+      dirtyRidSets.clear();
+
+      for (OBucket bucket : new ArrayList<OBucket>(dirtyBuckets.values()))
+        saveBucket(bucket);
+
+      for (Integer segment : dirtySegments)
+        saveSegment(segment);
+      dirtySegments.clear();
+
+      if (rootDirty) {
+        writeRecord(root, rootToStream());
+        rootDirty = false;
+      }
+      updates = 0;
+    }
+  }
+
+  /**
+   * Saves the changes and frees the memory of the buckets.
+   */
+  public void unload() {
+    save();
+    cache.clear();
+  }
+
+  /**
+   * Browses the keys bucket by bucket, so in no particular order. The map must not change meanwhile.
+   */
+  public Iterator<Map.Entry<Object, List<ORID>>> iterator() {
+    return new Iterator<Map.Entry<Object, List<ORID>>>() {
+      private int              bucketIndex;
+      private Iterator<OEntry> entries = Collections.<OEntry> emptyList().iterator();
+
+      public boolean hasNext() {
+        while (!entries.hasNext() && bucketIndex < buckets.size())
+          entries = new ArrayList<OEntry>(getBucket(bucketIndex++).entries).iterator();
+        return entries.hasNext();
+      }
+
+      public Map.Entry<Object, List<ORID>> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        final OEntry entry = entries.next();
+        return new AbstractMap.SimpleImmutableEntry<Object, List<ORID>>(keySerializer.deserialize(entry.key, 0), getRids(entry));
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  private void reset() {
+    level = 0;
+    next = 0;
+    keys = 0;
+    values = 0;
+
+    cache.clear();
+    buckets.clear();
+    segments.clear();
+    dirtySegments.clear();
+    dirtyBuckets.clear();
+    dirtyRidSets.clear();
+
+    final OBucket bucket = new OBucket(0, new ORecordId(), new ArrayList<OEntry>());
+    setDirty(bucket);
+    buckets.add(bucket.rid);
+    cache.put(0, bucket);
+    dirtySegments.add(0);
+    rootDirty = true;
+  }
+
+  /**
+   * Adds the key without RIDs, as the RID sets do.
+   *
+   * @return false if the key was already in the map
+   */
+  private boolean addKey(final Object iKey) {
+    final byte[] key = serializeKey(iKey);
+    final int hash = hash(key);
+
+    final OBucket bucket = getBucket(getBucketIndex(hash));
+    if (bucket.find(key, hash) != null)
+      return false;
+
+    addEntry(bucket, new OEntry(key, hash, new ArrayList<ORID>(0)));
+    commitChanges();
+    return true;
+  }
+
+  private void addEntry(final OBucket iBucket, final OEntry iEntry) {
+    iBucket.entries.add(iEntry);
+    setDirty(iBucket);
+    keys++;
+    rootDirty = true;
+
+    if (keys > (long) bucketSize * buckets.size())
+      splitBucket();
+  }
+
+  private void removeEntry(final OBucket iBucket, final OEntry iEntry) {
+    iBucket.entries.remove(iEntry);
+    setDirty(iBucket);
+    keys--;
+    if (iEntry.rids != null)
+      values -= iEntry.rids.size();
+    else {
+      final OLinearHashingPersistent ridSet = getRidSet(iEntry);
+      values -= ridSet.size();
+      ridSet.delete();
+      dirtyRidSets.remove(iEntry);
+    }
+    rootDirty = true;
+  }
+
+  /**
+   * Moves the RIDs of the key from its bucket to a new RID set.
+   */
+  private OLinearHashingPersistent moveToRidSet(final OEntry iEntry) {
+    final OLinearHashingPersistent ridSet = new OLinearHashingPersistent(clusterId, OLinkSerializer.INSTANCE, -1);
+    for (ORID rid : iEntry.rids)
+      ridSet.addKey(rid);
+
+    iEntry.rids = null;
+    iEntry.ridSet = ridSet;
+    // THE ROOT GETS ITS POSITION AT THE FIRST SAVE OF THE SET, ALWAYS BEFORE THE ONE OF THE BUCKET
+    iEntry.ridSetRoot = ridSet.root;
+    dirtyRidSets.add(iEntry);
+    return ridSet;
+  }
+
+  private List<ORID> getRids(final OEntry iEntry) {
+    if (iEntry.rids != null)
+      return Collections.unmodifiableList(iEntry.rids);
+
+    final OLinearHashingPersistent ridSet = getRidSet(iEntry);
+    final List<ORID> rids = new ArrayList<ORID>((int) ridSet.size());
+    for (Map.Entry<Object, List<ORID>> rid : ridSet)
+      rids.add((ORID) rid.getKey());
+    return Collections.unmodifiableList(rids);
+  }
+
+  private OLinearHashingPersistent getRidSet(final OEntry iEntry) {
+    synchronized (cache) {
+      if (iEntry.ridSet == null) {
+        final OLinearHashingPersistent ridSet = new OLinearHashingPersistent(iEntry.ridSetRoot, -1);
+        ridSet.load();
+        iEntry.ridSet = ridSet;
+      }
+      return iEntry.ridSet;
+    }
+  }
+
+  private void setDirty(final OBucket iBucket) {
+    dirtyBuckets.put(iBucket.index, iBucket);
+  }
+
+  /**
+   * Splits the "next" bucket moving to a new bucket at the end the keys addressed by one more bit of the hash.
+   */
+  private void splitBucket() {
+    final int mask = (2 << level) - 1;
+    final OBucket bucket = getBucket(next);
+    final int newIndex = buckets.size();
+    final OBucket newBucket = new OBucket(newIndex, new ORecordId(), new ArrayList<OEntry>());
+
+    for (Iterator<OEntry> it = bucket.entries.iterator(); it.hasNext();) {
+      final OEntry entry = it.next();
+      if ((entry.hash & mask) != next) {
+        it.remove();
+        newBucket.entries.add(entry);
+      }
+    }
+    setDirty(bucket);
+    setDirty(newBucket);
+
+    buckets.add(newBucket.rid);
+    cache.put(newIndex, newBucket);
+    dirtySegments.add(newIndex / SEGMENT_SIZE);
+
+    if (++next == 1 << level) {
+      level++;
+      next = 0;
+    }
+    rootDirty = true;
+  }
+
+  private int getBucketIndex(final int iHash) {
+    final int index = iHash & ((1 << level) - 1);
+    return index < next ? iHash & ((2 << level) - 1) : index;
+  }
+
+  private OBucket getBucket(final int iIndex) {
+    synchronized (cache) {
+      final OBucket bucket = cache.get(iIndex);
+      if (bucket != null)
+        return bucket;
+    }
+
+    // READ IT OUTSIDE THE MONITOR: A MISS DOESN'T BLOCK THE OTHER READERS
+    final ORecordId rid = buckets.get(iIndex);
+    final OBucket bucket = bucketFromStream(iIndex, rid, readRecord(rid));
+
+    synchronized (cache) {
+      final OBucket loaded = cache.get(iIndex);
+      if (loaded != null)
+        // ANOTHER READER LOADED IT MEANWHILE
+        return loaded;
+      cache.put(iIndex, bucket);
+      return bucket;
+    }
+  }
+
+  private void commitChanges() {
+    if (maxUpdatesBeforeSave == 0 || (maxUpdatesBeforeSave > 0 && ++updates >= maxUpdatesBeforeSave))
+      save();
+  }
+
+  private void saveBucket(final OBucket iBucket) {
+    // THE NEW RID SETS MUST HAVE THEIR ROOT BEFORE THE BUCKET POINTS TO IT
+    for (OEntry entry : iBucket.entries)
+      if (entry.ridSet != null && dirtyRidSets.remove(entry))
+        entry.ridSet.save();
+
+    if (dirtyBuckets.remove(iBucket.index) == null)
+      return;
+
+    if (writeRecord(iBucket.rid, bucketToStream(iBucket)))
+      // THE SEGMENT POINTS TO THE NEW RECORD
+      dirtySegments.add(iBucket.index / SEGMENT_SIZE);
+  }
+
+  private void saveSegment(final int iSegment) {
+    final List<ORecordId> rids = buckets.subList(iSegment * SEGMENT_SIZE,
+        Math.min(buckets.size(), (iSegment + 1) * SEGMENT_SIZE));
+    final byte[] content = new byte[OBinaryProtocol.SIZE_INT + rids.size() * RID_SIZE];
+    writeRids(rids, content, 0);
+
+    if (iSegment == segments.size()) {
+      segments.add(new ORecordId());
+      rootDirty = true;
+    }
+    writeRecord(segments.get(iSegment), content);
+  }
+
+  private void deleteBuckets() {
+    for (int i = 0; i < buckets.size(); ++i) {
+      // THE CACHED BUCKETS MAY BE NEWER THAN THEIR RECORDS, THE OTHERS ARE READ WITHOUT CACHING THEM
+      OBucket bucket = cache.get(i);
+      if (bucket == null)
+        bucket = bucketFromStream(i, buckets.get(i), readRecord(buckets.get(i)));
+      for (OEntry entry : bucket.entries)
+        if (entry.rids == null)
+          getRidSet(entry).delete();
+    }
+
+    final OStorage storage = getStorage();
+    for (ORecordId rid : buckets)
+      if (rid.isValid())
+        storage.deleteRecord(rid, OVersionFactory.instance().createUntrackedVersion(), 0, null);
+    for (ORecordId rid : segments)
+      if (rid.isValid())
+        storage.deleteRecord(rid, OVersionFactory.instance().createUntrackedVersion(), 0, null);
+  }
+
+  /**
+   * Writes the record, creating it if it's new.
+   *
+   * @return true if the record has been created
+   */
+  private boolean writeRecord(final ORecordId iRid, final byte[] iContent) {
+    final OStorage storage = getStorage();
+    if (iRid.isValid()) {
+      // UPDATE IT WITHOUT VERSION CHECK SINCE ALL IT'S LOCKED
+      storage.updateRecord(iRid, iContent, OVersionFactory.instance().createUntrackedVersion(), ORecordBytes.RECORD_TYPE, 0, null);
+      return false;
+    }
+
+    iRid.clusterId = clusterId;
+    storage.createRecord(0, iRid, iContent, OVersionFactory.instance().createVersion(), ORecordBytes.RECORD_TYPE, 0, null);
+    return true;
+  }
+
+  private byte[] readRecord(final ORecordId iRid) {
+    final ORawBuffer raw = getStorage().readRecord(iRid, null, false, null).getResult();
+    if (raw == null)
+      throw new OConfigurationException("Cannot load the record " + iRid + " of the hash map " + root);
+    return raw.buffer;
+  }
+
+  private byte[] rootToStream() {
+    final byte[] content = new byte[1 + 3 * OBinaryProtocol.SIZE_INT + 2 * OBinaryProtocol.SIZE_LONG + OBinaryProtocol.SIZE_INT
+        + segments.size() * RID_SIZE];
+
+    int offset = 0;
+    content[offset++] = keySerializer.getId();
+    OBinaryProtocol.int2bytes(bucketSize, content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+    OBinaryProtocol.int2bytes(level, content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+    OBinaryProtocol.int2bytes(next, content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+    OBinaryProtocol.long2bytes(keys, content, offset);
+    offset += OBinaryProtocol.SIZE_LONG;
+    OBinaryProtocol.long2bytes(values, content, offset);
+    offset += OBinaryProtocol.SIZE_LONG;
+    writeRids(segments, content, offset);
+    return content;
+  }
+
+  private static byte[] bucketToStream(final OBucket iBucket) {
+    int size = OBinaryProtocol.SIZE_INT;
+    for (OEntry entry : iBucket.entries)
+      size += 3 * OBinaryProtocol.SIZE_INT + entry.key.length + (entry.rids != null ? entry.rids.size() : 1) * RID_SIZE;
+
+    final byte[] content = new byte[size];
+    int offset = 0;
+    OBinaryProtocol.int2bytes(iBucket.entries.size(), content, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+
+    for (OEntry entry : iBucket.entries) {
+      OBinaryProtocol.int2bytes(entry.hash, content, offset);
+      offset += OBinaryProtocol.SIZE_INT;
+      OBinaryProtocol.int2bytes(entry.key.length, content, offset);
+      offset += OBinaryProtocol.SIZE_INT;
+      System.arraycopy(entry.key, 0, content, offset, entry.key.length);
+      offset += entry.key.length;
+      if (entry.rids != null)
+        offset = writeRids(entry.rids, content, offset);
+      else {
+        // -1 RIDS: THE ROOT OF THE RID SET FOLLOWS
+        OBinaryProtocol.int2bytes(-1, content, offset);
+        offset += OBinaryProtocol.SIZE_INT;
+        System.arraycopy(entry.ridSetRoot.toStream(), 0, content, offset, RID_SIZE);
+        offset += RID_SIZE;
+      }
+    }
+    return content;
+  }
+
+  private static OBucket bucketFromStream(final int iIndex, final ORecordId iRid, final byte[] iContent) {
+    int offset = 0;
+    final int size = OBinaryProtocol.bytes2int(iContent, offset);
+    offset += OBinaryProtocol.SIZE_INT;
+
+    final List<OEntry> entries = new ArrayList<OEntry>(size);
+    for (int i = 0; i < size; ++i) {
+      final int hash = OBinaryProtocol.bytes2int(iContent, offset);
+      offset += OBinaryProtocol.SIZE_INT;
+      final byte[] key = new byte[OBinaryProtocol.bytes2int(iContent, offset)];
+      offset += OBinaryProtocol.SIZE_INT;
+      System.arraycopy(iContent, offset, key, 0, key.length);
+      offset += key.length;
+
+      if (OBinaryProtocol.bytes2int(iContent, offset) == -1) {
+        final OEntry entry = new OEntry(key, hash, null);
+        entry.ridSetRoot = readRid(iContent, offset + OBinaryProtocol.SIZE_INT);
+        offset += OBinaryProtocol.SIZE_INT + RID_SIZE;
+        entries.add(entry);
+      } else {
+        final List<ORID> rids = new ArrayList<ORID>();
+        offset = readRids(iContent, offset, rids);
+        entries.add(new OEntry(key, hash, rids));
+      }
+    }
+    return new OBucket(iIndex, iRid, entries);
+  }
+
+  private static int writeRids(final List<? extends ORID> iRids, final byte[] iContent, int iOffset) {
+    OBinaryProtocol.int2bytes(iRids.size(), iContent, iOffset);
+    iOffset += OBinaryProtocol.SIZE_INT;
+    for (ORID rid : iRids) {
+      System.arraycopy(((ORecordId) rid).toStream(), 0, iContent, iOffset, RID_SIZE);
+      iOffset += RID_SIZE;
+    }
+    return iOffset;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R extends ORID> int readRids(final byte[] iContent, int iOffset, final List<R> iRids) {
+    final int size = OBinaryProtocol.bytes2int(iContent, iOffset);
+    iOffset += OBinaryProtocol.SIZE_INT;
+    for (int i = 0; i < size; ++i) {
+      iRids.add((R) readRid(iContent, iOffset));
+      iOffset += RID_SIZE;
+    }
+    return iOffset;
+  }
+
+  private static ORecordId readRid(final byte[] iContent, final int iOffset) {
+    return new ORecordId(OBinaryProtocol.bytes2short(iContent, iOffset), OClusterPositionFactory.INSTANCE.fromStream(iContent,
+        iOffset + OBinaryProtocol.SIZE_SHORT));
+  }
+
+  private byte[] serializeKey(final Object iKey) {
+    final byte[] key = new byte[keySerializer.getObjectSize(iKey)];
+    keySerializer.serialize(iKey, key, 0);
+    return key;
+  }
+
+  /**
+   * FNV-1a hash of the serialized key with a final mix, since linear hashing uses the lowest bits.
+   */
+  private static int hash(final byte[] iKey) {
+    int hash = 0x811c9dc5;
+    for (byte b : iKey) {
+      hash ^= b & 0xff;
+      hash *= 0x01000193;
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  private static int getRidSetThreshold() {
+    return Math.max(1, OGlobalConfiguration.INDEX_HASH_RID_SET_THRESHOLD.getValueAsInteger());
+  }
+
+  private static int getCacheSize() {
+    return Math.max(2, OGlobalConfiguration.INDEX_HASH_BUCKET_CACHE_SIZE.getValueAsInteger());
+  }
+
+  private static OStorage getStorage() {
+    return ODatabaseRecordThreadLocal.INSTANCE.get().getStorage();
+  }
+}
@@ -64,6 +64,7 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
   protected static final OJVMProfiler                      PROFILER           = Orient.instance().getProfiler();
 
   private static final int                                 OPTIMIZE_MAX_RETRY = 10;
+  private static final int                                 BUILD_UNLOAD_PAGES = 64;
 
   public OMVRBTreePersistent(OMVRBTreeProvider<K, V> iProvider) {
     super();
@@ -371,10 +372,10 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
           checkTreeStructure(root);
       }
 
-      PROFILER.stopChrono(PROFILER.getProcessMetric("mvrbtree.optimize"), "Optimize a MVRBTree", timer);
+      final long elapsed = PROFILER.stopChrono(PROFILER.getProcessMetric("mvrbtree.optimize"), "Optimize a MVRBTree", timer);
 
-      if (OLogManager.instance().isDebugEnabled())
-        OLogManager.instance().debug(this, "Optimization completed in %d ms\n", System.currentTimeMillis() - timer);
+      if (elapsed > -1 && OLogManager.instance().isDebugEnabled())
+        OLogManager.instance().debug(this, "Optimization completed in %d ms\n", elapsed / 1000000);
     }
   }
 
@@ -465,6 +466,39 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
     }
   }
 
+  /**
+   * Builds the tree from entries sorted by key without duplicates. Every page is filled up to the load factor and the pages are
+   * linked bottom-up as a balanced tree, so no page is split and no node is rotated. The subtrees already linked are saved and
+   * unloaded while the build goes on. The tree must be empty.
+   * 
+   * @param iEntries
+   *          Entries sorted by key
+   * @param iSize
+   *          Number of entries returned by the iterator
+   */
+  public void buildFromSorted(final Iterator<? extends Map.Entry<K, V>> iEntries, final int iSize) {
+    if (root != null)
+      throw new IllegalStateException("Cannot build the tree from sorted entries because it is not empty");
+
+    final long timer = PROFILER.startChrono();
+
+    try {
+      if (iSize > 0) {
+        final int pageCapacity = Math.max(1, (int) (getDefaultPageSize() * pageLoadFactor));
+        final int pages = (iSize + pageCapacity - 1) / pageCapacity;
+
+        setRoot(buildFromSorted(iEntries, 0, 0, pages - 1, computeRedLevel(pages), iSize / pages, iSize % pages));
+      }
+
+      setSize(iSize);
+      setLastSearchNode(null, null);
+      saveChanges();
+
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("mvrbtree.buildFromSorted"), "Build a MVRBTree from sorted entries", timer);
+    }
+  }
+
   @Override
   public V remove(final Object key) {
     optimize();
@@ -495,6 +529,10 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
   }
 
   public int commitChanges() {
+    return saveChanges();
+  }
+
+  private int saveChanges() {
     final long timer = PROFILER.startChrono();
 
     int totalCommitted = 0;
@@ -972,6 +1010,83 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
     return this;
   }
 
+  /**
+   * Builds the subtree of the pages from iLo to iHi. The first iLargerPages pages get one entry more than iPageSize.
+   */
+  private OMVRBTreeEntryPersistent<K, V> buildFromSorted(final Iterator<? extends Map.Entry<K, V>> iEntries, final int iLevel,
+      final int iLo, final int iHi, final int iRedLevel, final int iPageSize, final int iLargerPages) {
+    final int mid = (iLo + iHi) >>> 1;
+
+    OMVRBTreeEntryPersistent<K, V> left = null;
+    if (iLo < mid)
+      left = buildFromSorted(iEntries, iLevel + 1, iLo, mid - 1, iRedLevel, iPageSize, iLargerPages);
+
+    Map.Entry<K, V> entry = iEntries.next();
+    final OMVRBTreeEntryPersistent<K, V> middle = createEntry(entry.getKey(), entry.getValue());
+
+    final int pageSize = mid < iLargerPages ? iPageSize + 1 : iPageSize;
+    for (int i = 1; i < pageSize; ++i) {
+      entry = iEntries.next();
+      middle.insert(i, entry.getKey(), entry.getValue());
+    }
+
+    // COLOR RED THE NODES IN THE LAST LEVEL IF IT'S NOT FULL
+    middle.setColor(iLevel == iRedLevel ? RED : BLACK);
+
+    if (left != null) {
+      middle.setLeft(left);
+      unloadBuiltSubtree(left, mid - iLo);
+    }
+
+    if (mid < iHi) {
+      final OMVRBTreeEntryPersistent<K, V> right = buildFromSorted(iEntries, iLevel + 1, mid + 1, iHi, iRedLevel, iPageSize,
+          iLargerPages);
+      middle.setRight(right);
+      unloadBuiltSubtree(right, iHi - mid);
+    }
+
+    return middle;
+  }
+
+  /**
+   * Saves the subtree just linked to its parent and removes it from memory if it's big enough. The parent keeps the RID of the
+   * subtree and loads it lazily.
+   */
+  private void unloadBuiltSubtree(final OMVRBTreeEntryPersistent<K, V> iNode, final int iPages) {
+    if (iPages < BUILD_UNLOAD_PAGES)
+      return;
+
+    saveChanges();
+
+    if (iNode.parent.left == iNode)
+      iNode.parent.left = null;
+    else
+      iNode.parent.right = null;
+    iNode.parent = null;
+
+    unloadBuiltNode(iNode);
+  }
+
+  private void unloadBuiltNode(final OMVRBTreeEntryPersistent<K, V> iNode) {
+    if (iNode.left != null)
+      unloadBuiltNode(iNode.left);
+    if (iNode.right != null)
+      unloadBuiltNode(iNode.right);
+
+    removeNodeFromMemory(iNode);
+    iNode.clear();
+  }
+
+  /**
+   * Returns the level of the balanced tree of iSize nodes whose nodes are colored red, as the in-memory build does.
+   */
+  private static int computeRedLevel(final int iSize) {
+    int level = 0;
+    for (int m = iSize - 1; m >= 0; m = m / 2 - 1)
+      level++;
+    return level;
+  }
+
   protected void freeMemory(final int i) {
     // LOW MEMORY DURING LOAD: THIS MEANS DEEP LOADING OF NODES. EXECUTE THE OPTIMIZATION AND RETRY IT
     optimize(true);
@@ -181,6 +181,10 @@ public class OMVRBTreeMapProvider<K, V> extends OMVRBTreeProviderAbstract<K, V>
     return this;
   }
 
+  public OBinarySerializer<K> getKeySerializer() {
+    return keySerializer;
+  }
+
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public OBinarySerializer<K> createRelatedSerializer(final OStreamSerializer streamKeySerializer) {
     if (streamKeySerializer instanceof OBinarySerializer)
@@ -33,6 +33,7 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.serialization.serializer.string.OStringBuilderSerializable;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeEntryPersistent;
@@ -156,7 +157,8 @@ public class OMVRBTreeRIDProvider extends OMVRBTreeProviderAbstract<OIdentifiabl
         } else {
           marshalling = true;
           buffer.append(OStringSerializerHelper.EMBEDDED_BEGIN);
-          buffer.append(new String(toDocument().toStream()));
+          // ALWAYS AS TEXT, WHATEVER THE RECORD FORMAT OF THE DATABASE: IT'S PART OF THE OWNER'S CSV CONTENT
+          ORecordSerializerSchemaAware2CSV.INSTANCE.toString(toDocument(), buffer, null);
           buffer.append(OStringSerializerHelper.EMBEDDED_END);
         }
 
@@ -0,0 +1,156 @@
+package com.orientechnologies.orient.core.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+
+@Test
+public class OOffHeapRecordCacheTest {
+  private Object memorySize;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    memorySize = OGlobalConfiguration.CACHE_LEVEL2_OFFHEAP_SIZE.getValue();
+    OGlobalConfiguration.CACHE_LEVEL2_OFFHEAP_SIZE.setValue(1024 * 1024);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.CACHE_LEVEL2_OFFHEAP_SIZE.setValue(memorySize);
+  }
+
+  public void returnsACopyOfTheRecordPut() {
+    // Given an enabled cache
+    OCache sut = enabledCache();
+
+    // When a record is put into
+    ORecordBytes record = newRecord(1, 10, "content", 3);
+    sut.put(record);
+
+    // Then a new instance with same identity, version and content is returned
+    ORecordInternal<?> cached = sut.get(record.getIdentity());
+    assertNotNull(cached);
+    assertNotSame(cached, record);
+    assertEquals(cached.getIdentity(), record.getIdentity());
+    assertEquals(cached.getRecordVersion().getCounter(), 3);
+    assertEquals(new String(cached.toStream()), "content");
+    assertEquals(sut.size(), 1);
+  }
+
+  public void keepsTheNewerVersion() {
+    // Given a cache with a record
+    OCache sut = enabledCache();
+    sut.put(newRecord(1, 10, "new", 5));
+
+    // When an older version is put
+    sut.put(newRecord(1, 10, "old", 4));
+
+    // Then the newer one is kept
+    assertEquals(new String(sut.get(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(10))).toStream()), "new");
+
+    // And a newer version replaces it
+    sut.put(newRecord(1, 10, "newer", 6));
+    assertEquals(new String(sut.get(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(10))).toStream()), "newer");
+    assertEquals(sut.size(), 1);
+  }
+
+  public void removesOnlyOnce() {
+    // Given a cache with a record
+    OCache sut = enabledCache();
+    ORecordBytes record = newRecord(1, 10, "content", 1);
+    sut.put(record);
+
+    // When removed twice
+    assertNotNull(sut.remove(record.getIdentity()));
+
+    // Then nothing is returned the second time
+    assertNull(sut.remove(record.getIdentity()));
+    assertNull(sut.get(record.getIdentity()));
+    assertEquals(sut.size(), 0);
+  }
+
+  public void evictsTheOldestRecordsWhenFull() {
+    // Given an enabled cache of 1Mb
+    OCache sut = enabledCache();
+
+    // When more than 1Mb of records is put
+    final int records = 20000;
+    for (int i = 0; i < records; i++)
+      sut.put(newRecord(i % 7, i, "record-content-" + i + "-0123456789012345678901234567890123456789", 1));
+
+    // Then the most recent records are kept
+    assertTrue(sut.size() > 0 && sut.size() < records);
+    for (int i = records - 100; i < records; i++)
+      assertEquals(new String(sut.get(new ORecordId(i % 7, OClusterPositionFactory.INSTANCE.valueOf(i))).toStream()),
+          "record-content-" + i + "-0123456789012345678901234567890123456789");
+
+    // And the oldest ones are evicted
+    assertNull(sut.get(new ORecordId(0, OClusterPositionFactory.INSTANCE.valueOf(0))));
+
+    // And all the keys can be read
+    Collection<ORID> keys = sut.keys();
+    assertEquals(keys.size(), sut.size());
+    for (ORID key : keys)
+      assertNotNull(sut.get(key));
+  }
+
+  public void hasZeroSizeAfterClear() {
+    // Given a non-empty cache
+    OCache sut = enabledCache();
+    for (int i = 0; i < 100; i++)
+      sut.put(newRecord(1, i, "content", 1));
+
+    // When cleared
+    sut.clear();
+
+    // Then size of cache should be zero
+    assertEquals(sut.size(), 0);
+    assertNull(sut.get(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1))));
+  }
+
+  public void cachesRecordsAlsoWhenSmallerThanASegment() {
+    for (long size : new long[] { 0, 100, 64 * 1024 + 1 }) {
+      // Given a cache smaller than the minimum size of a segment
+      OGlobalConfiguration.CACHE_LEVEL2_OFFHEAP_SIZE.setValue(size);
+      OCache sut = enabledCache();
+
+      // When records are put
+      for (int i = 0; i < 100; i++)
+        sut.put(newRecord(i % 7, i, "content-" + i, 1));
+
+      // Then they are cached
+      assertEquals(sut.size(), 100);
+      for (int i = 0; i < 100; i++)
+        assertEquals(new String(sut.get(new ORecordId(i % 7, OClusterPositionFactory.INSTANCE.valueOf(i))).toStream()), "content-"
+            + i);
+    }
+  }
+
+  private OCache enabledCache() {
+    OOffHeapRecordCache cache = new OOffHeapRecordCache(null, -1);
+    cache.enable();
+    return cache;
+  }
+
+  private ORecordBytes newRecord(final int iClusterId, final long iPosition, final String iContent, final int iVersion) {
+    final ORecordBytes record = new ORecordBytes(iContent.getBytes());
+    record.setIdentity(iClusterId, OClusterPositionFactory.INSTANCE.valueOf(iPosition));
+    record.getRecordVersion().setCounter(iVersion);
+    return record;
+  }
+}
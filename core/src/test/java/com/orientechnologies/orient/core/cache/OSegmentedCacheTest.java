@@ -0,0 +1,153 @@
+package com.orientechnologies.orient.core.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OSegmentedCacheTest {
+
+  public void storesRecordsUsingTheirIdentity() {
+    // Given an enabled cache
+    OCache sut = enabledCache(5);
+
+    // When new record put into
+    ORecordId id = new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1));
+    ODocument record = new ODocument(id);
+    sut.put(record);
+
+    // Then it can be retrieved later by it's id
+    assertEquals(sut.get(id), record);
+  }
+
+  public void storesRecordsOnlyOnceForEveryIdentity() {
+    // Given an enabled cache
+    OCache sut = enabledCache(5);
+
+    // When some records with same identity put in several times
+    ODocument first = new ODocument(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1)));
+    ODocument last = new ODocument(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1)));
+    assertNull(sut.put(first));
+
+    // Then cache ends up storing only one item, the last one
+    assertEquals(sut.put(last), first);
+    assertEquals(sut.size(), 1);
+    assertEquals(sut.get(last.getIdentity()), last);
+  }
+
+  public void removesOnlyOnce() {
+    // Given an enabled cache with records in it
+    OCache sut = enabledCache(5);
+    ORecordId id = new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1));
+    sut.put(new ODocument(id));
+
+    // When removing the same record twice
+    assertNotNull(sut.remove(id));
+
+    // Then empty result returned the second time
+    assertNull(sut.remove(id));
+    assertEquals(sut.size(), 0);
+  }
+
+  public void providesAccessToAllKeysInCache() {
+    // Given enabled non-empty cache
+    OCache sut = enabledCache(100);
+    for (int i = 0; i < 50; i++)
+      sut.put(new ODocument(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(i))));
+
+    // When asked for keys
+    Collection<ORID> keys = sut.keys();
+
+    // Then keys count should be same as size of cache
+    assertEquals(keys.size(), 50);
+    for (ORID key : keys)
+      assertNotNull(sut.get(key));
+
+    // And nothing remains after clear
+    sut.clear();
+    assertEquals(sut.size(), 0);
+    assertTrue(sut.keys().isEmpty());
+  }
+
+  public void storesNoMoreElementsThanSpecifiedLimit() {
+    // Given an enabled cache
+    OCache sut = enabledCache(100);
+
+    // When stored more distinct elements than cache limit allows
+    for (int i = 0; i < 1000; i++)
+      sut.put(new ODocument(new ORecordId(i % 10, OClusterPositionFactory.INSTANCE.valueOf(i))));
+
+    // Then size of cache should be exactly as it's limit
+    assertEquals(sut.size(), sut.limit());
+    assertEquals(sut.keys().size(), sut.limit());
+  }
+
+  public void keepsTheRecordsReadMoreRecently() {
+    // Given a full cache
+    OCache sut = enabledCache(100);
+    for (int i = 0; i < 100; i++)
+      sut.put(new ODocument(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(i))));
+
+    // When the first record is read every time a new record is put
+    ORecordId hot = new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(0));
+    for (int i = 100; i < 1000; i++) {
+      assertNotNull(sut.get(hot));
+      sut.put(new ODocument(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(i))));
+    }
+
+    // Then it's never evicted
+    assertNotNull(sut.get(hot));
+  }
+
+  public void keepsTheLimitWithConcurrentWriters() throws InterruptedException {
+    // Given an enabled cache
+    final OCache sut = enabledCache(1000);
+    final int threads = 8;
+    final CountDownLatch done = new CountDownLatch(threads);
+    final AtomicInteger errors = new AtomicInteger();
+
+    // When many threads put and get distinct records concurrently
+    for (int t = 0; t < threads; t++) {
+      final int cluster = t;
+      new Thread() {
+        public void run() {
+          try {
+            for (int i = 0; i < 10000; i++) {
+              final ORecordId id = new ORecordId(cluster, OClusterPositionFactory.INSTANCE.valueOf(i));
+              sut.put(new ODocument(id));
+              sut.get(id);
+            }
+          } catch (Exception e) {
+            errors.incrementAndGet();
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+    done.await();
+
+    // Then the limit is respected once all the writers are done
+    assertEquals(errors.get(), 0);
+    assertEquals(sut.size(), sut.limit());
+    assertEquals(sut.keys().size(), sut.limit());
+  }
+
+  private OCache enabledCache(final int limit) {
+    OSegmentedCache cache = new OSegmentedCache(null, limit);
+    cache.enable();
+    return cache;
+  }
+}
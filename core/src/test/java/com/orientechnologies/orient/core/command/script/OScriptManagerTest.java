@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.command.script;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.function.OFunction;
+
+@Test
+public class OScriptManagerTest {
+  private static final String JS = "javascript";
+
+  private OScriptManager      scriptManager;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    scriptManager = new OScriptManager();
+    db = new ODatabaseDocumentTx("memory:OScriptManagerTest");
+    db.create();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testEnginesPerThread() throws Exception {
+    final ScriptEngine engine = scriptManager.acquireEngine(JS);
+    Assert.assertSame(scriptManager.acquireEngine(JS), engine);
+    Assert.assertSame(scriptManager.acquireEngine(JS.toUpperCase()), engine);
+    // THE REGISTERED ENGINE IS SHARED: IT'S NEVER GIVEN TO A THREAD
+    Assert.assertNotSame(engine, scriptManager.getEngine(JS));
+
+    final ScriptEngine otherEngine = inOtherThread(new Callable<ScriptEngine>() {
+      public ScriptEngine call() {
+        final ScriptEngine engine = scriptManager.acquireEngine(JS);
+        Assert.assertSame(scriptManager.acquireEngine(JS), engine);
+        return engine;
+      }
+    });
+    Assert.assertNotSame(otherEngine, engine);
+  }
+
+  public void testCompiledScriptsPerThread() throws Exception {
+    final ScriptEngine engine = scriptManager.acquireEngine(JS);
+    final CompiledScript compiled = scriptManager.getCompiledScript(null, engine, JS, "1 + 1");
+    Assert.assertEquals(((Number) compiled.eval()).intValue(), 2);
+    Assert.assertSame(scriptManager.getCompiledScript(null, engine, JS, "1 + 1"), compiled);
+    Assert.assertNotSame(scriptManager.getCompiledScript(null, engine, JS, "1 + 2"), compiled);
+
+    // A SCRIPT COMPILED BY ANOTHER ENGINE IS NEVER RETURNED
+    final ScriptEngine otherEngine = scriptManager.getEngine(JS);
+    final CompiledScript otherCompiled = scriptManager.getCompiledScript(null, otherEngine, JS, "1 + 1");
+    Assert.assertNotSame(otherCompiled, compiled);
+    Assert.assertSame(otherCompiled.getEngine(), otherEngine);
+
+    final CompiledScript compiledByOtherThread = inOtherThread(new Callable<CompiledScript>() {
+      public CompiledScript call() throws ScriptException {
+        final ScriptEngine engine = scriptManager.acquireEngine(JS);
+        final CompiledScript compiled = scriptManager.getCompiledScript(null, engine, JS, "1 + 1");
+        Assert.assertSame(compiled.getEngine(), engine);
+        return compiled;
+      }
+    });
+    Assert.assertNotSame(compiledByOtherThread, compiled);
+    Assert.assertNotSame(compiledByOtherThread.getEngine(), engine);
+  }
+
+  public void testFunctionLibraryChangeInvalidatesCompiledScripts() throws ScriptException {
+    final ScriptEngine engine = scriptManager.acquireEngine(JS);
+
+    final OFunction calc = db.getMetadata().getFunctionLibrary().createFunction("calc");
+    calc.setLanguage(JS);
+    calc.setParameters(Arrays.asList("a", "b"));
+    calc.setCode("return a + b;");
+
+    final CompiledScript compiled = scriptManager.getCompiledScript(db, engine, JS, "calc(3, 4)");
+    Assert.assertEquals(((Number) compiled.eval()).intValue(), 7);
+    // LIBRARY NOT CHANGED: SAME SCRIPT
+    Assert.assertSame(scriptManager.getCompiledScript(db, engine, JS, "calc(3, 4)"), compiled);
+
+    // THE CODE OF THE FUNCTION CHANGES
+    final long version = db.getMetadata().getFunctionLibrary().getVersion();
+    calc.setCode("return a * b;");
+    Assert.assertTrue(db.getMetadata().getFunctionLibrary().getVersion() > version);
+
+    final CompiledScript recompiled = scriptManager.getCompiledScript(db, engine, JS, "calc(3, 4)");
+    Assert.assertNotSame(recompiled, compiled);
+    Assert.assertEquals(((Number) recompiled.eval()).intValue(), 12);
+
+    // A NEW FUNCTION IS ADDED
+    final OFunction negate = db.getMetadata().getFunctionLibrary().createFunction("negate");
+    negate.setLanguage(JS);
+    negate.setParameters(Arrays.asList("a"));
+    negate.setCode("return -a;");
+
+    final CompiledScript withNewFunction = scriptManager.getCompiledScript(db, engine, JS, "negate(calc(3, 4))");
+    Assert.assertEquals(((Number) withNewFunction.eval()).intValue(), -12);
+    Assert.assertNotSame(scriptManager.getCompiledScript(db, engine, JS, "calc(3, 4)"), recompiled);
+  }
+
+  private static <T> T inOtherThread(final Callable<T> iTask) throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      return executor.submit(iTask).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OIndexBulkBuildTest {
+  private static final int    ITEMS = 5000;
+
+  private ODatabaseDocumentTx db;
+  private OClass              item;
+  private int                 oldPageSize;
+  private int                 oldMaxKeysInMemory;
+
+  @BeforeClass
+  public void beforeClass() {
+    // SMALL PAGES AND RUNS TO UNLOAD SUBTREES AND MERGE TEMPORARY FILES WITH FEW KEYS
+    oldPageSize = OGlobalConfiguration.MVRBTREE_NODE_PAGE_SIZE.getValueAsInteger();
+    OGlobalConfiguration.MVRBTREE_NODE_PAGE_SIZE.setValue(8);
+    oldMaxKeysInMemory = OGlobalConfiguration.INDEX_BULK_BUILD_MAX_KEYS_IN_MEMORY.getValueAsInteger();
+    OGlobalConfiguration.INDEX_BULK_BUILD_MAX_KEYS_IN_MEMORY.setValue(700);
+
+    db = new ODatabaseDocumentTx("memory:OIndexBulkBuildTest");
+    db.create();
+
+    item = db.getMetadata().getSchema().createClass("Item");
+    item.createProperty("id", OType.INTEGER);
+    item.createProperty("group", OType.INTEGER);
+    item.createProperty("name", OType.STRING);
+    item.createProperty("code", OType.INTEGER);
+
+    for (int i = 0; i < ITEMS; i++) {
+      // SHUFFLED IDS
+      final int id = (i * 7919) % ITEMS;
+      new ODocument(item).field("id", id).field("group", id % 1000).field("name", "name" + (id % 37)).field("code", id % 100)
+          .save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+
+    OGlobalConfiguration.MVRBTREE_NODE_PAGE_SIZE.setValue(oldPageSize);
+    OGlobalConfiguration.INDEX_BULK_BUILD_MAX_KEYS_IN_MEMORY.setValue(oldMaxKeysInMemory);
+  }
+
+  public void testUnique() {
+    final OIndex<?> idIndex = item.createIndex("Item.id", OClass.INDEX_TYPE.UNIQUE, "id");
+    Assert.assertEquals(idIndex.getSize(), ITEMS);
+    Assert.assertEquals(keys(idIndex), range(0, ITEMS));
+
+    for (int id = 0; id < ITEMS; id += 97)
+      Assert.assertEquals(((ODocument) ((OIdentifiable) idIndex.get(id)).getRecord()).field("id"), id);
+    Assert.assertNull(idIndex.get(ITEMS));
+    Assert.assertEquals(idIndex.getValuesBetween(1000, 1099).size(), 100);
+
+    assertSameAsClassicBuild(idIndex);
+
+    // THE TREE IS READ BACK FROM THE NODES SAVED BY THE BUILD
+    idIndex.unload();
+    Assert.assertEquals(keys(idIndex), range(0, ITEMS));
+
+    final ODocument doc = new ODocument(item).field("id", ITEMS).save();
+    Assert.assertEquals(idIndex.getSize(), ITEMS + 1);
+    Assert.assertEquals(idIndex.get(ITEMS), doc.getIdentity());
+    doc.delete();
+    Assert.assertEquals(idIndex.getSize(), ITEMS);
+    Assert.assertNull(idIndex.get(ITEMS));
+
+    idIndex.delete();
+  }
+
+  public void testNotUnique() {
+    final OIndex<?> groupIndex = item.createIndex("Item.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+    Assert.assertEquals(groupIndex.getKeySize(), 1000);
+    Assert.assertEquals(groupIndex.getSize(), ITEMS);
+    Assert.assertEquals(keys(groupIndex), range(0, 1000));
+
+    for (int group = 0; group < 1000; group += 61)
+      for (OIdentifiable rid : (Collection<OIdentifiable>) groupIndex.get(group))
+        Assert.assertEquals(((ODocument) rid.getRecord()).field("group"), group);
+    Assert.assertEquals(groupIndex.count(500), 5);
+    Assert.assertEquals(groupIndex.getValuesBetween(10, 19).size(), 50);
+
+    assertSameAsClassicBuild(groupIndex);
+
+    final ODocument doc = new ODocument(item).field("group", 500).save();
+    Assert.assertEquals(groupIndex.count(500), 6);
+    doc.delete();
+    Assert.assertEquals(groupIndex.count(500), 5);
+
+    groupIndex.delete();
+  }
+
+  public void testComposite() {
+    final OIndex<?> nameIndex = item.createIndex("Item.name_code", OClass.INDEX_TYPE.NOTUNIQUE, "name", "code");
+    Assert.assertEquals(nameIndex.getKeySize(), 37 * 100);
+    int expected = 0;
+    for (int id = 0; id < ITEMS; id++)
+      if (id % 37 == 5 && id % 100 == 42)
+        expected++;
+    Assert.assertEquals(nameIndex.count(new OCompositeKey("name5", 42)), expected);
+
+    assertSameAsClassicBuild(nameIndex);
+
+    nameIndex.delete();
+  }
+
+  public void testDictionary() {
+    final OIndex<?> codeIndex = item.createIndex("Item.code", OClass.INDEX_TYPE.DICTIONARY, "code");
+    Assert.assertEquals(codeIndex.getSize(), 100);
+
+    assertSameAsClassicBuild(codeIndex);
+
+    codeIndex.delete();
+  }
+
+  public void testUniqueDuplicatedKey() {
+    final Set<File> before = runFiles();
+
+    try {
+      item.createIndex("Item.group_unique", OClass.INDEX_TYPE.UNIQUE, "group");
+      Assert.fail();
+    } catch (OIndexException e) {
+      Throwable cause = e;
+      while (cause.getCause() != null)
+        cause = cause.getCause();
+      Assert.assertTrue(cause.getMessage().startsWith("Found duplicated key"), cause.getMessage());
+    }
+
+    Assert.assertNull(db.getMetadata().getIndexManager().getIndex("Item.group_unique"));
+    // THE RUNS BEING MERGED WHEN THE DUPLICATED KEY WAS FOUND ARE CLOSED AND DELETED
+    Assert.assertEquals(runFiles(), before);
+  }
+
+  /**
+   * Rebuilds the index by inserting one key at a time and checks it gets the same content.
+   */
+  private void assertSameAsClassicBuild(final OIndex<?> iIndex) {
+    final List<String> bulkContent = content(iIndex);
+
+    OGlobalConfiguration.INDEX_BULK_BUILD.setValue(false);
+    try {
+      iIndex.rebuild();
+    } finally {
+      OGlobalConfiguration.INDEX_BULK_BUILD.setValue(true);
+    }
+    Assert.assertEquals(content(iIndex), bulkContent);
+
+    iIndex.rebuild();
+    Assert.assertEquals(content(iIndex), bulkContent);
+  }
+
+  private static List<String> content(final OIndex<?> iIndex) {
+    final List<String> content = new ArrayList<String>();
+    for (Iterator<? extends Entry<Object, ?>> it = iIndex.iterator(); it.hasNext();) {
+      final Entry<Object, ?> entry = it.next();
+      final TreeSet<Object> rids = new TreeSet<Object>();
+      if (entry.getValue() instanceof Collection)
+        for (Object value : (Collection<?>) entry.getValue())
+          rids.add(((OIdentifiable) value).getIdentity());
+      else
+        rids.add(((OIdentifiable) entry.getValue()).getIdentity());
+      content.add(entry.getKey() + "=" + rids);
+    }
+    return content;
+  }
+
+  private static List<Object> keys(final OIndex<?> iIndex) {
+    final List<Object> keys = new ArrayList<Object>();
+    for (Iterator<? extends Entry<Object, ?>> it = iIndex.iterator(); it.hasNext();)
+      keys.add(it.next().getKey());
+    return keys;
+  }
+
+  private static Set<File> runFiles() {
+    final Set<File> files = new HashSet<File>();
+    final File[] tmpFiles = new File(System.getProperty("java.io.tmpdir")).listFiles();
+    if (tmpFiles != null)
+      for (File file : tmpFiles)
+        if (file.getName().startsWith("orientdb-index-"))
+          files.add(file);
+    return files;
+  }
+
+  private static List<Object> range(final int iFrom, final int iTo) {
+    final List<Object> range = new ArrayList<Object>();
+    for (int i = iFrom; i < iTo; i++)
+      range.add(i);
+    return range;
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OIndexCursorTest {
+  private static final int    ITEMS  = 1000;
+  private static final int    GROUPS = 100;
+
+  private ODatabaseDocumentTx db;
+  private OIndex<?>           idIndex;
+  private OIndex<?>           groupIndex;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OIndexCursorTest");
+    db.create();
+
+    final OClass item = db.getMetadata().getSchema().createClass("Item");
+    item.createProperty("id", OType.INTEGER);
+    item.createProperty("group", OType.INTEGER);
+
+    for (int i = 0; i < ITEMS; i++) {
+      final int id = (i * 7919) % ITEMS;
+      new ODocument(item).field("id", id).field("group", id % GROUPS).save();
+    }
+
+    idIndex = item.createIndex("Item.id", OClass.INDEX_TYPE.UNIQUE, "id");
+    groupIndex = item.createIndex("Item.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+  }
+
+  @AfterClass
+  public void afterClass() {
+    idIndex.delete();
+    groupIndex.delete();
+    db.drop();
+  }
+
+  public void testRanges() {
+    Assert.assertEquals(ids(idIndex.cursor(10, true, 20, true, true, 3)), range(10, 20, true));
+    Assert.assertEquals(ids(idIndex.cursor(10, false, 20, false, true, 3)), range(11, 19, true));
+    Assert.assertEquals(ids(idIndex.cursor(10, true, 20, false, false, 3)), range(10, 19, false));
+    Assert.assertEquals(ids(idIndex.cursor(null, true, 5, true, true, 3)), range(0, 5, true));
+    Assert.assertEquals(ids(idIndex.cursor(ITEMS - 5, false, null, true, false, 3)), range(ITEMS - 4, ITEMS - 1, false));
+    Assert.assertEquals(ids(idIndex.cursor(null, true, null, true, true, 7)), range(0, ITEMS - 1, true));
+    Assert.assertEquals(ids(idIndex.cursor(null, true, null, true, false, 7)), range(0, ITEMS - 1, false));
+    Assert.assertFalse(idIndex.cursor(ITEMS, true, null, true, true, 3).hasNext());
+  }
+
+  public void testKeysSplitAcrossBatches() {
+    // EVERY KEY HAS 10 VALUES: THE BATCHES OF 3 END IN THE MIDDLE OF THE KEYS
+    final List<Integer> groups = groups(groupIndex.cursor(10, true, 19, true, true, 3));
+    Assert.assertEquals(groups.size(), 100);
+    Assert.assertEquals(new HashSet<Integer>(groups).size(), 10);
+    for (int i = 0; i < groups.size(); i++)
+      Assert.assertEquals(groups.get(i).intValue(), 10 + i / 10);
+
+    final List<Integer> ids = ids(groupIndex.cursor(10, true, 19, true, false, 3));
+    Assert.assertEquals(ids.size(), 100);
+    Assert.assertEquals(new HashSet<Integer>(ids).size(), 100);
+  }
+
+  public void testBatchReadsNoMoreThanFetchSize() {
+    final List<OIdentifiable> values = new ArrayList<OIdentifiable>();
+    for (Iterator<OIdentifiable> it = groupIndex.cursor(42, true, 42, true, true, 3); it.hasNext();)
+      values.add(it.next());
+    Assert.assertEquals(values.size(), 10);
+
+    final Iterator<OIdentifiable> cursor = groupIndex.cursor(42, true, 42, true, true, 3);
+    Assert.assertEquals(cursor.next(), values.get(0));
+
+    // THE LAST VALUE OF THE KEY IS NOT IN THE FIRST BATCH: ONCE REMOVED THE CURSOR DOESN'T RETURN IT
+    final OIdentifiable last = values.get(values.size() - 1);
+    final ODocument lastDoc = last.getRecord();
+    final int lastId = (Integer) lastDoc.field("id");
+    lastDoc.delete();
+    try {
+      int read = 1;
+      while (cursor.hasNext()) {
+        Assert.assertFalse(cursor.next().equals(last));
+        read++;
+      }
+      Assert.assertEquals(read, 9);
+    } finally {
+      new ODocument("Item").field("id", lastId).field("group", 42).save();
+    }
+  }
+
+  public void testResumeAfterTheLastValueReturned() {
+    final List<OIdentifiable> values = new ArrayList<OIdentifiable>();
+    for (Iterator<OIdentifiable> it = groupIndex.cursor(42, true, 42, true, true, 3); it.hasNext();)
+      values.add(it.next());
+    Assert.assertEquals(values.size(), 10);
+
+    final Iterator<OIdentifiable> cursor = groupIndex.cursor(42, true, 42, true, true, 3);
+    for (int i = 0; i < 3; i++)
+      Assert.assertEquals(cursor.next(), values.get(i));
+
+    // A VALUE ALREADY RETURNED IS REMOVED BEFORE THE NEXT BATCH: NONE OF THE OTHERS IS SKIPPED
+    final ODocument firstDoc = values.get(0).getRecord();
+    final int firstId = (Integer) firstDoc.field("id");
+    firstDoc.delete();
+    try {
+      final List<OIdentifiable> rest = new ArrayList<OIdentifiable>();
+      while (cursor.hasNext())
+        rest.add(cursor.next());
+      Assert.assertEquals(rest, values.subList(3, values.size()));
+    } finally {
+      new ODocument("Item").field("id", firstId).field("group", 42).save();
+    }
+  }
+
+  public void testLimitStopsReadingTheIndex() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item where id >= 100 limit 5"));
+    Assert.assertEquals(result.size(), 5);
+
+    final ODocument explain = db.command(new OCommandSQL("explain select from Item where group >= 10 limit 5")).execute();
+    Assert.assertEquals(explain.field("resultSize"), 5);
+    Assert.assertEquals(((Number) explain.field("indexReads")).intValue(), 5);
+
+    final ODocument explainAll = db.command(new OCommandSQL("explain select from Item where group >= 10")).execute();
+    Assert.assertEquals(explainAll.field("resultSize"), ITEMS - 100);
+    Assert.assertEquals(((Number) explainAll.field("indexReads")).intValue(), ITEMS - 100);
+  }
+
+  private static List<Integer> ids(final Iterator<OIdentifiable> iCursor) {
+    final List<Integer> ids = new ArrayList<Integer>();
+    while (iCursor.hasNext())
+      ids.add((Integer) ((ODocument) iCursor.next().getRecord()).field("id"));
+    return ids;
+  }
+
+  private static List<Integer> groups(final Iterator<OIdentifiable> iCursor) {
+    final List<Integer> groups = new ArrayList<Integer>();
+    while (iCursor.hasNext())
+      groups.add((Integer) ((ODocument) iCursor.next().getRecord()).field("group"));
+    return groups;
+  }
+
+  private static List<Integer> range(final int iFrom, final int iTo, final boolean iAscending) {
+    final List<Integer> range = new ArrayList<Integer>();
+    for (int i = iFrom; i <= iTo; i++)
+      if (iAscending)
+        range.add(i);
+      else
+        range.add(0, i);
+    return range;
+  }
+}
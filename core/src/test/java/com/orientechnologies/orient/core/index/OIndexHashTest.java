@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OIndexHashTest {
+  private static final int    ITEMS = 3000;
+
+  private ODatabaseDocumentTx db;
+  private OClass              item;
+  private int                 oldBucketSize;
+  private int                 oldBucketCacheSize;
+  private int                 oldRidSetThreshold;
+
+  @BeforeClass
+  public void beforeClass() {
+    // SMALL BUCKETS, CACHE AND RID THRESHOLD TO SPLIT AND EVICT THEM AND TO CREATE RID SETS WITH FEW KEYS
+    oldBucketSize = OGlobalConfiguration.INDEX_HASH_BUCKET_SIZE.getValueAsInteger();
+    OGlobalConfiguration.INDEX_HASH_BUCKET_SIZE.setValue(4);
+    oldBucketCacheSize = OGlobalConfiguration.INDEX_HASH_BUCKET_CACHE_SIZE.getValueAsInteger();
+    OGlobalConfiguration.INDEX_HASH_BUCKET_CACHE_SIZE.setValue(16);
+    oldRidSetThreshold = OGlobalConfiguration.INDEX_HASH_RID_SET_THRESHOLD.getValueAsInteger();
+    OGlobalConfiguration.INDEX_HASH_RID_SET_THRESHOLD.setValue(8);
+
+    db = new ODatabaseDocumentTx("memory:OIndexHashTest");
+    db.create();
+
+    item = db.getMetadata().getSchema().createClass("Item");
+    item.createProperty("id", OType.INTEGER);
+    item.createProperty("group", OType.INTEGER);
+    item.createProperty("name", OType.STRING);
+    item.createProperty("code", OType.INTEGER);
+
+    for (int id = 0; id < ITEMS; id++)
+      new ODocument(item).field("id", id).field("group", id % 300).field("name", "name" + (id % 37)).field("code", id % 100)
+          .save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+
+    OGlobalConfiguration.INDEX_HASH_BUCKET_SIZE.setValue(oldBucketSize);
+    OGlobalConfiguration.INDEX_HASH_BUCKET_CACHE_SIZE.setValue(oldBucketCacheSize);
+    OGlobalConfiguration.INDEX_HASH_RID_SET_THRESHOLD.setValue(oldRidSetThreshold);
+  }
+
+  public void testUnique() {
+    final OIndex<?> idIndex = item.createIndex("Item.id", OClass.INDEX_TYPE.UNIQUE_HASH, "id");
+    Assert.assertEquals(idIndex.getSize(), ITEMS);
+    Assert.assertEquals(keys(idIndex).size(), ITEMS);
+    Assert.assertFalse(idIndex.getInternal().hasRangeQuerySupport());
+
+    for (int id = 0; id < ITEMS; id += 7)
+      Assert.assertEquals(((ODocument) ((OIdentifiable) idIndex.get(id)).getRecord()).field("id"), id);
+    Assert.assertNull(idIndex.get(ITEMS));
+    Assert.assertTrue(idIndex.contains(42));
+    Assert.assertEquals(idIndex.getValues(keySet(10, 20, ITEMS)).size(), 2);
+
+    // THE BUCKETS ARE READ BACK FROM THEIR RECORDS
+    idIndex.unload();
+    Assert.assertEquals(keys(idIndex).size(), ITEMS);
+    Assert.assertEquals(((ODocument) ((OIdentifiable) idIndex.get(1234)).getRecord()).field("id"), 1234);
+
+    final ODocument doc = new ODocument(item).field("id", ITEMS).save();
+    Assert.assertEquals(idIndex.getSize(), ITEMS + 1);
+    Assert.assertEquals(idIndex.get(ITEMS), doc.getIdentity());
+
+    try {
+      new ODocument(item).field("id", ITEMS).save();
+      Assert.fail();
+    } catch (OIndexException e) {
+      Assert.assertTrue(e.getMessage().contains("Found duplicated key"), e.getMessage());
+    }
+
+    doc.delete();
+    Assert.assertEquals(idIndex.getSize(), ITEMS);
+    Assert.assertNull(idIndex.get(ITEMS));
+
+    try {
+      idIndex.getValuesBetween(1, 10);
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+    }
+
+    db.getMetadata().getIndexManager().dropIndex("Item.id");
+  }
+
+  public void testNotUnique() {
+    final OIndex<?> groupIndex = item.createIndex("Item.group", OClass.INDEX_TYPE.NOTUNIQUE_HASH, "group");
+    Assert.assertEquals(groupIndex.getKeySize(), 300);
+    Assert.assertEquals(groupIndex.getSize(), ITEMS);
+
+    for (int group = 0; group < 300; group += 13) {
+      final Collection<OIdentifiable> rids = (Collection<OIdentifiable>) groupIndex.get(group);
+      Assert.assertEquals(rids.size(), 10);
+      for (OIdentifiable rid : rids)
+        Assert.assertEquals(((ODocument) rid.getRecord()).field("group"), group);
+    }
+    Assert.assertTrue(((Collection<?>) groupIndex.get(300)).isEmpty());
+    Assert.assertEquals(groupIndex.count(150), 10);
+
+    final ODocument doc = new ODocument(item).field("group", 150).save();
+    Assert.assertEquals(groupIndex.count(150), 11);
+    doc.field("group", 151).save();
+    Assert.assertEquals(groupIndex.count(150), 10);
+    Assert.assertEquals(groupIndex.count(151), 11);
+    doc.delete();
+    Assert.assertEquals(groupIndex.count(151), 10);
+
+    groupIndex.unload();
+    Assert.assertEquals(groupIndex.getKeySize(), 300);
+    Assert.assertEquals(groupIndex.count(299), 10);
+
+    groupIndex.rebuild();
+    Assert.assertEquals(groupIndex.getSize(), ITEMS);
+
+    db.getMetadata().getIndexManager().dropIndex("Item.group");
+  }
+
+  public void testNotUniqueRidSets() {
+    // 30 RIDS A KEY: OVER THE THRESHOLD THEY ARE MOVED TO THE RID SET OF THE KEY
+    final OIndex<?> codeIndex = item.createIndex("Item.code", OClass.INDEX_TYPE.NOTUNIQUE_HASH, "code");
+    Assert.assertEquals(codeIndex.getKeySize(), 100);
+    Assert.assertEquals(codeIndex.getSize(), ITEMS);
+
+    final Collection<OIdentifiable> rids = (Collection<OIdentifiable>) codeIndex.get(42);
+    Assert.assertEquals(rids.size(), ITEMS / 100);
+    for (OIdentifiable rid : rids)
+      Assert.assertEquals(((ODocument) rid.getRecord()).field("code"), 42);
+
+    final List<ODocument> docs = new ArrayList<ODocument>();
+    for (int i = 0; i < 500; i++) {
+      docs.add(new ODocument(item).field("code", 1000).save());
+      Assert.assertEquals(codeIndex.count(1000), i + 1);
+    }
+    Assert.assertEquals(codeIndex.getSize(), ITEMS + 500);
+
+    // THE RID SETS ARE READ BACK FROM THEIR RECORDS
+    codeIndex.unload();
+    Assert.assertEquals(codeIndex.count(1000), 500);
+    final Set<OIdentifiable> added = new HashSet<OIdentifiable>((Collection<OIdentifiable>) codeIndex.get(1000));
+    Assert.assertEquals(added.size(), 500);
+    for (ODocument doc : docs)
+      Assert.assertTrue(added.contains(doc.getIdentity()));
+    Assert.assertEquals(codeIndex.count(42), ITEMS / 100);
+
+    for (ODocument doc : docs.subList(0, 495))
+      doc.delete();
+    Assert.assertEquals(codeIndex.count(1000), 5);
+    Assert.assertEquals(codeIndex.getKeySize(), 101);
+
+    // THE LAST RID REMOVES THE KEY WITH ITS RID SET
+    for (ODocument doc : docs.subList(495, 500))
+      doc.delete();
+    Assert.assertEquals(codeIndex.count(1000), 0);
+    Assert.assertEquals(codeIndex.getKeySize(), 100);
+    Assert.assertEquals(codeIndex.getSize(), ITEMS);
+
+    codeIndex.rebuild();
+    Assert.assertEquals(codeIndex.getSize(), ITEMS);
+    Assert.assertEquals(codeIndex.count(99), ITEMS / 100);
+
+    db.getMetadata().getIndexManager().dropIndex("Item.code");
+  }
+
+  public void testComposite() {
+    final OIndex<?> nameIndex = item.createIndex("Item.name_code", OClass.INDEX_TYPE.NOTUNIQUE_HASH, "name", "code");
+    // 37 * 100 COMBINATIONS, ALL DIFFERENT UP TO 3700 ITEMS
+    Assert.assertEquals(nameIndex.getKeySize(), ITEMS);
+
+    int expected = 0;
+    for (int id = 0; id < ITEMS; id++)
+      if (id % 37 == 5 && id % 100 == 42)
+        expected++;
+    Assert.assertEquals(nameIndex.count(new OCompositeKey("name5", 42)), expected);
+
+    // A PARTIAL KEY CANNOT BE LOOKED UP IN A HASH INDEX
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item where name = 'name5' and code = 42"));
+    Assert.assertEquals(result.size(), expected);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Item where name = 'name5'")).size(),
+        ITEMS / 37 + (ITEMS % 37 > 5 ? 1 : 0));
+
+    db.getMetadata().getIndexManager().dropIndex("Item.name_code");
+  }
+
+  public void testQuery() {
+    item.createIndex("Item.id", OClass.INDEX_TYPE.UNIQUE_HASH, "id");
+
+    ODocument explain = db.command(new OCommandSQL("explain select from Item where id = 42")).execute();
+    Assert.assertEquals(explain.field("resultSize"), 1);
+    Assert.assertTrue(((Set<String>) explain.field("involvedIndexes")).contains("Item.id"));
+
+    explain = db.command(new OCommandSQL("explain select from Item where id in [1, 2, 3, " + ITEMS + "]")).execute();
+    Assert.assertEquals(explain.field("resultSize"), 3);
+    Assert.assertTrue(((Set<String>) explain.field("involvedIndexes")).contains("Item.id"));
+
+    // RANGES FALL BACK TO THE SCAN OF THE CLUSTER
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item where id between 10 and 19"));
+    Assert.assertEquals(result.size(), 10);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Item where id < 10")).size(), 10);
+
+    db.getMetadata().getIndexManager().dropIndex("Item.id");
+  }
+
+  public void testConcurrentLookups() throws Exception {
+    final OIndex<?> idIndex = item.createIndex("Item.id", OClass.INDEX_TYPE.UNIQUE_HASH, "id");
+    final OIndex<?> groupIndex = item.createIndex("Item.group", OClass.INDEX_TYPE.NOTUNIQUE_HASH, "group");
+
+    // THE READERS EVICT THE BUCKETS FROM THE SMALL CACHE, SAVING THE ONES CHANGED BY THESE RECORDS
+    final List<ODocument> docs = new ArrayList<ODocument>();
+    for (int i = 0; i < 50; i++)
+      docs.add(new ODocument(item).field("id", ITEMS + i).field("group", 1000).save());
+
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      final int offset = t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx(db.getURL()).open("admin", "admin");
+          try {
+            for (int i = offset; i < ITEMS + 50; i += 3) {
+              final OIdentifiable rid = (OIdentifiable) idIndex.get(i);
+              Assert.assertNotNull(rid, "Key " + i + " not found");
+              Assert.assertEquals(((ODocument) rid.getRecord()).field("id"), i);
+              if (i % 10 == 0)
+                Assert.assertEquals(groupIndex.count(i % 300), 10);
+            }
+            Assert.assertEquals(groupIndex.count(1000), 50);
+          } catch (Throwable e) {
+            errors.add(e);
+          } finally {
+            threadDb.close();
+          }
+        }
+      });
+    }
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+    Assert.assertTrue(errors.isEmpty(), errors.toString());
+
+    for (ODocument doc : docs)
+      doc.delete();
+    db.getMetadata().getIndexManager().dropIndex("Item.id");
+    db.getMetadata().getIndexManager().dropIndex("Item.group");
+  }
+
+  public void testOrderBy() {
+    item.createIndex("Item.group", OClass.INDEX_TYPE.NOTUNIQUE_HASH, "group");
+
+    // THE KEYS OF A HASH INDEX ARE NOT SORTED: THE RESULT IS SORTED IN MEMORY
+    List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item order by group asc"));
+    Assert.assertEquals(result.size(), ITEMS);
+    for (int i = 1; i < result.size(); i++)
+      Assert.assertTrue((Integer) result.get(i - 1).field("group") <= (Integer) result.get(i).field("group"));
+
+    result = db.query(new OSQLSynchQuery<ODocument>("select from Item order by group desc"));
+    Assert.assertEquals(result.size(), ITEMS);
+    for (int i = 1; i < result.size(); i++)
+      Assert.assertTrue((Integer) result.get(i - 1).field("group") >= (Integer) result.get(i).field("group"));
+
+    db.getMetadata().getIndexManager().dropIndex("Item.group");
+  }
+
+  private static Set<Object> keySet(final Object... iKeys) {
+    final Set<Object> keys = new HashSet<Object>();
+    for (Object key : iKeys)
+      keys.add(key);
+    return keys;
+  }
+
+  private static Set<Object> keys(final OIndex<?> iIndex) {
+    final Set<Object> keys = new HashSet<Object>();
+    for (Iterator<? extends Entry<Object, ?>> it = iIndex.iterator(); it.hasNext();)
+      keys.add(it.next().getKey());
+    return keys;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.record.impl;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+
+@Test
+public class ODocumentLazyFieldsTest {
+	private static final int	FIELDS	= 20;
+
+	public void testOnlyAccessedFieldsAreLoaded() {
+		final ODocument doc = load(createDocument());
+
+		Assert.assertTrue(doc.getLoadedFieldNames().isEmpty());
+		Assert.assertEquals(doc.field("f5"), 5);
+		Assert.assertEquals(doc.field("f7"), 7);
+		Assert.assertEquals(doc.getLoadedFieldNames().size(), 2);
+		Assert.assertTrue(doc.containsField("f9"));
+		Assert.assertFalse(doc.containsField("missing"));
+		Assert.assertEquals(doc.getLoadedFieldNames().size(), 3);
+	}
+
+	public void testUnchangedFieldsAreCopied() {
+		final ODocument doc = load(createDocument());
+		doc.field("f3", "changed");
+		doc.field("added", true);
+
+		Assert.assertTrue(doc.isDirty());
+		Assert.assertEquals(doc.getLoadedFieldNames().size(), 2);
+
+		final ODocument reloaded = load(doc);
+		Assert.assertEquals(doc.getLoadedFieldNames().size(), 2);
+
+		Assert.assertEquals(reloaded.fieldNames().length, FIELDS + 1);
+		Assert.assertEquals(reloaded.field("f3"), "changed");
+		Assert.assertEquals(reloaded.field("f4"), "value4");
+		Assert.assertEquals(reloaded.field("f18"), "value18");
+		Assert.assertEquals(reloaded.field("added"), Boolean.TRUE);
+		Assert.assertEquals(((ODocument) reloaded.field("embedded")).field("name"), "embedded");
+	}
+
+	public void testChangedDocumentLoadsTheOtherFieldsOnDemand() {
+		final ODocument doc = load(createDocument());
+		doc.field("f1", "changed");
+
+		Assert.assertEquals(doc.field("f2"), "value2");
+		Assert.assertEquals(doc.fields(), FIELDS);
+		Assert.assertEquals(doc.field("f1"), "changed");
+	}
+
+	public void testCopySharesTheFieldsNotLoaded() {
+		final ODocument doc = load(createDocument());
+		doc.field("f0");
+
+		final ODocument copy = doc.copy();
+		Assert.assertEquals(copy.getLoadedFieldNames().size(), 1);
+		Assert.assertEquals(copy.field("f11"), 11);
+		Assert.assertEquals(doc.getLoadedFieldNames().size(), 1);
+	}
+
+	private static ODocument createDocument() {
+		final ODocument doc = new ODocument();
+		for (int i = 0; i < FIELDS - 1; ++i)
+			doc.field("f" + i, i % 2 == 0 ? "value" + i : (Object) i);
+		doc.field("embedded", new ODocument().field("name", "embedded"));
+		return doc;
+	}
+
+	private static ODocument load(final ODocument iDocument) {
+		final ODocument doc = new ODocument();
+		doc.fromStream(ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(iDocument, false));
+		return doc;
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+@Test
+public class ORecordSerializerSchemaAware2BinaryTest {
+  private ODatabaseDocumentTx db;
+  private ODocument           linked1;
+  private ODocument           linked2;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:ORecordSerializerSchemaAware2BinaryTest");
+    db.create();
+
+    final OClass typed = db.getMetadata().getSchema().createClass("Typed");
+    for (OType type : OType.values())
+      if (type != OType.TRANSIENT && type != OType.CUSTOM)
+        typed.createProperty(type.name().toLowerCase(), type);
+
+    linked1 = new ODocument().field("name", "linked1").save();
+    linked2 = new ODocument().field("name", "linked2").save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testEveryTypeWithSchema() {
+    final ODocument doc = fillEveryType(new ODocument("Typed"));
+    assertEveryType(roundTrip(doc));
+  }
+
+  public void testEveryTypeWithoutSchema() {
+    final ODocument doc = fillEveryType(new ODocument());
+    // THE TYPES NOT RECOGNIZABLE FROM THE VALUE
+    doc.setFieldType("linklist", OType.LINKLIST);
+    doc.setFieldType("linkset", OType.LINKSET);
+    doc.setFieldType("linkmap", OType.LINKMAP);
+    doc.setFieldType("date", OType.DATE);
+
+    final ODocument result = roundTrip(doc);
+    // WITHOUT A LINKED TYPE THE ITEMS OF THE COLLECTIONS ARE READ BACK AS IN CSV FORMAT
+    final ODocument csv = new ODocument();
+    ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(ORecordSerializerSchemaAware2CSV.INSTANCE.toStream(doc, false), csv, null);
+    Assert.assertEquals(result.field("embeddedlist"), csv.field("embeddedlist"));
+    result.field("embeddedlist", new ArrayList<Object>(Arrays.asList("a", 1, 2.5d)));
+    assertEveryType(result);
+  }
+
+  public void testNullsAndTransient() {
+    final ODocument doc = new ODocument("Typed");
+    for (OType type : OType.values())
+      if (type != OType.TRANSIENT && type != OType.CUSTOM)
+        doc.field(type.name().toLowerCase(), (Object) null);
+    doc.field("transient", "not stored", OType.TRANSIENT);
+
+    final ODocument result = roundTrip(doc);
+    for (OType type : OType.values())
+      if (type != OType.TRANSIENT && type != OType.CUSTOM) {
+        Assert.assertTrue(result.containsField(type.name().toLowerCase()), type.name());
+        Assert.assertNull(result.field(type.name().toLowerCase()), type.name());
+      }
+    Assert.assertFalse(result.containsField("transient"));
+  }
+
+  public void testEmbeddedAndNestedDocuments() {
+    final ODocument inner = new ODocument().field("level", 2).field("link", linked1);
+    final ODocument middle = new ODocument("Typed").field("integer", 1).field("embedded", inner, OType.EMBEDDED);
+    final ODocument doc = new ODocument().field("name", "outer").field("child", middle, OType.EMBEDDED);
+
+    final List<ODocument> list = new ArrayList<ODocument>();
+    list.add(new ODocument().field("position", 0));
+    list.add(new ODocument().field("position", 1).field("nested", new ODocument().field("deep", true), OType.EMBEDDED));
+    doc.field("list", list, OType.EMBEDDEDLIST);
+
+    final Map<String, ODocument> map = new HashMap<String, ODocument>();
+    map.put("key", new ODocument().field("value", "mapped"));
+    doc.field("map", map, OType.EMBEDDEDMAP);
+
+    final ODocument result = roundTrip(doc);
+    Assert.assertEquals(result.field("name"), "outer");
+
+    final ODocument resultMiddle = result.field("child");
+    Assert.assertEquals(resultMiddle.getClassName(), "Typed");
+    Assert.assertEquals(resultMiddle.field("integer"), 1);
+    Assert.assertTrue(resultMiddle.isEmbedded());
+
+    final ODocument resultInner = resultMiddle.field("embedded");
+    Assert.assertEquals(resultInner.field("level"), 2);
+    Assert.assertEquals(((OIdentifiable) resultInner.field("link")).getIdentity(), linked1.getIdentity());
+
+    final List<ODocument> resultList = result.field("list");
+    Assert.assertEquals(resultList.size(), 2);
+    Assert.assertEquals(resultList.get(0).field("position"), 0);
+    Assert.assertEquals(((ODocument) resultList.get(1).field("nested")).field("deep"), true);
+
+    final Map<String, ODocument> resultMap = result.field("map");
+    Assert.assertEquals(resultMap.get("key").field("value"), "mapped");
+  }
+
+  public void testCsvRecordsAreMigrated() {
+    final Object oldSerializer = db.get(ODatabase.ATTRIBUTES.RECORDSERIALIZER);
+    db.set(ODatabase.ATTRIBUTES.RECORDSERIALIZER, ORecordSerializerSchemaAware2CSV.NAME);
+    final ORID untouchedRid;
+    final ORID changedRid;
+    try {
+      untouchedRid = fillEveryType(new ODocument("Typed")).save().getIdentity();
+      changedRid = fillEveryType(new ODocument("Typed")).save().getIdentity();
+    } finally {
+      db.set(ODatabase.ATTRIBUTES.RECORDSERIALIZER, ORecordSerializerSchemaAware2Binary.NAME);
+    }
+
+    try {
+      ODocument untouched = db.load(untouchedRid, null, true);
+      Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(untouched.toStream()));
+      assertEveryType(untouched);
+
+      ODocument changed = db.load(changedRid, null, true);
+      Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(changed.toStream()));
+      changed.field("string", "changed").save();
+
+      changed = db.load(changedRid, null, true);
+      Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(changed.toStream()));
+      Assert.assertEquals(changed.field("string"), "changed");
+      changed.field("string", "string");
+      assertEveryType(changed);
+
+      // THE RECORDS NOT SAVED AGAIN STAY IN CSV
+      untouched = db.load(untouchedRid, null, true);
+      Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(untouched.toStream()));
+      assertEveryType(untouched);
+    } finally {
+      db.set(ODatabase.ATTRIBUTES.RECORDSERIALIZER, oldSerializer);
+    }
+  }
+
+  public void testFieldsWithoutIds() {
+    final ODocument doc = new ODocument("Typed").field("integer", 42).field("string", "text").field("notInSchema", "inline");
+    final byte[] withIds = ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(doc, false);
+
+    // AS A REMOTE CLIENT THAT DOESN'T KNOW THE FIELD IDS: THE NAMES ARE WRITTEN INLINE
+    final byte[] withNames;
+    ODatabaseRecordThreadLocal.INSTANCE.remove();
+    try {
+      withNames = ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(doc, false);
+    } finally {
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+    Assert.assertTrue(withNames.length > withIds.length);
+
+    for (byte[] stream : Arrays.asList(withIds, withNames)) {
+      Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(stream));
+      final ODocument result = new ODocument();
+      result.fromStream(stream);
+      Assert.assertEquals(result.getClassName(), "Typed");
+      Assert.assertEquals(result.field("integer"), 42);
+      Assert.assertEquals(result.field("string"), "text");
+      Assert.assertEquals(result.field("notInSchema"), "inline");
+    }
+  }
+
+  public void testCsvIsNeverTakenForBinary() {
+    Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(null));
+    Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(new byte[0]));
+    // EMPTY RECORD: THE OLD MARKER WAS 0
+    Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(new byte[] { 0, 0, 0 }));
+
+    final ODocument doc = fillEveryType(new ODocument("Typed"));
+    Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(ORecordSerializerSchemaAware2CSV.INSTANCE.toStream(doc, false)));
+    Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(doc, false)));
+  }
+
+  private ODocument fillEveryType(final ODocument iDocument) {
+    iDocument.field("boolean", true);
+    iDocument.field("integer", -123456);
+    iDocument.field("short", (short) 1234);
+    iDocument.field("long", Long.MIN_VALUE + 1);
+    iDocument.field("float", 3.25f);
+    iDocument.field("double", -2.5e100);
+    iDocument.field("datetime", new Date(1234567890123L));
+    iDocument.field("string", "string");
+    iDocument.field("binary", new byte[] { 0, 1, -1, 127, -128 });
+    iDocument.field("embedded", new ODocument().field("name", "embedded"), OType.EMBEDDED);
+    iDocument.field("embeddedlist", new ArrayList<Object>(Arrays.asList("a", 1, 2.5d)), OType.EMBEDDEDLIST);
+    iDocument.field("embeddedset", new HashSet<String>(Arrays.asList("x", "y")), OType.EMBEDDEDSET);
+    final Map<String, Object> map = new HashMap<String, Object>();
+    map.put("one", 1);
+    map.put("two", "2");
+    iDocument.field("embeddedmap", map, OType.EMBEDDEDMAP);
+    iDocument.field("link", linked1);
+    iDocument.field("linklist", new ArrayList<OIdentifiable>(Arrays.asList(linked1, linked2)));
+    iDocument.field("linkset", new HashSet<OIdentifiable>(Arrays.asList(linked1, linked2)));
+    final Map<String, OIdentifiable> linkMap = new HashMap<String, OIdentifiable>();
+    linkMap.put("first", linked1);
+    iDocument.field("linkmap", linkMap);
+    iDocument.field("byte", (byte) -7);
+    iDocument.field("date", today());
+    iDocument.field("decimal", new BigDecimal("12345678901234567890.123456789"));
+    return iDocument;
+  }
+
+  private void assertEveryType(final ODocument iDocument) {
+    Assert.assertEquals(iDocument.field("boolean"), true);
+    Assert.assertEquals(iDocument.field("integer"), -123456);
+    Assert.assertEquals(iDocument.field("short"), (short) 1234);
+    Assert.assertEquals(iDocument.field("long"), Long.MIN_VALUE + 1);
+    Assert.assertEquals(iDocument.field("float"), 3.25f);
+    Assert.assertEquals(iDocument.field("double"), -2.5e100);
+    Assert.assertEquals(iDocument.field("datetime"), new Date(1234567890123L));
+    Assert.assertEquals(iDocument.field("string"), "string");
+    Assert.assertTrue(Arrays.equals((byte[]) iDocument.field("binary"), new byte[] { 0, 1, -1, 127, -128 }));
+    Assert.assertEquals(((ODocument) iDocument.field("embedded")).field("name"), "embedded");
+    Assert.assertEquals(new ArrayList<Object>((List<?>) iDocument.field("embeddedlist")), Arrays.asList("a", 1, 2.5d));
+    Assert.assertEquals(new HashSet<Object>((Set<?>) iDocument.field("embeddedset")), new HashSet<String>(Arrays.asList("x", "y")));
+    final Map<?, ?> map = iDocument.field("embeddedmap");
+    Assert.assertEquals(map.size(), 2);
+    Assert.assertEquals(map.get("one"), 1);
+    Assert.assertEquals(map.get("two"), "2");
+    Assert.assertEquals(((OIdentifiable) iDocument.field("link")).getIdentity(), linked1.getIdentity());
+    Assert.assertEquals(identities((Collection<?>) iDocument.field("linklist")),
+        Arrays.asList(linked1.getIdentity(), linked2.getIdentity()));
+    Assert.assertEquals(new HashSet<ORID>(identities((Collection<?>) iDocument.field("linkset"))),
+        new HashSet<ORID>(Arrays.asList(linked1.getIdentity(), linked2.getIdentity())));
+    final Map<?, ?> linkMap = iDocument.field("linkmap");
+    Assert.assertEquals(linkMap.size(), 1);
+    Assert.assertEquals(((OIdentifiable) linkMap.get("first")).getIdentity(), linked1.getIdentity());
+    Assert.assertEquals(iDocument.field("byte"), (byte) -7);
+    Assert.assertEquals(iDocument.field("date"), today());
+    Assert.assertEquals(iDocument.field("decimal"), new BigDecimal("12345678901234567890.123456789"));
+  }
+
+  private static ODocument roundTrip(final ODocument iDocument) {
+    final byte[] stream = ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(iDocument, false);
+    Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(stream));
+
+    final ODocument result = new ODocument();
+    result.fromStream(stream);
+    return result;
+  }
+
+  private static List<ORID> identities(final Collection<?> iValues) {
+    final List<ORID> identities = new ArrayList<ORID>();
+    for (Object value : iValues)
+      identities.add(((OIdentifiable) value).getIdentity());
+    return identities;
+  }
+
+  private static Date today() {
+    final Calendar calendar = Calendar.getInstance();
+    calendar.set(Calendar.HOUR_OF_DAY, 0);
+    calendar.set(Calendar.MINUTE, 0);
+    calendar.set(Calendar.SECOND, 0);
+    calendar.set(Calendar.MILLISECOND, 0);
+    return calendar.getTime();
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OOrderByBufferTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OOrderByBufferTest");
+    db.create();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testBoundedHeap() {
+    // 10 RECORDS FOR EVERY VALUE: THE TIES KEEP THE ORDER THEY WERE ADDED IN
+    OOrderByBuffer buffer = new OOrderByBuffer(orderBy("value", OCommandExecutorSQLSelect.KEYWORD_ASC), 5, 2);
+    for (int i = 0; i < 100; i++)
+      buffer.add(new ODocument().field("id", i).field("value", i % 10));
+
+    Assert.assertFalse(buffer.isSpilled());
+    Assert.assertEquals(ids(buffer.toList()), Arrays.asList(0, 10, 20, 30, 40));
+
+    buffer = new OOrderByBuffer(orderBy("value", OCommandExecutorSQLSelect.KEYWORD_DESC), 5, 2);
+    for (int i = 0; i < 100; i++)
+      buffer.add(new ODocument().field("id", i).field("value", i % 10));
+    Assert.assertEquals(ids(buffer.toList()), Arrays.asList(9, 19, 29, 39, 49));
+
+    buffer = new OOrderByBuffer(orderBy("value", OCommandExecutorSQLSelect.KEYWORD_ASC), 0, 2);
+    buffer.add(new ODocument().field("id", 0).field("value", 0));
+    Assert.assertTrue(buffer.toList().isEmpty());
+  }
+
+  public void testSpillAndMerge() {
+    final Set<File> before = runFiles();
+
+    final OOrderByBuffer buffer = new OOrderByBuffer(orderBy("value", OCommandExecutorSQLSelect.KEYWORD_ASC), -1, 7);
+    for (int i = 0; i < 100; i++)
+      buffer.add(new ODocument().field("id", i).field("value", (i * 37) % 10));
+    Assert.assertTrue(buffer.isSpilled());
+    Assert.assertTrue(runFiles().size() > before.size());
+
+    final List<Integer> expected = new ArrayList<Integer>();
+    for (int value = 0; value < 10; value++)
+      for (int i = 0; i < 100; i++)
+        if ((i * 37) % 10 == value)
+          expected.add(i);
+
+    final List<OIdentifiable> result = new ArrayList<OIdentifiable>();
+    for (OIdentifiable record : buffer)
+      result.add(record);
+    Assert.assertEquals(ids(result), expected);
+
+    buffer.close();
+    Assert.assertEquals(runFiles(), before);
+  }
+
+  public void testCloseWhileMerging() {
+    final Set<File> before = runFiles();
+
+    final OOrderByBuffer buffer = new OOrderByBuffer(orderBy("value", OCommandExecutorSQLSelect.KEYWORD_ASC), -1, 7);
+    for (int i = 0; i < 100; i++)
+      buffer.add(new ODocument().field("id", i).field("value", i));
+
+    final Iterator<OIdentifiable> iterator = buffer.iterator();
+    Assert.assertEquals(((ODocument) iterator.next()).field("value"), 0);
+    Assert.assertEquals(((ODocument) iterator.next()).field("value"), 1);
+
+    // AS A QUERY STOPPED BY ITS LIMIT: THE RUNS STILL OPEN ARE CLOSED BEFORE THEIR FILES ARE DELETED
+    buffer.close();
+    Assert.assertEquals(runFiles(), before);
+
+    try {
+      while (iterator.hasNext())
+        iterator.next();
+      Assert.fail();
+    } catch (OIOException e) {
+    }
+  }
+
+  private static List<OPair<String, String>> orderBy(final String iField, final String iDirection) {
+    final List<OPair<String, String>> orderBy = new ArrayList<OPair<String, String>>();
+    orderBy.add(new OPair<String, String>(iField, iDirection));
+    return orderBy;
+  }
+
+  private static List<Integer> ids(final List<OIdentifiable> iRecords) {
+    final List<Integer> ids = new ArrayList<Integer>();
+    for (OIdentifiable record : iRecords)
+      ids.add((Integer) ((ODocument) record).field("id"));
+    return ids;
+  }
+
+  private static Set<File> runFiles() {
+    final Set<File> files = new HashSet<File>();
+    final File[] tmpFiles = new File(System.getProperty("java.io.tmpdir")).listFiles();
+    if (tmpFiles != null)
+      for (File file : tmpFiles)
+        if (file.getName().startsWith("orientdb-orderby-"))
+          files.add(file);
+    return files;
+  }
+}
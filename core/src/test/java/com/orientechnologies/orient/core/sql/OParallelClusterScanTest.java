@@ -0,0 +1,224 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OParallelClusterScanTest {
+  private ODatabaseDocumentTx db;
+  private boolean             oldParallel;
+  private int                 oldRangeSize;
+  private int                 oldThreads;
+
+  @BeforeClass
+  public void beforeClass() {
+    oldParallel = OGlobalConfiguration.QUERY_PARALLEL.getValueAsBoolean();
+    oldRangeSize = OGlobalConfiguration.QUERY_PARALLEL_RANGE_SIZE.getValueAsInteger();
+    oldThreads = OGlobalConfiguration.QUERY_PARALLEL_THREADS.getValueAsInteger();
+    OGlobalConfiguration.QUERY_PARALLEL_THREADS.setValue(4);
+    // SMALL RANGES TO SPLIT EVERY CLUSTER ACROSS MANY WORKERS
+    OGlobalConfiguration.QUERY_PARALLEL_RANGE_SIZE.setValue(100);
+
+    db = new ODatabaseDocumentTx("memory:OParallelClusterScanTest");
+    db.create();
+
+    final OClass account = db.getMetadata().getSchema().createClass("Account");
+    final OClass company = db.getMetadata().getSchema().createClass("Company", account);
+    db.getMetadata().getSchema().createClass("Other");
+
+    for (int i = 0; i < 3000; i++) {
+      new ODocument(i % 3 == 0 ? company : account).field("id", i).field("group", i % 10).save();
+      new ODocument("Other").field("id", i).field("group", i % 10).save();
+    }
+
+    // LEAVE SOME HOLES
+    db.command(new OCommandSQL("delete from Account where id between 1000 and 1099")).execute();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.QUERY_PARALLEL.setValue(oldParallel);
+    OGlobalConfiguration.QUERY_PARALLEL_RANGE_SIZE.setValue(oldRangeSize);
+    OGlobalConfiguration.QUERY_PARALLEL_THREADS.setValue(oldThreads);
+    db.drop();
+  }
+
+  public void testSameRecords() {
+    final String query = "select from Account where group = 3 or group = ?";
+
+    final List<ODocument> sequential = execute(false, query, 7);
+    final List<ODocument> parallel = execute(true, query, 7);
+
+    Assert.assertEquals(sequential.size(), 580);
+    Assert.assertEquals(sortedIds(parallel), sortedIds(sequential));
+    for (ODocument doc : parallel)
+      Assert.assertTrue(doc.getSchemaClass().isSubClassOf("Account"));
+  }
+
+  public void testLimit() {
+    final List<ODocument> parallel = execute(true, "select from Account where group < 5 limit 20");
+    Assert.assertEquals(parallel.size(), 20);
+    for (ODocument doc : parallel)
+      Assert.assertTrue((Integer) doc.field("group") < 5);
+  }
+
+  public void testOrderByLimit() {
+    final String query = "select from Account where group = 5 order by id desc skip 2 limit 10";
+    Assert.assertEquals(ids(execute(true, query)), ids(execute(false, query)));
+  }
+
+  public void testAggregates() {
+    final String query = "select count(*), sum(id), min(id), max(id) from Account where group >= 4";
+
+    final ODocument sequential = execute(false, query).get(0);
+    final ODocument parallel = execute(true, query).get(0);
+
+    Assert.assertEquals(parallel.field("count"), sequential.field("count"));
+    Assert.assertEquals(parallel.field("sum"), sequential.field("sum"));
+    Assert.assertEquals(parallel.field("min"), sequential.field("min"));
+    Assert.assertEquals(parallel.field("max"), sequential.field("max"));
+  }
+
+  public void testGroupBy() {
+    final String query = "select group, count(*) from Account where id > 500 group by group";
+
+    final Set<String> sequential = new HashSet<String>();
+    for (ODocument doc : execute(false, query))
+      sequential.add(doc.field("group") + "=" + doc.field("count"));
+
+    final Set<String> parallel = new HashSet<String>();
+    for (ODocument doc : execute(true, query))
+      parallel.add(doc.field("group") + "=" + doc.field("count"));
+
+    Assert.assertEquals(sequential.size(), 10);
+    Assert.assertTrue(parallel.equals(sequential), parallel + " != " + sequential);
+  }
+
+  public void testSlowCallerDoesNotHoldThePool() throws Exception {
+    // ROOM FOR 10 RESULTS ONLY: THE WORKERS OF THIS SCAN STOP AS SOON AS THE QUEUE IS FULL
+    final OParallelClusterScan slow = new OParallelClusterScan((ODatabaseRecordAbstract) db.getUnderlying(), db.getMetadata()
+        .getSchema().getClass("Account").getPolymorphicClusterIds(), acceptAll(), 10).start();
+    try {
+      final Set<ORID> rids = new HashSet<ORID>();
+      Assert.assertTrue(slow.hasNext());
+      rids.add(slow.next().getIdentity());
+
+      // ANOTHER SCAN FINDS THE THREADS OF THE POOL FREE
+      final ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        final Future<Integer> other = executor.submit(new Callable<Integer>() {
+          public Integer call() {
+            final ODatabaseDocumentTx otherDb = new ODatabaseDocumentTx(db.getURL()).open("admin", "admin");
+            try {
+              final OParallelClusterScan scan = new OParallelClusterScan((ODatabaseRecordAbstract) otherDb.getUnderlying(), otherDb
+                  .getMetadata().getSchema().getClass("Other").getPolymorphicClusterIds(), acceptAll()).start();
+              try {
+                int count = 0;
+                while (scan.hasNext()) {
+                  scan.next();
+                  count++;
+                }
+                return count;
+              } finally {
+                scan.close();
+              }
+            } finally {
+              otherDb.close();
+            }
+          }
+        });
+        Assert.assertEquals(other.get(30, TimeUnit.SECONDS).intValue(), 3000);
+      } finally {
+        executor.shutdown();
+      }
+
+      // THE REST OF THE RANGES IS SCANNED WHEN THE CALLER READS AGAIN, WITHOUT LOSING OR DUPLICATING RECORDS
+      int count = 1;
+      while (slow.hasNext()) {
+        rids.add(slow.next().getIdentity());
+        count++;
+      }
+      Assert.assertEquals(count, 2900);
+      Assert.assertEquals(rids.size(), 2900);
+    } finally {
+      slow.close();
+    }
+  }
+
+  public void testNestedQueriesRunInTheCallerThread() {
+    Assert.assertFalse(OParallelClusterScan.isInsideScan());
+
+    final OParallelClusterScan scan = new OParallelClusterScan((ODatabaseRecordAbstract) db.getUnderlying(), db.getMetadata()
+        .getSchema().getClass("Account").getPolymorphicClusterIds(), acceptAll(), 10).start();
+    try {
+      Assert.assertTrue(OParallelClusterScan.isInsideScan());
+
+      // A QUERY EXECUTED WHILE THE RESULTS ARE READ DOESN'T WAIT FOR THE POOL
+      int read = 0;
+      while (scan.hasNext() && read < 5) {
+        scan.next();
+        Assert.assertEquals(execute(true, "select from Other where group = ?", read).size(), 300);
+        read++;
+      }
+    } finally {
+      scan.close();
+    }
+
+    Assert.assertFalse(OParallelClusterScan.isInsideScan());
+  }
+
+  private static List<OParallelClusterScan.OFilter> acceptAll() {
+    final List<OParallelClusterScan.OFilter> filters = new ArrayList<OParallelClusterScan.OFilter>();
+    for (int i = 0; i < OParallelClusterScan.getThreads(); i++)
+      filters.add(new OParallelClusterScan.OFilter() {
+        public boolean evaluate(final ORecordInternal<?> iRecord) {
+          return true;
+        }
+      });
+    return filters;
+  }
+
+  private List<ODocument> execute(final boolean iParallel, final String iQuery, final Object... iArgs) {
+    OGlobalConfiguration.QUERY_PARALLEL.setValue(iParallel);
+    try {
+      return db.query(new OSQLSynchQuery<ODocument>(iQuery), iArgs);
+    } finally {
+      OGlobalConfiguration.QUERY_PARALLEL.setValue(oldParallel);
+    }
+  }
+
+  private static List<Integer> ids(final List<ODocument> iResult) {
+    final List<Integer> ids = new ArrayList<Integer>();
+    for (ODocument doc : iResult)
+      ids.add((Integer) doc.field("id"));
+    return ids;
+  }
+
+  private static List<Integer> sortedIds(final List<ODocument> iResult) {
+    final List<Integer> ids = ids(iResult);
+    Collections.sort(ids);
+    return ids;
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OSQLStatementCacheTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OSQLStatementCacheTest");
+    db.create();
+
+    final OClass account = db.getMetadata().getSchema().createClass("Account");
+    account.createProperty("id", OType.INTEGER);
+    for (int i = 0; i < 100; i++)
+      new ODocument(account).field("id", i).field("group", i % 10).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    OSQLStatementCache.invalidate();
+  }
+
+  public void testSameTextDifferentParameters() {
+    final String query = "select from Account where group = ? and id > ?";
+
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 3, 50)), list(53, 63, 73, 83, 93));
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 1);
+
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 7, 80)), list(87, 97));
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 1, 100)), list());
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 1);
+  }
+
+  public void testNamedParameters() {
+    final String query = "select from Account where group = :group";
+
+    final Map<String, Object> params = new HashMap<String, Object>();
+    params.put("group", 4);
+    Assert.assertEquals(query(new OSQLSynchQuery<ODocument>(query), params).size(), 10);
+
+    params.put("group", 10);
+    Assert.assertEquals(query(new OSQLSynchQuery<ODocument>(query), params).size(), 0);
+  }
+
+  public void testParametersNotPassedAreNotKept() {
+    final String query = "select from Account where group = ?";
+    Assert.assertEquals(query(new OSQLSynchQuery<ODocument>(query), 3).size(), 10);
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 1);
+
+    // THE SAME TEXT WITHOUT PARAMETERS DOESN'T REUSE THE VALUE OF THE LAST REQUEST: IT FAILS AS A NEW STATEMENT DOES
+    Assert.assertNull(idsOrNull(query));
+    OSQLStatementCache.invalidate();
+    Assert.assertNull(idsOrNull(query));
+
+    final String namedQuery = "select from Account where group = :group and id > :min";
+    final Map<String, Object> params = new HashMap<String, Object>();
+    params.put("group", 4);
+    params.put("min", 50);
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(namedQuery), params)), list(54, 64, 74, 84, 94));
+
+    params.remove("min");
+    final List<Integer> partial = idsOrNull(namedQuery, params);
+    Assert.assertFalse(list(54, 64, 74, 84, 94).equals(partial));
+    OSQLStatementCache.invalidate();
+    Assert.assertEquals(idsOrNull(namedQuery, params), partial);
+  }
+
+  public void testProjections() {
+    final String query = "select id, group.append('-').append(id) as label from Account where id = ?";
+    for (int i = 0; i < 3; i++) {
+      final ODocument doc = query(new OSQLSynchQuery<ODocument>(query), 11 + i).get(0);
+      Assert.assertEquals(doc.field("id"), 11 + i);
+      Assert.assertEquals(doc.field("label"), (1 + i) + "-" + (11 + i));
+    }
+  }
+
+  public void testOrderByAndLimit() {
+    final String query = "select from Account where group = ? order by id desc";
+
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 2)), list(92, 82, 72, 62, 52, 42, 32, 22, 12, 2));
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query, 3), 5)), list(95, 85, 75));
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 5)).size(), 10);
+  }
+
+  public void testAsynchQuery() {
+    final String query = "select from Account where id < ?";
+    query(new OSQLSynchQuery<ODocument>(query), 5);
+
+    final List<Integer> ids = new ArrayList<Integer>();
+    db.query(new OSQLAsynchQuery<ODocument>(query, new OCommandResultListener() {
+      public boolean result(final Object iRecord) {
+        ids.add((Integer) ((ODocument) iRecord).field("id"));
+        return true;
+      }
+
+      public void end() {
+      }
+    }), 3);
+    Assert.assertEquals(ids, list(0, 1, 2));
+  }
+
+  public void testAggregatesNotCached() {
+    final String query = "select count(*) from Account where group = ?";
+    Assert.assertEquals(((Number) query(new OSQLSynchQuery<ODocument>(query), 1).get(0).field("count")).intValue(), 10);
+    Assert.assertEquals(((Number) query(new OSQLSynchQuery<ODocument>(query), 1).get(0).field("count")).intValue(), 10);
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 0);
+  }
+
+  public void testInvalidationOnSchemaChanges() {
+    final String query = "select from Account where id = ?";
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 10)), list(10));
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 1);
+
+    db.command(new OCommandSQL("create index Account.id unique")).execute();
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 0);
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 20)), list(20));
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 1);
+
+    db.command(new OCommandSQL("drop index Account.id")).execute();
+    Assert.assertEquals(OSQLStatementCache.get(db).size(), 0);
+    Assert.assertEquals(ids(query(new OSQLSynchQuery<ODocument>(query), 30)), list(30));
+
+    // RELOADING THE SCHEMA EXECUTES OTHER QUERIES
+    db.getMetadata().getSchema().createClass("Other");
+    Assert.assertNull(OSQLStatementCache.get(db).acquire(query));
+  }
+
+  private List<ODocument> query(final OSQLSynchQuery<ODocument> iQuery, final Object... iArgs) {
+    return db.query(iQuery, iArgs);
+  }
+
+  /**
+   * Returns the ids of the result, or null if the query fails.
+   */
+  private List<Integer> idsOrNull(final String iQuery, final Object... iArgs) {
+    try {
+      return ids(query(new OSQLSynchQuery<ODocument>(iQuery), iArgs));
+    } catch (OCommandExecutionException e) {
+      return null;
+    }
+  }
+
+  private static List<Integer> ids(final List<ODocument> iResult) {
+    final List<Integer> ids = new ArrayList<Integer>();
+    for (ODocument doc : iResult)
+      ids.add((Integer) doc.field("id"));
+    return ids;
+  }
+
+  private static List<Integer> list(final Integer... iValues) {
+    final List<Integer> list = new ArrayList<Integer>();
+    for (Integer v : iValues)
+      list.add(v);
+    return list;
+  }
+}
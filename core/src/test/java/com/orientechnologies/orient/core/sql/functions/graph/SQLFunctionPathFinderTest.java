@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class SQLFunctionPathFinderTest {
+  private static final int SIZE = 12;
+
+  private OGraphDatabase   db;
+  private ODocument[][]    grid;
+  private float[][]        right;
+  private float[][]        down;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new OGraphDatabase("memory:SQLFunctionPathFinderTest");
+    db.create();
+
+    // GRID WITH EDGES TO THE RIGHT AND DOWN ONLY, WEIGHTS >= 1
+    final Random random = new Random(7);
+    grid = new ODocument[SIZE][SIZE];
+    right = new float[SIZE][SIZE];
+    down = new float[SIZE][SIZE];
+    for (int x = 0; x < SIZE; ++x)
+      for (int y = 0; y < SIZE; ++y)
+        grid[x][y] = db.createVertex().field("x", x).field("y", y).save();
+
+    for (int x = 0; x < SIZE; ++x)
+      for (int y = 0; y < SIZE; ++y) {
+        if (x + 1 < SIZE) {
+          right[x][y] = 1 + random.nextInt(9);
+          db.createEdge(grid[x][y], grid[x + 1][y]).field("weight", right[x][y]).save();
+        }
+        if (y + 1 < SIZE) {
+          down[x][y] = 1 + random.nextInt(9);
+          db.createEdge(grid[x][y], grid[x][y + 1]).field("weight", down[x][y]).save();
+        }
+      }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testShortestPath() {
+    final List<OIdentifiable> path = shortestPath(new Object[] { grid[0][0], grid[4][7] });
+    Assert.assertEquals(path.size(), 12);
+    Assert.assertEquals(path.get(0), grid[0][0].getIdentity());
+    Assert.assertEquals(path.get(path.size() - 1), grid[4][7].getIdentity());
+    assertConnected(path);
+  }
+
+  public void testShortestPathDirection() {
+    Assert.assertNull(shortestPath(new Object[] { grid[4][7], grid[0][0] }));
+    Assert.assertNull(shortestPath(new Object[] { grid[0][0], grid[4][7], "in" }));
+
+    final List<OIdentifiable> path = shortestPath(new Object[] { grid[4][7], grid[0][0], "in" });
+    Assert.assertEquals(path.size(), 12);
+
+    // GOING BOTH WAYS THE DIAGONAL NEIGHBOR IS 2 HOPS AWAY ALSO BACKWARD
+    Assert.assertEquals(shortestPath(new Object[] { grid[5][5], grid[4][6], "both" }).size(), 3);
+  }
+
+  public void testShortestPathSameVertex() {
+    final List<OIdentifiable> path = shortestPath(new Object[] { grid[3][3], grid[3][3] });
+    Assert.assertEquals(path.size(), 1);
+  }
+
+  public void testShortestPathMaxDepth() {
+    Assert.assertNull(shortestPath(new Object[] { grid[0][0], grid[4][7], "out", 10 }));
+    Assert.assertEquals(shortestPath(new Object[] { grid[0][0], grid[4][7], "out", 11 }).size(), 12);
+  }
+
+  public void testShortestPathMaxVisited() {
+    final int oldMaxVisited = OGlobalConfiguration.QUERY_GRAPH_MAX_VISITED.getValueAsInteger();
+    OGlobalConfiguration.QUERY_GRAPH_MAX_VISITED.setValue(10);
+    try {
+      Assert.assertNull(shortestPath(new Object[] { grid[0][0], grid[SIZE - 1][SIZE - 1] }));
+    } finally {
+      OGlobalConfiguration.QUERY_GRAPH_MAX_VISITED.setValue(oldMaxVisited);
+    }
+  }
+
+  public void testDijkstra() {
+    final float[][] expected = cheapestDistances();
+
+    for (int x = 0; x < SIZE; x += 3)
+      for (int y = 0; y < SIZE; y += 2) {
+        final List<OIdentifiable> path = dijkstra(new Object[] { grid[0][0], grid[x][y], "weight" });
+        Assert.assertEquals(getCost(path), expected[x][y]);
+      }
+  }
+
+  public void testAStar() {
+    final float[][] expected = cheapestDistances();
+
+    // MANHATTAN DISTANCE: EVERY HOP COSTS AT LEAST 1
+    final String heuristic = "$destination.x - x + $destination.y - y";
+    for (int x = 1; x < SIZE; x += 3)
+      for (int y = 1; y < SIZE; y += 2) {
+        final List<OIdentifiable> path = dijkstra(new Object[] { grid[0][0], grid[x][y], "weight", "out", heuristic });
+        Assert.assertEquals(getCost(path), expected[x][y]);
+      }
+  }
+
+  public void testDijkstraMaxDepth() {
+    Assert.assertNull(dijkstra(new Object[] { grid[0][0], grid[2][3], "weight", "out", null, 4 }));
+    Assert.assertEquals(dijkstra(new Object[] { grid[0][0], grid[2][3], "weight", "out", null, 5 }).size(), 6);
+  }
+
+  public void testQuery() {
+    final ORID source = grid[0][0].getIdentity();
+    final ORID destination = grid[2][2].getIdentity();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select shortestPath(" + source + ", " + destination
+        + ") as path from " + source));
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(((List<?>) result.get(0).field("path")).size(), 5);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<OIdentifiable> shortestPath(final Object[] iParameters) {
+    return (List<OIdentifiable>) new OSQLFunctionShortestPath().execute(null, null, iParameters, new OBasicCommandContext());
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<OIdentifiable> dijkstra(final Object[] iParameters) {
+    return (List<OIdentifiable>) new OSQLFunctionDijkstra().execute(null, null, iParameters, new OBasicCommandContext());
+  }
+
+  private void assertConnected(final List<OIdentifiable> iPath) {
+    for (int i = 1; i < iPath.size(); ++i)
+      Assert.assertFalse(db.getEdgesBetweenVertexes(iPath.get(i - 1), iPath.get(i)).isEmpty());
+  }
+
+  private float getCost(final List<OIdentifiable> iPath) {
+    float cost = 0;
+    for (int i = 1; i < iPath.size(); ++i) {
+      final ODocument from = iPath.get(i - 1).getRecord();
+      final ODocument to = iPath.get(i).getRecord();
+      final int x = (Integer) from.field("x");
+      final int y = (Integer) from.field("y");
+      cost += (Integer) to.field("x") > x ? right[x][y] : down[x][y];
+    }
+    return cost;
+  }
+
+  /**
+   * Cheapest costs from the top left corner: every vertex is reached from the left or from above.
+   */
+  private float[][] cheapestDistances() {
+    final float[][] distances = new float[SIZE][SIZE];
+    for (int x = 0; x < SIZE; ++x)
+      for (int y = 0; y < SIZE; ++y) {
+        if (x == 0 && y == 0)
+          continue;
+        float d = Float.MAX_VALUE;
+        if (x > 0)
+          d = Math.min(d, distances[x - 1][y] + right[x - 1][y]);
+        if (y > 0)
+          d = Math.min(d, distances[x][y - 1] + down[x][y - 1]);
+        distances[x][y] = d;
+      }
+    return distances;
+  }
+}
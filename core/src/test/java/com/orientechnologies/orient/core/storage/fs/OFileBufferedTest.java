@@ -0,0 +1,193 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+@Test
+public class OFileBufferedTest {
+  private static final int PAGE_SIZE = 64;
+
+  private File             osFile;
+  private int              oldPageSize;
+  private int              oldMaxPages;
+  private int              oldMaxDirtyPages;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    oldPageSize = OGlobalConfiguration.FILE_BUFFERED_PAGE_SIZE.getValueAsInteger();
+    oldMaxPages = OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.getValueAsInteger();
+    oldMaxDirtyPages = OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.getValueAsInteger();
+    OGlobalConfiguration.FILE_BUFFERED_PAGE_SIZE.setValue(PAGE_SIZE);
+
+    osFile = new File(System.getProperty("java.io.tmpdir"), "OFileBufferedTest.dat");
+    if (osFile.exists())
+      osFile.delete();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.FILE_BUFFERED_PAGE_SIZE.setValue(oldPageSize);
+    OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.setValue(oldMaxPages);
+    OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.setValue(oldMaxDirtyPages);
+
+    if (osFile.exists())
+      osFile.delete();
+  }
+
+  public void testReadWriteAcrossPages() throws IOException {
+    OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.setValue(4);
+    OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.setValue(0);
+
+    OFileBuffered file = create(4096);
+    final byte[] data = new byte[PAGE_SIZE * 3 + 10];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) i;
+
+    // NOT ALIGNED TO THE PAGES
+    final int dataOffset = file.allocateSpace(5) + 5;
+    file.allocateSpace(data.length);
+    file.write(dataOffset, data);
+    final int longOffset = file.allocateSpace(8);
+    file.writeLong(longOffset, Long.MAX_VALUE - 1);
+    final int intOffset = file.allocateSpace(4);
+    file.writeInt(intOffset, -42);
+    final int shortOffset = file.allocateSpace(2);
+    file.writeShort(shortOffset, (short) 4242);
+    final int byteOffset = file.allocateSpace(1);
+    file.writeByte(byteOffset, (byte) 7);
+
+    assertContent(file, dataOffset, data, longOffset, intOffset, shortOffset, byteOffset);
+
+    file.close();
+
+    // WRITTEN BACK ON CLOSE
+    file = new OFileBuffered().init(osFile.getAbsolutePath(), "rw");
+    file.open();
+    assertContent(file, dataOffset, data, longOffset, intOffset, shortOffset, byteOffset);
+    file.close();
+  }
+
+  public void testEvictedPagesAreWrittenBack() throws IOException {
+    OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.setValue(2);
+    OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.setValue(0);
+
+    final OFileBuffered file = create(4096);
+    final int pages = 10;
+    file.allocateSpace(PAGE_SIZE * pages);
+    for (int i = 0; i < pages; i++)
+      file.writeInt(i * PAGE_SIZE, i + 1);
+
+    // ONLY THE LAST 2 PAGES ARE STILL IN MEMORY
+    for (int i = 0; i < pages - 2; i++)
+      Assert.assertEquals(readRawInt(i * PAGE_SIZE), i + 1);
+    Assert.assertEquals(readRawInt((pages - 1) * PAGE_SIZE), 0);
+
+    for (int i = 0; i < pages; i++)
+      Assert.assertEquals(file.readInt(i * PAGE_SIZE), i + 1);
+
+    file.synch();
+    Assert.assertEquals(readRawInt((pages - 1) * PAGE_SIZE), pages);
+    file.close();
+  }
+
+  public void testDirtyPagesAreBounded() throws IOException {
+    OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.setValue(100);
+    OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.setValue(4);
+
+    final OFileBuffered file = create(4096);
+    file.allocateSpace(PAGE_SIZE * 10);
+    for (int i = 0; i < 4; i++)
+      file.writeInt(i * PAGE_SIZE, i + 1);
+
+    // UP TO THE LIMIT THE CHANGES STAY IN MEMORY
+    for (int i = 0; i < 4; i++)
+      Assert.assertEquals(readRawInt(i * PAGE_SIZE), 0);
+
+    // BEYOND IT ALL THE DIRTY PAGES ARE WRITTEN
+    file.writeInt(4 * PAGE_SIZE, 5);
+    for (int i = 0; i < 5; i++)
+      Assert.assertEquals(readRawInt(i * PAGE_SIZE), i + 1);
+
+    // THE PAGES WRITTEN ARE STILL CACHED
+    for (int i = 0; i < 5; i++)
+      Assert.assertEquals(file.readInt(i * PAGE_SIZE), i + 1);
+
+    file.close();
+  }
+
+  public void testShrink() throws IOException {
+    OGlobalConfiguration.FILE_BUFFERED_MAX_PAGES.setValue(8);
+    OGlobalConfiguration.FILE_BUFFERED_MAX_DIRTY_PAGES.setValue(0);
+
+    OFileBuffered file = create(4096);
+    file.allocateSpace(PAGE_SIZE * 4);
+    for (int i = 0; i < 4; i++)
+      file.writeInt(i * PAGE_SIZE, i + 1);
+
+    file.shrink(PAGE_SIZE * 2);
+    Assert.assertEquals(file.getFilledUpTo(), PAGE_SIZE * 2);
+
+    // THE PAGES BEYOND THE NEW SIZE ARE READ AGAIN FROM DISK
+    file.allocateSpace(PAGE_SIZE * 2);
+    Assert.assertEquals(file.readInt(0), 1);
+    Assert.assertEquals(file.readInt(PAGE_SIZE), 2);
+    Assert.assertEquals(file.readInt(PAGE_SIZE * 2), 0);
+
+    file.close();
+  }
+
+  private OFileBuffered create(final int iSize) throws IOException {
+    final OFileBuffered file = new OFileBuffered().init(osFile.getAbsolutePath(), "rw");
+    file.create(iSize);
+    return file;
+  }
+
+  private void assertContent(final OFile iFile, final int iDataOffset, final byte[] iData, final int iLongOffset,
+      final int iIntOffset, final int iShortOffset, final int iByteOffset) throws IOException {
+    final byte[] read = new byte[iData.length];
+    iFile.read(iDataOffset, read, read.length);
+    Assert.assertEquals(read, iData);
+    Assert.assertEquals(iFile.readLong(iLongOffset), Long.MAX_VALUE - 1);
+    Assert.assertEquals(iFile.readInt(iIntOffset), -42);
+    Assert.assertEquals(iFile.readShort(iShortOffset), (short) 4242);
+    Assert.assertEquals(iFile.readByte(iByteOffset), (byte) 7);
+  }
+
+  /**
+   * Reads the content of the file on disk, bypassing the pages. The bytes not written yet beyond the end of the file are 0.
+   */
+  private int readRawInt(final int iOffset) throws IOException {
+    final RandomAccessFile raw = new RandomAccessFile(osFile, "r");
+    try {
+      if (raw.length() < OAbstractFile.HEADER_SIZE + iOffset + 4)
+        return 0;
+      raw.seek(OAbstractFile.HEADER_SIZE + iOffset);
+      return raw.readInt();
+    } finally {
+      raw.close();
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import java.io.File;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OTxSegmentTest {
+  private ODatabaseDocumentTx db;
+  private OTxSegment          txSegment;
+  private boolean             oldSynch;
+
+  @BeforeClass
+  public void beforeClass() {
+    oldSynch = OGlobalConfiguration.TX_LOG_SYNCH.getValueAsBoolean();
+    OGlobalConfiguration.TX_LOG_SYNCH.setValue(true);
+
+    final String dbPath = System.getProperty("java.io.tmpdir") + File.separator + "orientdb" + File.separator + "OTxSegmentTest";
+    db = new ODatabaseDocumentTx("local:" + dbPath);
+    if (db.exists())
+      db.open("admin", "admin").drop();
+    db = new ODatabaseDocumentTx("local:" + dbPath);
+    db.create();
+
+    txSegment = ((OStorageLocal) db.getStorage()).getTxManager().getTxSegment();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.TX_LOG_SYNCH.setValue(oldSynch);
+  }
+
+  public void testCommitClearsTheLog() {
+    db.begin();
+    final ODocument updated = new ODocument().field("name", "updated").save();
+    final ODocument deleted = new ODocument().field("name", "deleted").save();
+    db.commit();
+
+    db.begin();
+    for (int i = 0; i < 10; ++i)
+      new ODocument().field("name", "created" + i).save();
+    updated.field("name", "updated again").save();
+    deleted.delete();
+    db.commit();
+
+    Assert.assertEquals(txSegment.getFilledUpTo(), 0);
+    Assert.assertEquals(((ODocument) db.load(updated.getIdentity())).field("name"), "updated again");
+    Assert.assertNull(db.load(deleted.getIdentity()));
+  }
+}
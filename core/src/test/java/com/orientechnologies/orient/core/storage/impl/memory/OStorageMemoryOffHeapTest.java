@@ -0,0 +1,99 @@
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OCluster;
+
+@Test
+public class OStorageMemoryOffHeapTest {
+  private boolean             oldOffHeap;
+  private int                 oldChunkSize;
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    oldOffHeap = OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP.getValueAsBoolean();
+    oldChunkSize = OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP_CHUNK_SIZE.getValueAsInteger();
+    OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP.setValue(true);
+    // SMALL CHUNKS TO SPREAD THE RECORDS ACROSS MANY OF THEM
+    OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP_CHUNK_SIZE.setValue(4096);
+
+    db = new ODatabaseDocumentTx("memory:OStorageMemoryOffHeapTest");
+    db.create();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    db.drop();
+    OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP.setValue(oldOffHeap);
+    OGlobalConfiguration.STORAGE_MEMORY_OFFHEAP_CHUNK_SIZE.setValue(oldChunkSize);
+  }
+
+  public void testCrud() {
+    final OCluster cluster = db.getStorage().getClusterById(db.getDefaultClusterId());
+    Assert.assertTrue(cluster instanceof OClusterMemoryOffHeap);
+    Assert.assertTrue(((OStorageMemory) db.getStorage()).getDataSegmentById(0) instanceof ODataSegmentMemoryOffHeap);
+
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (int i = 0; i < 3000; i++) {
+      final ODocument doc = new ODocument();
+      doc.field("id", i);
+      doc.field("name", "name" + i);
+      doc.save();
+      rids.add(doc.getIdentity().copy());
+    }
+
+    Assert.assertEquals(db.countClusterElements(db.getDefaultClusterId()), 3000);
+
+    for (int i = 0; i < rids.size(); i += 2) {
+      final ODocument doc = db.load(rids.get(i));
+      Assert.assertEquals(doc.field("id"), i);
+      Assert.assertEquals(doc.getVersion(), 0);
+
+      // GROW THE RECORD BEYOND ITS SPACE
+      doc.field("name", "a much longer name than the original one for the record " + i);
+      doc.save();
+    }
+
+    for (int i = 1; i < rids.size(); i += 2)
+      db.delete(rids.get(i));
+
+    Assert.assertEquals(db.countClusterElements(db.getDefaultClusterId()), 1500);
+
+    db.getLevel1Cache().invalidate();
+    db.getLevel2Cache().clear();
+
+    for (int i = 0; i < rids.size(); i++) {
+      final ODocument doc = db.load(rids.get(i));
+      if (i % 2 == 1)
+        Assert.assertNull(doc);
+      else {
+        Assert.assertEquals(doc.field("id"), i);
+        Assert.assertEquals(doc.field("name"), "a much longer name than the original one for the record " + i);
+        Assert.assertEquals(doc.getVersion(), 1);
+      }
+    }
+
+    int browsed = 0;
+    for (ODocument doc : db.browseCluster(db.getClusterNameById(db.getDefaultClusterId()))) {
+      Assert.assertEquals(((Integer) doc.field("id")) % 2, 0);
+      browsed++;
+    }
+    Assert.assertEquals(browsed, 1500);
+
+    // RECYCLE THE REMOVED POSITIONS
+    for (int i = 0; i < 10; i++)
+      new ODocument().field("id", -i).save();
+    Assert.assertEquals(db.countClusterElements(db.getDefaultClusterId()), 1510);
+  }
+}
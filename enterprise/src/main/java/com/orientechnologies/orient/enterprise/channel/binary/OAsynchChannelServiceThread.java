@@ -43,7 +43,8 @@ public class OAsynchChannelServiceThread extends OSoftThread {
   @Override
   protected void execute() throws Exception {
     try {
-      network.beginResponse(sessionId, 0);
+      // NO TIMEOUT: WAIT FOR THE NEXT MESSAGE FROM THE SERVER
+      network.beginResponse(sessionId, 0L);
       try {
         final byte request = network.readByte();
 
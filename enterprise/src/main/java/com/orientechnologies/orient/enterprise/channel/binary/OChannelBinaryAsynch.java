@@ -17,6 +17,8 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -27,19 +29,33 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 
 /**
- * Implementation that supports multiple client requests.
+ * Implementation that supports multiple client requests. Requests are pipelined: the write lock is held only while the request is
+ * sent, so many requests can wait for their responses on the same channel. The server answers the requests of a channel in the
+ * same order it receives them, so every requester takes a ticket and reads the response with the same position among the
+ * responses for its requester id. This allows also many requests in flight for the same requester, as the asynchronous ones.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
 public class OChannelBinaryAsynch extends OChannelBinary {
-  private final ReentrantLock lockRead      = new ReentrantLock(true);
-  private final Condition     readCondition = lockRead.newCondition();
-  private final ReentrantLock lockWrite     = new ReentrantLock();
-  private boolean             channelRead   = false;
-  private byte                currentStatus;
-  private int                 currentSessionId;
-  private final int           maxUnreadResponses;
+  private final ReentrantLock         lockRead          = new ReentrantLock(true);
+  private final Condition             readCondition     = lockRead.newCondition();
+  private final ReentrantLock         lockWrite         = new ReentrantLock();
+  private boolean                     channelRead       = false;
+  private byte                        currentStatus;
+  private int                         currentSessionId;
+  private long                        responsesConsumed = 0;
+  private volatile boolean            broken            = false;
+  private final int                   maxUnreadResponses;
+  private final Map<Integer, OTicket> tickets           = new HashMap<Integer, OTicket>();
+
+  /**
+   * Responses expected and responses already read for a requester.
+   */
+  private static class OTicket {
+    int issued;
+    int read;
+  }
 
   public OChannelBinaryAsynch(final Socket iSocket, final OContextConfiguration iConfig) throws IOException {
     super(iSocket, iConfig);
@@ -55,11 +71,44 @@ public class OChannelBinaryAsynch extends OChannelBinary {
     lockWrite.unlock();
   }
 
+  /**
+   * Reserves the next response for the requester. Requests that don't wait for the response in the same thread that sent them must
+   * call it before releasing the write lock, and pass the ticket to {@link #beginResponse(int, int, long)}.
+   * 
+   * @param iRequesterId
+   *          Session id of the requester
+   * @return The ticket of the response
+   */
+  public int registerResponse(final int iRequesterId) {
+    synchronized (tickets) {
+      OTicket ticket = tickets.get(iRequesterId);
+      if (ticket == null) {
+        ticket = new OTicket();
+        tickets.put(iRequesterId, ticket);
+      }
+      return ++ticket.issued;
+    }
+  }
+
   public void beginResponse(final int iRequesterId) throws IOException {
     beginResponse(iRequesterId, timeout);
   }
 
   public void beginResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    beginResponse(iRequesterId, registerResponse(iRequesterId), iTimeout);
+  }
+
+  public void beginResponse(final int iRequesterId, final int iTicket) throws IOException {
+    beginResponse(iRequesterId, iTicket, timeout);
+  }
+
+  /**
+   * Waits for the response with the ticket received by {@link #registerResponse(int)} and locks the channel to read it. If the
+   * response can't be reached, because of a timeout or an error, the channel is closed: all the responses after it would wait for
+   * their turn forever.
+   */
+  public void beginResponse(final int iRequesterId, final int iTicket, final long iTimeout) throws IOException {
+    boolean reached = false;
     try {
       int unreadResponse = 0;
       final long startClock = iTimeout > 0 ? System.currentTimeMillis() : 0;
@@ -71,6 +120,11 @@ public class OChannelBinaryAsynch extends OChannelBinary {
         else if (!lockRead.tryLock(iTimeout, TimeUnit.MILLISECONDS))
           throw new OTimeoutException("Cannot acquire read lock against channel: " + this);
 
+        if (broken) {
+          lockRead.unlock();
+          throw new IOException("Channel closed because a previous response has not been read");
+        }
+
         if (!channelRead) {
           channelRead = true;
 
@@ -91,9 +145,11 @@ public class OChannelBinaryAsynch extends OChannelBinary {
           }
         }
 
-        if (currentSessionId == iRequesterId)
+        if (currentSessionId == iRequesterId && isTurnOf(iRequesterId, iTicket)) {
           // IT'S FOR ME
+          reached = true;
           break;
+        }
 
         try {
           if (debug)
@@ -108,7 +164,6 @@ public class OChannelBinaryAsynch extends OChannelBinary {
               OLogManager.instance().info(this, "Unread responses %d > %d, consider the buffer as dirty: clean it", unreadResponse,
                   maxUnreadResponses);
 
-            close();
             throw new IOException("Timeout on reading response");
           }
 
@@ -120,6 +175,7 @@ public class OChannelBinaryAsynch extends OChannelBinary {
             OLogManager.instance().debug(this, "Session %d is going to sleep...", iRequesterId);
 
           final long start = System.currentTimeMillis();
+          final long consumedBefore = responsesConsumed;
 
           readCondition.await(1, TimeUnit.SECONDS);
           final long now = System.currentTimeMillis();
@@ -128,7 +184,11 @@ public class OChannelBinaryAsynch extends OChannelBinary {
             OLogManager.instance().debug(this, "Waked up: slept %dms, checking again from %s for session %d", (now - start),
                 socket.getLocalAddress(), iRequesterId);
 
-          if (now - start >= 1000)
+          if (responsesConsumed != consumedBefore)
+            // THE PIPELINE IS MOVING: WAIT FOR THE TURN
+            unreadResponse = 0;
+          else if (now - start >= 1000)
+            // NOBODY READ THE PENDING RESPONSE IN THE MEANWHILE
             unreadResponse++;
 
         } catch (InterruptedException e) {
@@ -145,12 +205,24 @@ public class OChannelBinaryAsynch extends OChannelBinary {
       handleStatus(currentStatus, currentSessionId);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
-      // NEVER HAPPENS?
-      e.printStackTrace();
+      throw new IOException("Thread interrupted while waiting for the response");
+    } finally {
+      if (!reached)
+        abandonResponses();
     }
   }
 
   public void endResponse() {
+    if (lockRead.isHeldByCurrentThread() && channelRead) {
+      // THE RESPONSE HAS BEEN CONSUMED: NEXT TURN
+      responsesConsumed++;
+      synchronized (tickets) {
+        final OTicket ticket = tickets.get(currentSessionId);
+        if (ticket != null && ++ticket.read >= ticket.issued)
+          tickets.remove(currentSessionId);
+      }
+    }
+
     channelRead = false;
 
     // WAKE UP ALL THE WAITING THREADS
@@ -163,6 +235,28 @@ public class OChannelBinaryAsynch extends OChannelBinary {
     }
   }
 
+  /**
+   * Fails all the requests in flight by closing the channel, when a response will never be read. The responses can be read only
+   * in the same order they arrive, so the following ones couldn't be reached anymore.
+   */
+  private void abandonResponses() {
+    if (broken)
+      return;
+
+    broken = true;
+    synchronized (tickets) {
+      tickets.clear();
+    }
+    close();
+  }
+
+  private boolean isTurnOf(final int iRequesterId, final int iTicket) {
+    synchronized (tickets) {
+      final OTicket ticket = tickets.get(iRequesterId);
+      return ticket == null || ticket.read + 1 >= iTicket;
+    }
+  }
+
   public ReentrantLock getLockRead() {
     return lockRead;
   }
@@ -47,6 +47,7 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_DATACLUSTER_COUNT              = 12;
   public static final byte  REQUEST_DATACLUSTER_DATARANGE          = 13;
   public static final byte  REQUEST_DATACLUSTER_COPY               = 14;
+  public static final byte  REQUEST_DATACLUSTER_BROWSE             = 15; // since 1.3.0
   public static final byte  REQUEST_DATACLUSTER_LH_CLUSTER_IS_USED = 16; // since 1.2.0
 
   public static final byte  REQUEST_DATASEGMENT_ADD                = 20;
@@ -61,9 +62,12 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_RECORD_NEXT                    = 36; // since 1.3.0
   public static final byte  REQUEST_RECORD_PREVIOUS                = 37; // since 1.3.0
   public static final byte  REQUEST_RECORD_CLEAN_OUT               = 38; // since 1.3.0
+  public static final byte  REQUEST_RECORD_LOAD_BATCH              = 39; // since 1.3.0
 
   public static final byte  REQUEST_COUNT                          = 40; // DEPRECATED: USE REQUEST_DATACLUSTER_COUNT
   public static final byte  REQUEST_COMMAND                        = 41;
+  public static final byte  REQUEST_COMMAND_PREPARE                = 42; // since 1.3.0
+  public static final byte  REQUEST_COMMAND_EXECUTE                = 43; // since 1.3.0
 
   public static final byte  REQUEST_TX_COMMIT                      = 60;
 
@@ -94,7 +98,8 @@ public class OChannelBinaryProtocol {
   // CONSTANTS
   public static final short RECORD_NULL                            = -2;
   public static final short RECORD_RID                             = -3;
-  public static final int   CURRENT_PROTOCOL_VERSION               = 12; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+  public static final int   CURRENT_PROTOCOL_VERSION               = 14; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+  public static final int   MAX_RECORDS_PER_BATCH                  = 1000; // LOAD_BATCH AND DATACLUSTER_BROWSE, SINCE 1.3.0
 
   public static OIdentifiable readIdentifiable(final OChannelBinaryClient network) throws IOException {
     final int classId = network.readShort();
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+
+/**
+ * Thrown by the server when a client executes a prepared command that is not, or no longer, registered for its connection. The
+ * client prepares the command again.
+ */
+public class OPreparedCommandNotFoundException extends OCommandExecutionException {
+
+	private static final long	serialVersionUID	= 6029178263384526412L;
+
+	public OPreparedCommandNotFoundException(String message) {
+		super(message);
+	}
+
+}
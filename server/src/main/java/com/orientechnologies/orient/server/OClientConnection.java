@@ -24,6 +24,7 @@ import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocolData;
+import com.orientechnologies.orient.server.network.protocol.binary.OPreparedCommands;
 
 public class OClientConnection {
   public final int                         id;
@@ -33,7 +34,8 @@ public class OClientConnection {
   public volatile ODatabaseRaw             rawDatabase;
   public volatile OServerUserConfiguration serverUser;
 
-  public ONetworkProtocolData              data = new ONetworkProtocolData();
+  public ONetworkProtocolData              data             = new ONetworkProtocolData();
+  public final OPreparedCommands           preparedCommands = new OPreparedCommands();
 
   public OClientConnection(final int iId, final ONetworkProtocol iProtocol) throws IOException {
     this.id = iId;
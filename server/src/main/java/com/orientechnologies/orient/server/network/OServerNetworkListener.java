@@ -24,6 +24,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.Orient;
@@ -46,6 +47,7 @@ public class OServerNetworkListener extends Thread {
   private OContextConfiguration             configuration;
   private OServer                           server;
   private ONetworkProtocol                  protocol;
+  private OServerNetworkSelector            selector;
 
   @SuppressWarnings("unchecked")
   public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
@@ -54,11 +56,11 @@ public class OServerNetworkListener extends Thread {
     super(Orient.getThreadGroup(), "OrientDB " + iProtocol.getSimpleName() + " listen at " + iHostName + ":" + iHostPortRange);
     server = iServer;
 
+    readParameters(iServer.getContextConfiguration(), iParameters);
+
     listen(iHostName, iHostPortRange, iProtocolName);
     protocolType = iProtocol;
 
-    readParameters(iServer.getContextConfiguration(), iParameters);
-
     if (iCommands != null) {
       // CREATE COMMANDS
       commands = new OServerCommand[iCommands.length];
@@ -86,6 +88,9 @@ public class OServerNetworkListener extends Thread {
       protocol = null;
     }
 
+    if (selector != null)
+      selector.shutdown();
+
     if (serverSocket != null)
       try {
         serverSocket.close();
@@ -94,7 +99,8 @@ public class OServerNetworkListener extends Thread {
   }
 
   /**
-   * Initialize a server socket for communicating with the client.
+   * Initialize a server socket for communicating with the client. In "selector" mode the socket is created by a channel, so the
+   * accepted connections can be registered in the selector.
    * 
    * @param iHostPortRange
    * @param iHostName
@@ -105,7 +111,11 @@ public class OServerNetworkListener extends Thread {
     for (int port : ports) {
       inboundAddr = new InetSocketAddress(iHostName, port);
       try {
-        serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (selector != null) {
+          serverSocket = ServerSocketChannel.open().socket();
+          serverSocket.bind(new InetSocketAddress(InetAddress.getByName(iHostName), port));
+        } else
+          serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
 
         if (serverSocket.isBound()) {
           OLogManager.instance().info(this,
@@ -113,6 +123,7 @@ public class OServerNetworkListener extends Thread {
           return;
         }
       } catch (BindException be) {
+        closeServerSocket();
         OLogManager.instance().info(this, "Port %s:%d busy, trying the next available...", iHostName, port);
       } catch (SocketException se) {
         OLogManager.instance().error(this, "Unable to create socket", se);
@@ -147,11 +158,15 @@ public class OServerNetworkListener extends Thread {
 
           // CREATE A NEW PROTOCOL INSTANCE
           protocol = protocolType.newInstance();
+          protocol.setSelector(selector);
 
           // CONFIGURE THE PROTOCOL FOR THE INCOMING CONNECTION
           protocol.config(server, socket, configuration, commands);
 
         } catch (Throwable e) {
+          if (serverSocket.isClosed())
+            // THE CHANNEL OF A LISTENER IN "SELECTOR" MODE IS CLOSED ALSO BY INTERRUPTING THE THREAD
+            break;
           if (active)
             OLogManager.instance().error(this, "Error on client connection", e);
         } finally {
@@ -191,6 +206,27 @@ public class OServerNetworkListener extends Thread {
     }
 
     socketBufferSize = configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE);
+
+    final String mode = configuration.getValueAsString(OGlobalConfiguration.NETWORK_LISTENER_MODE);
+    if ("selector".equalsIgnoreCase(mode))
+      try {
+        selector = new OServerNetworkSelector(getName(),
+            configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_LISTENER_SELECTORS),
+            configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_LISTENER_WORKERS));
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Unable to open the selector: serving the connections with a thread each", e);
+      }
+    else if (!"thread".equalsIgnoreCase(mode))
+      throw new IllegalArgumentException("Unsupported listener mode '" + mode + "': use 'thread' or 'selector'");
+  }
+
+  private void closeServerSocket() {
+    if (serverSocket != null)
+      try {
+        serverSocket.close();
+      } catch (IOException e) {
+      }
+    serverSocket = null;
   }
 
   public static int[] getPorts(final String iHostPortRange) {
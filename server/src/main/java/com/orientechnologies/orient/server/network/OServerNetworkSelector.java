@@ -0,0 +1,287 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+
+/**
+ * Serves the connections of a listener in "selector" mode. Idle connections don't own any thread: they are registered in
+ * non-blocking mode in one of the selector threads. As soon as data arrives the connection is removed from the selector, switched
+ * back to blocking mode and handed to a bounded pool of workers that executes the requests with the usual protocol code. Once the
+ * buffered requests have been executed the connection goes back to its selector.<br/>
+ * The binary protocol doesn't send the length of the requests, so the selector can't wait for a complete request: a worker reads
+ * the rest of a request if it's still in transit.
+ */
+public class OServerNetworkSelector {
+  private static final long        IDLE_CHECK_DELAY = 1000;
+
+  private final OSelectorThread[]  selectors;
+  private final ThreadPoolExecutor workers;
+  private volatile boolean         active           = true;
+
+  private static class OIdleConnection {
+    final SelectionKey key;
+    final long         since = System.currentTimeMillis();
+
+    OIdleConnection(final SelectionKey iKey) {
+      key = iKey;
+    }
+  }
+
+  /**
+   * Selector thread. The registered connections are only accessed by this thread: the other threads queue the connections to
+   * register and to close and wake up the selector.
+   */
+  private class OSelectorThread extends Thread {
+    private final Selector                                selector;
+    private final Map<ONetworkProtocol, OIdleConnection>  idle          = new HashMap<ONetworkProtocol, OIdleConnection>();
+    private final ConcurrentLinkedQueue<ONetworkProtocol> registrations = new ConcurrentLinkedQueue<ONetworkProtocol>();
+    private final ConcurrentLinkedQueue<ONetworkProtocol> closings      = new ConcurrentLinkedQueue<ONetworkProtocol>();
+    private long                                          lastIdleCheck = System.currentTimeMillis();
+
+    OSelectorThread(final String iName) throws IOException {
+      super(Orient.getThreadGroup(), iName);
+      setDaemon(true);
+      selector = Selector.open();
+    }
+
+    @Override
+    public void run() {
+      try {
+        // THE SERVER INTERRUPTS ITS THREADS ON SHUTDOWN
+        while (active && !isInterrupted()) {
+          try {
+            if (selector.selectedKeys().isEmpty())
+              selector.select(IDLE_CHECK_DELAY);
+            else
+              // KEYS LEFT BY THE LAST DEREGISTRATION
+              selector.selectNow();
+
+            registerPending();
+            closePending();
+            dispatchSelected();
+            closeIdle();
+          } catch (Throwable t) {
+            if (active)
+              OLogManager.instance().error(this, "Error on serving the connections", t);
+          }
+        }
+      } finally {
+        for (ONetworkProtocol protocol : idle.keySet())
+          shutdownProtocol(protocol);
+        idle.clear();
+
+        try {
+          selector.close();
+        } catch (IOException e) {
+        }
+      }
+    }
+
+    private void registerPending() {
+      ONetworkProtocol protocol;
+      while ((protocol = registrations.poll()) != null) {
+        if (protocol.isShutdownRequested()) {
+          dispatchShutdown(protocol);
+          continue;
+        }
+
+        try {
+          final SocketChannel channel = getSocketChannel(protocol);
+          channel.configureBlocking(false);
+          idle.put(protocol, new OIdleConnection(channel.register(selector, SelectionKey.OP_READ, protocol)));
+        } catch (IOException e) {
+          dispatchShutdown(protocol);
+        }
+      }
+    }
+
+    private void closePending() {
+      ONetworkProtocol protocol;
+      while ((protocol = closings.poll()) != null) {
+        final OIdleConnection connection = idle.remove(protocol);
+        if (connection != null) {
+          // IDLE: OTHERWISE THE WORKER THAT IS EXECUTING ITS REQUESTS SHUTS IT DOWN
+          connection.key.cancel();
+          dispatchShutdown(protocol);
+        }
+      }
+    }
+
+    private void dispatchSelected() throws IOException {
+      final Set<SelectionKey> selected = selector.selectedKeys();
+      if (selected.isEmpty())
+        return;
+
+      final List<ONetworkProtocol> ready = new ArrayList<ONetworkProtocol>(selected.size());
+      for (SelectionKey key : selected) {
+        final ONetworkProtocol protocol = (ONetworkProtocol) key.attachment();
+        key.cancel();
+        if (idle.remove(protocol) != null)
+          ready.add(protocol);
+      }
+      selected.clear();
+
+      // THE CHANNELS CAN GO BACK IN BLOCKING MODE ONLY ONCE THE CANCELLED KEYS HAVE BEEN DEREGISTERED
+      selector.selectNow();
+
+      for (final ONetworkProtocol protocol : ready) {
+        try {
+          getSocketChannel(protocol).configureBlocking(true);
+        } catch (IOException e) {
+          dispatchShutdown(protocol);
+          continue;
+        }
+
+        try {
+          workers.execute(new Runnable() {
+            public void run() {
+              if (protocol.executeRequests())
+                register(protocol);
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          shutdownProtocol(protocol);
+        }
+      }
+    }
+
+    private void closeIdle() {
+      final long now = System.currentTimeMillis();
+      if (now - lastIdleCheck < IDLE_CHECK_DELAY)
+        return;
+      lastIdleCheck = now;
+
+      for (Iterator<Map.Entry<ONetworkProtocol, OIdleConnection>> it = idle.entrySet().iterator(); it.hasNext();) {
+        final Map.Entry<ONetworkProtocol, OIdleConnection> entry = it.next();
+        final int timeout = entry.getKey().getIdleTimeout();
+        if (timeout > 0 && now - entry.getValue().since > timeout) {
+          it.remove();
+          entry.getValue().key.cancel();
+          dispatchShutdown(entry.getKey());
+        }
+      }
+    }
+  }
+
+  public OServerNetworkSelector(final String iName, final int iSelectors, final int iWorkers) throws IOException {
+    workers = new ThreadPoolExecutor(iWorkers, iWorkers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger serial = new AtomicInteger();
+
+          public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(Orient.getThreadGroup(), r, iName + " worker " + serial.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    workers.allowCoreThreadTimeOut(true);
+
+    selectors = new OSelectorThread[Math.max(iSelectors, 1)];
+    for (int i = 0; i < selectors.length; ++i)
+      selectors[i] = new OSelectorThread(iName + " selector " + (i + 1));
+    for (OSelectorThread s : selectors)
+      s.start();
+  }
+
+  /**
+   * Registers the connection: from now on the requests are executed by the workers as soon as they arrive.
+   */
+  public void register(final ONetworkProtocol iProtocol) {
+    final OSelectorThread s = getSelectorThread(iProtocol);
+    s.registrations.add(iProtocol);
+    s.selector.wakeup();
+  }
+
+  /**
+   * Closes the connection. If the connection is waiting for requests it's shut down by a worker, otherwise by the worker that is
+   * executing its requests.
+   */
+  public void close(final ONetworkProtocol iProtocol) {
+    final OSelectorThread s = getSelectorThread(iProtocol);
+    s.closings.add(iProtocol);
+    s.selector.wakeup();
+  }
+
+  public void shutdown() {
+    active = false;
+    for (OSelectorThread s : selectors) {
+      s.selector.wakeup();
+      try {
+        s.join(IDLE_CHECK_DELAY);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    workers.shutdown();
+  }
+
+  public int getActiveWorkers() {
+    return workers.getActiveCount();
+  }
+
+  private OSelectorThread getSelectorThread(final ONetworkProtocol iProtocol) {
+    // ALWAYS THE SAME SELECTOR FOR A CONNECTION, SO ONLY ITS THREAD TOUCHES THE REGISTRATION
+    return selectors[(System.identityHashCode(iProtocol) & Integer.MAX_VALUE) % selectors.length];
+  }
+
+  private void dispatchShutdown(final ONetworkProtocol iProtocol) {
+    try {
+      workers.execute(new Runnable() {
+        public void run() {
+          shutdownProtocol(iProtocol);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      shutdownProtocol(iProtocol);
+    }
+  }
+
+  private static void shutdownProtocol(final ONetworkProtocol iProtocol) {
+    try {
+      iProtocol.shutdown();
+    } catch (Exception e) {
+      OLogManager.instance().debug(iProtocol, "Error on closing the connection", e);
+    }
+  }
+
+  private static SocketChannel getSocketChannel(final ONetworkProtocol iProtocol) throws IOException {
+    final SocketChannel channel = iProtocol.getChannel() != null ? iProtocol.getChannel().socket.getChannel() : null;
+    if (channel == null)
+      throw new IOException("Connection " + iProtocol + " has not been accepted by a listener in selector mode");
+    return channel;
+  }
+}
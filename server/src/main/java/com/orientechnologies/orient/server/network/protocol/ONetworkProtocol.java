@@ -22,9 +22,17 @@ import com.orientechnologies.common.thread.OSoftThread;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.OServerNetworkSelector;
 
+/**
+ * Network protocol of a client connection. By default the protocol runs in its own thread executing the requests one after the
+ * other. If the connection has been accepted by a listener in "selector" mode the protocol has no thread: the selector waits for
+ * the data of the connection and executes the requests with {@link #executeRequests()} in one of its workers.
+ */
 public abstract class ONetworkProtocol extends OSoftThread {
-  protected OServer server;
+  protected OServer              server;
+  private OServerNetworkSelector selector;
+  private volatile boolean       shutdownRequested = false;
 
   public ONetworkProtocol(ThreadGroup group, String name) {
     super(group, name);
@@ -47,4 +55,82 @@ public abstract class ONetworkProtocol extends OSoftThread {
   public OServer getServer() {
     return server;
   }
+
+  /**
+   * Assigns the selector that will serve the connection. Must be called before {@link #config(OServer, Socket, OContextConfiguration,
+   * Object[])}.
+   */
+  public void setSelector(final OServerNetworkSelector iSelector) {
+    selector = iSelector;
+  }
+
+  public OServerNetworkSelector getSelector() {
+    return selector;
+  }
+
+  /**
+   * Starts to serve the connection: in a new thread or, if a selector has been assigned, registering the connection in it.
+   */
+  protected void startServing() {
+    if (selector == null) {
+      start();
+      return;
+    }
+
+    startup();
+    selector.register(this);
+  }
+
+  /**
+   * Executes the requests already received. Called by the workers of the selector once data is available: executes at least one
+   * request and goes on while the rest of the next request is already buffered.
+   * 
+   * @return false if the connection has been closed, otherwise true
+   */
+  public boolean executeRequests() {
+    do {
+      try {
+        beforeExecution();
+        execute();
+        afterExecution();
+      } catch (Throwable t) {
+        t.printStackTrace();
+      }
+    } while (!shutdownRequested && hasBufferedInput());
+
+    if (shutdownRequested) {
+      shutdown();
+      return false;
+    }
+    return true;
+  }
+
+  public boolean isShutdownRequested() {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void sendShutdown() {
+    shutdownRequested = true;
+    if (selector != null)
+      selector.close(this);
+    else
+      super.sendShutdown();
+  }
+
+  /**
+   * Returns the time in ms after that an idle connection served by a selector is closed, 0 to keep it open forever.
+   */
+  public int getIdleTimeout() {
+    return 0;
+  }
+
+  protected boolean hasBufferedInput() {
+    final OChannel c = getChannel();
+    try {
+      return c != null && c.inStream != null && c.inStream.available() > 0;
+    } catch (IOException e) {
+      return false;
+    }
+  }
 }
@@ -17,8 +17,10 @@ package com.orientechnologies.orient.server.network.protocol.binary;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -67,6 +69,7 @@ import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
+import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
 import com.orientechnologies.orient.server.OClientConnection;
 import com.orientechnologies.orient.server.OClientConnectionManager;
 import com.orientechnologies.orient.server.OServer;
@@ -102,7 +105,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     // SEND PROTOCOL VERSION
     channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
     channel.flush();
-    start();
+    startServing();
 
     setName("OrientDB <- BinaryClient (" + iSocket.getRemoteSocketAddress() + ")");
   }
@@ -258,6 +261,14 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       readRecord();
       break;
 
+    case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH:
+      readRecords();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_BROWSE:
+      browseCluster();
+      break;
+
     case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
       createRecord();
       break;
@@ -286,6 +297,14 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       command();
       break;
 
+    case OChannelBinaryProtocol.REQUEST_COMMAND_PREPARE:
+      prepareCommand();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_COMMAND_EXECUTE:
+      executePreparedCommand();
+      break;
+
     case OChannelBinaryProtocol.REQUEST_TX_COMMIT:
       commit();
       break;
@@ -973,7 +992,6 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
-  @SuppressWarnings("unchecked")
   protected void command() throws IOException {
     setDataCommandInfo("Execute remote command");
 
@@ -982,6 +1000,50 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     final OCommandRequestText command = (OCommandRequestText) OStreamSerializerAnyStreamable.INSTANCE.fromStream(channel
         .readBytes());
 
+    executeCommand(asynch, command);
+  }
+
+  /**
+   * Registers the text of a command in the prepared commands of the connection and sends back its id, that the client uses to
+   * execute it with {@link #executePreparedCommand()}.
+   */
+  protected void prepareCommand() throws IOException {
+    setDataCommandInfo("Prepare remote command");
+
+    checkDatabase();
+
+    final int id = connection.preparedCommands.prepare(channel.readString());
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+      channel.writeInt(id);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Executes a command prepared by {@link #prepareCommand()}. The command is sent without text, that is taken from the prepared
+   * commands of the connection by id.
+   */
+  protected void executePreparedCommand() throws IOException {
+    setDataCommandInfo("Execute remote prepared command");
+
+    checkDatabase();
+
+    final boolean asynch = channel.readByte() == 'a';
+    final int id = channel.readInt();
+
+    final OCommandRequestText command = (OCommandRequestText) OStreamSerializerAnyStreamable.INSTANCE.fromStream(channel
+        .readBytes());
+    command.setText(connection.preparedCommands.getText(id));
+
+    executeCommand(asynch, command);
+  }
+
+  @SuppressWarnings("unchecked")
+  protected void executeCommand(final boolean asynch, final OCommandRequestText command) throws IOException {
     connection.data.commandDetail = command.getText();
 
     // ENABLES THE CACHE TO IMPROVE PERFORMANCE OF COMPLEX COMMANDS LIKE TRAVERSE
@@ -1245,6 +1307,114 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  /**
+   * Loads a batch of records with one request. Every record is sent in the same order of the request, preceded by 1, or 0 if the
+   * record doesn't exist. Batches of more than {@link OChannelBinaryProtocol#MAX_RECORDS_PER_BATCH} records are refused.
+   */
+  protected void readRecords() throws IOException {
+    setDataCommandInfo("Load records");
+
+    final int total = channel.readInt();
+    if (total < 0 || total > OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH) {
+      // CONSUME THE REQUEST BEFORE ANSWERING WITH THE ERROR
+      for (int i = 0; i < total; ++i)
+        channel.readRID();
+      channel.readByte();
+      throw new ONetworkProtocolException("Cannot load " + total + " records with one request, the maximum is "
+          + OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH);
+    }
+
+    final ORecordId[] rids = new ORecordId[total];
+    for (int i = 0; i < total; ++i)
+      rids[i] = channel.readRID();
+    final boolean ignoreCache = channel.readByte() == 1;
+
+    final ORecordInternal<?>[] records = new ORecordInternal<?>[total];
+    for (int i = 0; i < total; ++i)
+      records[i] = connection.database.load(rids[i], null, ignoreCache);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      for (ORecordInternal<?> record : records) {
+        if (record != null) {
+          channel.writeByte((byte) 1); // HAS RECORD
+          channel.writeBytes(record.toStream());
+          channel.writeVersion(record.getRecordVersion());
+          channel.writeByte(record.getRecordType());
+        } else
+          channel.writeByte((byte) 0); // RECORD NOT FOUND
+      }
+
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Returns the records of a cluster following (or preceding) a position, up to a limit capped to
+   * {@link OChannelBinaryProtocol#MAX_RECORDS_PER_BATCH}. Every record is preceded by 1 and its position. The records linked by the
+   * fetch plan follow, preceded by 2, and the last one is followed by 0.
+   */
+  protected void browseCluster() throws IOException {
+    setDataCommandInfo("Browse cluster");
+
+    final int clusterId = channel.readInt();
+    OClusterPosition clusterPosition = channel.readClusterPosition();
+    final int limit = Math.min(channel.readInt(), OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH);
+    final boolean ascending = channel.readByte() == 1;
+    final String fetchPlanString = channel.readString();
+
+    final List<ORecordInternal<?>> records = new ArrayList<ORecordInternal<?>>();
+    while (records.size() < limit) {
+      clusterPosition = ascending ? connection.database.getNextClusterPosition(clusterId, clusterPosition) : connection.database
+          .getPreviousClusterPosition(clusterId, clusterPosition);
+      if (clusterPosition == null || !clusterPosition.isValid())
+        break;
+
+      final ORecordInternal<?> record = connection.database.load(new ORecordId(clusterId, clusterPosition), null, false);
+      if (record != null)
+        // SKIP THE RECORDS DELETED IN THE MEANWHILE
+        records.add(record);
+    }
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      for (ORecordInternal<?> record : records) {
+        channel.writeByte((byte) 1); // HAS RECORD
+        channel.writeClusterPosition(record.getIdentity().getClusterPosition());
+        channel.writeBytes(record.toStream());
+        channel.writeVersion(record.getRecordVersion());
+        channel.writeByte(record.getRecordType());
+      }
+
+      if (fetchPlanString.length() > 0) {
+        final Map<String, Integer> fetchPlan = OFetchHelper.buildFetchPlan(fetchPlanString);
+
+        final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+        final OFetchListener listener = new ORemoteFetchListener(recordsToSend);
+        final OFetchContext context = new ORemoteFetchContext();
+        for (ORecordInternal<?> record : records)
+          if (record instanceof ODocument)
+            OFetchHelper.fetch((ODocument) record, (ODocument) record, fetchPlan, listener, context);
+
+        // SEND RECORDS TO LOAD IN CLIENT CACHE
+        for (ODocument d : recordsToSend)
+          if (d.getIdentity().isValid()) {
+            channel.writeByte((byte) 2); // CLIENT CACHE
+            writeIdentifiable(d);
+          }
+      }
+      channel.writeByte((byte) 0); // NO MORE RECORDS
+
+    } finally {
+      endResponse();
+    }
+  }
+
   protected void endResponse() throws IOException {
     channel.flush();
     channel.releaseExclusiveLock();
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.orientechnologies.orient.enterprise.channel.binary.OPreparedCommandNotFoundException;
+
+/**
+ * Texts of the commands prepared by a binary client. Every client connection has its own registry, so the clients send only the
+ * id and the parameters to execute a command again. The registry keeps the last {@link #MAX_COMMANDS} commands used: the oldest
+ * are evicted and their ids are never reused, so a client executing an evicted command gets an
+ * {@link OPreparedCommandNotFoundException} and prepares it again.
+ */
+public class OPreparedCommands {
+  public static final int            MAX_COMMANDS = 1000;
+
+  private final Map<String, Integer> ids          = new HashMap<String, Integer>();
+  private final Map<Integer, String> texts;
+  private int                        nextId       = 0;
+
+  public OPreparedCommands() {
+    // ACCESS ORDER: THE FIRST ENTRY IS THE LEAST RECENTLY USED
+    texts = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Integer, String> iEldest) {
+        if (size() <= MAX_COMMANDS)
+          return false;
+
+        ids.remove(iEldest.getValue());
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns the id of the command text, registering it if it's new.
+   * 
+   * @return the id or -1 if no more ids are available
+   */
+  public synchronized int prepare(final String iText) {
+    final Integer id = ids.get(iText);
+    if (id != null) {
+      // MARK IT AS THE LAST USED
+      texts.get(id);
+      return id.intValue();
+    }
+
+    if (nextId == Integer.MAX_VALUE)
+      return -1;
+
+    final int newId = nextId++;
+    ids.put(iText, newId);
+    texts.put(newId, iText);
+    return newId;
+  }
+
+  public synchronized String getText(final int iId) {
+    final String text = texts.get(iId);
+    if (text == null)
+      throw new OPreparedCommandNotFoundException("Prepared command #" + iId + " not found");
+    return text;
+  }
+
+  public synchronized int size() {
+    return texts.size();
+  }
+}
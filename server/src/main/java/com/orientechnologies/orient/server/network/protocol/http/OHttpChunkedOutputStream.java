@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+
+/**
+ * Writes the content of a HTTP/1.1 response with chunked transfer encoding. The content is buffered and sent one chunk at a time,
+ * so the client receives the first records while the rest of the response is still being produced. Closing the stream sends the
+ * last chunk but leaves the connection open for the next request.
+ */
+public class OHttpChunkedOutputStream extends OutputStream {
+  private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+  private final OutputStream  out;
+  private final byte[]        buffer;
+  private int                 size;
+  private boolean             closed;
+
+  public OHttpChunkedOutputStream(final OutputStream iOut, final int iChunkSize) {
+    out = iOut;
+    buffer = new byte[iChunkSize];
+  }
+
+  @Override
+  public void write(final int iByte) throws IOException {
+    if (size == buffer.length)
+      writeChunk();
+    buffer[size++] = (byte) iByte;
+  }
+
+  @Override
+  public void write(final byte[] iBuffer, int iOffset, int iLength) throws IOException {
+    while (iLength > 0) {
+      if (size == buffer.length)
+        writeChunk();
+
+      final int length = Math.min(iLength, buffer.length - size);
+      System.arraycopy(iBuffer, iOffset, buffer, size, length);
+      size += length;
+      iOffset += length;
+      iLength -= length;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writeChunk();
+  }
+
+  /**
+   * Sends the buffered content and the last empty chunk. The underlying stream is not closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+
+    closed = true;
+    writeChunk();
+    out.write(LAST_CHUNK);
+    out.flush();
+  }
+
+  private void writeChunk() throws IOException {
+    if (size == 0)
+      return;
+
+    out.write(OBinaryProtocol.string2bytes(Integer.toHexString(size)));
+    out.write(OHttpUtils.EOL);
+    out.write(buffer, 0, size);
+    out.write(OHttpUtils.EOL);
+    out.flush();
+    size = 0;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+
+/**
+ * Writes records to a HTTP response as a JSON object with the "result" collection. It can be passed as listener to asynchronous
+ * queries: when the response can be chunked every record is serialized and sent as soon as it's received, otherwise the JSON is
+ * buffered and sent on {@link #close()}.
+ */
+public class OHttpRecordStream implements OCommandResultListener {
+  private final OHttpResponse response;
+  private final String        jsonFormat;
+  private final String        format;
+  private StringWriter        buffer;
+  private Writer              out;
+  private OJSONWriter         json;
+  private int                 counter;
+
+  public OHttpRecordStream(final OHttpResponse iResponse, final String iFetchPlan, final String iFormat) {
+    response = iResponse;
+    jsonFormat = iFormat != null ? iFormat : OHttpResponse.JSON_FORMAT;
+    format = iFetchPlan != null ? jsonFormat + ",fetchPlan:" + iFetchPlan : jsonFormat;
+  }
+
+  public boolean result(final Object iRecord) {
+    try {
+      write(iRecord);
+    } catch (IOException e) {
+      throw new OIOException("Error on sending the record " + iRecord + " to the HTTP client", e);
+    }
+    return true;
+  }
+
+  public void write(final Object iRecord) throws IOException {
+    if (iRecord == null)
+      return;
+
+    begin();
+
+    if (counter++ > 0)
+      out.append(", ");
+    response.formatValue(iRecord, out, format);
+  }
+
+  /**
+   * Closes the result collection and ends the response.
+   */
+  public void close() throws IOException {
+    begin();
+
+    json.endCollection(1, true);
+    json.endObject();
+
+    if (buffer != null)
+      response.send(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_JSON, buffer.toString(), null);
+    else {
+      if (response.callbackFunction != null)
+        out.append(')');
+      out.close();
+    }
+  }
+
+  /**
+   * Sends the headers, if the response can be chunked, and opens the result collection. It's called on the first record, so the
+   * errors raised before it are still sent to the client as error responses.
+   */
+  private void begin() throws IOException {
+    if (json != null)
+      return;
+
+    if (response.isChunkedAllowed()) {
+      out = new OutputStreamWriter(response.beginChunked(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_JSON, null), "UTF-8");
+      if (response.callbackFunction != null)
+        out.append(response.callbackFunction).append('(');
+    } else {
+      buffer = new StringWriter();
+      out = buffer;
+    }
+
+    json = new OJSONWriter(out, jsonFormat);
+    json.beginObject();
+    json.beginCollection(1, true, "result");
+  }
+}
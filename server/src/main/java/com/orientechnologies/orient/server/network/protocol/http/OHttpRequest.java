@@ -45,6 +45,7 @@ public class OHttpRequest {
   public boolean                            isMultipart;
   public String                             ifMatch;
   public String                             authentication;
+  public String                             acceptEncoding;
 
   public final ONetworkProtocolData         data;
   public final ONetworkProtocolHttpAbstract executor;
@@ -15,15 +15,17 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.log.OLogManager;
@@ -42,6 +44,8 @@ import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
 public class OHttpResponse {
   public static final String JSON_FORMAT   = "type,indent:2,rid,version,attribSameRow,class";
   public static final char[] URL_SEPARATOR = { '/' };
+  public static final int    CHUNK_SIZE    = 8192;
+  public static final int    GZIP_MIN_SIZE = 1024;
 
   private final OutputStream out;
   public final String        httpVersion;
@@ -52,9 +56,29 @@ public class OHttpResponse {
   public String              serverInfo;
   public String              sessionId;
   public String              callbackFunction;
+  public String              contentEncoding;
+  public boolean             gzipEnabled;
+  public boolean             streaming;
+  private boolean            chunked;
 
   public OHttpResponse(final OutputStream iOutStream, final String iHttpVersion, final String[] iAdditionalHeaders,
       final String iResponseCharSet, final String iServerInfo, final String iSessionId, final String iCallbackFunction) {
+    this(iOutStream, iHttpVersion, iAdditionalHeaders, iResponseCharSet, iServerInfo, iSessionId, iCallbackFunction, null, false,
+        false);
+  }
+
+  /**
+   * @param iContentEncoding
+   *          "gzip" to compress the response, null to send it as is
+   * @param iGzipEnabled
+   *          true if the server compresses the responses for the clients that accept it. The responses that can be compressed
+   *          send "Vary: Accept-Encoding", so the caches don't return a compressed response to a client that doesn't accept it
+   * @param iStreaming
+   *          true to send the records of HTTP/1.1 responses with chunked transfer encoding
+   */
+  public OHttpResponse(final OutputStream iOutStream, final String iHttpVersion, final String[] iAdditionalHeaders,
+      final String iResponseCharSet, final String iServerInfo, final String iSessionId, final String iCallbackFunction,
+      final String iContentEncoding, final boolean iGzipEnabled, final boolean iStreaming) {
     out = iOutStream;
     httpVersion = iHttpVersion;
     additionalHeaders = iAdditionalHeaders;
@@ -62,6 +86,9 @@ public class OHttpResponse {
     serverInfo = iServerInfo;
     sessionId = iSessionId;
     callbackFunction = iCallbackFunction;
+    contentEncoding = iContentEncoding;
+    gzipEnabled = iGzipEnabled;
+    streaming = iStreaming;
   }
 
   public void send(final int iCode, final String iReason, final String iContentType, final Object iContent, final String iHeaders)
@@ -98,7 +125,20 @@ public class OHttpResponse {
 
     writeLine("Set-Cookie: " + OHttpUtils.OSESSIONID + "=" + sessId + "; Path=/; HttpOnly");
 
-    final byte[] binaryContent = empty ? null : OBinaryProtocol.string2bytes(content);
+    byte[] binaryContent = empty ? null : OBinaryProtocol.string2bytes(content);
+
+    if (gzipEnabled && binaryContent != null && binaryContent.length >= GZIP_MIN_SIZE)
+      writeLine(OHttpUtils.HEADER_VARY + "Accept-Encoding");
+
+    if (binaryContent != null && contentEncoding != null && binaryContent.length >= GZIP_MIN_SIZE) {
+      final ByteArrayOutputStream compressed = new ByteArrayOutputStream(binaryContent.length / 4);
+      final GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+      gzip.write(binaryContent);
+      gzip.close();
+      binaryContent = compressed.toByteArray();
+
+      writeLine(OHttpUtils.HEADER_CONTENT_ENCODING + contentEncoding);
+    }
 
     writeLine(OHttpUtils.HEADER_CONTENT_LENGTH + (empty ? 0 : binaryContent.length));
 
@@ -109,6 +149,48 @@ public class OHttpResponse {
     out.flush();
   }
 
+  /**
+   * Tells if the content can be sent with chunked transfer encoding, while it's produced.
+   */
+  public boolean isChunkedAllowed() {
+    return streaming && OHttpUtils.HTTP_VERSION_11.equals(httpVersion);
+  }
+
+  /**
+   * Tells if the headers of a chunked response have already been sent: from then on errors can't be reported to the client with
+   * a different status.
+   */
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  /**
+   * Sends the status and the headers of a response with chunked transfer encoding.
+   * 
+   * @return the stream to write the content to, compressed if the client accepts it. Closing it ends the response.
+   */
+  public OutputStream beginChunked(final int iCode, final String iReason, final String iContentType, final String iHeaders)
+      throws IOException {
+    writeStatus(iCode, iReason);
+    writeHeaders(callbackFunction != null ? "text/javascript" : iContentType);
+
+    if (iHeaders != null)
+      writeLine(iHeaders);
+
+    writeLine("Set-Cookie: " + OHttpUtils.OSESSIONID + "=" + (sessionId != null ? sessionId : "-") + "; Path=/; HttpOnly");
+    writeLine(OHttpUtils.HEADER_TRANSFER_ENCODING + OHttpUtils.TRANSFER_ENCODING_CHUNKED);
+    if (gzipEnabled)
+      writeLine(OHttpUtils.HEADER_VARY + "Accept-Encoding");
+    if (contentEncoding != null)
+      writeLine(OHttpUtils.HEADER_CONTENT_ENCODING + contentEncoding);
+    writeLine(null);
+
+    chunked = true;
+
+    final OutputStream stream = new OHttpChunkedOutputStream(out, CHUNK_SIZE);
+    return contentEncoding != null ? new GZIPOutputStream(stream, CHUNK_SIZE) : stream;
+  }
+
   public void writeStatus(final int iStatus, final String iReason) throws IOException {
     writeLine(httpVersion + " " + iStatus + " " + iReason);
   }
@@ -203,29 +285,15 @@ public class OHttpResponse {
     if (iRecords == null)
       return;
 
-    if (iFormat == null)
-      iFormat = JSON_FORMAT;
-
-    final StringWriter buffer = new StringWriter();
-    final OJSONWriter json = new OJSONWriter(buffer, iFormat);
-    json.beginObject();
-
-    final String format = iFetchPlan != null ? iFormat + ",fetchPlan:" + iFetchPlan : iFormat;
-
-    // WRITE RECORDS
-    json.beginCollection(1, true, "result");
-    formatMultiValue(iRecords, buffer, format);
-    json.endCollection(1, true);
-
-    json.endObject();
-
-    send(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_JSON, buffer.toString(), null);
+    final OHttpRecordStream stream = new OHttpRecordStream(this, iFetchPlan, iFormat);
+    while (iRecords.hasNext())
+      stream.write(iRecords.next());
+    stream.close();
   }
 
-  public void formatMultiValue(final Iterator<?> iIterator, final StringWriter buffer, final String format) throws IOException {
+  public void formatMultiValue(final Iterator<?> iIterator, final Writer buffer, final String format) throws IOException {
     if (iIterator != null) {
       int counter = 0;
-      String objectJson;
 
       while (iIterator.hasNext()) {
         final Object entry = iIterator.next();
@@ -233,24 +301,26 @@ public class OHttpResponse {
           if (counter++ > 0)
             buffer.append(", ");
 
-          if (entry instanceof OIdentifiable) {
-            ORecord<?> rec = ((OIdentifiable) entry).getRecord();
-            try {
-              objectJson = rec.getRecord().toJSON(format);
-
-              buffer.append(objectJson);
-            } catch (Exception e) {
-              OLogManager.instance().error(this, "Error transforming record " + rec.getIdentity() + " to JSON", e);
-            }
-          } else if (OMultiValue.isMultiValue(entry))
-            formatMultiValue(OMultiValue.getMultiValueIterator(entry), buffer, format);
-          else
-            buffer.append(OJSONWriter.writeValue(entry));
+          formatValue(entry, buffer, format);
         }
       }
     }
   }
 
+  public void formatValue(final Object iValue, final Writer buffer, final String format) throws IOException {
+    if (iValue instanceof OIdentifiable) {
+      ORecord<?> rec = ((OIdentifiable) iValue).getRecord();
+      try {
+        buffer.append(rec.getRecord().toJSON(format));
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error transforming record " + rec.getIdentity() + " to JSON", e);
+      }
+    } else if (OMultiValue.isMultiValue(iValue))
+      formatMultiValue(OMultiValue.getMultiValueIterator(iValue), buffer, format);
+    else
+      buffer.append(OJSONWriter.writeValue(iValue));
+  }
+
   public void writeRecord(final ORecord<?> iRecord) throws IOException {
     writeRecord(iRecord, null, null);
   }
@@ -30,6 +30,7 @@ public class OHttpUtils {
 	public static final String	URL_SEPARATOR												= "/";
 	public static final char		URL_SEPARATOR_CHAR									= '/';
 	public static final byte[]	EOL																	= { (byte) '\r', (byte) '\n' };
+	public static final String	HTTP_VERSION_11											= "HTTP/1.1";
 
 	public static final String	METHOD_GET													= "GET";
 	public static final String	METHOD_PUT													= "PUT";
@@ -43,9 +44,15 @@ public class OHttpUtils {
 	public static final String	HEADER_IF_MATCH											= "If-Match: ";
 	public static final String	HEADER_X_FORWARDED_FOR							= "X-Forwarded-For: ";
 	public static final String	HEADER_AUTHENTICATION								= "OAuthentication: ";
+	public static final String	HEADER_ACCEPT_ENCODING							= "Accept-Encoding: ";
+	public static final String	HEADER_CONTENT_ENCODING							= "Content-Encoding: ";
+	public static final String	HEADER_TRANSFER_ENCODING						= "Transfer-Encoding: ";
+	public static final String	HEADER_VARY													= "Vary: ";
 
 	public static final String	AUTHORIZATION_BASIC									= "Basic";
 	public static final String	OSESSIONID													= "OSESSIONID";
+	public static final String	CONTENT_ENCODING_GZIP								= "gzip";
+	public static final String	TRANSFER_ENCODING_CHUNKED						= "chunked";
 
 	public static final String	MULTIPART_CONTENT_DISPOSITION				= "Content-Disposition";
 	public static final String	MULTIPART_CONTENT_TRANSFER_ENCODING	= "Content-Transfer-Encoding";
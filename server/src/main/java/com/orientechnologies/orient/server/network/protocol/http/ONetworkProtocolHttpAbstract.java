@@ -61,6 +61,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
   private final StringBuilder                 requestContent    = new StringBuilder();
   private String                              responseCharSet;
+  private boolean                             responseStreaming;
+  private boolean                             responseGzip;
   private String[]                            additionalResponseHeaders;
   private String                              listeningAddress  = "?";
 
@@ -84,6 +86,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     requestMaxContentLength = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_HTTP_MAX_CONTENT_LENGTH);
     socketTimeout = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
     responseCharSet = iConfiguration.getValueAsString(OGlobalConfiguration.NETWORK_HTTP_CONTENT_CHARSET);
+    responseStreaming = iConfiguration.getValueAsBoolean(OGlobalConfiguration.NETWORK_HTTP_STREAMING);
+    responseGzip = iConfiguration.getValueAsBoolean(OGlobalConfiguration.NETWORK_HTTP_GZIP);
 
     channel = new OChannelTextServer(iSocket, iConfiguration);
     channel.connected();
@@ -94,7 +98,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
     listeningAddress = getListeningAddress();
 
-    start();
+    startServing();
   }
 
   public void service() throws ONetworkProtocolException, IOException {
@@ -108,8 +112,10 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     else
       callbackF = null;
 
+    final String contentEncoding = responseGzip && acceptsGzip(request.acceptEncoding) ? OHttpUtils.CONTENT_ENCODING_GZIP : null;
+
     response = new OHttpResponse(channel.outStream, request.httpVersion, additionalResponseHeaders, responseCharSet,
-        connection.data.serverInfo, request.sessionId, callbackF);
+        connection.data.serverInfo, request.sessionId, callbackF, contentEncoding, responseGzip, responseStreaming);
 
     final long begin = System.currentTimeMillis();
 
@@ -161,6 +167,13 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     if (OLogManager.instance().isDebugEnabled())
       OLogManager.instance().debug(this, "Caught exception", e);
 
+    if (response != null && response.isChunked()) {
+      // THE STATUS HAS ALREADY BEEN SENT: CLOSE THE CONNECTION TO LET THE CLIENT KNOW THE RESPONSE IS TRUNCATED
+      OLogManager.instance().error(this, "Error on sending the chunked response to the client %s", e, connection.data.caller);
+      sendShutdown();
+      return;
+    }
+
     int errorCode = 500;
     String errorReason = null;
     String errorMessage = null;
@@ -281,6 +294,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
   protected void readAllContent(final OHttpRequest iRequest) throws IOException {
     iRequest.content = null;
+    iRequest.acceptEncoding = null;
 
     int in;
     char currChar;
@@ -344,6 +358,9 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
           else if (OStringSerializerHelper.startsWithIgnoreCase(line, OHttpUtils.HEADER_AUTHENTICATION))
             iRequest.authentication = line.substring(OHttpUtils.HEADER_AUTHENTICATION.length());
+
+          else if (OStringSerializerHelper.startsWithIgnoreCase(line, OHttpUtils.HEADER_ACCEPT_ENCODING))
+            iRequest.acceptEncoding = line.substring(OHttpUtils.HEADER_ACCEPT_ENCODING.length());
           else if (OStringSerializerHelper.startsWithIgnoreCase(line, "Expect: 100-continue"))
             // SUPPORT THE CONTINUE TO AUTHORIZE THE CLIENT TO SEND THE CONTENT WITHOUT WAITING THE DELAY
             sendTextContent(100, null, null, null, null);
@@ -402,6 +419,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     connection.data.commandInfo = "Listening";
     connection.data.commandDetail = null;
 
+    long timer = -1;
     try {
       channel.socket.setSoTimeout(socketTimeout);
       connection.data.lastCommandReceived = -1;
@@ -414,7 +432,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
       }
 
       channel.socket.setSoTimeout(socketTimeout);
-      connection.data.lastCommandReceived = Orient.instance().getProfiler().startChrono();
+      connection.data.lastCommandReceived = System.currentTimeMillis();
+      timer = Orient.instance().getProfiler().startChrono();
 
       requestContent.setLength(0);
       request.isMultipart = false;
@@ -487,14 +506,11 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
       readAllContent(request);
     } finally {
-      if (connection.data.lastCommandReceived > -1)
-        Orient
-            .instance()
-            .getProfiler()
-            .stopChrono("server.http." + listeningAddress + ".requests", "Execution of HTTP request",
-                connection.data.lastCommandReceived);
-      Orient.instance().getProfiler()
-          .stopChrono("server.network.requests", "Total received requests", connection.data.lastCommandReceived);
+      if (timer > -1) {
+        Orient.instance().getProfiler()
+            .stopChrono("server.http." + listeningAddress + ".requests", "Execution of HTTP request", timer);
+        Orient.instance().getProfiler().stopChrono("server.network.requests", "Total received requests", timer);
+      }
     }
   }
 
@@ -543,10 +559,54 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     return channel;
   }
 
+  /**
+   * Keep-alive connections waiting in a selector are closed after the socket timeout like the ones served by their own thread.
+   */
+  @Override
+  public int getIdleTimeout() {
+    return socketTimeout;
+  }
+
   public OUser getAccount() {
     return account;
   }
 
+  /**
+   * Tells if gzip is listed in the Accept-Encoding header, or matched by "*", and not refused with a zero quality value.
+   */
+  static boolean acceptsGzip(final String iAcceptEncoding) {
+    if (iAcceptEncoding == null)
+      return false;
+
+    boolean wildcard = false;
+    for (String coding : iAcceptEncoding.split(",")) {
+      final String[] parts = coding.split(";");
+      final String name = parts[0].trim();
+      if (name.equalsIgnoreCase(OHttpUtils.CONTENT_ENCODING_GZIP))
+        // LISTED: ITS QUALITY WINS OVER THE WILDCARD
+        return getQuality(parts) > 0;
+      if (name.equals("*"))
+        wildcard = getQuality(parts) > 0;
+    }
+    return wildcard;
+  }
+
+  /**
+   * Returns the "q" parameter of a content coding, 1 if not present and 0 if not valid.
+   */
+  private static float getQuality(final String[] iParts) {
+    for (int i = 1; i < iParts.length; ++i) {
+      final String[] param = iParts[i].split("=");
+      if (param.length == 2 && param[0].trim().equalsIgnoreCase("q"))
+        try {
+          return Float.parseFloat(param[1].trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+    }
+    return 1;
+  }
+
   private String getCommandString(final String command) {
     final int getQueryPosition = command.indexOf('?');
 
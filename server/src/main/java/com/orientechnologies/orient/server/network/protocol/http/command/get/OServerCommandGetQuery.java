@@ -15,12 +15,10 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http.command.get;
 
-import java.util.List;
-
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
-import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
-import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpRecordStream;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpResponse;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
@@ -29,7 +27,6 @@ public class OServerCommandGetQuery extends OServerCommandAuthenticatedDbAbstrac
   private static final String[] NAMES = { "GET|query/*" };
 
   @Override
-  @SuppressWarnings("unchecked")
   public boolean execute(final OHttpRequest iRequest, OHttpResponse iResponse) throws Exception {
     String[] urlParts = checkSyntax(
         iRequest.url,
@@ -47,15 +44,13 @@ public class OServerCommandGetQuery extends OServerCommandAuthenticatedDbAbstrac
 
     ODatabaseDocumentTx db = null;
 
-    final List<OIdentifiable> response;
-
     try {
       db = getProfiledDatabaseInstance(iRequest);
 
-      response = (List<OIdentifiable>) db.command(new OSQLSynchQuery<ORecordSchemaAware<?>>(text, limit).setFetchPlan(fetchPlan))
-          .execute();
-
-      iResponse.writeRecords(response, fetchPlan);
+      // SEND THE RECORDS WHILE THE QUERY PRODUCES THEM
+      final OHttpRecordStream stream = new OHttpRecordStream(iResponse, fetchPlan, null);
+      db.command(new OSQLAsynchQuery<ORecordSchemaAware<?>>(text, limit, stream).setFetchPlan(fetchPlan)).execute();
+      stream.close();
 
     } finally {
       if (db != null)
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+@Test
+public class OBatchLoadProtocolTest {
+  private static final String URL     = "remote:localhost/batchLoadTest";
+  private static final int    RECORDS = OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH + 500;
+
+  private OServer             server;
+  private ODatabaseDocumentTx db;
+  private ODocument           tag;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    if (System.getProperty("ORIENTDB_HOME") == null)
+      System.setProperty("ORIENTDB_HOME", "target");
+
+    server = OServerMain.create();
+    server.startup(new File(getClass().getResource("server-config.xml").getFile()));
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    db = new ODatabaseDocumentTx(URL);
+    db.open("admin", "admin");
+
+    tag = new ODocument("Tag").field("name", "tag");
+    tag.save();
+    for (int i = 0; i < RECORDS; ++i)
+      new ODocument("Item").field("id", i).field("tag", tag).save();
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    if (db != null)
+      db.close();
+    if (server != null)
+      server.shutdown();
+  }
+
+  public void testBrowseClusterIsCapped() {
+    final int clusterId = db.getClusterIdByName("item");
+    final Map<ORecordId, ORawBuffer> page = getStorage().browseCluster(clusterId, OClusterPosition.INVALID_POSITION,
+        Integer.MAX_VALUE, true, null);
+
+    Assert.assertEquals(page.size(), OChannelBinaryProtocol.MAX_RECORDS_PER_BATCH);
+
+    // THE RECORDS ARE IN THE CLUSTER ORDER AND CARRY THEIR CONTENT
+    int expected = 0;
+    for (Map.Entry<ORecordId, ORawBuffer> entry : page.entrySet()) {
+      Assert.assertEquals(entry.getKey().getClusterId(), clusterId);
+      Assert.assertEquals(new ODocument().fromStream(entry.getValue().buffer).field("id"), expected++);
+    }
+  }
+
+  public void testBrowseClassReadsAllThePages() {
+    int total = 0;
+    for (ODocument doc : db.browseClass("Item")) {
+      Assert.assertEquals(doc.field("id"), total);
+      total++;
+    }
+    Assert.assertEquals(total, RECORDS);
+  }
+
+  public void testBrowseClusterAppliesTheFetchPlan() {
+    final int clusterId = db.getClusterIdByName("item");
+
+    // WITHOUT FETCH PLAN THE LINKED RECORD IS NOT SENT
+    db.getLevel1Cache().invalidate();
+    db.getStorage().getLevel2Cache().clear();
+    getStorage().browseCluster(clusterId, OClusterPosition.INVALID_POSITION, 10, true, null);
+    Assert.assertNull(db.getLevel1Cache().findRecord(tag.getIdentity()));
+
+    final Map<ORecordId, ORawBuffer> page = getStorage().browseCluster(clusterId, OClusterPosition.INVALID_POSITION, 10, true,
+        "*:1");
+
+    Assert.assertEquals(page.size(), 10);
+    // THE LINKED RECORD HAS BEEN SENT WITH THE PAGE
+    Assert.assertNotNull(db.getLevel1Cache().findRecord(tag.getIdentity()));
+  }
+
+  public void testReadRecordsSplitsTheRequest() {
+    final List<ORecordId> rids = new ArrayList<ORecordId>();
+    for (ODocument doc : db.browseCluster("item"))
+      rids.add((ORecordId) doc.getIdentity());
+
+    final Map<ORecordId, ORawBuffer> records = getStorage().readRecords(rids, false);
+
+    Assert.assertEquals(records.size(), RECORDS);
+    Assert.assertEquals(new ArrayList<ORecordId>(records.keySet()), rids);
+  }
+
+  private OStorageProxy getStorage() {
+    return (OStorageProxy) db.getStorage();
+  }
+}
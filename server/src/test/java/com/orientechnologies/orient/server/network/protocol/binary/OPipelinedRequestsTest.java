@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.client.remote.OStorageRemoteThread;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+@Test
+public class OPipelinedRequestsTest {
+  private static final String   URL     = "remote:localhost/pipelinedRequestsTest";
+  private static final int      RECORDS = 50;
+
+  private OServer               server;
+  private ODatabaseDocumentTx   db;
+  private final List<ORecordId> rids    = new ArrayList<ORecordId>();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    if (System.getProperty("ORIENTDB_HOME") == null)
+      System.setProperty("ORIENTDB_HOME", "target");
+
+    server = OServerMain.create();
+    server.startup(new File(getClass().getResource("server-config.xml").getFile()));
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    db = new ODatabaseDocumentTx(URL);
+    db.open("admin", "admin");
+
+    for (int i = 0; i < RECORDS; ++i)
+      rids.add((ORecordId) new ODocument("Item").field("id", i).save().getIdentity());
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    if (db != null)
+      db.close();
+    if (server != null)
+      server.shutdown();
+  }
+
+  public void testFailingRequestAmongSuccessfulOnes() throws Exception {
+    final List<Future<ORawBuffer>> reads = new ArrayList<Future<ORawBuffer>>();
+    Future<Object> failing = null;
+    for (int i = 0; i < RECORDS; ++i) {
+      reads.add(getStorage().readRecordAsync(rids.get(i), false));
+      if (i == RECORDS / 2)
+        failing = getStorage().commandAsync(new OCommandSQL("select from NotExistentClass"));
+    }
+
+    for (int i = 0; i < RECORDS; ++i)
+      Assert.assertEquals(new ODocument().fromStream(reads.get(i).get(10, TimeUnit.SECONDS).buffer).field("id"), i);
+
+    try {
+      failing.get(10, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      // EXPECTED
+    }
+
+    // THE SESSION IS STILL USABLE
+    assertReadsSynchronously();
+  }
+
+  public void testCancelledRequestsAreDrained() throws Exception {
+    final List<Future<ORawBuffer>> reads = new ArrayList<Future<ORawBuffer>>();
+    for (int i = 0; i < RECORDS; ++i)
+      reads.add(getStorage().readRecordAsync(rids.get(i), false));
+
+    // THE LAST RESPONSES ARE CANCELLED BEFORE BEING READ
+    for (int i = RECORDS - 1; i >= RECORDS / 2; --i)
+      reads.get(i).cancel(false);
+
+    for (int i = 0; i < RECORDS; ++i)
+      if (!reads.get(i).isCancelled())
+        Assert.assertEquals(new ODocument().fromStream(reads.get(i).get(10, TimeUnit.SECONDS).buffer).field("id"), i);
+
+    // THE RESPONSES AFTER THE CANCELLED ONES CAN STILL BE READ
+    assertReadsSynchronously();
+  }
+
+  private void assertReadsSynchronously() {
+    final long start = System.currentTimeMillis();
+    for (int i = 0; i < RECORDS; ++i)
+      Assert.assertEquals(new ODocument().fromStream(getStorage().readRecord(rids.get(i), null, false, null).getResult().buffer)
+          .field("id"), i);
+    Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  private OStorageRemoteThread getStorage() {
+    return (OStorageRemoteThread) db.getStorage();
+  }
+}
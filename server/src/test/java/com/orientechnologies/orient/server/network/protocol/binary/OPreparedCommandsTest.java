@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.enterprise.channel.binary.OPreparedCommandNotFoundException;
+
+@Test
+public class OPreparedCommandsTest {
+
+  public void testSameTextSameId() {
+    final OPreparedCommands commands = new OPreparedCommands();
+    final int id = commands.prepare("select from V where name = ?");
+
+    Assert.assertEquals(commands.prepare("select from V where name = ?"), id);
+    Assert.assertEquals(commands.getText(id), "select from V where name = ?");
+    Assert.assertTrue(commands.prepare("select from E where name = ?") != id);
+    Assert.assertEquals(commands.size(), 2);
+  }
+
+  public void testConnectionsDontShareCommands() {
+    final OPreparedCommands first = new OPreparedCommands();
+    final OPreparedCommands second = new OPreparedCommands();
+
+    first.prepare("select from V where name = ?");
+    final int id = first.prepare("select from E where name = ?");
+
+    try {
+      second.getText(id);
+      Assert.fail();
+    } catch (OPreparedCommandNotFoundException e) {
+    }
+  }
+
+  public void testLeastRecentlyUsedIsEvicted() {
+    final OPreparedCommands commands = new OPreparedCommands();
+    final int first = commands.prepare("select from V where id = ?");
+    final int second = commands.prepare("select from E where id = ?");
+    for (int i = 2; i < OPreparedCommands.MAX_COMMANDS; ++i)
+      commands.prepare("select from V where id = ? and n = " + i);
+
+    // USING THE FIRST MAKES THE SECOND THE LEAST RECENTLY USED
+    Assert.assertEquals(commands.getText(first), "select from V where id = ?");
+    commands.prepare("select from V where id = ? and n = " + OPreparedCommands.MAX_COMMANDS);
+
+    Assert.assertEquals(commands.size(), OPreparedCommands.MAX_COMMANDS);
+    Assert.assertEquals(commands.getText(first), "select from V where id = ?");
+    try {
+      commands.getText(second);
+      Assert.fail();
+    } catch (OPreparedCommandNotFoundException e) {
+    }
+
+    // THE EVICTED ID IS NOT REUSED: THE TEXT GETS A NEW ONE
+    final int again = commands.prepare("select from E where id = ?");
+    Assert.assertTrue(again != second);
+    Assert.assertEquals(commands.getText(again), "select from E where id = ?");
+  }
+}
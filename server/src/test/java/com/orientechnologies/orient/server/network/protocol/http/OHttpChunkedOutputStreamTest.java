@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OHttpChunkedOutputStreamTest {
+
+  public void testChunkFraming() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final OHttpChunkedOutputStream chunked = new OHttpChunkedOutputStream(out, 16);
+
+    chunked.write("0123456789".getBytes("UTF-8"));
+    // NOTHING IS SENT UNTIL THE CHUNK IS FULL
+    Assert.assertEquals(out.size(), 0);
+
+    chunked.write("abcdefghijklmnopqrstuvwxyz".getBytes("UTF-8"));
+    chunked.write('!');
+    chunked.close();
+
+    Assert.assertEquals(out.toString("UTF-8"), "10\r\n0123456789abcdef\r\n10\r\nghijklmnopqrstuv\r\n5\r\nwxyz!\r\n0\r\n\r\n");
+  }
+
+  public void testFlushSendsAChunk() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final OHttpChunkedOutputStream chunked = new OHttpChunkedOutputStream(out, 16);
+
+    chunked.write("abc".getBytes("UTF-8"));
+    chunked.flush();
+    Assert.assertEquals(out.toString("UTF-8"), "3\r\nabc\r\n");
+
+    // NO EMPTY CHUNK: IT WOULD END THE RESPONSE
+    chunked.flush();
+    Assert.assertEquals(out.toString("UTF-8"), "3\r\nabc\r\n");
+  }
+
+  public void testLastChunkIsSentOnce() throws IOException {
+    final OCloseTrackingOutputStream out = new OCloseTrackingOutputStream();
+    final OHttpChunkedOutputStream chunked = new OHttpChunkedOutputStream(out, 16);
+
+    chunked.close();
+    chunked.close();
+
+    Assert.assertEquals(out.toString("UTF-8"), "0\r\n\r\n");
+    // THE CONNECTION STAYS OPEN FOR THE NEXT REQUEST
+    Assert.assertFalse(out.closed);
+  }
+
+  private static class OCloseTrackingOutputStream extends ByteArrayOutputStream {
+    private boolean closed;
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+}
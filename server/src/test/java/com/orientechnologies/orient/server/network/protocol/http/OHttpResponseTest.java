@@ -0,0 +1,205 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OHttpResponseTest {
+  private static final int RECORDS = 2000;
+
+  public void testRecordsAreChunked() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeRecords(newResponse(out, OHttpUtils.HTTP_VERSION_11, null, false));
+
+    final OParsedResponse parsed = new OParsedResponse(out.toByteArray());
+    Assert.assertEquals(parsed.status, "HTTP/1.1 200 OK");
+    Assert.assertEquals(parsed.header("Transfer-Encoding"), "chunked");
+    Assert.assertNull(parsed.header("Content-Length"));
+    Assert.assertNull(parsed.header("Content-Encoding"));
+    Assert.assertNull(parsed.header("Vary"));
+    assertRecords(new String(parsed.dechunk(), "UTF-8"));
+  }
+
+  public void testGzipOverChunked() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeRecords(newResponse(out, OHttpUtils.HTTP_VERSION_11, OHttpUtils.CONTENT_ENCODING_GZIP, true));
+
+    final OParsedResponse parsed = new OParsedResponse(out.toByteArray());
+    Assert.assertEquals(parsed.header("Transfer-Encoding"), "chunked");
+    Assert.assertEquals(parsed.header("Content-Encoding"), "gzip");
+    Assert.assertEquals(parsed.header("Vary"), "Accept-Encoding");
+    assertRecords(gunzip(parsed.dechunk()));
+  }
+
+  public void testHttp10IsNotChunked() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeRecords(newResponse(out, "HTTP/1.0", null, false));
+
+    final OParsedResponse parsed = new OParsedResponse(out.toByteArray());
+    Assert.assertEquals(parsed.status, "HTTP/1.0 200 OK");
+    Assert.assertNull(parsed.header("Transfer-Encoding"));
+    Assert.assertEquals(Integer.parseInt(parsed.header("Content-Length")), parsed.body.length);
+    assertRecords(new String(parsed.body, "UTF-8"));
+  }
+
+  public void testHttp10WithGzip() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeRecords(newResponse(out, "HTTP/1.0", OHttpUtils.CONTENT_ENCODING_GZIP, true));
+
+    final OParsedResponse parsed = new OParsedResponse(out.toByteArray());
+    Assert.assertNull(parsed.header("Transfer-Encoding"));
+    Assert.assertEquals(parsed.header("Content-Encoding"), "gzip");
+    Assert.assertEquals(parsed.header("Vary"), "Accept-Encoding");
+    Assert.assertEquals(Integer.parseInt(parsed.header("Content-Length")), parsed.body.length);
+    assertRecords(gunzip(parsed.body));
+  }
+
+  public void testVary() throws IOException {
+    // THE CLIENT DOESN'T ACCEPT GZIP: THE RESPONSE STILL DEPENDS ON ACCEPT-ENCODING
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    newResponse(out, OHttpUtils.HTTP_VERSION_11, null, true).send(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_TEXT_PLAIN,
+        content(OHttpResponse.GZIP_MIN_SIZE), null);
+    OParsedResponse parsed = new OParsedResponse(out.toByteArray());
+    Assert.assertEquals(parsed.header("Vary"), "Accept-Encoding");
+    Assert.assertNull(parsed.header("Content-Encoding"));
+
+    // TOO SMALL TO BE COMPRESSED
+    out = new ByteArrayOutputStream();
+    newResponse(out, OHttpUtils.HTTP_VERSION_11, OHttpUtils.CONTENT_ENCODING_GZIP, true).send(OHttpUtils.STATUS_OK_CODE, "OK",
+        OHttpUtils.CONTENT_TEXT_PLAIN, content(OHttpResponse.GZIP_MIN_SIZE - 1), null);
+    parsed = new OParsedResponse(out.toByteArray());
+    Assert.assertNull(parsed.header("Vary"));
+    Assert.assertNull(parsed.header("Content-Encoding"));
+    Assert.assertEquals(new String(parsed.body, "UTF-8"), content(OHttpResponse.GZIP_MIN_SIZE - 1));
+
+    // GZIP DISABLED ON THE SERVER
+    out = new ByteArrayOutputStream();
+    newResponse(out, OHttpUtils.HTTP_VERSION_11, null, false).send(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_TEXT_PLAIN,
+        content(OHttpResponse.GZIP_MIN_SIZE), null);
+    Assert.assertNull(new OParsedResponse(out.toByteArray()).header("Vary"));
+  }
+
+  static OHttpResponse newResponse(final ByteArrayOutputStream iOut, final String iHttpVersion, final String iContentEncoding,
+      final boolean iGzipEnabled) {
+    return new OHttpResponse(iOut, iHttpVersion, null, "utf-8", "OrientDB Server", null, null, iContentEncoding, iGzipEnabled, true);
+  }
+
+  private static void writeRecords(final OHttpResponse iResponse) throws IOException {
+    final OHttpRecordStream stream = new OHttpRecordStream(iResponse, null, null);
+    for (int i = 0; i < RECORDS; i++)
+      stream.write("record-" + i);
+    stream.close();
+  }
+
+  private static void assertRecords(final String iContent) {
+    final String content = iContent.trim();
+    Assert.assertTrue(content.startsWith("{"));
+    Assert.assertTrue(content.endsWith("}"));
+    int from = 0;
+    for (int i = 0; i < RECORDS; i++) {
+      from = content.indexOf("\"record-" + i + "\"", from);
+      Assert.assertTrue(from > -1, "record-" + i + " not found in the response");
+    }
+  }
+
+  private static String content(final int iSize) {
+    final StringBuilder content = new StringBuilder(iSize);
+    for (int i = 0; i < iSize; i++)
+      content.append((char) ('a' + i % 26));
+    return content.toString();
+  }
+
+  private static String gunzip(final byte[] iContent) throws IOException {
+    final InputStream in = new GZIPInputStream(new ByteArrayInputStream(iContent));
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[1024];
+    for (int read; (read = in.read(buffer)) > -1;)
+      out.write(buffer, 0, read);
+    in.close();
+    return out.toString("UTF-8");
+  }
+
+  /**
+   * Splits a raw HTTP response in status line, headers and body.
+   */
+  static class OParsedResponse {
+    final String   status;
+    final String[] headers;
+    final byte[]   body;
+
+    OParsedResponse(final byte[] iResponse) throws IOException {
+      final String raw = new String(iResponse, "ISO-8859-1");
+      final int end = raw.indexOf("\r\n\r\n");
+      Assert.assertTrue(end > -1, "Headers not terminated");
+
+      final String[] lines = raw.substring(0, end).split("\r\n");
+      status = lines[0];
+      headers = new String[lines.length - 1];
+      System.arraycopy(lines, 1, headers, 0, headers.length);
+
+      body = new byte[iResponse.length - end - 4];
+      System.arraycopy(iResponse, end + 4, body, 0, body.length);
+    }
+
+    String header(final String iName) {
+      for (String h : headers)
+        if (h.startsWith(iName + ": "))
+          return h.substring(iName.length() + 2);
+      return null;
+    }
+
+    /**
+     * Decodes the chunked body, checking the framing and that it ends with the last chunk.
+     */
+    byte[] dechunk() throws IOException {
+      final ByteArrayOutputStream content = new ByteArrayOutputStream();
+      int pos = 0;
+      while (true) {
+        final int eol = indexOfEol(pos);
+        Assert.assertTrue(eol > -1, "Chunk size not terminated");
+        final int size = Integer.parseInt(new String(body, pos, eol - pos, "ISO-8859-1"), 16);
+        pos = eol + 2;
+
+        Assert.assertTrue(pos + size + 2 <= body.length, "Chunk truncated");
+        content.write(body, pos, size);
+        pos += size;
+        Assert.assertEquals(body[pos], (byte) '\r');
+        Assert.assertEquals(body[pos + 1], (byte) '\n');
+        pos += 2;
+
+        if (size == 0)
+          break;
+      }
+      Assert.assertEquals(pos, body.length, "Content after the last chunk");
+      return content.toByteArray();
+    }
+
+    private int indexOfEol(final int iFrom) {
+      for (int i = iFrom; i < body.length - 1; i++)
+        if (body[i] == '\r' && body[i + 1] == '\n')
+          return i;
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.server.OClientConnection;
+
+@Test
+public class ONetworkProtocolHttpAbstractTest {
+
+  public void testAcceptsGzip() {
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip(null));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip(""));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("identity"));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("deflate"));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("x-gzip-like"));
+
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("gzip"));
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("GZIP"));
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("gzip, deflate"));
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("deflate, gzip;q=0.5"));
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("deflate , gzip ; Q = 0.001"));
+  }
+
+  public void testAcceptsGzipZeroQuality() {
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("gzip;q=0"));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("gzip;q=0.0"));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("gzip; q=0.000, deflate"));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("gzip;q=invalid"));
+  }
+
+  public void testAcceptsGzipWildcard() {
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("*"));
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("deflate, *;q=0.1"));
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("*;q=0"));
+
+    // THE CODING LISTED WINS OVER THE WILDCARD
+    Assert.assertFalse(ONetworkProtocolHttpAbstract.acceptsGzip("*, gzip;q=0"));
+    Assert.assertTrue(ONetworkProtocolHttpAbstract.acceptsGzip("gzip, *;q=0"));
+  }
+
+  public void testErrorAfterHeadersClosesTheConnection() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final OTestProtocol protocol = new OTestProtocol();
+    protocol.response = OHttpResponseTest.newResponse(out, OHttpUtils.HTTP_VERSION_11, null, false);
+
+    final OHttpRecordStream stream = new OHttpRecordStream(protocol.response, null, null);
+    stream.write("record-0");
+    Assert.assertTrue(protocol.response.isChunked());
+
+    protocol.handleError(new RuntimeException("Error while browsing the records"));
+
+    Assert.assertTrue(protocol.shutdown);
+
+    final OHttpResponseTest.OParsedResponse parsed = new OHttpResponseTest.OParsedResponse(out.toByteArray());
+    Assert.assertEquals(parsed.status, "HTTP/1.1 200 OK");
+    // NO ERROR RESPONSE AFTER THE HEADERS ALREADY SENT AND NO LAST CHUNK: THE CLIENT SEES A TRUNCATED RESPONSE
+    final String body = new String(parsed.body, "ISO-8859-1");
+    Assert.assertEquals(body.indexOf("HTTP/1.1"), -1);
+    Assert.assertFalse(body.endsWith("0\r\n\r\n"));
+  }
+
+  /**
+   * Records the shutdown instead of closing a real socket.
+   */
+  private static class OTestProtocol extends ONetworkProtocolHttpAbstract {
+    private boolean shutdown;
+
+    private OTestProtocol() throws IOException {
+      connection = new OClientConnection(1, this);
+    }
+
+    @Override
+    public String getType() {
+      return "test";
+    }
+
+    @Override
+    public void sendShutdown() {
+      shutdown = true;
+    }
+  }
+}
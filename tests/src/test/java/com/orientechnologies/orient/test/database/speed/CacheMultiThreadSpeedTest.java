@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.cache.OCache;
+import com.orientechnologies.orient.core.cache.ODefaultCache;
+import com.orientechnologies.orient.core.cache.OSegmentedCache;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Reads random records from a full cache with an increasing number of threads and prints the cache hits per second per thread
+ * count, for every cache implementation. One operation every {@link #PUT_EVERY} replaces the record, as the level-2 cache does
+ * when a record is updated.
+ */
+@Test(enabled = false)
+public class CacheMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static final int								RECORDS		= 100000;
+	private static final int								PUT_EVERY	= 20;
+
+	private static Class<? extends OCache>	cacheClass;
+	private static OCache										cache;
+	private static ORecordId[]							rids;
+
+	public static void main(String[] iArgs) throws Exception {
+		final int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+		final int cycles = 10000000;
+
+		for (Class<? extends OCache> c : new Class[] { ODefaultCache.class, OSegmentedCache.class }) {
+			cacheClass = c;
+
+			final Map<Integer, Float> results = new LinkedHashMap<Integer, Float>();
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				final CacheMultiThreadSpeedTest test = new CacheMultiThreadSpeedTest(cycles, threads);
+
+				final long start = System.currentTimeMillis();
+				test.data.go(test);
+				final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+				results.put(threads, (float) cycles * 1000 / elapsed);
+			}
+
+			System.out.println("\nCache " + cacheClass.getSimpleName());
+			for (Map.Entry<Integer, Float> entry : results.entrySet())
+				System.out.println(String.format("Threads %3d: %10.0f operations/sec", entry.getKey(), entry.getValue()));
+		}
+	}
+
+	public CacheMultiThreadSpeedTest() {
+		this(10000000, Runtime.getRuntime().availableProcessors());
+	}
+
+	public CacheMultiThreadSpeedTest(final int iCycles, final int iThreads) {
+		super(iCycles, iThreads, ReaderThread.class);
+		if (cacheClass == null)
+			cacheClass = OSegmentedCache.class;
+	}
+
+	@Override
+	public void init() throws Exception {
+		cache = cacheClass.getConstructor(String.class, int.class).newInstance(null, RECORDS);
+		cache.enable();
+
+		rids = new ORecordId[RECORDS];
+		for (int i = 0; i < RECORDS; ++i) {
+			rids[i] = new ORecordId(i % 10, OClusterPositionFactory.INSTANCE.valueOf(i));
+			cache.put(new ODocument(rids[i]));
+		}
+	}
+
+	@Test(enabled = false)
+	public static class ReaderThread extends OrientThreadTest {
+		private final Random	random	= new Random();
+		private int						operations;
+
+		public void cycle() {
+			final ORecordId rid = rids[random.nextInt(RECORDS)];
+
+			if (++operations % PUT_EVERY == 0)
+				cache.put(new ODocument(rid));
+			else
+				Assert.assertNotNull(cache.get(rid));
+		}
+	}
+
+	@Override
+	public void deinit() {
+		Assert.assertEquals(cache.size(), RECORDS);
+		cache.disable();
+	}
+}
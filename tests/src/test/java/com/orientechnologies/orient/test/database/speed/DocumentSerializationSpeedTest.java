@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.test.database.base.OrientMonoThreadTest;
+
+/**
+ * Serializes and deserializes the same document with the CSV and the binary record serializers and prints the round trips per
+ * second and the size of the serialized record.
+ */
+@Test(enabled = false)
+public class DocumentSerializationSpeedTest extends OrientMonoThreadTest {
+	private final ORecordSerializer	serializer;
+	private ODatabaseDocumentTx			database;
+	private ODocument								record;
+	private int											size;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		final int cycles = 1000000;
+
+		final Map<String, String> results = new LinkedHashMap<String, String>();
+		for (ORecordSerializer serializer : new ORecordSerializer[] { ORecordSerializerSchemaAware2CSV.INSTANCE,
+				ORecordSerializerSchemaAware2Binary.INSTANCE }) {
+			final DocumentSerializationSpeedTest test = new DocumentSerializationSpeedTest(cycles, serializer);
+
+			final long start = System.currentTimeMillis();
+			test.data.go(test);
+			final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+			results.put(serializer.toString(), (test.data.getCyclesDone() * 1000 / elapsed) + " round trips/sec, " + test.size
+					+ " bytes");
+		}
+
+		for (Map.Entry<String, String> result : results.entrySet())
+			System.out.println(result.getKey() + ": " + result.getValue());
+	}
+
+	public DocumentSerializationSpeedTest(final int iCycles, final ORecordSerializer iSerializer) {
+		super(iCycles);
+		serializer = iSerializer;
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx("memory:serializationSpeedTest").create();
+
+		final OClass account = database.getMetadata().getSchema().createClass("Account");
+		account.createProperty("id", OType.INTEGER);
+		account.createProperty("name", OType.STRING);
+		account.createProperty("surname", OType.STRING);
+		account.createProperty("birthDate", OType.DATE);
+		account.createProperty("salary", OType.FLOAT);
+
+		record = new ODocument("Account");
+		record.field("id", 1000);
+		record.field("name", "Luca");
+		record.field("surname", "Garulli");
+		record.field("birthDate", new Date());
+		record.field("salary", 3000.5f);
+		record.field("location", "Rome");
+	}
+
+	@Override
+	public void cycle() {
+		final byte[] stream = serializer.toStream(record, false);
+		size = stream.length;
+		serializer.fromStream(stream, new ODocument(), null);
+	}
+
+	@Override
+	public void deinit() {
+		if (database != null)
+			database.drop();
+		super.deinit();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Runs shortestPath() and dijkstra() between random vertices of a synthetic graph. Every vertex has an edge to the next one, so
+ * all the vertices are connected, plus random edges to any vertex. All the edges have a random "weight" field.
+ * <ul>
+ * <li>-Durl=memory:pathFinder database to use: it's created and filled if it doesn't exist</li>
+ * <li>-Dvertices=1000000 vertices of the graph</li>
+ * <li>-Dedges=3 random edges per vertex in addition to the edge to the next vertex</li>
+ * <li>-Dsearches=20 searches per function</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class GraphPathFinderSpeedTest {
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "memory:pathFinder");
+    final int vertices = Integer.parseInt(System.getProperty("vertices", "1000000"));
+    final int edges = Integer.parseInt(System.getProperty("edges", "3"));
+    final int searches = Integer.parseInt(System.getProperty("searches", "20"));
+
+    final Random random = new Random(1);
+
+    OGraphDatabase database = new OGraphDatabase(url);
+    if (database.exists())
+      database.open("admin", "admin");
+    else {
+      database.create();
+
+      long start = System.currentTimeMillis();
+      final ORID[] rids = new ORID[vertices];
+      for (int i = 0; i < vertices; ++i)
+        rids[i] = database.createVertex().field("id", i).save().getIdentity();
+
+      for (int i = 0; i < vertices; ++i) {
+        final ODocument vertex = database.load(rids[i]);
+        database.createEdge(vertex, (ODocument) database.load(rids[(i + 1) % vertices])).field("weight", 1 + random.nextInt(100))
+            .save();
+        for (int e = 0; e < edges; ++e)
+          database.createEdge(vertex, (ODocument) database.load(rids[random.nextInt(vertices)]))
+              .field("weight", 1 + random.nextInt(100)).save();
+
+        if (i % 10000 == 0)
+          database.getLevel1Cache().clear();
+      }
+
+      System.out.println("Created " + vertices + " vertices and " + vertices * (edges + 1) + " edges in "
+          + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    final int clusterId = database.getVertexBaseClass().getDefaultClusterId();
+    final long total = database.countClusterElements(clusterId);
+
+    for (String function : new String[] { "shortestPath(%s, %s)", "shortestPath(%s, %s, 'both')", "dijkstra(%s, %s, 'weight')" }) {
+      long elapsed = 0;
+      long hops = 0;
+      int found = 0;
+      for (int i = 0; i < searches; ++i) {
+        final String source = "#" + clusterId + ":" + random.nextInt((int) total);
+        final String destination = "#" + clusterId + ":" + random.nextInt((int) total);
+
+        database.getLevel1Cache().clear();
+        final long start = System.currentTimeMillis();
+        final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select "
+            + String.format(function, source, destination) + " as path from " + source));
+        elapsed += System.currentTimeMillis() - start;
+
+        final List<?> path = result.isEmpty() ? null : (List<?>) result.get(0).field("path");
+        if (path != null) {
+          found++;
+          hops += path.size() - 1;
+        }
+      }
+
+      System.out.println(String.format(function, "a", "b") + ": " + searches + " searches in " + elapsed + "ms, avg "
+          + (elapsed / searches) + "ms, " + found + " paths found, avg " + (found > 0 ? hops / found : 0) + " hops");
+    }
+
+    database.close();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Compares the point lookups of a UNIQUE index (MVRB-Tree) and a UNIQUE_HASH index (linear hashing) on the same field.
+ * <ul>
+ * <li>-Durl=memory:hashIndexLookup database to use: it's created and filled if it doesn't exist</li>
+ * <li>-Drecords=1000000 records created in the class "Account"</li>
+ * <li>-Dlookups=1000000 random keys looked up in every index</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class HashIndexLookupSpeedTest {
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "memory:hashIndexLookup");
+    final int records = Integer.parseInt(System.getProperty("records", "1000000"));
+    final int lookups = Integer.parseInt(System.getProperty("lookups", "1000000"));
+
+    ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+    if (database.exists())
+      database.open("admin", "admin");
+    else {
+      database.create();
+      final OClass account = database.getMetadata().getSchema().createClass("Account");
+      account.createProperty("id", OType.LONG);
+      account.createProperty("code", OType.LONG);
+
+      for (long i = 0; i < records; ++i)
+        new ODocument(account).field("id", i).field("code", i).save();
+    }
+
+    try {
+      final OClass account = database.getMetadata().getSchema().getClass("Account");
+      OIndex<?> treeIndex = database.getMetadata().getIndexManager().getIndex("Account.id");
+      if (treeIndex == null)
+        treeIndex = account.createIndex("Account.id", OClass.INDEX_TYPE.UNIQUE, "id");
+      OIndex<?> hashIndex = database.getMetadata().getIndexManager().getIndex("Account.code");
+      if (hashIndex == null)
+        hashIndex = account.createIndex("Account.code", OClass.INDEX_TYPE.UNIQUE_HASH, "code");
+
+      System.out.println(String.format("%-14s %-14s %12s %14s", "index", "type", "lookups (ms)", "lookups/sec"));
+      for (int run = 0; run < 3; ++run)
+        for (OIndex<?> index : new OIndex<?>[] { treeIndex, hashIndex }) {
+          final long elapsed = lookup(index, records, lookups);
+          System.out.println(String.format("%-14s %-14s %12d %14d", index.getName(), index.getType(), elapsed, elapsed > 0 ? lookups
+              * 1000L / elapsed : 0));
+        }
+    } finally {
+      database.close();
+    }
+  }
+
+  /**
+   * Returns the time to look up random existing keys, in milliseconds.
+   */
+  private static long lookup(final OIndex<?> iIndex, final int iRecords, final int iLookups) {
+    // SAME KEYS FOR EVERY INDEX
+    final Random random = new Random(42);
+
+    final long start = System.currentTimeMillis();
+    for (int i = 0; i < iLookups; ++i)
+      if (iIndex.get((long) random.nextInt(iRecords)) == null)
+        throw new IllegalStateException("Key not found in index " + iIndex.getName());
+    return System.currentTimeMillis() - start;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Measures the time to rebuild a UNIQUE and a NOTUNIQUE index inserting one key at a time and with the bulk build from the sorted
+ * keys (index.bulkBuild).
+ * <ul>
+ * <li>-Durl=memory:indexRebuild database to use: it's created and filled if it doesn't exist</li>
+ * <li>-Drecords=1000000 records created in the class "Account"</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class IndexRebuildSpeedTest {
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "memory:indexRebuild");
+    final int records = Integer.parseInt(System.getProperty("records", "1000000"));
+
+    ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+    if (database.exists())
+      database.open("admin", "admin");
+    else {
+      database.create();
+      final OClass account = database.getMetadata().getSchema().createClass("Account");
+      account.createProperty("id", OType.LONG);
+      account.createProperty("city", OType.STRING);
+
+      for (long i = 0; i < records; ++i)
+        // IDS NOT IN INSERTION ORDER
+        new ODocument(account).field("id", (i * 7919) % records).field("city", "city-" + (i % 1000)).save();
+    }
+
+    try {
+      final OClass account = database.getMetadata().getSchema().getClass("Account");
+      OIndex<?> idIndex = database.getMetadata().getIndexManager().getIndex("Account.id");
+      if (idIndex == null)
+        idIndex = account.createIndex("Account.id", OClass.INDEX_TYPE.UNIQUE, "id");
+      OIndex<?> cityIndex = database.getMetadata().getIndexManager().getIndex("Account.city");
+      if (cityIndex == null)
+        cityIndex = account.createIndex("Account.city", OClass.INDEX_TYPE.NOTUNIQUE, "city");
+
+      System.out.println(String.format("%-14s %12s %12s", "index", "insert (ms)", "bulk (ms)"));
+      for (OIndex<?> index : new OIndex<?>[] { idIndex, cityIndex }) {
+        final long inserted = rebuild(index, false);
+        final long bulk = rebuild(index, true);
+        System.out.println(String.format("%-14s %12d %12d", index.getName(), inserted, bulk));
+      }
+    } finally {
+      OGlobalConfiguration.INDEX_BULK_BUILD.setValue(true);
+      database.close();
+    }
+  }
+
+  /**
+   * Returns the time to rebuild the index, in milliseconds.
+   */
+  private static long rebuild(final OIndex<?> iIndex, final boolean iBulk) {
+    OGlobalConfiguration.INDEX_BULK_BUILD.setValue(iBulk);
+
+    final long start = System.currentTimeMillis();
+    iIndex.rebuild();
+    return System.currentTimeMillis() - start;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransaction.TXTYPE;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Creates documents from multiple threads, every thread against its own class (and therefore its own cluster). Run it with
+ * -Dstorage.segmentLocking=true and false to compare the throughput per thread count of the two locking modes.
+ */
+@Test(enabled = false)
+public class LocalCreateDocumentMultiClusterSpeedTest extends LocalCreateDocumentMultiThreadSpeedTest {
+	private static final String					CLASS_PREFIX	= "Account";
+	private static final AtomicInteger	threadIds			= new AtomicInteger();
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		// System.setProperty("url", "local:C:/temp/databases/multicluster");
+		final int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+		final int cycles = 200000;
+
+		final Map<Integer, Float> results = new LinkedHashMap<Integer, Float>();
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			final LocalCreateDocumentMultiClusterSpeedTest test = new LocalCreateDocumentMultiClusterSpeedTest(cycles, threads);
+
+			final long start = System.currentTimeMillis();
+			test.data.go(test);
+			final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+			results.put(threads, (float) cycles * 1000 / elapsed);
+		}
+
+		System.out.println("\nSegment locking: " + OGlobalConfiguration.STORAGE_SEGMENT_LOCKING.getValueAsBoolean());
+		for (Map.Entry<Integer, Float> entry : results.entrySet())
+			System.out.println(String.format("Threads %3d: %10.0f records/sec", entry.getKey(), entry.getValue()));
+	}
+
+	public LocalCreateDocumentMultiClusterSpeedTest() {
+		this(1000000, Runtime.getRuntime().availableProcessors());
+	}
+
+	public LocalCreateDocumentMultiClusterSpeedTest(final int iCycles, final int iThreads) {
+		super(iCycles, iThreads, CreateObjectsThread.class);
+	}
+
+	@Override
+	public void init() {
+		super.init();
+
+		for (int i = 0; i < threads; ++i)
+			database.getMetadata().getSchema().createClass(CLASS_PREFIX + i);
+
+		threadIds.set(0);
+	}
+
+	@Test(enabled = false)
+	public static class CreateObjectsThread extends OrientThreadTest {
+		private ODatabaseDocument	database;
+		private ODocument					record;
+		private String						className;
+		private Date							date	= new Date();
+
+		@Override
+		public void init() {
+			className = CLASS_PREFIX + threadIds.getAndIncrement();
+
+			database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+			record = database.newInstance();
+			database.declareIntent(new OIntentMassiveInsert());
+			database.begin(TXTYPE.NOTX);
+		}
+
+		public void cycle() {
+			record.reset();
+
+			record.setClassName(className);
+			record.field("id", data.getCyclesDone());
+			record.field("name", "Luca");
+			record.field("surname", "Garulli");
+			record.field("birthDate", date);
+			record.field("salary", 3000f + data.getCyclesDone());
+
+			record.save();
+
+			if (data.getCyclesDone() == data.getCycles() - 1)
+				database.commit();
+		}
+
+		@Override
+		public void deinit() throws Exception {
+			if (database != null)
+				database.close();
+			super.deinit();
+		}
+	}
+
+	@Override
+	public void deinit() {
+		long total = 0;
+		for (int i = 0; i < threads; ++i)
+			total += database.countClass(CLASS_PREFIX + i);
+
+		System.out.println("\nTotal objects created with " + threads + " threads: " + total);
+		Assert.assertEquals(total, threadCycles / threads * threads);
+
+		if (database != null)
+			database.close();
+	}
+}
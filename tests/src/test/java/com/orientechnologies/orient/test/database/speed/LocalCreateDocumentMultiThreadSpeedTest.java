@@ -20,6 +20,7 @@ import java.util.Date;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.orientechnologies.common.test.SpeedTestThread;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
@@ -30,8 +31,8 @@ import com.orientechnologies.orient.test.database.base.OrientThreadTest;
 
 @Test(enabled = false)
 public class LocalCreateDocumentMultiThreadSpeedTest extends OrientMultiThreadTest {
-	private ODatabaseDocument	database;
-	private long							foundObjects;
+	protected ODatabaseDocument	database;
+	protected long							foundObjects;
 
 	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
 		// System.setProperty("url", "memory:test");
@@ -43,6 +44,11 @@ public class LocalCreateDocumentMultiThreadSpeedTest extends OrientMultiThreadTe
 		super(1000000, 200, CreateObjectsThread.class);
 	}
 
+	protected LocalCreateDocumentMultiThreadSpeedTest(final int iCycles, final int iThreads,
+			final Class<? extends SpeedTestThread> iThreadClass) {
+		super(iCycles, iThreads, iThreadClass);
+	}
+
 	@Override
 	public void init() {
 		database = new ODatabaseDocumentTx(System.getProperty("url"));
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OLongIntHashMap;
+import com.orientechnologies.common.collection.OLongObjectHashMap;
+
+/**
+ * Replays the bookkeeping of the local linear hashing cluster (OClusterLocalLHPEPS) for every record operation: look up the
+ * overflow chain length of the main bucket, load the main bucket and its overflow buckets through the per-thread bucket cache,
+ * update the chain length and clear the cache at the end of the operation. Compares HashMap with boxed keys to the primitive maps
+ * of com.orientechnologies.common.collection and prints the time and the bytes allocated for every operation (HotSpot only).
+ * <ul>
+ * <li>-Dbuckets=65536 main buckets</li>
+ * <li>-Doperations=5000000 operations per round</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class LongHashMapAllocationSpeedTest {
+  private static final int    ROUNDS = 5;
+  private static final Object BUCKET = new Object();
+
+  private interface OBookkeeping {
+    void operation(long iBucket, boolean iUpdate);
+  }
+
+  private static class OBoxedBookkeeping implements OBookkeeping {
+    private final Map<Long, Integer> chainLengths;
+    private final Map<Long, Object>  bucketCache = new HashMap<Long, Object>(32);
+
+    OBoxedBookkeeping(final Map<Long, Integer> iChainLengths) {
+      chainLengths = iChainLengths;
+    }
+
+    public void operation(final long iBucket, final boolean iUpdate) {
+      final Integer chainLength = chainLengths.get(iBucket);
+      final int length = chainLength == null ? 0 : chainLength;
+
+      for (long b = iBucket; b <= iBucket + length; ++b)
+        if (bucketCache.get(b) == null)
+          bucketCache.put(b, BUCKET);
+
+      if (iUpdate) {
+        if (length == 0)
+          chainLengths.put(iBucket, 1);
+        else
+          chainLengths.remove(iBucket);
+      }
+
+      bucketCache.clear();
+    }
+  }
+
+  private static class OPrimitiveBookkeeping implements OBookkeeping {
+    private final OLongIntHashMap            chainLengths;
+    private final OLongObjectHashMap<Object> bucketCache = new OLongObjectHashMap<Object>(32);
+
+    OPrimitiveBookkeeping(final OLongIntHashMap iChainLengths) {
+      chainLengths = iChainLengths;
+    }
+
+    public void operation(final long iBucket, final boolean iUpdate) {
+      final int length = chainLengths.get(iBucket, 0);
+
+      for (long b = iBucket; b <= iBucket + length; ++b)
+        if (bucketCache.get(b) == null)
+          bucketCache.put(b, BUCKET);
+
+      if (iUpdate) {
+        if (length == 0)
+          chainLengths.put(iBucket, 1);
+        else
+          chainLengths.remove(iBucket);
+      }
+
+      bucketCache.clear();
+    }
+  }
+
+  public static void main(String[] iArgs) {
+    final int buckets = Integer.parseInt(System.getProperty("buckets", "65536"));
+    final int operations = Integer.parseInt(System.getProperty("operations", "5000000"));
+
+    // ONE BUCKET OUT OF 8 HAS AN OVERFLOW CHAIN
+    final Map<Long, Integer> boxed = new HashMap<Long, Integer>(1024);
+    final OLongIntHashMap primitive = new OLongIntHashMap(1024);
+    for (long i = 0; i < buckets; i += 8) {
+      boxed.put(i, 1);
+      primitive.put(i, 1);
+    }
+
+    final Random random = new Random(0);
+    final long[] keys = new long[operations];
+    for (int i = 0; i < operations; ++i)
+      keys[i] = random.nextInt(buckets);
+
+    final OBookkeeping[] bookkeepings = { new OBoxedBookkeeping(boxed), new OPrimitiveBookkeeping(primitive) };
+    final String[] names = { "HashMap<Long, ?>", "OLong*HashMap" };
+
+    for (int round = 0; round < ROUNDS; ++round)
+      for (int i = 0; i < bookkeepings.length; ++i) {
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+
+        for (int op = 0; op < operations; ++op)
+          // INSERTS AND DELETES CHANGE THE CHAINS, LOOKUPS DON'T
+          bookkeepings[i].operation(keys[op], (op & 15) == 0);
+
+        final long elapsed = System.nanoTime() - start;
+        final long bytes = allocatedBytes() - startBytes;
+
+        System.out.println(String.format("Round %d %-18s %8.1f ns/op %8.1f bytes/op", round + 1, names[i], (double) elapsed
+            / operations, (double) bytes / operations));
+      }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread()
+        .getId());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.ORecordLockManager;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Locks and unlocks random RIDs against the record lock manager from an increasing number of threads and prints the lock/unlock
+ * pairs per second per thread count, for shared and exclusive locks. Use a small number of clusters and positions to measure the
+ * throughput when the threads contend the same records.
+ */
+@Test(enabled = false)
+public class RecordLockManagerMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static final int					CLUSTERS		= 8;
+	private static final int					POSITIONS		= 100000;
+
+	private static ORecordLockManager	lockManager;
+	private static LOCK								lockType;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		final int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+		final int cycles = 5000000;
+
+		for (LOCK type : LOCK.values()) {
+			lockType = type;
+
+			final Map<Integer, Float> results = new LinkedHashMap<Integer, Float>();
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				final RecordLockManagerMultiThreadSpeedTest test = new RecordLockManagerMultiThreadSpeedTest(cycles, threads);
+
+				final long start = System.currentTimeMillis();
+				test.data.go(test);
+				final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+				results.put(threads, (float) cycles * 1000 / elapsed);
+			}
+
+			System.out.println("\nLock type " + lockType);
+			for (Map.Entry<Integer, Float> entry : results.entrySet())
+				System.out.println(String.format("Threads %3d: %10.0f lock+unlock/sec", entry.getKey(), entry.getValue()));
+		}
+	}
+
+	public RecordLockManagerMultiThreadSpeedTest() {
+		this(5000000, Runtime.getRuntime().availableProcessors());
+	}
+
+	public RecordLockManagerMultiThreadSpeedTest(final int iCycles, final int iThreads) {
+		super(iCycles, iThreads, LockThread.class);
+		if (lockType == null)
+			lockType = LOCK.SHARED;
+	}
+
+	@Override
+	public void init() {
+		lockManager = new ORecordLockManager(OGlobalConfiguration.STORAGE_RECORD_LOCK_TIMEOUT.getValueAsInteger());
+	}
+
+	@Test(enabled = false)
+	public static class LockThread extends OrientThreadTest {
+		private final Random		random	= new Random();
+		private final ORecordId	rid			= new ORecordId();
+
+		public void cycle() {
+			rid.clusterId = random.nextInt(CLUSTERS);
+			rid.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(random.nextInt(POSITIONS));
+
+			lockManager.acquireLock(this, rid, lockType);
+			lockManager.releaseLock(this, rid, lockType);
+		}
+	}
+
+	@Override
+	public void deinit() {
+		// ALL THE LOCKS HAVE TO BE REMOVED AT THE END
+		Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+	}
+}
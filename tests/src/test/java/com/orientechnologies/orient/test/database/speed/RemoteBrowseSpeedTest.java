@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Browses the class "Account" of a remote database (by default remote:localhost/demo, change it with -Durl=...) with different
+ * prefetch sizes and prints the records read per second. Prefetch size 0 reads one record per request.
+ */
+@Test(enabled = false)
+public class RemoteBrowseSpeedTest {
+  private static final String CLASS_NAME = "Account";
+  private static final int    ROUNDS     = 5;
+
+  public static void main(String[] iArgs) {
+    final String url = System.getProperty("url", "remote:localhost/demo");
+
+    final Map<Integer, Float> results = new LinkedHashMap<Integer, Float>();
+    for (int prefetchSize : new int[] { 0, 10, 100, 1000 }) {
+      OGlobalConfiguration.CLIENT_PREFETCH_SIZE.setValue(prefetchSize);
+
+      final ODatabaseDocumentTx database = new ODatabaseDocumentTx(url).open("admin", "admin");
+      try {
+        long records = 0;
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; ++i) {
+          database.getLevel1Cache().clear();
+          for (ODocument doc : database.browseClass(CLASS_NAME)) {
+            doc.field("name");
+            records++;
+          }
+        }
+        final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+        results.put(prefetchSize, (float) records * 1000 / elapsed);
+      } finally {
+        database.close();
+      }
+    }
+
+    for (Map.Entry<Integer, Float> entry : results.entrySet())
+      System.out.println(String.format("Prefetch %5d: %10.0f records/sec", entry.getKey(), entry.getValue()));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+
+/**
+ * Opens more and more idle binary connections against a server and, at every step, measures the latency of the requests of an
+ * active client. Run it against a server with the listener in "thread" and in "selector" mode (parameter network.listener.mode).
+ * <ul>
+ * <li>-Durl=remote:localhost/demo database used by the active client</li>
+ * <li>-Dhost=localhost -Dport=2424 address of the binary listener</li>
+ * <li>-Dconnections=5000 idle connections opened at the last step</li>
+ * <li>-Djmx=localhost:9999 optional JMX address of the server (started with -Dcom.sun.management.jmxremote.port=9999) to print
+ * its threads and used heap</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class RemoteIdleConnectionsSpeedTest {
+  private static final int REQUESTS = 2000;
+
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "remote:localhost/demo");
+    final String host = System.getProperty("host", "localhost");
+    final int port = Integer.parseInt(System.getProperty("port", "2424"));
+    final int maxConnections = Integer.parseInt(System.getProperty("connections", "5000"));
+    final String jmx = System.getProperty("jmx");
+
+    MBeanServerConnection server = null;
+    if (jmx != null)
+      server = JMXConnectorFactory.connect(new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + jmx + "/jmxrmi"))
+          .getMBeanServerConnection();
+
+    final List<Socket> idle = new ArrayList<Socket>();
+    final ODatabaseDocumentTx database = new ODatabaseDocumentTx(url).open("admin", "admin");
+    try {
+      System.out.println(String.format("%12s %12s %12s %12s %12s", "connections", "avg (us)", "99% (us)", "threads", "heap (MB)"));
+
+      for (int step = 0; step <= maxConnections; step = step == 0 ? Math.min(500, maxConnections) : step * 2) {
+        while (idle.size() < step)
+          idle.add(openIdleConnection(host, port));
+
+        final long[] latencies = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; ++i) {
+          final long start = System.nanoTime();
+          database.countClusterElements(0);
+          latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        long total = 0;
+        for (long l : latencies)
+          total += l;
+
+        String threads = "-";
+        String heap = "-";
+        if (server != null) {
+          final MemoryMXBean memory = ManagementFactory.newPlatformMXBeanProxy(server, ManagementFactory.MEMORY_MXBEAN_NAME,
+              MemoryMXBean.class);
+          memory.gc();
+          heap = String.valueOf(memory.getHeapMemoryUsage().getUsed() / 1048576);
+          threads = String.valueOf(ManagementFactory.newPlatformMXBeanProxy(server, ManagementFactory.THREAD_MXBEAN_NAME,
+              ThreadMXBean.class).getThreadCount());
+        }
+
+        System.out.println(String.format("%12d %12d %12d %12s %12s", step, total / REQUESTS / 1000,
+            latencies[REQUESTS * 99 / 100] / 1000, threads, heap));
+
+        if (step == maxConnections)
+          break;
+        if (step * 2 > maxConnections)
+          step = maxConnections / 2;
+      }
+    } finally {
+      database.close();
+      for (Socket s : idle)
+        try {
+          s.close();
+        } catch (IOException e) {
+        }
+    }
+  }
+
+  /**
+   * Opens a connection and waits for the protocol version sent by the server, so the connection is served when returned.
+   */
+  private static Socket openIdleConnection(final String iHost, final int iPort) throws IOException {
+    final Socket socket = new Socket(iHost, iPort);
+    new DataInputStream(socket.getInputStream()).readShort();
+    return socket;
+  }
+}
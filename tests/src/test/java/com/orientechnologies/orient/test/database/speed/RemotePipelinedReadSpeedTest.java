@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OStorageRemoteThread;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+
+/**
+ * Reads the records of the class "Account" of a remote database (by default remote:localhost/demo, change it with -Durl=...) one
+ * request at a time and then pipelining the requests on the same connection with a window of different sizes. Prints the records
+ * read per second.
+ */
+@Test(enabled = false)
+public class RemotePipelinedReadSpeedTest {
+  private static final String CLASS_NAME = "Account";
+  private static final int    ROUNDS     = 5;
+
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "remote:localhost/demo");
+
+    final ODatabaseDocumentTx database = new ODatabaseDocumentTx(url).open("admin", "admin");
+    try {
+      final List<ORecordId> rids = new ArrayList<ORecordId>();
+      for (ODocument doc : database.browseClass(CLASS_NAME))
+        rids.add((ORecordId) doc.getIdentity().copy());
+
+      final OStorageRemoteThread storage = (OStorageRemoteThread) database.getStorage();
+
+      final Map<Integer, Float> results = new LinkedHashMap<Integer, Float>();
+      for (int window : new int[] { 1, 10, 100, 1000 }) {
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; ++i) {
+          final List<Future<ORawBuffer>> pending = new ArrayList<Future<ORawBuffer>>(window);
+          for (ORID rid : rids) {
+            pending.add(storage.readRecordAsync((ORecordId) rid, false));
+            if (pending.size() >= window) {
+              for (Future<ORawBuffer> f : pending)
+                f.get();
+              pending.clear();
+            }
+          }
+          for (Future<ORawBuffer> f : pending)
+            f.get();
+        }
+        final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+        results.put(window, (float) rids.size() * ROUNDS * 1000 / elapsed);
+      }
+
+      for (Map.Entry<Integer, Float> entry : results.entrySet())
+        System.out.println(String.format("Window %5d: %10.0f records/sec", entry.getKey(), entry.getValue()));
+    } finally {
+      database.close();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Compares the sequential and the parallel scan (query.parallel) of SELECT statements that can't use indexes.
+ * <ul>
+ * <li>-Durl=memory:parallelScan database to use: it's created and filled if it doesn't exist</li>
+ * <li>-Drecords=1000000 records created in the class "Profile"</li>
+ * <li>-Dthreads=0 threads of the parallel scan, 0 = number of processors</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class SQLParallelScanSpeedTest {
+  private static final String[] QUERIES = { "select from Profile where name like '%99%' and age > 50",
+      "select count(*) from Profile where age between 20 and 30", "select from Profile where name = 'name-4' limit 10",
+      "select from Profile where age < 30 order by name desc limit 100",
+      "select age, count(*), sum(salary), min(salary), max(salary) from Profile where salary > 1000 group by age" };
+
+  private static final int      CYCLES  = 5;
+
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "memory:parallelScan");
+    final int records = Integer.parseInt(System.getProperty("records", "1000000"));
+    OGlobalConfiguration.QUERY_PARALLEL_THREADS.setValue(Integer.parseInt(System.getProperty("threads", "0")));
+
+    ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+    if (database.exists())
+      database.open("admin", "admin");
+    else {
+      database.create();
+      database.getMetadata().getSchema().createClass("Profile");
+
+      database.declareIntent(new OIntentMassiveInsert());
+      final ODocument doc = new ODocument();
+      for (int i = 0; i < records; ++i) {
+        doc.reset();
+        doc.setClassName("Profile");
+        doc.field("name", "name-" + i).field("age", i % 90).field("salary", (i * 31) % 5000).save();
+      }
+      database.declareIntent(null);
+    }
+
+    try {
+      System.out.println("Scanning " + database.countClass("Profile") + " records with "
+          + Runtime.getRuntime().availableProcessors() + " processors");
+      System.out.println(String.format("%12s %12s %10s  %s", "seq (ms)", "par (ms)", "results", "query"));
+
+      for (String query : QUERIES) {
+        final long sequential = execute(database, query, false);
+        final long parallel = execute(database, query, true);
+        final int results = database.query(new OSQLSynchQuery<ODocument>(query)).size();
+        System.out.println(String.format("%12d %12d %10d  %s", sequential, parallel, results, query));
+      }
+    } finally {
+      OGlobalConfiguration.QUERY_PARALLEL.setValue(false);
+      database.close();
+    }
+  }
+
+  /**
+   * Returns the best time of some executions of the query, in milliseconds.
+   */
+  private static long execute(final ODatabaseDocumentTx iDatabase, final String iQuery, final boolean iParallel) {
+    OGlobalConfiguration.QUERY_PARALLEL.setValue(iParallel);
+
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < CYCLES; ++i) {
+      final long start = System.currentTimeMillis();
+      final List<ODocument> result = iDatabase.query(new OSQLSynchQuery<ODocument>(iQuery));
+      result.size();
+      best = Math.min(best, System.currentTimeMillis() - start);
+    }
+    return best;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Measures the parse overhead of typical parameterized SELECT statements that read few records by index: the time of the parsing
+ * alone and the time of the whole execution without and with the parsed statement cache (query.statementCache.size).
+ * <ul>
+ * <li>-Durl=memory:statementCache database to use: it's created and filled if it doesn't exist</li>
+ * <li>-Drecords=10000 records created in the class "Profile"</li>
+ * <li>-Dexecutions=100000 executions of every statement</li>
+ * </ul>
+ */
+@Test(enabled = false)
+public class SQLStatementCacheSpeedTest {
+  private static final String[] QUERIES = { "select from Profile where id = ?",
+      "select name, age from Profile where id = ? and age > ?",
+      "select from Profile where id in [?, ?, ?] and name like '%name%' order by age desc",
+      "select name.toUpperCase() as upper, salary from Profile where id between ? and ? and (age > 10 or salary < 100) limit 5" };
+
+  public static void main(String[] iArgs) throws Exception {
+    final String url = System.getProperty("url", "memory:statementCache");
+    final int records = Integer.parseInt(System.getProperty("records", "10000"));
+    final int executions = Integer.parseInt(System.getProperty("executions", "100000"));
+    final int cacheSize = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+
+    ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+    if (database.exists())
+      database.open("admin", "admin");
+    else {
+      database.create();
+      final OClass profile = database.getMetadata().getSchema().createClass("Profile");
+      profile.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+      for (int i = 0; i < records; ++i)
+        new ODocument(profile).field("id", i).field("name", "name-" + i).field("age", i % 90).field("salary", (i * 31) % 5000)
+            .save();
+    }
+
+    try {
+      System.out.println(String.format("%12s %12s %12s  %s", "parse (us)", "no cache", "cache", "query"));
+
+      for (String query : QUERIES) {
+        final double parse = parse(query, executions);
+
+        OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(0);
+        final double uncached = execute(database, query, executions, records);
+
+        OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(cacheSize);
+        OSQLStatementCache.invalidate();
+        final double cached = execute(database, query, executions, records);
+
+        System.out.println(String.format("%12.2f %12.2f %12.2f  %s", parse, uncached, cached, query));
+      }
+    } finally {
+      OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(cacheSize);
+      database.close();
+    }
+  }
+
+  /**
+   * Returns the average time to parse the statement, in microseconds.
+   */
+  private static double parse(final String iQuery, final int iExecutions) {
+    // WARM UP
+    for (int i = 0; i < iExecutions / 10; ++i)
+      new OCommandExecutorSQLSelect().parse(new OSQLSynchQuery<ODocument>(iQuery));
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < iExecutions; ++i)
+      new OCommandExecutorSQLSelect().parse(new OSQLSynchQuery<ODocument>(iQuery));
+    return (System.nanoTime() - start) / 1000d / iExecutions;
+  }
+
+  /**
+   * Returns the average time to execute the statement with different parameters, in microseconds.
+   */
+  private static double execute(final ODatabaseDocumentTx iDatabase, final String iQuery, final int iExecutions,
+      final int iRecords) {
+    for (int i = 0; i < iExecutions / 10; ++i)
+      execute(iDatabase, iQuery, i % iRecords);
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < iExecutions; ++i)
+      execute(iDatabase, iQuery, i % iRecords);
+    return (System.nanoTime() - start) / 1000d / iExecutions;
+  }
+
+  private static void execute(final ODatabaseDocumentTx iDatabase, final String iQuery, final int iId) {
+    final Object[] args = new Object[iQuery.length() - iQuery.replace("?", "").length()];
+    for (int i = 0; i < args.length; ++i)
+      args[i] = iId + i;
+    iDatabase.query(new OSQLSynchQuery<ODocument>(iQuery), args);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Looks up keys of a UNIQUE and a NOTUNIQUE index from an increasing number of threads and prints the lookups/sec per thread
+ * count. Run it with -Dindex.lookupCache.size=0 to measure the lookups without the lock-free lookup cache.
+ */
+@Test(enabled = false)
+public class IndexLookupMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static final int			KEYS		= 100000;
+	private static final int			GROUPS	= 1000;
+	private static final String[]	INDEXES	= { "Lookup.id", "Lookup.group" };
+
+	private static String					indexName;
+
+	private ODatabaseDocumentTx		database;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		// System.setProperty("url", "local:C:/temp/databases/indexlookup");
+		final int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+		final int cycles = 1000000;
+
+		createDatabase();
+
+		for (String index : INDEXES) {
+			indexName = index;
+
+			final Map<Integer, Float> results = new LinkedHashMap<Integer, Float>();
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				final IndexLookupMultiThreadSpeedTest test = new IndexLookupMultiThreadSpeedTest(cycles, threads);
+
+				final long start = System.currentTimeMillis();
+				test.data.go(test);
+				final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+				results.put(threads, (float) cycles * 1000 / elapsed);
+			}
+
+			System.out.println("\nIndex " + indexName + ", lookup cache size: " + OGlobalConfiguration.INDEX_LOOKUP_CACHE_SIZE.getValueAsInteger());
+			for (Map.Entry<Integer, Float> entry : results.entrySet())
+				System.out.println(String.format("Threads %3d: %10.0f lookups/sec", entry.getKey(), entry.getValue()));
+		}
+	}
+
+	private static void createDatabase() {
+		final ODatabaseDocumentTx db = new ODatabaseDocumentTx(System.getProperty("url"));
+		if (db.exists())
+			db.open("admin", "admin").drop();
+		db.create();
+
+		try {
+			final OClass cls = db.getMetadata().getSchema().createClass("Lookup");
+			cls.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+			cls.createProperty("group", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+			db.declareIntent(new OIntentMassiveInsert());
+			for (int i = 0; i < KEYS; ++i)
+				new ODocument("Lookup").field("id", i).field("group", i % GROUPS).save();
+			db.declareIntent(null);
+		} finally {
+			db.close();
+		}
+	}
+
+	public IndexLookupMultiThreadSpeedTest() {
+		this(1000000, Runtime.getRuntime().availableProcessors());
+	}
+
+	public IndexLookupMultiThreadSpeedTest(final int iCycles, final int iThreads) {
+		super(iCycles, iThreads, LookupThread.class);
+		if (indexName == null)
+			indexName = INDEXES[0];
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+	}
+
+	@Test(enabled = false)
+	public static class LookupThread extends OrientThreadTest {
+		private ODatabaseDocumentTx	database;
+		private OIndex<?>						index;
+		private final Random				random	= new Random();
+		private int									keys;
+
+		@Override
+		public void init() {
+			database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+			index = database.getMetadata().getIndexManager().getIndex(indexName);
+			keys = indexName.endsWith(".id") ? KEYS : GROUPS;
+		}
+
+		public void cycle() {
+			Assert.assertEquals(index.count(random.nextInt(keys)), keys == KEYS ? 1 : KEYS / GROUPS);
+		}
+
+		@Override
+		public void deinit() throws Exception {
+			if (database != null)
+				database.close();
+			super.deinit();
+		}
+	}
+
+	@Override
+	public void deinit() {
+		if (database != null)
+			database.close();
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.storage.fs.OFile;
+import com.orientechnologies.orient.core.storage.fs.OFileFactory;
+
+/**
+ * Creates and reads back small records on every file type and prints the throughput and the system calls executed on the file
+ * channels (memory mapped files access the disk mostly through the mapped blocks, so their channel calls are not comparable).
+ */
+@Test(enabled = false)
+public class OFileTypesSpeedTest {
+	private static final int	RECORDS			= 200000;
+	private static final int	RECORD_SIZE	= 60;
+
+	public static void main(String[] iArgs) throws IOException {
+		final Map<String, String> results = new LinkedHashMap<String, String>();
+		for (String type : new String[] { OFileFactory.CLASSIC, OFileFactory.MMAP, OFileFactory.BUFFERED })
+			results.put(type, test(type));
+
+		for (Map.Entry<String, String> result : results.entrySet())
+			System.out.println(result.getKey() + ": " + result.getValue());
+	}
+
+	private static String test(final String iType) throws IOException {
+		final File osFile = new File(System.getProperty("java.io.tmpdir"), "orient-filetypes-test." + iType);
+		if (osFile.exists())
+			osFile.delete();
+
+		final OProfiler profiler = Orient.instance().getProfiler();
+		profiler.startRecording();
+
+		final byte[] record = new byte[RECORD_SIZE];
+		for (int i = 0; i < record.length; ++i)
+			record[i] = (byte) i;
+
+		final OFile file = OFileFactory.instance().create(iType, osFile.getAbsolutePath(), "rw");
+		file.create(-1);
+
+		final long[] counters = getChannelCounters(profiler);
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < RECORDS; ++i) {
+			final int offset = file.allocateSpace(OBinaryProtocol.SIZE_INT + RECORD_SIZE);
+			file.writeInt(offset, i);
+			file.write(offset + OBinaryProtocol.SIZE_INT, record);
+		}
+		file.synch();
+		final long createTime = Math.max(System.currentTimeMillis() - start, 1);
+		final long[] createCounters = getChannelCounters(profiler);
+
+		start = System.currentTimeMillis();
+		final byte[] buffer = new byte[RECORD_SIZE];
+		for (int i = 0; i < RECORDS; ++i) {
+			final int offset = i * (OBinaryProtocol.SIZE_INT + RECORD_SIZE);
+			Assert.assertEquals(file.readInt(offset), i);
+			file.read(offset + OBinaryProtocol.SIZE_INT, buffer, RECORD_SIZE);
+		}
+		final long readTime = Math.max(System.currentTimeMillis() - start, 1);
+		final long[] readCounters = getChannelCounters(profiler);
+
+		file.delete();
+		profiler.stopRecording();
+
+		return "create " + (RECORDS * 1000L / createTime) + " records/sec (" + (createCounters[1] - counters[1])
+				+ " channel writes), read " + (RECORDS * 1000L / readTime) + " records/sec (" + (readCounters[0] - createCounters[0])
+				+ " channel reads)";
+	}
+
+	private static long[] getChannelCounters(final OProfiler iProfiler) {
+		return new long[] { Math.max(iProfiler.getCounter("system.file.channelReads"), 0),
+				Math.max(iProfiler.getCounter("system.file.channelWrites"), 0) };
+	}
+}
@@ -0,0 +1,109 @@
+package com.orientechnologies.orient.test.internal.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.storage.fs.OFileMMap;
+
+/**
+ * Random reads on a memory mapped file with the old and the new mmap manager. The manager is chosen once per JVM, so every
+ * manager is measured in its own JVM. The "file.mmap.*" system properties (for example -Dfile.mmap.maxMemory=33554432 to measure
+ * the reads when the file doesn't fit in the mapped memory) are passed to the measured JVMs.
+ */
+@Test(enabled = false)
+public class OMMapManagerSpeedTest {
+	private static final int	FILE_SIZE		= Integer.parseInt(System.getProperty("fileSize", "134217728"));
+	private static final int	READS				= Integer.parseInt(System.getProperty("reads", "2000000"));
+	private static final int	RECORD_SIZE	= 64;
+
+	public static void main(String[] iArgs) throws Exception {
+		if (iArgs.length > 0) {
+			test(Integer.parseInt(iArgs[0]));
+			return;
+		}
+
+		for (String oldManager : new String[] { "true", "false" }) {
+			final List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add("-D" + OGlobalConfiguration.FILE_MMAP_USE_OLD_MANAGER.getKey() + "=" + oldManager);
+			command.add("-DfileSize=" + FILE_SIZE);
+			command.add("-Dreads=" + READS);
+			for (Map.Entry<Object, Object> p : System.getProperties().entrySet())
+				if (p.getKey().toString().startsWith("file.mmap.")
+						&& !p.getKey().equals(OGlobalConfiguration.FILE_MMAP_USE_OLD_MANAGER.getKey()))
+					command.add("-D" + p.getKey() + "=" + p.getValue());
+			command.add(OMMapManagerSpeedTest.class.getName());
+
+			for (int threads : new int[] { 1, 4 }) {
+				final List<String> threadCommand = new ArrayList<String>(command);
+				threadCommand.add(String.valueOf(threads));
+
+				final Process process = new ProcessBuilder(threadCommand).redirectErrorStream(true).start();
+				final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				String line;
+				while ((line = reader.readLine()) != null)
+					System.out.println((oldManager.equals("true") ? "old" : "new") + " manager: " + line);
+				process.waitFor();
+			}
+		}
+	}
+
+	private static void test(final int iThreads) throws Exception {
+		final File osFile = new File(System.getProperty("java.io.tmpdir"), "orient-mmap-manager-test");
+		if (osFile.exists())
+			osFile.delete();
+
+		final OFileMMap file = new OFileMMap().init(osFile.getAbsolutePath(), "rw");
+		file.create(FILE_SIZE);
+		file.allocateSpace(FILE_SIZE);
+
+		final int records = FILE_SIZE / RECORD_SIZE;
+		for (int i = 0; i < records; ++i)
+			file.writeInt(i * RECORD_SIZE, i);
+		file.synch();
+
+		final Thread[] threads = new Thread[iThreads];
+		final long start = System.currentTimeMillis();
+		for (int t = 0; t < iThreads; ++t) {
+			final long seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					final Random random = new Random(seed);
+					final byte[] buffer = new byte[RECORD_SIZE - OBinaryProtocol.SIZE_INT];
+					try {
+						for (int i = 0; i < READS / iThreads; ++i) {
+							final int record = random.nextInt(records);
+							Assert.assertEquals(file.readInt(record * RECORD_SIZE), record);
+							file.read(record * RECORD_SIZE + OBinaryProtocol.SIZE_INT, buffer, buffer.length);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		final long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+		System.out.println(iThreads + " thread(s), " + (READS / iThreads * iThreads) + " random reads on " + FILE_SIZE / 1048576
+				+ "MB in " + elapsed + "ms: " + (READS * 1000L / elapsed) + " reads/sec");
+
+		file.delete();
+	}
+}